@@ -0,0 +1,141 @@
+package com.example.iMeetBE.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+/**
+ * Cache trong bộ nhớ có giới hạn: tối đa maxSize phần tử (bỏ phần tử ít dùng nhất - LRU) và mỗi phần tử
+ * hết hạn sau ttlMillis. Đếm hit/miss/put/eviction để xuất metrics (xem {@link CacheConfig}).
+ * Không lưu null: kết quả "không tìm thấy" luôn đọc lại database.
+ */
+public class BoundedCache extends AbstractValueAdaptingCache {
+
+    private record Entry(Object value, long expiresAt) { }
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<Object, Entry> store;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(String name, int maxSize, long ttlMillis) {
+        super(false);
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.store = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return store;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Entry entry;
+        synchronized (store) {
+            entry = store.get(key);
+            if (entry != null && entry.expiresAt() <= System.currentTimeMillis()) {
+                store.remove(key);
+                evictions.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) fromStoreValue(cached);
+        }
+        try {
+            T value = valueLoader.call();
+            put(key, value);
+            return value;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        synchronized (store) {
+            store.put(key, new Entry(toStoreValue(value), System.currentTimeMillis() + ttlMillis));
+        }
+        puts.increment();
+    }
+
+    @Override
+    public void evict(Object key) {
+        synchronized (store) {
+            store.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (store) {
+            store.clear();
+        }
+    }
+
+    public long size() {
+        synchronized (store) {
+            return store.size();
+        }
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+}
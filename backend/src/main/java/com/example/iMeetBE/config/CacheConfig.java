@@ -0,0 +1,101 @@
+package com.example.iMeetBE.config;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * Cache đọc cho các truy vấn chi tiết (cuộc họp, phòng, thiết bị theo id).
+ * - Interceptor cache chạy ngoài transaction: cache hit không mở transaction, @CacheEvict chạy sau khi commit.
+ * - Cache manager transaction-aware: evict gọi bên trong transaction (job trạng thái, bộ đếm lời mời, kho thiết bị)
+ *   được hoãn tới sau commit, tránh nạp lại giá trị cũ trước khi ghi xong.
+ * - Metrics cache.gets{result=hit|miss}, cache.puts, cache.evictions, cache.size theo tag cache=meetings|rooms|devices.
+ * Đặt app.cache.enabled=false để tắt hoàn toàn.
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+
+    public static final String MEETINGS = "meetings";
+    public static final String ROOMS = "rooms";
+    public static final String DEVICES = "devices";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.enabled:true}") boolean enabled,
+            @Value("${app.cache.meetings.max-size:10000}") int meetingsMaxSize,
+            @Value("${app.cache.meetings.ttl:60000}") long meetingsTtl,
+            @Value("${app.cache.rooms.max-size:1000}") int roomsMaxSize,
+            @Value("${app.cache.rooms.ttl:600000}") long roomsTtl,
+            @Value("${app.cache.devices.max-size:2000}") int devicesMaxSize,
+            @Value("${app.cache.devices.ttl:600000}") long devicesTtl) {
+        if (!enabled) {
+            return new NoOpCacheManager();
+        }
+        List<Cache> caches = List.of(
+            new BoundedCache(MEETINGS, meetingsMaxSize, meetingsTtl),
+            new BoundedCache(ROOMS, roomsMaxSize, roomsTtl),
+            new BoundedCache(DEVICES, devicesMaxSize, devicesTtl));
+        AbstractTransactionSupportingCacheManager manager = new AbstractTransactionSupportingCacheManager() {
+            @Override
+            protected Collection<? extends Cache> loadCaches() {
+                return caches;
+            }
+        };
+        manager.setTransactionAware(true);
+        return manager;
+    }
+
+    // Spring Boot actuator dùng provider này để đăng ký metrics cho từng BoundedCache lúc khởi động
+    @Bean
+    public CacheMeterBinderProvider<BoundedCache> boundedCacheMeterBinderProvider() {
+        return (cache, tags) -> new CacheMeterBinder<>(cache, cache.getName(), tags) {
+            @Override
+            protected Long size() {
+                return getCache().size();
+            }
+
+            @Override
+            protected long hitCount() {
+                return getCache().hitCount();
+            }
+
+            @Override
+            protected Long missCount() {
+                return getCache().missCount();
+            }
+
+            @Override
+            protected Long evictionCount() {
+                return getCache().evictionCount();
+            }
+
+            @Override
+            protected long putCount() {
+                return getCache().putCount();
+            }
+
+            @Override
+            protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+                Gauge.builder("cache.max.size", getCache(), BoundedCache::maxSize)
+                    .description("Số phần tử tối đa trước khi bỏ phần tử ít dùng nhất")
+                    .tags(getTagsWithCacheName())
+                    .register(registry);
+            }
+        };
+    }
+}
@@ -4,9 +4,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Regions;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.retry.PredefinedRetryPolicies;
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderClientBuilder;
 
@@ -19,16 +21,50 @@ public class CognitoConfig {
     @Value("${aws.secret-key}")
     private String secretKey;
 
-    @Value("${aws.region:ap-southeast-2}")
+    @Value("${aws.cognito.region:${aws.region:ap-southeast-2}}")
     private String region;
 
-    @Bean
+    // Để trống khi dùng AWS thật; đặt URL (ví dụ http://localhost:9229) để test với Cognito stub local
+    @Value("${aws.cognito.endpoint:}")
+    private String endpoint;
+
+    @Value("${aws.cognito.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${aws.cognito.connection-timeout:5000}")
+    private int connectionTimeout;
+
+    @Value("${aws.cognito.socket-timeout:15000}")
+    private int socketTimeout;
+
+    @Value("${aws.cognito.max-error-retry:3}")
+    private int maxErrorRetry;
+
+    /**
+     * Client dùng chung cho cả ứng dụng: giữ connection pool và kết nối TLS giữa các request.
+     * AWS client thread-safe nên không cần tạo mới mỗi lần gọi.
+     */
+    @Bean(destroyMethod = "shutdown")
     public AWSCognitoIdentityProvider cognitoClient() {
         BasicAWSCredentials awsCredentials = new BasicAWSCredentials(accessKey, secretKey);
-        
-        return AWSCognitoIdentityProviderClientBuilder.standard()
+
+        ClientConfiguration clientConfiguration = new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withConnectionTimeout(connectionTimeout)
+                .withSocketTimeout(socketTimeout)
+                .withTcpKeepAlive(true)
+                .withRetryPolicy(PredefinedRetryPolicies.getDefaultRetryPolicyWithCustomMaxRetries(maxErrorRetry));
+
+        AWSCognitoIdentityProviderClientBuilder builder = AWSCognitoIdentityProviderClientBuilder.standard()
                 .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(Regions.fromName(region))
-                .build();
+                .withClientConfiguration(clientConfiguration);
+
+        if (endpoint != null && !endpoint.isBlank()) {
+            builder.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, region));
+        } else {
+            builder.withRegion(region);
+        }
+
+        return builder.build();
     }
 }
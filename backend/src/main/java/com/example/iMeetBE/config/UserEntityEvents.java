@@ -0,0 +1,103 @@
+package com.example.iMeetBE.config;
+
+import java.util.Set;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.service.UserAvatarChangedEvent;
+import com.example.iMeetBE.service.UserChangedEvent;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Phát {@link UserChangedEvent} cho mọi lần ghi User qua JPA (đăng ký, profile, admin, OAuth2, Cognito...).
+ * Đăng ký thẳng vào Hibernate thay vì @EntityListeners để entity User không phụ thuộc tầng service.
+ * Cập nhật chỉ đổi avatar phát {@link UserAvatarChangedEvent}; lần cập nhật không đổi username/email/họ tên/avatar
+ * (token version, mật khẩu) không phát sự kiện.
+ */
+@Component
+public class UserEntityEvents implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Set<String> PROFILE_PROPERTIES = Set.of("username", "email", "fullName");
+    private static final String AVATAR_PROPERTY = "avatarUrl";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof User user) {
+            publish(user, false);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof User user) {
+            if (changed(event, PROFILE_PROPERTIES)) {
+                publish(user, false);
+            } else if (changed(event, Set.of(AVATAR_PROPERTY))) {
+                eventPublisher.publishEvent(new UserAvatarChangedEvent(user.getId(), user.getAvatarUrl()));
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof User user) {
+            publish(user, true);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    // Không có danh sách thuộc tính bẩn (update() bản detached) thì coi như đã đổi
+    private static boolean changed(PostUpdateEvent event, Set<String> properties) {
+        int[] dirty = event.getDirtyProperties();
+        if (dirty == null) {
+            return true;
+        }
+        String[] names = event.getPersister().getPropertyNames();
+        for (int index : dirty) {
+            if (properties.contains(names[index])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void publish(User user, boolean removed) {
+        eventPublisher.publishEvent(
+            new UserChangedEvent(user.getId(), user.getUsername(), user.getEmail(), user.getFullName(),
+                user.getAvatarUrl(), removed));
+    }
+}
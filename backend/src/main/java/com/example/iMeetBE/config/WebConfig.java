@@ -1,17 +1,47 @@
 package com.example.iMeetBE.config;
 
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.example.iMeetBE.service.AvatarStorageService;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    @Value("${meeting.export.timeout:1800000}")
+    private long exportTimeout;
+
+    // Request async duy nhất là /api/meetings/export (StreamingResponseBody): timeout mặc định của
+    // container (30 giây) sẽ cắt ngang file xuất lớn, mặc định cho 30 phút
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(exportTimeout);
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        String location = "file:" + (uploadDir.endsWith("/") ? uploadDir : uploadDir + "/");
+
+        // Avatar lưu theo SHA-256 nên nội dung của một URL không bao giờ đổi:
+        // ETag = hash trong tên file, cache lâu dài và immutable
+        registry.addResourceHandler("/uploads/" + AvatarStorageService.AVATAR_DIR + "/**")
+                .addResourceLocations(location + AvatarStorageService.AVATAR_DIR + "/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .setEtagGenerator(resource -> StringUtils.stripFilenameExtension(resource.getFilename()));
+
         // Cấu hình để serve static files từ thư mục uploads
         registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:uploads/")
+                .addResourceLocations(location)
                 .setCachePeriod(3600); // Cache 1 giờ
     }
 }
@@ -1,14 +1,11 @@
 package com.example.iMeetBE.controller;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,9 +20,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.iMeetBE.dto.CursorPage;
+import com.example.iMeetBE.dto.UserSummary;
 import com.example.iMeetBE.model.User;
 import com.example.iMeetBE.model.UserRole;
 import com.example.iMeetBE.repository.UserRepository;
+import com.example.iMeetBE.service.AvatarMigrationService;
+import com.example.iMeetBE.service.TokenRevocationService;
+import com.example.iMeetBE.service.UserDirectoryService;
 
 @RestController
 @RequestMapping("/api/admin/users")
@@ -37,6 +39,15 @@ public class AdminUserController {
 
     @Autowired
     private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private AvatarMigrationService avatarMigrationService;
+
+    @Autowired
+    private UserDirectoryService userDirectoryService;
     
     /**
      * Tạo ID ngẫu nhiên dạng số cho traditional users
@@ -50,40 +61,36 @@ public class AdminUserController {
     }
 
     /**
-     * Lấy danh sách tất cả users với phân trang
+     * Lấy danh sách users theo trang (keyset): gửi lại nextCursor/prevCursor để sang trang sau/trước.
+     * sortBy chỉ nhận createdAt, email, username. totalElements là số xấp xỉ từ cache và chỉ có khi
+     * includeTotal=true và không lọc theo search.
      */
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> getAllUsers(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         try {
-            Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-                Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-            
-            Pageable pageable = PageRequest.of(page, size, sort);
-            Page<User> userPage;
-            
-            if (search != null && !search.trim().isEmpty()) {
-                userPage = userRepository.findByEmailContainingIgnoreCaseOrFullNameContainingIgnoreCase(
-                    search.trim(), search.trim(), pageable);
-            } else {
-                userPage = userRepository.findAll(pageable);
+            CursorPage<UserSummary> userPage = userDirectoryService.findPage(sortBy, sortDir, search, cursor, size);
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("users", userPage.getItems());
+            body.put("nextCursor", userPage.getNextCursor());
+            body.put("prevCursor", userPage.getPrevCursor());
+            body.put("hasNext", userPage.isHasNext());
+            body.put("hasPrevious", userPage.isHasPrevious());
+            body.put("size", userPage.getSize());
+            if (includeTotal && (search == null || search.trim().isEmpty())) {
+                body.put("totalElements", userDirectoryService.approximateCount());
             }
-            
-            return ResponseEntity.ok(Map.of(
-                "users", userPage.getContent(),
-                "totalElements", userPage.getTotalElements(),
-                "totalPages", userPage.getTotalPages(),
-                "currentPage", userPage.getNumber(),
-                "size", userPage.getSize(),
-                "first", userPage.isFirst(),
-                "last", userPage.isLast()
-            ));
-            
+            return ResponseEntity.ok(body);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                 .body(Map.of("error", "Failed to fetch users: " + e.getMessage()));
@@ -201,9 +208,15 @@ public class AdminUserController {
             if (userData.containsKey("fullName")) {
                 user.setFullName((String) userData.get("fullName"));
             }
+            // Đổi role hoặc mật khẩu sẽ thu hồi các token đã cấp
+            boolean revokeTokens = false;
             if (userData.containsKey("role")) {
                 try {
-                    user.setRole(UserRole.valueOf(((String) userData.get("role")).toUpperCase()));
+                    UserRole newRole = UserRole.valueOf(((String) userData.get("role")).toUpperCase());
+                    if (newRole != user.getRole()) {
+                        user.setRole(newRole);
+                        revokeTokens = true;
+                    }
                 } catch (IllegalArgumentException e) {
                     return ResponseEntity.badRequest()
                         .body(Map.of("error", "Invalid role"));
@@ -213,11 +226,18 @@ public class AdminUserController {
                 String newPassword = (String) userData.get("password");
                 if (!newPassword.trim().isEmpty()) {
                     user.setPasswordHash(passwordEncoder.encode(newPassword));
+                    revokeTokens = true;
                 }
             }
             
+            if (revokeTokens) {
+                user.incrementTokenVersion();
+            }
             user.setUpdatedAt(LocalDateTime.now());
             User updatedUser = userRepository.save(user);
+            if (revokeTokens) {
+                tokenRevocationService.evict(updatedUser.getEmail());
+            }
             
             return ResponseEntity.ok(Map.of(
                 "message", "User updated successfully",
@@ -255,6 +275,7 @@ public class AdminUserController {
             }
             
             userRepository.delete(user);
+            tokenRevocationService.evict(user.getEmail());
             
             return ResponseEntity.ok(Map.of(
                 "message", "User deleted successfully"
@@ -288,4 +309,26 @@ public class AdminUserController {
                 .body(Map.of("error", "Failed to fetch user stats: " + e.getMessage()));
         }
     }
+
+    /**
+     * Chuyển các avatar base64 cũ trong database ra blob store (chạy một lần)
+     */
+    @PostMapping("/migrate-avatars")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> migrateAvatars() {
+        try {
+            Map<String, Integer> result = avatarMigrationService.migrateInlineAvatars();
+            
+            return ResponseEntity.ok(Map.of(
+                "message", "Avatar migration completed",
+                "migrated", result.get("migrated"),
+                "withoutVariants", result.get("withoutVariants"),
+                "errors", result.get("errors")
+            ));
+            
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Failed to migrate avatars: " + e.getMessage()));
+        }
+    }
 }
@@ -26,6 +26,7 @@ import com.example.iMeetBE.dto.SignupResponse;
 import com.example.iMeetBE.model.User;
 import com.example.iMeetBE.repository.UserRepository;
 import com.example.iMeetBE.service.AuthService;
+import com.example.iMeetBE.service.AvatarStorageService;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -218,7 +219,8 @@ public class AuthController {
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "message", "Upload avatar thành công",
-                "avatarUrl", avatarUrl
+                "avatarUrl", avatarUrl,
+                "variants", AvatarStorageService.variantUrls(avatarUrl)
             ));
         } catch (IOException e) {
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Lỗi upload file: " + e.getMessage()));
@@ -0,0 +1,114 @@
+package com.example.iMeetBE.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.example.iMeetBE.service.ResponseBytesCache;
+
+/**
+ * Trả JSON đã serialize sẵn từ {@link ResponseBytesCache}: body byte[] được ByteArrayHttpMessageConverter chép
+ * thẳng ra output stream của servlet, không qua Jackson.
+ * Chọn bản gzip khi Accept-Encoding cho phép; mỗi bản có ETag riêng (bản gzip thêm hậu tố -gzip) và luôn kèm
+ * Vary: Accept-Encoding để cache trung gian không trả nhầm bản nén. GET có điều kiện như {@link ConditionalGet}.
+ */
+final class CachedJson {
+
+    static final MediaType JSON_UTF8 = new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8);
+
+    /**
+     * Loader ném ra khi kết quả không được cache (ví dụ ApiResponse lỗi): trả nguyên body với status này.
+     */
+    static final class Uncacheable extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final HttpStatus status;
+        private final transient Object body;
+
+        Uncacheable(HttpStatus status, Object body) {
+            super(null, null, false, false);
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private CachedJson() {
+    }
+
+    static ResponseEntity<byte[]> ok(ResponseBytesCache cache, String key, String tag, String ifNoneMatch,
+                                     String acceptEncoding, Supplier<?> body) {
+        boolean gzipAccepted = acceptsGzip(acceptEncoding);
+        String identityEtag = ConditionalGet.quote(tag);
+        String gzipEtag = ConditionalGet.quote(tag + "-gzip");
+        if (ConditionalGet.matches(ifNoneMatch, identityEtag)) {
+            return notModified(identityEtag);
+        }
+        if (gzipAccepted && ConditionalGet.matches(ifNoneMatch, gzipEtag)) {
+            return notModified(gzipEtag);
+        }
+
+        ResponseBytesCache.Body cached;
+        try {
+            cached = cache.get(key + "@" + tag, body);
+        } catch (Uncacheable e) {
+            return status(cache, e.status, e.body);
+        }
+        byte[] gzip = gzipAccepted ? cached.gzip() : null;
+        ResponseEntity.BodyBuilder builder = ConditionalGet.ok(gzip != null ? gzipEtag : identityEtag)
+            .contentType(JSON_UTF8)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip != null) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+        }
+        return builder.body(cached.json());
+    }
+
+    // Response lỗi không cache, chỉ serialize cho khớp kiểu trả về byte[]
+    static ResponseEntity<byte[]> status(ResponseBytesCache cache, HttpStatus status, Object body) {
+        return ResponseEntity.status(status).contentType(JSON_UTF8).body(cache.toJson(body));
+    }
+
+    // Accept-Encoding: "gzip, deflate, br" hoặc có trọng số "gzip;q=0.8"; q=0 nghĩa là từ chối
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parts = candidate.split(";");
+            String coding = parts[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        refused = Double.parseDouble(param.substring(2).trim()) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (coding.equalsIgnoreCase("gzip")) {
+                return !refused;
+            }
+            if (!refused && !acceptEncoding.toLowerCase().contains("gzip")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<byte[]> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(etag)
+            .cacheControl(ConditionalGet.REVALIDATE)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+            .build();
+    }
+}
@@ -12,8 +12,11 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.iMeetBE.dto.CognitoSyncStats;
 import com.example.iMeetBE.model.User;
 import com.example.iMeetBE.repository.UserRepository;
+import com.example.iMeetBE.service.CognitoBatchExecutor;
+import com.example.iMeetBE.service.CognitoIncrementalSyncService;
 import com.example.iMeetBE.service.CognitoService;
 import com.example.iMeetBE.service.AutoSyncService;
 import com.example.iMeetBE.service.BidirectionalSyncService;
@@ -34,6 +37,9 @@ public class CognitoSyncController {
     @Autowired
     private BidirectionalSyncService bidirectionalSyncService;
 
+    @Autowired
+    private CognitoIncrementalSyncService cognitoIncrementalSyncService;
+
     /**
      * Đồng bộ tất cả users từ database lên Cognito
      */
@@ -47,9 +53,10 @@ public class CognitoSyncController {
                 return ResponseEntity.ok().body("Không có user nào trong database để đồng bộ");
             }
             
-            cognitoService.syncAllUsersToCognito(users);
+            CognitoBatchExecutor.BatchResult result = cognitoService.syncAllUsersToCognito(users);
             
-            return ResponseEntity.ok().body("Đồng bộ thành công " + users.size() + " users lên Cognito");
+            return ResponseEntity.ok().body("Đồng bộ thành công " + result.getSucceeded() + "/" + users.size()
+                    + " users lên Cognito (" + result.getFailed() + " lỗi, " + result.getDurationMillis() + "ms)");
             
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
@@ -164,9 +171,9 @@ public class CognitoSyncController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> syncAllUsersFromCognitoToDatabase() {
         try {
-            cognitoService.syncAllUsersFromCognitoToDatabase();
+            CognitoSyncStats stats = cognitoIncrementalSyncService.synchronize(false);
             
-            return ResponseEntity.ok().body("Đã đồng bộ tất cả users từ Cognito về database thành công");
+            return ResponseEntity.ok().body(stats);
             
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
@@ -237,9 +244,9 @@ public class CognitoSyncController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> fullSyncFromCognito() {
         try {
-            cognitoService.fullSyncFromCognito();
+            CognitoSyncStats stats = cognitoIncrementalSyncService.synchronize(true);
             
-            return ResponseEntity.ok().body("Đã đồng bộ hoàn toàn từ Cognito thành công");
+            return ResponseEntity.ok().body(stats);
             
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
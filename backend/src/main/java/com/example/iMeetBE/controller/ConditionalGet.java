@@ -0,0 +1,70 @@
+package com.example.iMeetBE.controller;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * GET có điều kiện cho các API được poll: so If-None-Match với ETag tính từ bộ đếm version
+ * (xem ResourceVersions) trước khi đọc dữ liệu, khớp thì trả 304 không body.
+ * Cache-Control: private, no-cache — trình duyệt được giữ bản sao nhưng phải hỏi lại server mỗi lần.
+ */
+final class ConditionalGet {
+
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ConditionalGet() {
+    }
+
+    static String quote(String tag) {
+        return "\"" + tag + "\"";
+    }
+
+    // If-None-Match có thể là "*" hoặc danh sách ETag (strong hoặc W/)
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // If-Modified-Since chỉ được xét khi request không có If-None-Match; ngày sai định dạng thì bỏ qua
+    static boolean notModifiedSince(String ifNoneMatch, String ifModifiedSince, Instant lastModified) {
+        if ((ifNoneMatch != null && !ifNoneMatch.isBlank()) || ifModifiedSince == null || lastModified == null) {
+            return false;
+        }
+        try {
+            Instant since = ZonedDateTime.parse(ifModifiedSince.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !lastModified.isAfter(since);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag, Instant lastModified) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).lastModified(lastModified)
+            .cacheControl(REVALIDATE).build();
+    }
+
+    static ResponseEntity.BodyBuilder ok(String etag) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE);
+    }
+}
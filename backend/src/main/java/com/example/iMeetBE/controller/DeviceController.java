@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -22,6 +24,8 @@ import com.example.iMeetBE.dto.DeviceRequest;
 import com.example.iMeetBE.dto.DeviceResponse;
 import com.example.iMeetBE.model.DeviceType;
 import com.example.iMeetBE.service.DeviceService;
+import com.example.iMeetBE.service.ResourceVersions;
+import com.example.iMeetBE.service.ResponseBytesCache;
 import com.example.iMeetBE.service.DeviceService.DeviceStatistics;
 
 import jakarta.validation.Valid;
@@ -33,6 +37,12 @@ public class DeviceController {
     
     @Autowired
     private DeviceService deviceService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ResponseBytesCache responseBytesCache;
     
     // Tạo thiết bị mới
     @PostMapping
@@ -44,15 +54,24 @@ public class DeviceController {
     
     // Lấy tất cả thiết bị với phân trang
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<DeviceResponse>>> getAllDevices(
+    public ResponseEntity<byte[]> getAllDevices(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "deviceId") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDir) {
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         
-        ApiResponse<Page<DeviceResponse>> response = deviceService.getAllDevices(page, size, sortBy, sortDir);
-        HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
-        return ResponseEntity.status(status).body(response);
+        // ETag lấy trước khi query: danh sách không đổi kể từ lần poll trước thì trả 304,
+        // cùng ETag và tham số thì trả lại JSON đã serialize; response lỗi không cache
+        String query = "devices?page=" + page + "&size=" + size + "&sortBy=" + sortBy + "&sortDir=" + sortDir;
+        return CachedJson.ok(responseBytesCache, query, resourceVersions.devicesTag(), ifNoneMatch, acceptEncoding, () -> {
+            ApiResponse<Page<DeviceResponse>> response = deviceService.getAllDevices(page, size, sortBy, sortDir);
+            if (!response.isSuccess()) {
+                throw new CachedJson.Uncacheable(HttpStatus.BAD_REQUEST, response);
+            }
+            return response;
+        });
     }
     
     // Lấy thiết bị theo ID
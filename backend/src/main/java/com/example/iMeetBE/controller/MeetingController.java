@@ -1,12 +1,19 @@
 package com.example.iMeetBE.controller;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -16,11 +23,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriUtils;
 
 import com.example.iMeetBE.dto.ApiResponse;
+import com.example.iMeetBE.dto.CursorPage;
 import com.example.iMeetBE.dto.InviteRequest;
 import com.example.iMeetBE.dto.InviteResponse;
 import com.example.iMeetBE.dto.MeetingRequest;
@@ -29,7 +40,13 @@ import com.example.iMeetBE.dto.UpdateMeetingStatusRequest;
 import com.example.iMeetBE.model.BookingStatus;
 import com.example.iMeetBE.model.User;
 import com.example.iMeetBE.repository.UserRepository;
+import com.example.iMeetBE.service.CalendarFeedService;
+import com.example.iMeetBE.service.MeetingExportService;
 import com.example.iMeetBE.service.MeetingService;
+import com.example.iMeetBE.service.ResourceVersions;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.validation.Valid;
 
@@ -43,6 +60,20 @@ public class MeetingController {
     
     @Autowired
     private UserRepository userRepository;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private MeetingExportService meetingExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CalendarFeedService calendarFeedService;
+
+    private static final MediaType CALENDAR = new MediaType("text", "calendar", StandardCharsets.UTF_8);
     
     // Tạo cuộc họp mới
     @PostMapping
@@ -72,10 +103,12 @@ public class MeetingController {
         }
     }
     
-    // Lấy tất cả cuộc họp
+    // Lấy tất cả cuộc họp (phân trang theo cursor: truyền lại nextCursor/prevCursor của trang trước)
     @GetMapping
-    public ResponseEntity<ApiResponse<List<MeetingResponse>>> getAllMeetings() {
-        ApiResponse<List<MeetingResponse>> response = meetingService.getAllMeetings();
+    public ResponseEntity<ApiResponse<CursorPage<MeetingResponse>>> getAllMeetings(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ApiResponse<CursorPage<MeetingResponse>> response = meetingService.getAllMeetings(cursor, size);
         HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
         return ResponseEntity.status(status).body(response);
     }
@@ -136,6 +169,9 @@ public class MeetingController {
             ApiResponse<MeetingResponse> response = meetingService.updateMeeting(meetingId, request, user.getId(), user.getRole().name());
             HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
             return ResponseEntity.status(status).body(response);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("Cuộc họp vừa được người khác cập nhật, vui lòng tải lại và thử lại"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Lỗi khi cập nhật cuộc họp: " + e.getMessage()));
@@ -165,6 +201,9 @@ public class MeetingController {
             ApiResponse<Void> response = meetingService.deleteMeeting(meetingId, user.getId(), user.getRole().name());
             HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.NOT_FOUND;
             return ResponseEntity.status(status).body(response);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("Cuộc họp vừa được người khác cập nhật, vui lòng tải lại và thử lại"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Lỗi khi hủy cuộc họp: " + e.getMessage()));
@@ -195,6 +234,9 @@ public class MeetingController {
             ApiResponse<MeetingResponse> response = meetingService.updateMeetingStatus(meetingId, request.getStatus(), user.getId(), user.getRole().name());
             HttpStatus httpStatus = response.isSuccess() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
             return ResponseEntity.status(httpStatus).body(response);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("Cuộc họp vừa được người khác cập nhật, vui lòng tải lại và thử lại"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Lỗi khi cập nhật trạng thái cuộc họp: " + e.getMessage()));
@@ -203,24 +245,40 @@ public class MeetingController {
     
     // Lấy cuộc họp theo phòng
     @GetMapping("/room/{roomId}")
-    public ResponseEntity<ApiResponse<List<MeetingResponse>>> getMeetingsByRoom(@PathVariable Integer roomId) {
-        ApiResponse<List<MeetingResponse>> response = meetingService.getMeetingsByRoom(roomId);
-        HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
-        return ResponseEntity.status(status).body(response);
+    public ResponseEntity<ApiResponse<CursorPage<MeetingResponse>>> getMeetingsByRoom(
+            @PathVariable Integer roomId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = ConditionalGet.quote(resourceVersions.meetingsByRoomTag(roomId));
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        ApiResponse<CursorPage<MeetingResponse>> response = meetingService.getMeetingsByRoom(roomId, cursor, size);
+        if (response.isSuccess()) {
+            return ConditionalGet.ok(etag).body(response);
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
     
     // Lấy cuộc họp theo người dùng
     @GetMapping("/user/{userId}")
-    public ResponseEntity<ApiResponse<List<MeetingResponse>>> getMeetingsByUser(@PathVariable String userId) {
-        ApiResponse<List<MeetingResponse>> response = meetingService.getMeetingsByUser(userId);
+    public ResponseEntity<ApiResponse<CursorPage<MeetingResponse>>> getMeetingsByUser(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ApiResponse<CursorPage<MeetingResponse>> response = meetingService.getMeetingsByUser(userId, cursor, size);
         HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
         return ResponseEntity.status(status).body(response);
     }
     
     // Lấy cuộc họp theo trạng thái
     @GetMapping("/status/{status}")
-    public ResponseEntity<ApiResponse<List<MeetingResponse>>> getMeetingsByStatus(@PathVariable BookingStatus status) {
-        ApiResponse<List<MeetingResponse>> response = meetingService.getMeetingsByStatus(status);
+    public ResponseEntity<ApiResponse<CursorPage<MeetingResponse>>> getMeetingsByStatus(
+            @PathVariable BookingStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ApiResponse<CursorPage<MeetingResponse>> response = meetingService.getMeetingsByStatus(status, cursor, size);
         HttpStatus httpStatus = response.isSuccess() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
         return ResponseEntity.status(httpStatus).body(response);
     }
@@ -235,27 +293,141 @@ public class MeetingController {
         return ResponseEntity.status(status).body(response);
     }
     
+    /**
+     * Xuất lịch sử cuộc họp cho admin (format=json|csv, lọc startTime trong [from, to), bỏ trống là không giới hạn).
+     * Body ghi dần ra client qua StreamingResponseBody nên xuất cả năm dữ liệu cũng không dựng danh sách trong heap.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMeetings(
+            @RequestParam(defaultValue = "json") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to)
+            throws JsonProcessingException {
+        MeetingExportService.Format exportFormat = MeetingExportService.Format.parse(format);
+        if (exportFormat == null) {
+            return streamingError(HttpStatus.BAD_REQUEST, "format phải là json hoặc csv");
+        }
+        if (from != null && to != null && !to.isAfter(from)) {
+            return streamingError(HttpStatus.BAD_REQUEST, "to phải sau from");
+        }
+        String fileName = "meetings" + (from != null ? "-from-" + from.toLocalDate() : "")
+            + (to != null ? "-to-" + to.toLocalDate() : "") + "." + exportFormat.getExtension();
+        StreamingResponseBody body = out -> meetingExportService.export(exportFormat, from, to, out);
+        return ResponseEntity.ok()
+            .contentType(exportFormat.getMediaType())
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+            .body(body);
+    }
+
+    // Lịch iCalendar của phòng cho ứng dụng lịch đăng ký (webcal); lịch không đổi thì trả 304
+    @GetMapping("/room/{roomId}/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> getRoomCalendar(
+            @PathVariable Integer roomId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince)
+            throws JsonProcessingException {
+        Optional<CalendarFeedService.Feed> feed = calendarFeedService.roomFeed(roomId);
+        if (feed.isEmpty()) {
+            return streamingError(HttpStatus.NOT_FOUND, "Không tìm thấy phòng với ID: " + roomId);
+        }
+        return calendar(feed.get(), ifNoneMatch, ifModifiedSince);
+    }
+
+    // Lịch iCalendar của người dùng: cuộc họp do họ tổ chức và cuộc họp họ đã nhận lời.
+    // Cần khóa bí mật lấy từ /calendar-link; thiếu hoặc sai khóa trả 404 như user không tồn tại
+    @GetMapping("/user/{userId}/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> getUserCalendar(
+            @PathVariable String userId,
+            @RequestParam(required = false) String token,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince)
+            throws JsonProcessingException {
+        Optional<CalendarFeedService.Feed> feed = calendarFeedService.userFeed(userId, token);
+        if (feed.isEmpty()) {
+            return streamingError(HttpStatus.NOT_FOUND, "Không tìm thấy lịch");
+        }
+        return calendar(feed.get(), ifNoneMatch, ifModifiedSince);
+    }
+
+    // Link đăng ký lịch .ics của người đang đăng nhập
+    @GetMapping("/calendar-link")
+    public ResponseEntity<ApiResponse<String>> getCalendarLink(Authentication authentication) {
+        return calendarLink(authentication, false);
+    }
+
+    // Tạo khóa mới cho link lịch, link cũ hết hiệu lực (khi link bị lộ)
+    @PostMapping("/calendar-link/reset")
+    public ResponseEntity<ApiResponse<String>> resetCalendarLink(Authentication authentication) {
+        return calendarLink(authentication, true);
+    }
+
+    private ResponseEntity<ApiResponse<String>> calendarLink(Authentication authentication, boolean reset) {
+        if (authentication == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(ApiResponse.error("Vui lòng đăng nhập để lấy link lịch"));
+        }
+        Optional<User> user = userRepository.findByEmail(authentication.getName());
+        Optional<String> token = user.flatMap(u -> calendarFeedService.calendarToken(u.getId(), reset));
+        if (token.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error("Không tìm thấy người dùng"));
+        }
+        String link = "/api/meetings/user/" + UriUtils.encodePathSegment(user.get().getId(), StandardCharsets.UTF_8)
+            + "/calendar.ics?token=" + token.get();
+        return ResponseEntity.ok(ApiResponse.success(link, "Lấy link lịch thành công"));
+    }
+
+    private ResponseEntity<StreamingResponseBody> calendar(CalendarFeedService.Feed feed, String ifNoneMatch,
+                                                           String ifModifiedSince) {
+        if (ConditionalGet.matches(ifNoneMatch, feed.getEtag())
+                || ConditionalGet.notModifiedSince(ifNoneMatch, ifModifiedSince, feed.getLastModified())) {
+            return ConditionalGet.notModified(feed.getEtag(), feed.getLastModified());
+        }
+        return ConditionalGet.ok(feed.getEtag())
+            .lastModified(feed.getLastModified())
+            .contentType(CALENDAR)
+            .body(feed::writeTo);
+    }
+
+    // Kiểu trả về là StreamingResponseBody để Spring ghi async, nên lỗi cũng ghi JSON ApiResponse qua đó
+    private ResponseEntity<StreamingResponseBody> streamingError(HttpStatus status, String message)
+            throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(ApiResponse.error(message));
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(out -> out.write(json));
+    }
+    
     // Lấy cuộc họp sắp tới
     @GetMapping("/upcoming")
-    public ResponseEntity<ApiResponse<List<MeetingResponse>>> getUpcomingMeetings() {
-        ApiResponse<List<MeetingResponse>> response = meetingService.getUpcomingMeetings();
+    public ResponseEntity<ApiResponse<CursorPage<MeetingResponse>>> getUpcomingMeetings(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ApiResponse<CursorPage<MeetingResponse>> response = meetingService.getUpcomingMeetings(cursor, size);
         HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
         return ResponseEntity.status(status).body(response);
     }
     
     // Lấy cuộc họp hôm nay
     @GetMapping("/today")
-    public ResponseEntity<ApiResponse<List<MeetingResponse>>> getMeetingsToday() {
+    public ResponseEntity<ApiResponse<List<MeetingResponse>>> getMeetingsToday(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Ngày nằm trong ETag: qua nửa đêm danh sách "hôm nay" là danh sách khác
+        String etag = ConditionalGet.quote(resourceVersions.meetingsOnDateTag(LocalDate.now()));
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
         ApiResponse<List<MeetingResponse>> response = meetingService.getMeetingsToday();
-        HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
-        return ResponseEntity.status(status).body(response);
+        if (response.isSuccess()) {
+            return ConditionalGet.ok(etag).body(response);
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
     
     // Tìm kiếm cuộc họp theo tiêu đề
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<MeetingResponse>>> searchMeetingsByTitle(
-            @RequestParam String title) {
-        ApiResponse<List<MeetingResponse>> response = meetingService.searchMeetingsByTitle(title);
+    public ResponseEntity<ApiResponse<CursorPage<MeetingResponse>>> searchMeetingsByTitle(
+            @RequestParam String title,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ApiResponse<CursorPage<MeetingResponse>> response = meetingService.searchMeetingsByTitle(title, cursor, size);
         HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
         return ResponseEntity.status(status).body(response);
     }
@@ -1,8 +1,10 @@
 package com.example.iMeetBE.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.iMeetBE.dto.ApiResponse;
@@ -129,11 +132,20 @@ public class MeetingDeviceController {
         }
     }
     
-    // Get device availability
+    // Get device availability for a time window (defaults to the current moment)
     @GetMapping("/device/{deviceId}/availability")
-    public ResponseEntity<ApiResponse<Integer>> getDeviceAvailability(@PathVariable Long deviceId) {
+    public ResponseEntity<ApiResponse<Integer>> getDeviceAvailability(
+            @PathVariable Long deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
         try {
-            int availability = meetingDeviceService.getDeviceAvailability(deviceId);
+            LocalDateTime start = startTime != null ? startTime : LocalDateTime.now();
+            LocalDateTime end = endTime != null ? endTime : start.plusSeconds(1);
+            if (!end.isAfter(start)) {
+                return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("End time must be after start time"));
+            }
+            int availability = meetingDeviceService.getDeviceAvailability(deviceId, start, end);
             return ResponseEntity.ok(ApiResponse.success(availability, "Device availability retrieved successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
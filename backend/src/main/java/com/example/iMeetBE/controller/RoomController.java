@@ -3,9 +3,11 @@ package com.example.iMeetBE.controller;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -16,6 +18,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -26,6 +29,9 @@ import com.example.iMeetBE.dto.RoomResponse;
 import com.example.iMeetBE.dto.UpdateRoomStatusRequest;
 import com.example.iMeetBE.model.Room;
 import com.example.iMeetBE.model.RoomStatus;
+import com.example.iMeetBE.service.RoomCatalog;
+import com.example.iMeetBE.service.ResourceVersions;
+import com.example.iMeetBE.service.ResponseBytesCache;
 import com.example.iMeetBE.service.RoomService;
 
 import jakarta.validation.Valid;
@@ -37,20 +43,27 @@ public class RoomController {
     
     @Autowired
     private RoomService roomService;
+
+    @Autowired
+    private RoomCatalog roomCatalog;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ResponseBytesCache responseBytesCache;
     
-    // Lấy tất cả phòng
+    // Lấy tất cả phòng (từ danh mục trong bộ nhớ, JSON serialize sẵn theo version danh mục)
     @GetMapping
-    public ResponseEntity<ApiResponse<List<RoomResponse>>> getAllRooms() {
+    public ResponseEntity<byte[]> getAllRooms(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            List<Room> rooms = roomService.getAllRooms();
-            List<RoomResponse> roomResponses = rooms.stream()
-                .map(RoomResponse::new)
-                .toList();
-            
-            return ResponseEntity.ok(ApiResponse.success(roomResponses, "Lấy danh sách phòng thành công"));
+            return catalogList("all", ifNoneMatch, acceptEncoding,
+                catalog -> ApiResponse.success(catalog.all(), "Lấy danh sách phòng thành công"));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(ApiResponse.error("Lỗi khi lấy danh sách phòng: " + e.getMessage()));
+            return CachedJson.status(responseBytesCache, HttpStatus.INTERNAL_SERVER_ERROR,
+                ApiResponse.error("Lỗi khi lấy danh sách phòng: " + e.getMessage()));
         }
     }
     
@@ -72,33 +85,29 @@ public class RoomController {
     }
     
      @GetMapping("/status/{status}")
-    public ResponseEntity<ApiResponse<List<RoomResponse>>> getRoomsByStatus(@PathVariable RoomStatus status) {
+    public ResponseEntity<byte[]> getRoomsByStatus(@PathVariable RoomStatus status,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            List<Room> rooms = roomService.getRoomsByStatus(status);
-            List<RoomResponse> roomResponses = rooms.stream()
-                .map(RoomResponse::new)
-                .toList();
-            
-            return ResponseEntity.ok(ApiResponse.success(roomResponses, "Lấy danh sách phòng theo trạng thái thành công"));
+            return catalogList("status=" + status, ifNoneMatch, acceptEncoding,
+                catalog -> ApiResponse.success(catalog.byStatus(status), "Lấy danh sách phòng theo trạng thái thành công"));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(ApiResponse.error("Lỗi khi lấy danh sách phòng theo trạng thái: " + e.getMessage()));
+            return CachedJson.status(responseBytesCache, HttpStatus.INTERNAL_SERVER_ERROR,
+                ApiResponse.error("Lỗi khi lấy danh sách phòng theo trạng thái: " + e.getMessage()));
         }
     }
     
     // Lấy phòng có sẵn
     @GetMapping("/available")
-    public ResponseEntity<ApiResponse<List<RoomResponse>>> getAvailableRooms() {
+    public ResponseEntity<byte[]> getAvailableRooms(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            List<Room> rooms = roomService.getAvailableRooms();
-            List<RoomResponse> roomResponses = rooms.stream()
-                .map(RoomResponse::new)
-                .toList();
-            
-            return ResponseEntity.ok(ApiResponse.success(roomResponses, "Lấy danh sách phòng có sẵn thành công"));
+            return catalogList("available", ifNoneMatch, acceptEncoding,
+                catalog -> ApiResponse.success(catalog.byStatus(RoomStatus.AVAILABLE), "Lấy danh sách phòng có sẵn thành công"));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(ApiResponse.error("Lỗi khi lấy danh sách phòng có sẵn: " + e.getMessage()));
+            return CachedJson.status(responseBytesCache, HttpStatus.INTERNAL_SERVER_ERROR,
+                ApiResponse.error("Lỗi khi lấy danh sách phòng có sẵn: " + e.getMessage()));
         }
     }
 
@@ -122,22 +131,28 @@ public class RoomController {
         }
     }
     
-    // Lấy phòng theo sức chứa
+    // Lấy phòng theo sức chứa (sức chứa nhỏ trước)
     @GetMapping("/capacity/{minCapacity}")
-    public ResponseEntity<ApiResponse<List<RoomResponse>>> getRoomsByCapacity(@PathVariable Integer minCapacity) {
+    public ResponseEntity<byte[]> getRoomsByCapacity(@PathVariable Integer minCapacity,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            List<Room> rooms = roomService.getRoomsByCapacity(minCapacity);
-            List<RoomResponse> roomResponses = rooms.stream()
-                .map(RoomResponse::new)
-                .toList();
-            
-            return ResponseEntity.ok(ApiResponse.success(roomResponses, "Lấy danh sách phòng theo sức chứa thành công"));
+            return catalogList("capacity=" + minCapacity, ifNoneMatch, acceptEncoding,
+                catalog -> ApiResponse.success(catalog.withCapacityAtLeast(minCapacity), "Lấy danh sách phòng theo sức chứa thành công"));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(ApiResponse.error("Lỗi khi lấy danh sách phòng theo sức chứa: " + e.getMessage()));
+            return CachedJson.status(responseBytesCache, HttpStatus.INTERNAL_SERVER_ERROR,
+                ApiResponse.error("Lỗi khi lấy danh sách phòng theo sức chứa: " + e.getMessage()));
         }
     }
 
+    // Các danh sách lấy từ cùng một ảnh chụp danh mục: ETag và khóa cache theo version của ảnh chụp đó
+    private ResponseEntity<byte[]> catalogList(String query, String ifNoneMatch, String acceptEncoding,
+            Function<RoomCatalog.Snapshot, ApiResponse<List<RoomResponse>>> select) {
+        RoomCatalog.Snapshot catalog = roomCatalog.current();
+        return CachedJson.ok(responseBytesCache, "rooms?" + query, resourceVersions.roomsTag(catalog.getVersion()),
+            ifNoneMatch, acceptEncoding, () -> select.apply(catalog));
+    }
+
      @PatchMapping("/{roomId}/status")
     public ResponseEntity<ApiResponse<RoomResponse>> updateRoomStatus(
             @PathVariable Integer roomId, 
@@ -0,0 +1,46 @@
+package com.example.iMeetBE.controller;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.iMeetBE.dto.ApiResponse;
+import com.example.iMeetBE.dto.SearchResponse;
+import com.example.iMeetBE.service.SearchIndex;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"}, allowCredentials = "true")
+public class SearchController {
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    // Tìm chung cuộc họp, phòng, thiết bị (không phân biệt dấu), kèm số kết quả theo từng loại
+    @GetMapping
+    public ResponseEntity<ApiResponse<SearchResponse>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) List<String> types,
+            @RequestParam(required = false) Integer limit) {
+        Set<SearchIndex.Type> wanted = EnumSet.noneOf(SearchIndex.Type.class);
+        if (types != null) {
+            for (String type : types) {
+                try {
+                    wanted.add(SearchIndex.Type.valueOf(type.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.badRequest().body(ApiResponse.error("Loại tìm kiếm không hợp lệ: " + type));
+                }
+            }
+        }
+        SearchResponse result = searchIndex.search(q, wanted, limit);
+        return ResponseEntity.ok(ApiResponse.success(result, "Tìm kiếm thành công"));
+    }
+}
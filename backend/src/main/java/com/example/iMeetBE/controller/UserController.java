@@ -2,20 +2,26 @@ package com.example.iMeetBE.controller;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.iMeetBE.dto.ApiResponse;
 import com.example.iMeetBE.dto.UpdateProfileRequest;
 import com.example.iMeetBE.dto.UpdateProfileResponse;
+import com.example.iMeetBE.dto.UserSuggestion;
 import com.example.iMeetBE.service.UserService;
+import com.example.iMeetBE.service.UserSuggestIndex;
 
 import jakarta.validation.Valid;
 
@@ -27,6 +33,26 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserSuggestIndex userSuggestIndex;
+
+    /**
+     * Gợi ý người để mời khi gõ (email, username, họ tên; không phân biệt dấu),
+     * người đã được mời nhiều nhất bởi người gọi đứng trước.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<UserSuggestion>>> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication) {
+        if (authentication == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(ApiResponse.error("Vui lòng đăng nhập để tìm người tham gia"));
+        }
+        List<UserSuggestion> suggestions = userSuggestIndex.suggest(authentication.getName(), q, limit);
+        return ResponseEntity.ok(ApiResponse.success(suggestions, "Lấy gợi ý thành công"));
+    }
+
     /**
      * Cập nhật thông tin profile của user
      * 
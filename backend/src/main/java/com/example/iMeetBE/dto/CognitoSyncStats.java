@@ -0,0 +1,80 @@
+package com.example.iMeetBE.dto;
+
+public class CognitoSyncStats {
+    private int scanned;      // Số user đọc từ Cognito
+    private int created;
+    private int updated;
+    private int deleted;
+    private int unchanged;
+    private int errors;
+    private long durationMs;
+
+    public CognitoSyncStats() {}
+
+    public int getScanned() {
+        return scanned;
+    }
+
+    public void setScanned(int scanned) {
+        this.scanned = scanned;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(int deleted) {
+        this.deleted = deleted;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(int unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    public void setErrors(int errors) {
+        this.errors = errors;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    // Tổng số thay đổi đã ghi xuống database
+    public int getChanged() {
+        return created + updated + deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "scanned=" + scanned + ", created=" + created + ", updated=" + updated + ", deleted=" + deleted
+                + ", unchanged=" + unchanged + ", errors=" + errors + ", duration=" + durationMs + "ms";
+    }
+}
@@ -31,6 +31,9 @@ public class MeetingRequest {
     
     @Valid
     private List<MeetingDeviceRequestItem> devices;
+
+    // Version của cuộc họp client đang sửa (tùy chọn); khác version hiện tại thì bị từ chối
+    private Long version;
     
     // Constructors
     public MeetingRequest() {}
@@ -112,5 +115,12 @@ public class MeetingRequest {
     public void setDevices(List<MeetingDeviceRequestItem> devices) {
         this.devices = devices;
     }
-}
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
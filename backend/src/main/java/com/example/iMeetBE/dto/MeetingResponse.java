@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 import com.example.iMeetBE.model.BookingStatus;
 import com.example.iMeetBE.model.Meeting;
+import com.example.iMeetBE.service.AvatarStorageService;
 
 public class MeetingResponse {
     
@@ -19,13 +20,49 @@ public class MeetingResponse {
     private String userId;
     private String userName;
     private String userEmail;
+    private String userAvatarUrl; // Bản thu nhỏ 48px avatar người đặt, null nếu không có
     private BookingStatus bookingStatus;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Long participants; // Số người được mời
+    private Long pendingCount; // Số lời mời chưa phản hồi
+    private Long acceptedCount;
+    private Long declinedCount;
+    private Long version; // Gửi lại trong MeetingRequest khi cập nhật để phát hiện sửa đồng thời
     
     // Constructors
     public MeetingResponse() {}
+
+    // Dùng cho constructor expression trong JPQL (MeetingRepositoryCustom.RESPONSE_SELECT): chỉ các cột cần trả về
+    public MeetingResponse(Integer meetingId, String title, String description, LocalDateTime startTime,
+                           LocalDateTime endTime, Boolean isAllDay, Integer roomId, String roomName,
+                           String roomLocation, String userId, String userName, String userEmail,
+                           String userAvatarUrl,
+                           BookingStatus bookingStatus, LocalDateTime createdAt, LocalDateTime updatedAt,
+                           Long participants, Long pendingCount, Long acceptedCount, Long declinedCount,
+                           Long version) {
+        this.meetingId = meetingId;
+        this.title = title;
+        this.description = description;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.isAllDay = isAllDay;
+        this.roomId = roomId;
+        this.roomName = roomName;
+        this.roomLocation = roomLocation;
+        this.userId = userId;
+        this.userName = userName;
+        this.userEmail = userEmail;
+        this.userAvatarUrl = thumbnail(userAvatarUrl);
+        this.bookingStatus = bookingStatus;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.participants = participants;
+        this.pendingCount = pendingCount;
+        this.acceptedCount = acceptedCount;
+        this.declinedCount = declinedCount;
+        this.version = version;
+    }
     
     public MeetingResponse(Meeting meeting) {
         this.meetingId = meeting.getMeetingId();
@@ -47,11 +84,17 @@ public class MeetingResponse {
             this.userId = meeting.getUser().getUserId();
             this.userName = meeting.getUser().getFullName();
             this.userEmail = meeting.getUser().getEmail();
+            this.userAvatarUrl = thumbnail(meeting.getUser().getAvatarUrl());
         }
         
         this.bookingStatus = meeting.getBookingStatus();
         this.createdAt = meeting.getCreatedAt();
         this.updatedAt = meeting.getUpdatedAt();
+        this.participants = meeting.getParticipants() != null ? meeting.getParticipants() : 0L;
+        this.pendingCount = meeting.getPendingCount() != null ? meeting.getPendingCount() : 0L;
+        this.acceptedCount = meeting.getAcceptedCount() != null ? meeting.getAcceptedCount() : 0L;
+        this.declinedCount = meeting.getDeclinedCount() != null ? meeting.getDeclinedCount() : 0L;
+        this.version = meeting.getVersion();
     }
     
     // Getters and Setters
@@ -150,6 +193,14 @@ public class MeetingResponse {
     public void setUserEmail(String userEmail) {
         this.userEmail = userEmail;
     }
+
+    public String getUserAvatarUrl() {
+        return userAvatarUrl;
+    }
+
+    public void setUserAvatarUrl(String userAvatarUrl) {
+        this.userAvatarUrl = userAvatarUrl;
+    }
     
     public BookingStatus getBookingStatus() {
         return bookingStatus;
@@ -182,5 +233,41 @@ public class MeetingResponse {
     public void setParticipants(Long participants) {
         this.participants = participants;
     }
-}
 
+    public Long getPendingCount() {
+        return pendingCount;
+    }
+
+    public void setPendingCount(Long pendingCount) {
+        this.pendingCount = pendingCount;
+    }
+
+    public Long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public void setAcceptedCount(Long acceptedCount) {
+        this.acceptedCount = acceptedCount;
+    }
+
+    public Long getDeclinedCount() {
+        return declinedCount;
+    }
+
+    public void setDeclinedCount(Long declinedCount) {
+        this.declinedCount = declinedCount;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    // Data URL cũ (base64 trong database) không trả về trong danh sách
+    private static String thumbnail(String avatarUrl) {
+        return AvatarStorageService.isInlineDataUrl(avatarUrl) ? null : AvatarStorageService.variantUrl(avatarUrl, 48);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.iMeetBE.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kết quả /api/search: các hit đã xếp hạng và facet (số kết quả theo từng loại, không phụ thuộc bộ lọc types).
+ */
+public class SearchResponse {
+
+    public static class SearchHit {
+        private String type; // MEETING, ROOM, DEVICE
+        private Long id;
+        private String title;
+        private String subtitle;
+        private LocalDateTime startTime; // chỉ có với MEETING
+        private double score;
+
+        public SearchHit() {}
+
+        public SearchHit(String type, Long id, String title, String subtitle, LocalDateTime startTime, double score) {
+            this.type = type;
+            this.id = id;
+            this.title = title;
+            this.subtitle = subtitle;
+            this.startTime = startTime;
+            this.score = score;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+
+        public String getSubtitle() {
+            return subtitle;
+        }
+
+        public void setSubtitle(String subtitle) {
+            this.subtitle = subtitle;
+        }
+
+        public LocalDateTime getStartTime() {
+            return startTime;
+        }
+
+        public void setStartTime(LocalDateTime startTime) {
+            this.startTime = startTime;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public void setScore(double score) {
+            this.score = score;
+        }
+    }
+
+    private String query;
+    private List<SearchHit> hits;
+    private Map<String, Integer> facets;
+    private int total;
+
+    public SearchResponse() {}
+
+    public SearchResponse(String query, List<SearchHit> hits, Map<String, Integer> facets, int total) {
+        this.query = query;
+        this.hits = hits;
+        this.facets = facets;
+        this.total = total;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public List<SearchHit> getHits() {
+        return hits;
+    }
+
+    public void setHits(List<SearchHit> hits) {
+        this.hits = hits;
+    }
+
+    public Map<String, Integer> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, Integer> facets) {
+        this.facets = facets;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+}
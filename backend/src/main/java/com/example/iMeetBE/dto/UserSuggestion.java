@@ -0,0 +1,74 @@
+package com.example.iMeetBE.dto;
+
+/**
+ * Một gợi ý người để mời (/api/users/suggest); inviteCount là số lần người gọi đã mời người này.
+ * avatarUrl là bản thu nhỏ 48px nếu có.
+ */
+public class UserSuggestion {
+    private String id;
+    private String email;
+    private String username;
+    private String fullName;
+    private String avatarUrl;
+    private long inviteCount;
+
+    public UserSuggestion() {}
+
+    public UserSuggestion(String id, String email, String username, String fullName, String avatarUrl,
+                          long inviteCount) {
+        this.id = id;
+        this.email = email;
+        this.username = username;
+        this.fullName = fullName;
+        this.avatarUrl = avatarUrl;
+        this.inviteCount = inviteCount;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+
+    public String getAvatarUrl() {
+        return avatarUrl;
+    }
+
+    public void setAvatarUrl(String avatarUrl) {
+        this.avatarUrl = avatarUrl;
+    }
+
+    public long getInviteCount() {
+        return inviteCount;
+    }
+
+    public void setInviteCount(long inviteCount) {
+        this.inviteCount = inviteCount;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.iMeetBE.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.iMeetBE.model.UserRole;
+
+/**
+ * Thông tin rút gọn của user cho danh sách admin: không có access token, password hash hay avatar base64;
+ * avatarUrl là bản thu nhỏ 48px nếu có.
+ */
+public class UserSummary {
+    private String id;
+    private String username;
+    private String email;
+    private String fullName;
+    private UserRole role;
+    private String avatarUrl;
+    private boolean oauthUser;
+    private LocalDateTime createdAt;
+
+    public UserSummary() {}
+
+    // Dùng cho constructor expression trong JPQL (UserRepositoryImpl)
+    public UserSummary(String id, String username, String email, String fullName, UserRole role,
+                       String avatarUrl, boolean oauthUser, LocalDateTime createdAt) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.fullName = fullName;
+        this.role = role;
+        this.avatarUrl = avatarUrl;
+        this.oauthUser = oauthUser;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+
+    public UserRole getRole() {
+        return role;
+    }
+
+    public void setRole(UserRole role) {
+        this.role = role;
+    }
+
+    public String getAvatarUrl() {
+        return avatarUrl;
+    }
+
+    public void setAvatarUrl(String avatarUrl) {
+        this.avatarUrl = avatarUrl;
+    }
+
+    public boolean isOauthUser() {
+        return oauthUser;
+    }
+
+    public void setOauthUser(boolean oauthUser) {
+        this.oauthUser = oauthUser;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -10,14 +10,25 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "meetings")
+@Table(
+    name = "meetings",
+    indexes = {
+        // Phân trang keyset theo (start_time, meeting_id), kèm các bộ lọc thường dùng
+        @Index(name = "idx_meetings_start", columnList = "start_time, meeting_id"),
+        @Index(name = "idx_meetings_room_start", columnList = "room_id, start_time, meeting_id"),
+        @Index(name = "idx_meetings_user_start", columnList = "user_id, start_time, meeting_id"),
+        @Index(name = "idx_meetings_status_start", columnList = "booking_status, start_time, meeting_id")
+    }
+)
 public class Meeting {
     
     @Id
@@ -58,8 +69,24 @@ public class Meeting {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
-    @Column(name = "participants")
+    // Bộ đếm lời mời: chỉ ghi bằng UPDATE nguyên tử (MeetingRepository.adjustInviteCounters) và job
+    // InviteCounterService.repair, không bao giờ qua save() entity nên không bị ghi đè bởi bản đọc cũ
+    @Column(name = "participants", updatable = false)
     private Long participants = 0L; // Số người được mời
+
+    @Column(name = "pending_count", updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long pendingCount = 0L;
+
+    @Column(name = "accepted_count", updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long acceptedCount = 0L;
+
+    @Column(name = "declined_count", updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long declinedCount = 0L;
+
+    // Optimistic locking: hai lượt sửa cùng một cuộc họp đồng thời thì lượt sau bị từ chối
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version = 0L;
     
     @PrePersist
     protected void onCreate() {
@@ -182,5 +209,36 @@ public class Meeting {
     public void setParticipants(Long participants) {
         this.participants = participants;
     }
-}
 
+    public Long getPendingCount() {
+        return pendingCount;
+    }
+
+    public void setPendingCount(Long pendingCount) {
+        this.pendingCount = pendingCount;
+    }
+
+    public Long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public void setAcceptedCount(Long acceptedCount) {
+        this.acceptedCount = acceptedCount;
+    }
+
+    public Long getDeclinedCount() {
+        return declinedCount;
+    }
+
+    public void setDeclinedCount(Long declinedCount) {
+        this.declinedCount = declinedCount;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
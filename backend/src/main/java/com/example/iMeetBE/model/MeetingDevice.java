@@ -52,6 +52,11 @@ public class MeetingDevice {
     
     @Column(name = "notes", columnDefinition = "TEXT")
     private String notes;
+
+    // true: chỉ giữ thiết bị trong khung giờ của cuộc họp, không trừ devices.quantity.
+    // null: bản ghi cũ đã trừ thẳng vào kho (được DeviceReservationLedger chuyển đổi khi khởi động)
+    @Column(name = "windowed")
+    private Boolean windowed;
     
     @PrePersist
     protected void onCreate() {
@@ -148,4 +153,12 @@ public class MeetingDevice {
     public void setNotes(String notes) {
         this.notes = notes;
     }
+
+    public Boolean getWindowed() {
+        return windowed;
+    }
+
+    public void setWindowed(Boolean windowed) {
+        this.windowed = windowed;
+    }
 }
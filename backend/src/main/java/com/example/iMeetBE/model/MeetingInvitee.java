@@ -28,7 +28,8 @@ import jakarta.persistence.UniqueConstraint;
         @Index(name = "idx_meeting_id", columnList = "meeting_id"),
         @Index(name = "idx_email", columnList = "email"),
         @Index(name = "idx_status", columnList = "status"),
-        @Index(name = "idx_token", columnList = "token")
+        @Index(name = "idx_token", columnList = "token"),
+        @Index(name = "idx_invited_by_email", columnList = "invited_by, email")
     }
 )
 public class MeetingInvitee {
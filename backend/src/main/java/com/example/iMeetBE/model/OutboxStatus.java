@@ -0,0 +1,8 @@
+package com.example.iMeetBE.model;
+
+public enum OutboxStatus {
+    PENDING,    // Chờ gửi (hoặc chờ gửi lại)
+    SENDING,    // Đang được một luồng gửi giữ
+    SENT,       // Đã gửi
+    FAILED      // Hết số lần thử
+}
@@ -7,11 +7,18 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "users")
+@Table(
+    name = "users",
+    indexes = {
+        // Phân trang keyset danh sách user của admin (email, username đã có index unique)
+        @Index(name = "idx_users_created", columnList = "created_at, id")
+    }
+)
 public class User {
 
     @Id
@@ -31,7 +38,7 @@ public class User {
     private String fullName;   // 👈 thêm cột full_name
 
     @Column(name = "avatar_url", columnDefinition = "LONGTEXT")
-    private String avatarUrl; // Avatar URL (có thể từ OAuth2 hoặc base64 data)
+    private String avatarUrl; // Avatar URL (từ OAuth2 hoặc /uploads/avatars/...); base64 cũ được chuyển qua AvatarMigrationService
 
     @Column(name = "google_id", unique = true)
     private String googleId;
@@ -43,6 +50,20 @@ public class User {
     @Column(name = "role", nullable = false)
     private UserRole role = UserRole.USER;
 
+    @Column(name = "token_version")
+    private Integer tokenVersion = 0; // Tăng lên để thu hồi các JWT đã cấp
+
+    // Khóa bí mật trong URL lịch .ics của user (CalendarFeedService), tạo khi user lấy link lần đầu
+    @Column(name = "calendar_token", length = 64)
+    private String calendarToken;
+
+    // Dấu vân tay của user trong Cognito ở lần đồng bộ gần nhất (CognitoIncrementalSyncService)
+    @Column(name = "cognito_attributes_hash", length = 64)
+    private String cognitoAttributesHash;
+
+    @Column(name = "cognito_modified_at")
+    private LocalDateTime cognitoModifiedAt;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -144,6 +165,43 @@ public class User {
         this.role = role;
     }
 
+    public Integer getTokenVersion() {
+        return tokenVersion != null ? tokenVersion : 0;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
+    // Thu hồi tất cả JWT đã cấp cho user này
+    public void incrementTokenVersion() {
+        this.tokenVersion = getTokenVersion() + 1;
+    }
+
+    public String getCalendarToken() {
+        return calendarToken;
+    }
+
+    public void setCalendarToken(String calendarToken) {
+        this.calendarToken = calendarToken;
+    }
+
+    public String getCognitoAttributesHash() {
+        return cognitoAttributesHash;
+    }
+
+    public void setCognitoAttributesHash(String cognitoAttributesHash) {
+        this.cognitoAttributesHash = cognitoAttributesHash;
+    }
+
+    public LocalDateTime getCognitoModifiedAt() {
+        return cognitoModifiedAt;
+    }
+
+    public void setCognitoModifiedAt(LocalDateTime cognitoModifiedAt) {
+        this.cognitoModifiedAt = cognitoModifiedAt;
+    }
+
     // Alias method for getUserId (for compatibility)
     public String getUserId() {
         return this.id;
@@ -1,9 +1,12 @@
 package com.example.iMeetBE.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,6 +14,8 @@ import org.springframework.stereotype.Repository;
 import com.example.iMeetBE.model.Device;
 import com.example.iMeetBE.model.DeviceType;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
 public interface DeviceRepository extends JpaRepository<Device, Long> {
     
@@ -44,4 +49,30 @@ public interface DeviceRepository extends JpaRepository<Device, Long> {
     List<Device> findDevicesWithFilters(@Param("name") String name, 
                                        @Param("deviceType") DeviceType deviceType, 
                                        @Param("minQuantity") Integer minQuantity);
+
+    // Trừ kho trong một câu lệnh: chỉ thành công khi còn đủ số lượng (trả về 0 nếu không đủ)
+    @Modifying
+    @Query("UPDATE Device d SET d.quantity = d.quantity - :amount, d.usedCount = d.usedCount + :amount, " +
+           "d.updatedAt = :now WHERE d.deviceId = :deviceId AND d.quantity >= :amount")
+    int decrementQuantity(@Param("deviceId") Long deviceId,
+                          @Param("amount") int amount,
+                          @Param("now") LocalDateTime now);
+
+    // Trả lại kho trong một câu lệnh
+    @Modifying
+    @Query("UPDATE Device d SET d.quantity = d.quantity + :amount, " +
+           "d.usedCount = CASE WHEN d.usedCount > :amount THEN d.usedCount - :amount ELSE 0 END, " +
+           "d.updatedAt = :now WHERE d.deviceId = :deviceId")
+    int incrementQuantity(@Param("deviceId") Long deviceId,
+                          @Param("amount") int amount,
+                          @Param("now") LocalDateTime now);
+
+    // Số lượng còn lại, không load entity
+    @Query("SELECT d.quantity FROM Device d WHERE d.deviceId = :deviceId")
+    Optional<Integer> findQuantityById(@Param("deviceId") Long deviceId);
+
+    // Khóa dòng thiết bị (SELECT ... FOR UPDATE) để kiểm tra và ghi lượt giữ tuần tự theo từng thiết bị
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM Device d WHERE d.deviceId = :deviceId")
+    Optional<Device> findByIdForUpdate(@Param("deviceId") Long deviceId);
 }
@@ -0,0 +1,60 @@
+package com.example.iMeetBE.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.iMeetBE.model.EmailOutbox;
+import com.example.iMeetBE.model.OutboxStatus;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // Email đến hạn gửi: PENDING tới giờ gửi lại, hoặc SENDING đã hết hạn giữ (luồng gửi chết giữa chừng)
+    @Query("SELECT e FROM EmailOutbox e WHERE e.status IN ('PENDING', 'SENDING') AND e.nextAttemptAt <= :now " +
+           "AND e.attempts < :maxAttempts ORDER BY e.nextAttemptAt ASC, e.id ASC")
+    List<EmailOutbox> findDue(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts, Pageable pageable);
+
+    /**
+     * Nhận một email để gửi, chỉ khi attempts vẫn bằng giá trị đã đọc (:attempts) và chưa hết số lần thử.
+     * Trả về 0 nếu luồng/instance khác đã nhận trước. attempts sau khi nhận (:attempts + 1) là mã của lượt gửi này:
+     * markSent/markFailed chỉ ghi khi mã còn khớp, lượt gửi đã mất quyền giữ (quá hạn, bị nhận lại) không ghi đè kết quả.
+     */
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'SENDING', e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil " +
+           "WHERE e.id = :id AND e.status IN ('PENDING', 'SENDING') AND e.nextAttemptAt <= :now " +
+           "AND e.attempts = :attempts AND e.attempts < :maxAttempts")
+    int claim(@Param("id") Long id, @Param("attempts") int attempts, @Param("maxAttempts") int maxAttempts,
+              @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'SENT', e.sentAt = :now, e.lastError = NULL " +
+           "WHERE e.id = :id AND e.status = 'SENDING' AND e.attempts = :attempt")
+    int markSent(@Param("id") Long id, @Param("attempt") int attempt, @Param("now") LocalDateTime now);
+
+    // Gửi lỗi: PENDING (thử lại lúc :nextAttemptAt) hoặc FAILED khi hết số lần thử
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.nextAttemptAt = :nextAttemptAt, e.lastError = :error " +
+           "WHERE e.id = :id AND e.status = 'SENDING' AND e.attempts = :attempt")
+    int markFailed(@Param("id") Long id, @Param("attempt") int attempt, @Param("status") OutboxStatus status,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+
+    // Email đã dùng hết số lần thử nhưng không có kết quả (luồng gửi chết ở lần cuối): chuyển sang FAILED
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'FAILED', e.lastError = :error " +
+           "WHERE e.status IN ('PENDING', 'SENDING') AND e.nextAttemptAt <= :now AND e.attempts >= :maxAttempts")
+    int failExhausted(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts,
+                      @Param("error") String error);
+
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e WHERE e.status = 'SENT' AND e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+
+    long countByStatus(OutboxStatus status);
+}
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -44,4 +45,67 @@ public interface MeetingDeviceRepository extends JpaRepository<MeetingDevice, In
     @Query("SELECT md FROM MeetingDevice md WHERE md.borrowedAt BETWEEN :startDate AND :endDate")
     List<MeetingDevice> findByBorrowedAtBetween(@Param("startDate") java.time.LocalDateTime startDate, 
                                                @Param("endDate") java.time.LocalDateTime endDate);
+
+    // Chuyển BORROWED -> RETURNED/CANCELLED; trả về 0 nếu bản ghi không còn ở trạng thái BORROWED
+    // (hai lượt trả/hủy đồng thời chỉ một lượt được cộng lại kho)
+    @Modifying
+    @Query("UPDATE MeetingDevice md SET md.status = :status, md.returnedAt = :now " +
+           "WHERE md.meetingDeviceId = :id AND md.status = 'BORROWED'")
+    int closeBorrowing(@Param("id") Integer meetingDeviceId,
+                       @Param("status") BorrowingStatus status,
+                       @Param("now") java.time.LocalDateTime now);
+
+    // Một lượt giữ thiết bị theo khung giờ cuộc họp (không load entity)
+    interface DeviceWindow {
+        Integer getMeetingDeviceId();
+        Long getDeviceId();
+        Integer getMeetingId();
+        java.time.LocalDateTime getStartTime();
+        java.time.LocalDateTime getEndTime();
+        Integer getQuantity();
+    }
+
+    // Các lượt giữ còn hiệu lực (BORROWED, cuộc họp chưa hủy) kết thúc sau :from
+    @Query("SELECT md.meetingDeviceId AS meetingDeviceId, md.device.deviceId AS deviceId, " +
+           "md.meeting.meetingId AS meetingId, md.meeting.startTime AS startTime, md.meeting.endTime AS endTime, " +
+           "md.quantityBorrowed AS quantity FROM MeetingDevice md " +
+           "WHERE md.status = 'BORROWED' AND md.meeting.bookingStatus <> 'CANCELLED' AND md.meeting.endTime > :from")
+    List<DeviceWindow> findActiveWindowsEndingAfter(@Param("from") java.time.LocalDateTime from);
+
+    // Các lượt giữ còn hiệu lực của một thiết bị overlap [start, end), bỏ qua cuộc họp :excludeMeetingId
+    @Query("SELECT md.meetingDeviceId AS meetingDeviceId, md.device.deviceId AS deviceId, " +
+           "md.meeting.meetingId AS meetingId, md.meeting.startTime AS startTime, md.meeting.endTime AS endTime, " +
+           "md.quantityBorrowed AS quantity FROM MeetingDevice md " +
+           "WHERE md.device.deviceId = :deviceId AND md.status = 'BORROWED' " +
+           "AND md.meeting.bookingStatus <> 'CANCELLED' " +
+           "AND md.meeting.startTime < :end AND md.meeting.endTime > :start " +
+           "AND (:excludeMeetingId IS NULL OR md.meeting.meetingId <> :excludeMeetingId)")
+    List<DeviceWindow> findActiveWindowsForDevice(@Param("deviceId") Long deviceId,
+                                                  @Param("start") java.time.LocalDateTime start,
+                                                  @Param("end") java.time.LocalDateTime end,
+                                                  @Param("excludeMeetingId") Integer excludeMeetingId);
+
+    // Các lượt giữ còn hiệu lực của thiết bị từ :from trở đi
+    @Query("SELECT md.meetingDeviceId AS meetingDeviceId, md.device.deviceId AS deviceId, " +
+           "md.meeting.meetingId AS meetingId, md.meeting.startTime AS startTime, md.meeting.endTime AS endTime, " +
+           "md.quantityBorrowed AS quantity FROM MeetingDevice md " +
+           "WHERE md.device.deviceId = :deviceId AND md.status = 'BORROWED' " +
+           "AND md.meeting.bookingStatus <> 'CANCELLED' AND md.meeting.endTime > :from")
+    List<DeviceWindow> findActiveWindowsForDeviceEndingAfter(@Param("deviceId") Long deviceId,
+                                                             @Param("from") java.time.LocalDateTime from);
+
+    // Bản ghi cũ còn BORROWED đã trừ thẳng vào kho
+    @Query("SELECT md FROM MeetingDevice md JOIN FETCH md.device WHERE md.windowed IS NULL AND md.status = 'BORROWED'")
+    List<MeetingDevice> findLegacyBorrowings();
+
+    // Đánh dấu một bản ghi cũ đã chuyển sang giữ theo khung giờ; trả về 0 nếu đã được chuyển trước đó
+    @Modifying
+    @Query("UPDATE MeetingDevice md SET md.windowed = true " +
+           "WHERE md.meetingDeviceId = :id AND md.windowed IS NULL AND md.status = 'BORROWED'")
+    int markWindowed(@Param("id") Integer meetingDeviceId);
+
+    // Các bản ghi cũ đã RETURNED/CANCELLED không còn giữ kho
+    @Modifying
+    @Query("UPDATE MeetingDevice md SET md.windowed = true WHERE md.windowed IS NULL AND md.status <> 'BORROWED'")
+    int markClosedLegacyWindowed();
 }
@@ -1,9 +1,12 @@
 package com.example.iMeetBE.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,23 +19,39 @@ import com.example.iMeetBE.model.MeetingInvitee;
 public interface MeetingInviteeRepository extends JpaRepository<MeetingInvitee, Integer> {
     Optional<MeetingInvitee> findByMeetingAndEmail(Meeting meeting, String email);
     List<MeetingInvitee> findByMeeting(Meeting meeting);
+
+    // Các email trong danh sách đã được mời vào cuộc họp (một query IN cho cả danh sách)
+    @Query("SELECT mi.email FROM MeetingInvitee mi WHERE mi.meeting.meetingId = :meetingId AND mi.email IN :emails")
+    List<String> findInvitedEmails(@Param("meetingId") Integer meetingId, @Param("emails") Collection<String> emails);
+
+    @Query("SELECT mi FROM MeetingInvitee mi WHERE mi.meeting.meetingId = :meetingId AND mi.email IN :emails")
+    List<MeetingInvitee> findByMeetingIdAndEmailIn(@Param("meetingId") Integer meetingId,
+                                                   @Param("emails") Collection<String> emails);
     Optional<MeetingInvitee> findByToken(String token);
     
-    // Đếm số người được mời cho một cuộc họp
-    @Query("SELECT COUNT(mi) FROM MeetingInvitee mi WHERE mi.meeting.meetingId = :meetingId")
-    Long countParticipantsByMeetingId(@Param("meetingId") Integer meetingId);
-    
-    @Query("""
-        SELECT mi FROM MeetingInvitee mi
-        JOIN FETCH mi.meeting m
-        LEFT JOIN FETCH m.room
-        LEFT JOIN FETCH m.user
-        WHERE mi.email = :email AND mi.status = :status
-        """)
-    List<MeetingInvitee> findByEmailAndStatusWithMeeting(
-        @Param("email") String email,
-        @Param("status") InviteStatus status
-    );
+    // Số lần một người tổ chức đã mời từng email (xếp hạng gợi ý người mời)
+    interface InviteAffinity {
+        String getEmail();
+        Long getInvites();
+    }
+
+    @Query("SELECT mi.email AS email, COUNT(mi) AS invites FROM MeetingInvitee mi " +
+           "WHERE mi.invitedBy.id = :inviterId GROUP BY mi.email")
+    List<InviteAffinity> countInvitesByInviter(@Param("inviterId") String inviterId);
+
+    // User đã nhận lời mời vào cuộc họp (cuộc họp nằm trong lịch .ics của họ)
+    @Query("SELECT mi.user.id FROM MeetingInvitee mi WHERE mi.meeting.meetingId = :meetingId " +
+           "AND mi.status = 'ACCEPTED' AND mi.user IS NOT NULL")
+    List<String> findAcceptedUserIds(@Param("meetingId") Integer meetingId);
+
+    // Đổi trạng thái lời mời, chỉ khi đang ở :from; hai lượt phản hồi cùng lúc thì chỉ một lượt được tính
+    @Modifying
+    @Query("UPDATE MeetingInvitee mi SET mi.status = :to, mi.respondedAt = :now " +
+           "WHERE mi.inviteId = :inviteId AND mi.status = :from")
+    int transitionStatus(@Param("inviteId") Integer inviteId,
+                         @Param("from") InviteStatus from,
+                         @Param("to") InviteStatus to,
+                         @Param("now") LocalDateTime now);
 }
 
 
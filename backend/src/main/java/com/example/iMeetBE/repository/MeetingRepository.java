@@ -2,31 +2,38 @@ package com.example.iMeetBE.repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.iMeetBE.dto.MeetingResponse;
 import com.example.iMeetBE.model.BookingStatus;
+import com.example.iMeetBE.model.InviteStatus;
 import com.example.iMeetBE.model.Meeting;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
-public interface MeetingRepository extends JpaRepository<Meeting, Integer> {
-    
-    // Tìm các cuộc họp theo phòng
-    List<Meeting> findByRoomRoomId(Integer roomId);
+public interface MeetingRepository extends JpaRepository<Meeting, Integer>, MeetingRepositoryCustom {
     
-    // Tìm các cuộc họp theo người tạo
-    List<Meeting> findByUserId(String userId);
+    // SELECT ... FOR UPDATE trên dòng cuộc họp: các lượt mời vào cùng cuộc họp chạy tuần tự
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM Meeting m WHERE m.meetingId = :meetingId")
+    Optional<Meeting> findByIdForUpdate(@Param("meetingId") Integer meetingId);
     
-    // Tìm các cuộc họp theo trạng thái
-    List<Meeting> findByBookingStatus(BookingStatus bookingStatus);
+    // Một cuộc họp dạng MeetingResponse (một câu SQL, không load Room/User)
+    @Query(RESPONSE_SELECT + "WHERE m.meetingId = :meetingId")
+    Optional<MeetingResponse> findResponseById(@Param("meetingId") Integer meetingId);
     
-    // Tìm các cuộc họp trong khoảng thời gian
-    @Query("SELECT m FROM Meeting m WHERE m.startTime >= :startTime AND m.endTime <= :endTime")
-    List<Meeting> findByDateRange(@Param("startTime") LocalDateTime startTime, 
-                                   @Param("endTime") LocalDateTime endTime);
+    // Các cuộc họp trong khoảng thời gian (projection MeetingResponse)
+    @Query(RESPONSE_SELECT + "WHERE m.startTime >= :startTime AND m.endTime <= :endTime")
+    List<MeetingResponse> findResponsesByDateRange(@Param("startTime") LocalDateTime startTime,
+                                                   @Param("endTime") LocalDateTime endTime);
     
     // Tìm các cuộc họp của một phòng trong khoảng thời gian
     @Query("SELECT m FROM Meeting m WHERE m.room.roomId = :roomId " +
@@ -36,6 +43,14 @@ public interface MeetingRepository extends JpaRepository<Meeting, Integer> {
                                           @Param("startTime") LocalDateTime startTime,
                                           @Param("endTime") LocalDateTime endTime);
     
+    // Lịch phòng trong khoảng thời gian (projection MeetingResponse)
+    @Query(RESPONSE_SELECT + "WHERE r.roomId = :roomId " +
+           "AND m.startTime <= :endTime AND m.endTime >= :startTime " +
+           "AND m.bookingStatus != 'CANCELLED'")
+    List<MeetingResponse> findResponsesByRoomAndTimeRange(@Param("roomId") Integer roomId,
+                                                          @Param("startTime") LocalDateTime startTime,
+                                                          @Param("endTime") LocalDateTime endTime);
+    
     // Tìm các cuộc họp của một user trong khoảng thời gian
     @Query("SELECT m FROM Meeting m WHERE m.user.id = :userId " +
            "AND m.startTime >= :startTime AND m.endTime <= :endTime")
@@ -61,18 +76,16 @@ public interface MeetingRepository extends JpaRepository<Meeting, Integer> {
                                                @Param("startTime") LocalDateTime startTime,
                                                @Param("endTime") LocalDateTime endTime);
     
-    // Tìm các cuộc họp sắp tới
-    @Query("SELECT m FROM Meeting m WHERE m.startTime > :now " +
+    // Các cuộc họp trong một ngày (projection MeetingResponse)
+    @Query(RESPONSE_SELECT + "WHERE DATE(m.startTime) = DATE(:date) " +
            "AND m.bookingStatus != 'CANCELLED' ORDER BY m.startTime ASC")
-    List<Meeting> findUpcomingMeetings(@Param("now") LocalDateTime now);
+    List<MeetingResponse> findResponsesByDate(@Param("date") LocalDateTime date);
     
-    // Tìm các cuộc họp trong ngày hôm nay
-    @Query("SELECT m FROM Meeting m WHERE DATE(m.startTime) = DATE(:date) " +
-           "AND m.bookingStatus != 'CANCELLED' ORDER BY m.startTime ASC")
-    List<Meeting> findMeetingsByDate(@Param("date") LocalDateTime date);
-    
-    // Tìm kiếm cuộc họp theo tiêu đề
-    List<Meeting> findByTitleContainingIgnoreCase(String title);
+    // Các cuộc họp mà email đã được mời với trạng thái :status, mỗi cuộc họp một lần (projection MeetingResponse)
+    @Query(RESPONSE_SELECT + "WHERE m.meetingId IN (SELECT mi.meeting.meetingId FROM MeetingInvitee mi " +
+           "WHERE mi.email = :email AND mi.status = :status)")
+    List<MeetingResponse> findResponsesByInvitee(@Param("email") String email,
+                                                 @Param("status") InviteStatus status);
     
     // Tìm các cuộc họp theo phòng và trạng thái
     List<Meeting> findByRoomRoomIdAndBookingStatus(Integer roomId, BookingStatus bookingStatus);
@@ -80,20 +93,115 @@ public interface MeetingRepository extends JpaRepository<Meeting, Integer> {
     // Tìm các cuộc họp theo user và trạng thái
     List<Meeting> findByUserIdAndBookingStatus(String userId, BookingStatus bookingStatus);
     
-    // Lấy tất cả cuộc họp với JOIN FETCH để load room và user
-    @Query("SELECT DISTINCT m FROM Meeting m LEFT JOIN FETCH m.room LEFT JOIN FETCH m.user")
-    List<Meeting> findAllWithRelations();
 
-    // Cuộc họp sắp diễn ra trong khoảng [start, end], không bị hủy
-    @Query("SELECT m FROM Meeting m WHERE m.startTime BETWEEN :start AND :end AND m.bookingStatus <> 'CANCELLED'")
-    List<Meeting> findStartingBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    // BOOKED -> IN_PROGRESS cho các cuộc họp đã bắt đầu và chưa kết thúc
+    @Modifying
+    @Query("UPDATE Meeting m SET m.bookingStatus = 'IN_PROGRESS', m.updatedAt = :now, m.version = m.version + 1 " +
+           "WHERE m.bookingStatus = 'BOOKED' AND m.startTime <= :now AND m.endTime > :now")
+    int markStarted(@Param("now") LocalDateTime now);
 
-    // Cuộc họp đang diễn ra tại thời điểm now, không bị hủy
-    @Query("SELECT m FROM Meeting m WHERE m.startTime <= :now AND m.endTime >= :now AND m.bookingStatus <> 'CANCELLED'")
-    List<Meeting> findOngoing(@Param("now") LocalDateTime now);
+    // BOOKED/IN_PROGRESS -> COMPLETED cho các cuộc họp đã kết thúc (không đụng lại các cuộc họp đã COMPLETED)
+    @Modifying
+    @Query("UPDATE Meeting m SET m.bookingStatus = 'COMPLETED', m.updatedAt = :now, m.version = m.version + 1 " +
+           "WHERE m.bookingStatus IN ('BOOKED', 'IN_PROGRESS') AND m.endTime <= :now")
+    int markEnded(@Param("now") LocalDateTime now);
 
-    // Cuộc họp đã kết thúc trước thời điểm now, chưa cancelled
-    @Query("SELECT m FROM Meeting m WHERE m.endTime < :now AND m.bookingStatus <> 'CANCELLED'")
-    List<Meeting> findEndedBefore(@Param("now") LocalDateTime now);
-}
+    // Thông tin lịch tối thiểu cho MeetingStatusEngine (không load entity)
+    interface MeetingSchedule {
+        Integer getMeetingId();
+        Integer getRoomId();
+        LocalDateTime getStartTime();
+        LocalDateTime getEndTime();
+        BookingStatus getBookingStatus();
+    }
+
+    // Cuộc họp chưa kết thúc (BOOKED/IN_PROGRESS) có mốc chuyển trạng thái trước :until
+    @Query("SELECT m.meetingId AS meetingId, m.room.roomId AS roomId, m.startTime AS startTime, " +
+           "m.endTime AS endTime, m.bookingStatus AS bookingStatus FROM Meeting m " +
+           "WHERE m.startTime <= :until AND m.bookingStatus IN ('BOOKED', 'IN_PROGRESS')")
+    List<MeetingSchedule> findActiveSchedulesStartingBefore(@Param("until") LocalDateTime until);
+
+    // Khoảng thời gian của các cuộc họp chưa hủy kết thúc sau :from, cho RoomScheduleIndex
+    @Query("SELECT m.meetingId AS meetingId, m.room.roomId AS roomId, m.startTime AS startTime, " +
+           "m.endTime AS endTime, m.bookingStatus AS bookingStatus FROM Meeting m " +
+           "WHERE m.endTime > :from AND m.bookingStatus <> 'CANCELLED'")
+    List<MeetingSchedule> findNonCancelledSchedulesEndingAfter(@Param("from") LocalDateTime from);
+
+    // Các cột cần cho SearchIndex (không load entity, không đụng bảng rooms/users)
+    interface MeetingSearchRow {
+        Integer getMeetingId();
+        String getTitle();
+        String getDescription();
+        LocalDateTime getStartTime();
+        LocalDateTime getEndTime();
+    }
 
+    // Cuộc họp chưa hủy kết thúc sau :from, để nạp SearchIndex lúc khởi động
+    @Query("SELECT m.meetingId AS meetingId, m.title AS title, m.description AS description, " +
+           "m.startTime AS startTime, m.endTime AS endTime FROM Meeting m " +
+           "WHERE m.endTime > :from AND m.bookingStatus != 'CANCELLED'")
+    List<MeetingSearchRow> findSearchRowsEndingAfter(@Param("from") LocalDateTime from);
+
+    // BOOKED -> IN_PROGRESS cho một cuộc họp, chỉ khi giờ bắt đầu vẫn là :startTime (mốc chưa bị dời) và đã tới.
+    // Mốc cũ chạy sau khi cuộc họp bị đổi giờ thì không khớp và không làm gì.
+    @Modifying
+    @Query("UPDATE Meeting m SET m.bookingStatus = 'IN_PROGRESS', m.updatedAt = :now, m.version = m.version + 1 " +
+           "WHERE m.meetingId = :meetingId AND m.bookingStatus = 'BOOKED' " +
+           "AND m.startTime = :startTime AND m.startTime <= :now AND m.endTime > :now")
+    int markStartedAt(@Param("meetingId") Integer meetingId,
+                      @Param("startTime") LocalDateTime startTime,
+                      @Param("now") LocalDateTime now);
+
+    // BOOKED/IN_PROGRESS -> COMPLETED cho một cuộc họp, chỉ khi giờ kết thúc vẫn là :endTime và đã qua
+    // (cuộc họp được kéo dài/dời giờ sau khi mốc cũ đã lên lịch thì không bị kết thúc sớm)
+    @Modifying
+    @Query("UPDATE Meeting m SET m.bookingStatus = 'COMPLETED', m.updatedAt = :now, m.version = m.version + 1 " +
+           "WHERE m.meetingId = :meetingId AND m.bookingStatus IN ('BOOKED', 'IN_PROGRESS') " +
+           "AND m.endTime = :endTime AND m.endTime <= :now")
+    int markEndedAt(@Param("meetingId") Integer meetingId,
+                    @Param("endTime") LocalDateTime endTime,
+                    @Param("now") LocalDateTime now);
+
+    // Cộng dồn bộ đếm lời mời bằng một UPDATE nguyên tử (không đổi version: không phải sửa của người tổ chức)
+    @Modifying
+    @Query("UPDATE Meeting m SET m.participants = COALESCE(m.participants, 0) + :invited, " +
+           "m.pendingCount = COALESCE(m.pendingCount, 0) + :pending, " +
+           "m.acceptedCount = COALESCE(m.acceptedCount, 0) + :accepted, " +
+           "m.declinedCount = COALESCE(m.declinedCount, 0) + :declined " +
+           "WHERE m.meetingId = :meetingId")
+    int adjustInviteCounters(@Param("meetingId") Integer meetingId,
+                             @Param("invited") long invited,
+                             @Param("pending") long pending,
+                             @Param("accepted") long accepted,
+                             @Param("declined") long declined);
+
+    // Tính lại bộ đếm lời mời từ meeting_invitees cho các cuộc họp id trong [fromId, toId] đang bị lệch;
+    // trả về số cuộc họp đã sửa
+    @Modifying
+    @Query("UPDATE Meeting m SET " +
+           "m.participants = (SELECT COUNT(mi) FROM MeetingInvitee mi WHERE mi.meeting = m), " +
+           "m.pendingCount = (SELECT COUNT(mi) FROM MeetingInvitee mi WHERE mi.meeting = m AND mi.status = 'PENDING'), " +
+           "m.acceptedCount = (SELECT COUNT(mi) FROM MeetingInvitee mi WHERE mi.meeting = m AND mi.status = 'ACCEPTED'), " +
+           "m.declinedCount = (SELECT COUNT(mi) FROM MeetingInvitee mi WHERE mi.meeting = m AND mi.status = 'DECLINED') " +
+           "WHERE m.meetingId BETWEEN :fromId AND :toId AND (" +
+           "COALESCE(m.participants, -1) <> (SELECT COUNT(mi) FROM MeetingInvitee mi WHERE mi.meeting = m) " +
+           "OR COALESCE(m.pendingCount, -1) <> (SELECT COUNT(mi) FROM MeetingInvitee mi WHERE mi.meeting = m AND mi.status = 'PENDING') " +
+           "OR COALESCE(m.acceptedCount, -1) <> (SELECT COUNT(mi) FROM MeetingInvitee mi WHERE mi.meeting = m AND mi.status = 'ACCEPTED') " +
+           "OR COALESCE(m.declinedCount, -1) <> (SELECT COUNT(mi) FROM MeetingInvitee mi WHERE mi.meeting = m AND mi.status = 'DECLINED'))")
+    int repairInviteCounters(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
+
+    @Query("SELECT MAX(m.meetingId) FROM Meeting m")
+    Integer findMaxMeetingId();
+
+    // Phòng có cuộc họp đang diễn ra tại thời điểm now
+    @Query("SELECT COUNT(m) > 0 FROM Meeting m WHERE m.room.roomId = :roomId " +
+           "AND m.startTime <= :now AND m.endTime > :now AND m.bookingStatus <> 'CANCELLED'")
+    boolean existsOngoingInRoom(@Param("roomId") Integer roomId, @Param("now") LocalDateTime now);
+
+    // Phòng có cuộc họp bắt đầu trong khoảng [start, end]
+    @Query("SELECT COUNT(m) > 0 FROM Meeting m WHERE m.room.roomId = :roomId " +
+           "AND m.startTime BETWEEN :start AND :end AND m.bookingStatus <> 'CANCELLED'")
+    boolean existsStartingInRoomBetween(@Param("roomId") Integer roomId,
+                                        @Param("start") LocalDateTime start,
+                                        @Param("end") LocalDateTime end);
+}
@@ -0,0 +1,58 @@
+package com.example.iMeetBE.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.example.iMeetBE.dto.MeetingResponse;
+import com.example.iMeetBE.model.BookingStatus;
+
+/**
+ * Phân trang keyset cho danh sách cuộc họp, theo thứ tự (startTime, meetingId).
+ * Mỗi trang là một lần quét index bắt đầu từ khóa của trang trước nên trang sâu cũng rẻ như trang đầu.
+ */
+public interface MeetingRepositoryCustom {
+
+    /**
+     * Phần SELECT/FROM dựng thẳng MeetingResponse từ các cột cần thiết (alias m, r, u), không hydrate entity
+     * Room/User (tránh N+1 lazy load). Avatar người đặt chỉ lấy URL file; data URL cũ trong cột LONGTEXT thành NULL.
+     * Các query danh sách nối thêm WHERE/ORDER BY.
+     */
+    String RESPONSE_SELECT = "SELECT new com.example.iMeetBE.dto.MeetingResponse(" +
+        "m.meetingId, m.title, m.description, m.startTime, m.endTime, m.isAllDay, " +
+        "r.roomId, r.name, r.location, u.id, u.fullName, u.email, " +
+        "CASE WHEN u.avatarUrl LIKE 'data:%' THEN NULL ELSE u.avatarUrl END, " +
+        "m.bookingStatus, m.createdAt, m.updatedAt, COALESCE(m.participants, 0L), " +
+        "COALESCE(m.pendingCount, 0L), COALESCE(m.acceptedCount, 0L), COALESCE(m.declinedCount, 0L), m.version) " +
+        "FROM Meeting m JOIN m.room r JOIN m.user u ";
+
+    // Bộ lọc danh sách; trường null thì không lọc
+    record MeetingFilter(Integer roomId, String userId, BookingStatus status, String titleContains,
+                         LocalDateTime startsAfter, boolean excludeCancelled) {
+
+        public static MeetingFilter all() {
+            return new MeetingFilter(null, null, null, null, null, false);
+        }
+    }
+
+    /**
+     * Tối đa {@code limit} cuộc họp (dạng MeetingResponse, một câu SQL) đứng sau khóa (keyStart, keyId),
+     * hoặc đứng trước khóa theo thứ tự giảm dần nếu {@code backward}. Khóa null là trang đầu.
+     */
+    List<MeetingResponse> findPage(MeetingFilter filter, LocalDateTime keyStart, Integer keyId, boolean backward, int limit);
+
+    /**
+     * Cuộc họp có startTime trong [from, to) (null là không giới hạn) theo thứ tự (startTime, meetingId),
+     * đọc dần qua con trỏ forward-only, mỗi lần lấy {@code fetchSize} dòng từ driver thay vì nạp cả danh sách.
+     * Phải gọi trong transaction và đóng Stream khi dùng xong. MySQL Connector/J chỉ lấy theo fetch size khi URL
+     * có useCursorFetch=true; không có thì chỉ {@code fetchSize} = Integer.MIN_VALUE mới đọc từng dòng, các giá trị
+     * khác làm driver đọc hết kết quả vào bộ nhớ (MeetingExportService tự chọn).
+     */
+    Stream<MeetingResponse> streamRange(LocalDateTime from, LocalDateTime to, int fetchSize);
+
+    /**
+     * Tối đa {@code limit} cuộc họp chưa hủy có startTime trong [from, to) theo thứ tự (startTime, meetingId),
+     * lọc theo phòng và/hoặc người dùng (người tổ chức hoặc đã nhận lời mời). Dùng cho lịch iCalendar.
+     */
+    List<MeetingResponse> findCalendarRange(Integer roomId, String userId, LocalDateTime from, LocalDateTime to, int limit);
+}
@@ -0,0 +1,116 @@
+package com.example.iMeetBE.repository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+
+import com.example.iMeetBE.dto.MeetingResponse;
+import com.example.iMeetBE.model.BookingStatus;
+import com.example.iMeetBE.model.InviteStatus;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+public class MeetingRepositoryImpl implements MeetingRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<MeetingResponse> findPage(MeetingFilter filter, LocalDateTime keyStart, Integer keyId, boolean backward, int limit) {
+        // room và user bắt buộc (NOT NULL) nên inner join không làm mất hay nhân bản dòng
+        StringBuilder jpql = new StringBuilder(RESPONSE_SELECT).append("WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+
+        if (filter.roomId() != null) {
+            jpql.append(" AND r.roomId = :roomId");
+            params.put("roomId", filter.roomId());
+        }
+        if (filter.userId() != null) {
+            jpql.append(" AND u.id = :userId");
+            params.put("userId", filter.userId());
+        }
+        if (filter.status() != null) {
+            jpql.append(" AND m.bookingStatus = :status");
+            params.put("status", filter.status());
+        }
+        if (filter.excludeCancelled()) {
+            jpql.append(" AND m.bookingStatus <> :cancelled");
+            params.put("cancelled", BookingStatus.CANCELLED);
+        }
+        if (filter.startsAfter() != null) {
+            jpql.append(" AND m.startTime > :startsAfter");
+            params.put("startsAfter", filter.startsAfter());
+        }
+        if (filter.titleContains() != null) {
+            jpql.append(" AND LOWER(m.title) LIKE :title");
+            params.put("title", "%" + filter.titleContains().toLowerCase() + "%");
+        }
+
+        if (keyStart != null && keyId != null) {
+            String op = backward ? "<" : ">";
+            jpql.append(" AND (m.startTime ").append(op).append(" :keyStart")
+                .append(" OR (m.startTime = :keyStart AND m.meetingId ").append(op).append(" :keyId))");
+            params.put("keyStart", keyStart);
+            params.put("keyId", keyId);
+        }
+
+        String direction = backward ? "DESC" : "ASC";
+        jpql.append(" ORDER BY m.startTime ").append(direction).append(", m.meetingId ").append(direction);
+
+        TypedQuery<MeetingResponse> query = entityManager.createQuery(jpql.toString(), MeetingResponse.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<MeetingResponse> streamRange(LocalDateTime from, LocalDateTime to, int fetchSize) {
+        StringBuilder jpql = new StringBuilder(RESPONSE_SELECT).append("WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        if (from != null) {
+            jpql.append(" AND m.startTime >= :from");
+            params.put("from", from);
+        }
+        if (to != null) {
+            jpql.append(" AND m.startTime < :to");
+            params.put("to", to);
+        }
+        jpql.append(" ORDER BY m.startTime ASC, m.meetingId ASC");
+
+        TypedQuery<MeetingResponse> query = entityManager.createQuery(jpql.toString(), MeetingResponse.class);
+        params.forEach(query::setParameter);
+        return query.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream();
+    }
+
+    @Override
+    public List<MeetingResponse> findCalendarRange(Integer roomId, String userId, LocalDateTime from, LocalDateTime to, int limit) {
+        StringBuilder jpql = new StringBuilder(RESPONSE_SELECT)
+            .append("WHERE m.bookingStatus <> :cancelled AND m.startTime >= :from AND m.startTime < :to");
+        Map<String, Object> params = new HashMap<>();
+        params.put("cancelled", BookingStatus.CANCELLED);
+        params.put("from", from);
+        params.put("to", to);
+        if (roomId != null) {
+            jpql.append(" AND r.roomId = :roomId");
+            params.put("roomId", roomId);
+        }
+        if (userId != null) {
+            jpql.append(" AND (u.id = :userId OR EXISTS (SELECT 1 FROM MeetingInvitee i")
+                .append(" WHERE i.meeting = m AND i.user.id = :userId AND i.status = :accepted))");
+            params.put("userId", userId);
+            params.put("accepted", InviteStatus.ACCEPTED);
+        }
+        jpql.append(" ORDER BY m.startTime ASC, m.meetingId ASC");
+
+        TypedQuery<MeetingResponse> query = entityManager.createQuery(jpql.toString(), MeetingResponse.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -5,6 +5,8 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,8 +14,27 @@ import org.springframework.stereotype.Repository;
 import com.example.iMeetBE.model.Room;
 import com.example.iMeetBE.model.RoomStatus;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
 public interface RoomRepository extends JpaRepository<Room, Integer> {
+
+    // Một dòng của danh mục phòng (RoomCatalog), đọc thẳng giá trị trong database thay vì entity đang quản lý
+    interface CatalogRow {
+        Integer getRoomId();
+        String getName();
+        String getLocation();
+        Integer getCapacity();
+        String getDescription();
+        RoomStatus getStatus();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+    }
+
+    @Query("SELECT r.roomId AS roomId, r.name AS name, r.location AS location, r.capacity AS capacity, " +
+           "r.description AS description, r.status AS status, r.createdAt AS createdAt, r.updatedAt AS updatedAt " +
+           "FROM Room r ORDER BY r.name ASC, r.roomId ASC")
+    List<CatalogRow> findAllCatalogRows();
     
     List<Room> findByCapacityGreaterThanEqual(Integer minCapacity);
     
@@ -43,6 +64,12 @@ public interface RoomRepository extends JpaRepository<Room, Integer> {
     
     Optional<Room> findByName(String name);
 
+    // SELECT ... FOR UPDATE trên dòng phòng: các lượt đặt cùng phòng chạy tuần tự tới khi commit,
+    // các phòng khác không bị ảnh hưởng
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Room r WHERE r.roomId = :roomId")
+    Optional<Room> findByIdForUpdate(@Param("roomId") Integer roomId);
+
     // Tìm các phòng trống trong khoảng thời gian: không có meeting nào overlap [start, end]
     @Query("""
         SELECT r FROM Room r
@@ -56,4 +83,42 @@ public interface RoomRepository extends JpaRepository<Room, Integer> {
         ORDER BY r.name ASC
     """)
     List<Room> findAvailableInRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Các UPDATE dưới đây chỉ ghi những phòng thực sự đổi trạng thái; phòng MAINTENANCE không bị ghi đè
+    @Modifying
+    @Query("""
+        UPDATE Room r SET r.status = 'IN_USE', r.updatedAt = :now
+        WHERE r.status NOT IN ('IN_USE', 'MAINTENANCE')
+          AND EXISTS (SELECT 1 FROM Meeting m WHERE m.room = r AND m.bookingStatus <> 'CANCELLED'
+                      AND m.startTime <= :now AND m.endTime > :now)
+        """)
+    int markRoomsInUse(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+        UPDATE Room r SET r.status = 'BOOKED', r.updatedAt = :now
+        WHERE r.status NOT IN ('BOOKED', 'MAINTENANCE')
+          AND NOT EXISTS (SELECT 1 FROM Meeting m WHERE m.room = r AND m.bookingStatus <> 'CANCELLED'
+                          AND m.startTime <= :now AND m.endTime > :now)
+          AND EXISTS (SELECT 1 FROM Meeting m WHERE m.room = r AND m.bookingStatus <> 'CANCELLED'
+                      AND m.startTime > :now AND m.startTime <= :soon)
+        """)
+    int markRoomsBooked(@Param("now") LocalDateTime now, @Param("soon") LocalDateTime soon);
+
+    @Modifying
+    @Query("""
+        UPDATE Room r SET r.status = 'AVAILABLE', r.updatedAt = :now
+        WHERE r.status IN ('BOOKED', 'IN_USE')
+          AND NOT EXISTS (SELECT 1 FROM Meeting m WHERE m.room = r AND m.bookingStatus <> 'CANCELLED'
+                          AND m.startTime <= :soon AND m.endTime > :now)
+        """)
+    int releaseRooms(@Param("now") LocalDateTime now, @Param("soon") LocalDateTime soon);
+
+    // Cập nhật trạng thái phòng do lịch họp; không ghi nếu không đổi và không động vào phòng đang bảo trì
+    @Modifying
+    @Query("UPDATE Room r SET r.status = :status, r.updatedAt = :now " +
+           "WHERE r.roomId = :roomId AND r.status <> :status AND r.status <> 'MAINTENANCE'")
+    int updateScheduledStatus(@Param("roomId") Integer roomId,
+                              @Param("status") RoomStatus status,
+                              @Param("now") LocalDateTime now);
 }
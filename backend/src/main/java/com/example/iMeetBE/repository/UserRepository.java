@@ -1,17 +1,22 @@
 package com.example.iMeetBE.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.iMeetBE.model.User;
 import com.example.iMeetBE.model.UserRole;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, String>, UserRepositoryCustom {
     Optional<User> findByEmail(String email);
     Optional<User> findByUsername(String username);
     Optional<User> findByGoogleId(String googleId);
@@ -19,13 +24,85 @@ public interface UserRepository extends JpaRepository<User, String> {
     boolean existsByUsername(String username);
     boolean existsByGoogleId(String googleId);
     
+    // Chỉ lấy token_version (dùng cho kiểm tra thu hồi JWT, không load cả row)
+    @Query("SELECT COALESCE(u.tokenVersion, 0) FROM User u WHERE u.email = :email")
+    Optional<Integer> findTokenVersionByEmail(@Param("email") String email);
+
+    // Id của các user còn lưu avatar base64 trong database (migration theo batch, keyset theo id)
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND u.avatarUrl LIKE 'data:%' ORDER BY u.id")
+    List<String> findInlineAvatarUserIdsAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    @Query("SELECT u.avatarUrl FROM User u WHERE u.id = :id")
+    Optional<String> findAvatarUrlById(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.avatarUrl = :avatarUrl WHERE u.id = :id")
+    int updateAvatarUrl(@Param("id") String id, @Param("avatarUrl") String avatarUrl);
+
+    // Trạng thái đồng bộ Cognito của mỗi user, không load cả entity
+    interface CognitoSyncState {
+        String getId();
+        String getUsername();
+        String getEmail();
+        String getFullName();
+        String getGoogleId();
+        String getCognitoAttributesHash();
+        LocalDateTime getCognitoModifiedAt();
+    }
+
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.fullName AS fullName, u.googleId AS googleId, " +
+           "u.cognitoAttributesHash AS cognitoAttributesHash, u.cognitoModifiedAt AS cognitoModifiedAt FROM User u")
+    List<CognitoSyncState> findAllCognitoSyncStates();
+
+    // Id của các user theo email (mời nhiều người một lần), không load cả entity
+    interface UserIdByEmail {
+        String getId();
+        String getEmail();
+    }
+
+    @Query("SELECT u.id AS id, u.email AS email FROM User u WHERE u.email IN :emails")
+    List<UserIdByEmail> findIdsByEmailIn(@Param("emails") java.util.Collection<String> emails);
+
+    // Tên hiển thị và khóa lịch .ics, không load cột avatar
+    interface CalendarOwner {
+        String getUsername();
+        String getFullName();
+        String getCalendarToken();
+    }
+
+    @Query("SELECT u.username AS username, u.fullName AS fullName, u.calendarToken AS calendarToken " +
+           "FROM User u WHERE u.id = :id")
+    Optional<CalendarOwner> findCalendarOwnerById(@Param("id") String id);
+
+    // Đặt khóa lịch .ics; onlyIfMissing thì chỉ đặt khi user chưa có (hai request lấy link cùng lúc nhận cùng một khóa)
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.calendarToken = :token WHERE u.id = :id " +
+           "AND (:onlyIfMissing = false OR u.calendarToken IS NULL)")
+    int updateCalendarToken(@Param("id") String id, @Param("token") String token,
+                            @Param("onlyIfMissing") boolean onlyIfMissing);
+
+    // Các cột cần cho UserSuggestIndex (avatar chỉ lấy URL file, không lấy data URL)
+    interface SuggestRow {
+        String getId();
+        String getUsername();
+        String getEmail();
+        String getFullName();
+        String getAvatarUrl();
+    }
+
+    // Avatar base64 cũ (data:...) có thể dài hàng MB: không trả về
+    String SUGGEST_AVATAR = "CASE WHEN u.avatarUrl LIKE 'data:%' THEN NULL ELSE u.avatarUrl END AS avatarUrl ";
+
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.fullName AS fullName, " +
+           SUGGEST_AVATAR + "FROM User u")
+    List<SuggestRow> findAllSuggestRows();
+
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.fullName AS fullName, " +
+           SUGGEST_AVATAR + "FROM User u WHERE u.email IN :emails")
+    List<SuggestRow> findSuggestRowsByEmailIn(@Param("emails") java.util.Collection<String> emails);
+
     // Count methods
     long countByRole(UserRole role);
-    
-    // Search methods
-    @Query("SELECT u FROM User u WHERE u.email LIKE %:search% OR u.fullName LIKE %:search%")
-    org.springframework.data.domain.Page<User> findByEmailContainingIgnoreCaseOrFullNameContainingIgnoreCase(
-        @Param("search") String search, 
-        @Param("search") String search2, 
-        org.springframework.data.domain.Pageable pageable);
-}
\ No newline at end of file
+}
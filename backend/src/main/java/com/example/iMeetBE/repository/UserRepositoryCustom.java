@@ -0,0 +1,34 @@
+package com.example.iMeetBE.repository;
+
+import java.util.List;
+
+import com.example.iMeetBE.dto.UserSummary;
+
+/**
+ * Phân trang keyset cho danh sách user của admin, theo (cột sắp xếp, id).
+ */
+public interface UserRepositoryCustom {
+
+    // Các cột được phép sắp xếp: đều NOT NULL và có index bắt đầu bằng cột đó
+    enum SortKey {
+        CREATED_AT("createdAt"), EMAIL("email"), USERNAME("username");
+
+        private final String property;
+
+        SortKey(String property) {
+            this.property = property;
+        }
+
+        public String property() {
+            return property;
+        }
+    }
+
+    /**
+     * Tối đa {@code limit} user (dạng UserSummary, không load avatar base64) đứng sau khóa (keyValue, keyId)
+     * theo thứ tự {@code sortKey}/{@code descending}, hoặc đứng trước khóa nếu {@code backward}
+     * (khi đó kết quả theo thứ tự ngược). Khóa null là trang đầu; search null là không lọc.
+     */
+    List<UserSummary> findSummaryPage(SortKey sortKey, boolean descending, String search,
+                                      Object keyValue, String keyId, boolean backward, int limit);
+}
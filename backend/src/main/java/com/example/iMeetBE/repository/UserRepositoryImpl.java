@@ -0,0 +1,51 @@
+package com.example.iMeetBE.repository;
+
+import java.util.List;
+
+import com.example.iMeetBE.dto.UserSummary;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    // Avatar base64 cũ (data:...) có thể dài hàng MB: không trả về
+    private static final String SUMMARY_SELECT = "SELECT new com.example.iMeetBE.dto.UserSummary(" +
+        "u.id, u.username, u.email, u.fullName, u.role, " +
+        "CASE WHEN u.avatarUrl LIKE 'data:%' THEN NULL ELSE u.avatarUrl END, " +
+        "CASE WHEN u.googleId IS NOT NULL AND u.googleId <> '' THEN true ELSE false END, u.createdAt) FROM User u";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserSummary> findSummaryPage(SortKey sortKey, boolean descending, String search,
+                                             Object keyValue, String keyId, boolean backward, int limit) {
+        StringBuilder jpql = new StringBuilder(SUMMARY_SELECT).append(" WHERE 1 = 1");
+        if (search != null) {
+            jpql.append(" AND (LOWER(u.email) LIKE :search OR LOWER(u.fullName) LIKE :search)");
+        }
+
+        String column = "u." + sortKey.property();
+        // Đi lùi thì đảo chiều so sánh và chiều sắp xếp
+        boolean ascending = descending == backward;
+        if (keyValue != null && keyId != null) {
+            String op = ascending ? ">" : "<";
+            jpql.append(" AND (").append(column).append(' ').append(op).append(" :keyValue OR (")
+                .append(column).append(" = :keyValue AND u.id ").append(op).append(" :keyId))");
+        }
+        String direction = ascending ? "ASC" : "DESC";
+        jpql.append(" ORDER BY ").append(column).append(' ').append(direction).append(", u.id ").append(direction);
+
+        TypedQuery<UserSummary> query = entityManager.createQuery(jpql.toString(), UserSummary.class);
+        if (search != null) {
+            query.setParameter("search", "%" + search.toLowerCase() + "%");
+        }
+        if (keyValue != null && keyId != null) {
+            query.setParameter("keyValue", keyValue);
+            query.setParameter("keyId", keyId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
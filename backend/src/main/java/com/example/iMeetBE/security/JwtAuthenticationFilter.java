@@ -1,9 +1,11 @@
 package com.example.iMeetBE.security;
 
 import java.io.IOException;
+import java.util.Collections;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -12,6 +14,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.example.iMeetBE.service.JwtService;
+import com.example.iMeetBE.service.TokenRevocationService;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -27,6 +30,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -43,12 +49,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
         
         try {
-            email = jwtService.getEmailFromToken(jwt);
+            // Chỉ parse + kiểm tra chữ ký một lần cho cả request
+            VerifiedToken token = jwtService.verify(jwt);
+            email = token.getEmail();
             
             if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(email);
+                UserDetails userDetails = loadUserDetails(token);
                 
-                if (jwtService.validateToken(jwt, email)) {
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -61,4 +69,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Token mới có claim role + ver: dựng UserDetails trực tiếp từ claims, chỉ kiểm tra
+     * token_version qua cache. Token cũ (không có role) vẫn load user từ database.
+     */
+    private UserDetails loadUserDetails(VerifiedToken token) {
+        String email = token.getEmail();
+
+        if (!token.isStateless()) {
+            return this.userDetailsService.loadUserByUsername(email);
+        }
+
+        if (!tokenRevocationService.isTokenVersionCurrent(email, token.getTokenVersion())) {
+            return null; // Token đã bị thu hồi hoặc user không còn tồn tại
+        }
+
+        return org.springframework.security.core.userdetails.User.builder()
+                .username(email)
+                .password("")
+                .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + token.getRole())))
+                .build();
+    }
 }
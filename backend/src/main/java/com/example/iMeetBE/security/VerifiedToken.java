@@ -0,0 +1,72 @@
+package com.example.iMeetBE.security;
+
+import java.util.Date;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Claims của một JWT đã được kiểm tra chữ ký.
+ * Bất biến nên có thể cache và dùng chung giữa các request.
+ */
+public final class VerifiedToken {
+
+    private final String email;
+    private final String username;
+    private final String userId;
+    private final String role;
+    private final Integer tokenVersion;
+    private final long issuedAtMillis;
+    private final long expirationMillis;
+
+    public VerifiedToken(Claims claims) {
+        this.email = claims.getSubject();
+        this.username = claims.get("username", String.class);
+        this.userId = claims.get("userId", String.class);
+        this.role = claims.get("role", String.class);
+        this.tokenVersion = claims.get("ver", Integer.class);
+        this.issuedAtMillis = claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L;
+        this.expirationMillis = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    // null với token cũ (cấp trước khi có claim role)
+    public String getRole() {
+        return role;
+    }
+
+    public Integer getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public Date getIssuedAt() {
+        return new Date(issuedAtMillis);
+    }
+
+    public Date getExpiration() {
+        return new Date(expirationMillis);
+    }
+
+    public boolean isExpired() {
+        return isExpiredAt(System.currentTimeMillis());
+    }
+
+    public boolean isExpiredAt(long nowMillis) {
+        return expirationMillis <= nowMillis;
+    }
+
+    // Token có đủ claims để xác thực stateless không
+    public boolean isStateless() {
+        return role != null && tokenVersion != null;
+    }
+}
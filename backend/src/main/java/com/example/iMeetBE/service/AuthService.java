@@ -33,6 +33,12 @@ public class AuthService {
 
     @Autowired
     private BidirectionalSyncService bidirectionalSyncService;
+
+    @Autowired
+    private AvatarThumbnailService avatarThumbnailService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
     
     /**
      * Tạo ID ngẫu nhiên cho traditional users
@@ -70,7 +76,8 @@ public class AuthService {
         }
 
         // Tạo JWT token
-        String token = jwtService.generateToken(user.getEmail(), user.getUsername(), user.getId());
+        String token = jwtService.generateToken(user.getEmail(), user.getUsername(), user.getId(),
+                user.getRole().name(), user.getTokenVersion());
         
         // Lưu token vào database
         user.setAccessToken(token);
@@ -133,9 +140,11 @@ public class AuthService {
             throw new RuntimeException("Mật khẩu hiện tại không đúng");
         }
         
-        // Cập nhật mật khẩu mới
+        // Cập nhật mật khẩu mới và thu hồi các JWT đã cấp (kể cả phiên hiện tại)
         user.setPasswordHash(passwordEncoder.encode(newPassword));
+        user.incrementTokenVersion();
         userRepository.save(user);
+        tokenRevocationService.evict(user.getEmail());
         
         return new ChangePasswordResponse(true, "Đổi mật khẩu thành công");
     }
@@ -174,7 +183,7 @@ public class AuthService {
         }
     }
 
-    // Upload avatar - lưu vào database
+    // Upload avatar - lưu file vào blob store, database chỉ giữ URL
     public String uploadAvatar(User user, MultipartFile file) throws IOException {
         try {
             // Kiểm tra file
@@ -190,15 +199,14 @@ public class AuthService {
                 throw new IOException("File phải là ảnh");
             }
             
-            // Tạo base64 data URL
-            String base64Data = "data:" + contentType + ";base64," + 
-                java.util.Base64.getEncoder().encodeToString(fileData);
+            // Lưu ảnh cùng các bản thu nhỏ cho danh sách, không gửi ảnh gốc tới list view
+            String avatarUrl = avatarThumbnailService.storeWithVariants(fileData, contentType);
             
-            // Cập nhật user với base64 data URL
-            user.setAvatarUrl(base64Data);
+            // Cập nhật user với URL của avatar
+            user.setAvatarUrl(avatarUrl);
             userRepository.save(user);
             
-            return base64Data;
+            return avatarUrl;
         } catch (IOException e) {
             throw new IOException("Không thể lưu ảnh: " + e.getMessage());
         }
@@ -18,9 +18,15 @@ public class AutoSyncService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Autowired
     private CognitoService cognitoService;
 
+    @Autowired
+    private CognitoIncrementalSyncService cognitoIncrementalSyncService;
+
     /**
      * Tự động đồng bộ xóa users mỗi 30 phút
      * Chỉ chạy khi có users trong database
@@ -54,6 +60,7 @@ public class AutoSyncService {
                     Optional<User> userToDelete = userRepository.findByEmail(email);
                     if (userToDelete.isPresent()) {
                         userRepository.delete(userToDelete.get());
+                        tokenRevocationService.evict(email);
                         deletedCount++;
                     }
                 } catch (Exception e) {
@@ -79,7 +86,7 @@ public class AutoSyncService {
     // @Scheduled(fixedRate = 3600000) // 1 giờ = 3600000ms
     public void autoFullSync() {
         try {
-            cognitoService.fullSyncFromCognito();
+            cognitoIncrementalSyncService.synchronize(true);
         } catch (Exception e) {
             System.err.println("Error in auto full sync: " + e.getMessage());
         }
@@ -102,7 +109,7 @@ public class AutoSyncService {
      */
     public void manualFullSync() {
         try {
-            cognitoService.fullSyncFromCognito();
+            cognitoIncrementalSyncService.synchronize(true);
         } catch (Exception e) {
             System.err.println("Error in manual full sync: " + e.getMessage());
             throw e;
@@ -0,0 +1,108 @@
+package com.example.iMeetBE.service;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.iMeetBE.repository.UserRepository;
+
+/**
+ * Migration một lần: chuyển avatar base64 đang lưu trong users.avatar_url ra AvatarStorageService.
+ * Đọc theo batch id và chỉ load avatar của từng user một nên bộ nhớ không tăng theo số user.
+ * Chạy lại nhiều lần vẫn an toàn (user đã chuyển sẽ không còn data URL).
+ * Ảnh không decode được (WebP, JPEG CMYK...) vẫn được chuyển nhưng không có bản thu nhỏ; các user này được
+ * log và đếm riêng (withoutVariants) để xử lý lại ảnh nếu cần.
+ */
+@Service
+public class AvatarMigrationService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AvatarThumbnailService avatarThumbnailService;
+
+    @Autowired
+    private AvatarStorageService avatarStorageService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.avatar.migration-batch-size:100}")
+    private int batchSize;
+
+    private enum Outcome { SKIPPED, MIGRATED, MIGRATED_WITHOUT_VARIANTS }
+
+    public Map<String, Integer> migrateInlineAvatars() {
+        int migrated = 0;
+        int withoutVariants = 0;
+        int errors = 0;
+        String lastId = "";
+
+        while (true) {
+            List<String> ids = userRepository.findInlineAvatarUserIdsAfter(lastId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            for (String id : ids) {
+                try {
+                    Outcome outcome = migrateUser(id);
+                    if (outcome != Outcome.SKIPPED) {
+                        migrated++;
+                    }
+                    if (outcome == Outcome.MIGRATED_WITHOUT_VARIANTS) {
+                        withoutVariants++;
+                    }
+                } catch (Exception e) {
+                    System.err.println("Failed to migrate avatar for user " + id + ": " + e.getMessage());
+                    errors++;
+                }
+            }
+            lastId = ids.get(ids.size() - 1);
+        }
+
+        System.out.println("Avatar migration: " + migrated + " migrated (" + withoutVariants
+                + " without thumbnails), " + errors + " errors");
+        return Map.of("migrated", migrated, "withoutVariants", withoutVariants, "errors", errors);
+    }
+
+    private Outcome migrateUser(String id) throws Exception {
+        String dataUrl = userRepository.findAvatarUrlById(id).orElse(null);
+        if (!AvatarStorageService.isInlineDataUrl(dataUrl)) {
+            return Outcome.SKIPPED;
+        }
+
+        // Định dạng: data:<contentType>;base64,<data>
+        int comma = dataUrl.indexOf(',');
+        int semicolon = dataUrl.indexOf(';');
+        if (comma < 0 || semicolon < 0 || semicolon > comma) {
+            throw new IllegalArgumentException("Invalid data URL");
+        }
+        String contentType = dataUrl.substring("data:".length(), semicolon);
+        byte[] data = Base64.getDecoder().decode(dataUrl.substring(comma + 1));
+
+        String url;
+        boolean withVariants = true;
+        try {
+            url = avatarThumbnailService.storeWithVariants(data, contentType);
+        } catch (AvatarThumbnailService.UndecodableImageException e) {
+            // Giữ ảnh gốc cho user thay vì để lại data URL trong database
+            System.err.println("Avatar of user " + id + " stored without thumbnails: " + e.getMessage());
+            url = avatarStorageService.storeWithoutVariants(data, contentType);
+            withVariants = false;
+        }
+        if (userRepository.updateAvatarUrl(id, url) == 0) {
+            return Outcome.SKIPPED;
+        }
+        // UPDATE JPQL không qua UserEntityEvents
+        eventPublisher.publishEvent(new UserAvatarChangedEvent(id, url));
+        return withVariants ? Outcome.MIGRATED : Outcome.MIGRATED_WITHOUT_VARIANTS;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.iMeetBE.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Lưu ảnh avatar trên filesystem theo SHA-256 của nội dung (content-addressed).
+ * Cùng một ảnh chỉ được lưu một lần; file không bao giờ bị ghi đè nên có thể cache lâu dài.
+ * File được serve qua handler /uploads/** trong WebConfig.
+ */
+@Service
+public class AvatarStorageService {
+
+    public static final String AVATAR_DIR = "avatars";
+
+    // Kích thước (px) các bản thu nhỏ được tạo khi upload, dùng cho danh sách
+    public static final int[] VARIANT_SIZES = {48, 128, 256};
+
+    private static final String VARIANT_EXTENSION = ".jpg";
+
+    // Hậu tố tên file của ảnh gốc không có bản thu nhỏ (xem storeWithoutVariants)
+    private static final String NO_VARIANTS_SUFFIX = "_full";
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    // URL public của thư mục uploads, ví dụ https://api.example.com/uploads
+    @Value("${app.upload.public-url:/uploads}")
+    private String publicUrl;
+
+    /**
+     * Lưu ảnh và trả về URL ngắn để ghi vào users.avatar_url
+     */
+    public String store(byte[] data, String contentType) throws IOException {
+        return store(data, contentType, "");
+    }
+
+    /**
+     * Lưu ảnh không tạo được bản thu nhỏ (ví dụ avatar cũ dạng WebP hoặc JPEG CMYK khi migrate).
+     * Tên file <sha256>_full.<ext> không có dạng <sha256>.<ext> nên {@link #variantUrl} trả về nguyên URL
+     * thay vì trỏ tới bản thu nhỏ không tồn tại.
+     */
+    public String storeWithoutVariants(byte[] data, String contentType) throws IOException {
+        return store(data, contentType, NO_VARIANTS_SUFFIX);
+    }
+
+    private String store(byte[] data, String contentType, String suffix) throws IOException {
+        String hash = sha256Hex(data);
+        String fileName = hash + suffix + extensionFor(contentType);
+        // Chia thư mục con theo 2 ký tự đầu để tránh một thư mục quá nhiều file
+        String relativePath = AVATAR_DIR + "/" + hash.substring(0, 2) + "/" + fileName;
+
+        Path target = Paths.get(uploadDir).resolve(relativePath);
+        if (!Files.exists(target)) {
+            writeAtomically(target, data);
+        }
+
+        return publicUrl + "/" + relativePath;
+    }
+
+    /**
+     * Lưu bản thu nhỏ của một avatar đã lưu. Đường dẫn suy ra từ hash của ảnh gốc
+     * (avatars/ab/<hash>_<size>.jpg) nên không cần lưu thêm cột nào trong database.
+     */
+    public String storeVariant(String originalUrl, int size, byte[] jpegData) throws IOException {
+        String variantUrl = variantUrl(originalUrl, size);
+        if (variantUrl.equals(originalUrl)) {
+            throw new IllegalArgumentException("Not a stored avatar URL: " + originalUrl);
+        }
+
+        String relativePath = variantUrl.substring(variantUrl.lastIndexOf("/" + AVATAR_DIR + "/") + 1);
+        Path target = Paths.get(uploadDir).resolve(relativePath);
+        if (!Files.exists(target)) {
+            writeAtomically(target, jpegData);
+        }
+        return variantUrl;
+    }
+
+    /**
+     * URL bản thu nhỏ của avatar. Avatar ngoài (OAuth2, Cognito) và ảnh lưu bằng storeWithoutVariants
+     * không có bản thu nhỏ nên trả về nguyên URL.
+     */
+    public static String variantUrl(String avatarUrl, int size) {
+        if (avatarUrl == null) {
+            return null;
+        }
+        int dirIndex = avatarUrl.lastIndexOf("/" + AVATAR_DIR + "/");
+        int slash = avatarUrl.lastIndexOf('/');
+        int dot = avatarUrl.lastIndexOf('.');
+        // Chỉ áp dụng cho file gốc dạng <sha256>.<ext> do store() tạo ra
+        if (dirIndex < 0 || dot < slash || dot - slash - 1 != 64) {
+            return avatarUrl;
+        }
+        return avatarUrl.substring(0, dot) + "_" + size + VARIANT_EXTENSION;
+    }
+
+    /**
+     * Tất cả bản thu nhỏ của avatar, key là kích thước
+     */
+    public static Map<Integer, String> variantUrls(String avatarUrl) {
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        for (int size : VARIANT_SIZES) {
+            urls.put(size, variantUrl(avatarUrl, size));
+        }
+        return urls;
+    }
+
+    /**
+     * Kiểm tra avatar_url có phải base64 data URL cũ (lưu trực tiếp trong database) không
+     */
+    public static boolean isInlineDataUrl(String avatarUrl) {
+        return avatarUrl != null && avatarUrl.startsWith("data:");
+    }
+
+    private static void writeAtomically(Path target, byte[] data) throws IOException {
+        Files.createDirectories(target.getParent());
+        // Ghi ra file tạm rồi move để không bao giờ serve file ghi dở
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            if (!Files.exists(target)) {
+                throw e;
+            }
+        }
+    }
+
+    private static String extensionFor(String contentType) {
+        if (contentType == null) {
+            return ".img";
+        }
+        switch (contentType.toLowerCase()) {
+            case "image/jpeg":
+            case "image/jpg":
+                return ".jpg";
+            case "image/png":
+                return ".png";
+            case "image/gif":
+                return ".gif";
+            case "image/webp":
+                return ".webp";
+            default:
+                return ".img";
+        }
+    }
+
+    private static String sha256Hex(byte[] data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.iMeetBE.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Tạo các bản thu nhỏ (JPEG vuông) của avatar khi upload bằng javax.imageio.
+ * Decode và resize chạy chung một task trên thread pool có giới hạn, nên bộ nhớ và CPU dùng cho ảnh
+ * không tăng theo số upload đồng thời. Ảnh gốc chỉ được lưu sau khi đã decode được.
+ */
+@Service
+public class AvatarThumbnailService {
+
+    @Autowired
+    private AvatarStorageService avatarStorageService;
+
+    @Value("${app.avatar.thumbnail-threads:2}")
+    private int threads;
+
+    @Value("${app.avatar.thumbnail-queue-size:32}")
+    private int queueSize;
+
+    @Value("${app.avatar.thumbnail-timeout:10000}") // 10 giây
+    private long timeoutMillis;
+
+    @Value("${app.avatar.thumbnail-quality:0.85}")
+    private float jpegQuality;
+
+    // Giới hạn tổng số pixel (rộng x cao) của ảnh gốc để tránh decompression bomb, mặc định 16 megapixel
+    @Value("${app.avatar.max-source-pixels:16000000}")
+    private long maxSourcePixels;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Ảnh không tạo được bản thu nhỏ (định dạng/hệ màu không đọc được hoặc quá số megapixel cho phép).
+     * Khác với các IOException còn lại (pool đầy, quá thời gian), thử lại cũng không thành công.
+     */
+    public static class UndecodableImageException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public UndecodableImageException(String message) {
+            super(message);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-thumbnail-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Decode ảnh, tạo các bản thu nhỏ rồi mới lưu ảnh gốc và các bản thu nhỏ.
+     * Ảnh không decode được (WebP, JPEG CMYK...) bị từ chối trước khi ghi file nào.
+     *
+     * @return URL ảnh gốc để ghi vào users.avatar_url
+     * @throws UndecodableImageException nếu không decode được ảnh
+     */
+    public String storeWithVariants(byte[] data, String contentType) throws IOException {
+        Map<Integer, byte[]> variants = renderVariants(data);
+        String originalUrl = avatarStorageService.store(data, contentType);
+        for (Map.Entry<Integer, byte[]> variant : variants.entrySet()) {
+            avatarStorageService.storeVariant(originalUrl, variant.getKey(), variant.getValue());
+        }
+        return originalUrl;
+    }
+
+    // JPEG các bản thu nhỏ, key là kích thước; decode và resize trong cùng một task của pool
+    private Map<Integer, byte[]> renderVariants(byte[] data) throws IOException {
+        Future<Map<Integer, byte[]>> future;
+        try {
+            future = executor.submit(() -> {
+                BufferedImage source = readImage(data);
+                Map<Integer, byte[]> variants = new LinkedHashMap<>();
+                for (int size : AvatarStorageService.VARIANT_SIZES) {
+                    variants.put(size, encodeJpeg(resizeSquare(source, size)));
+                }
+                return variants;
+            });
+        } catch (RejectedExecutionException e) {
+            throw new IOException("Hệ thống đang bận xử lý ảnh, vui lòng thử lại sau");
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IOException("Xử lý ảnh quá thời gian cho phép");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Không thể tạo ảnh thu nhỏ: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IOException("Xử lý ảnh bị gián đoạn");
+        }
+    }
+
+    private BufferedImage readImage(byte[] data) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new UndecodableImageException("Định dạng ảnh không được hỗ trợ (chỉ hỗ trợ JPEG, PNG, GIF, BMP)");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Kiểm tra kích thước trước khi decode toàn bộ ảnh
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new UndecodableImageException(
+                        "Ảnh không được vượt quá " + maxSourcePixels / 1_000_000 + " megapixel");
+                }
+                // Chỉ decode đủ điểm ảnh cho bản lớn nhất (cạnh ngắn ít nhất gấp đôi) thay vì toàn bộ ảnh
+                int largest = AvatarStorageService.VARIANT_SIZES[AvatarStorageService.VARIANT_SIZES.length - 1];
+                int step = Math.max(1, Math.min(width, height) / (largest * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } catch (IIOException e) {
+                throw new UndecodableImageException("Không đọc được ảnh (định dạng hoặc hệ màu không được hỗ trợ)");
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Cắt giữa thành hình vuông rồi thu nhỏ về size px (không phóng to ảnh nhỏ hơn size)
+     */
+    private static BufferedImage resizeSquare(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+        BufferedImage current = source.getSubimage(x, y, side, side);
+        int currentSize = side;
+        int targetSize = Math.min(size, side);
+
+        // Thu nhỏ dần từng nửa để ảnh không bị răng cưa khi giảm kích thước nhiều
+        do {
+            currentSize = Math.max(targetSize, currentSize / 2);
+            current = draw(current, currentSize);
+        } while (currentSize > targetSize);
+
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int size) {
+        // JPEG không có kênh alpha: vẽ lên nền trắng
+        BufferedImage target = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, size, size);
+            g.drawImage(source, 0, 0, size, size, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+}
@@ -15,6 +15,12 @@ public class BidirectionalSyncService {
     @Autowired
     private CognitoService cognitoService;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private CognitoIncrementalSyncService cognitoIncrementalSyncService;
+
     /**
      * Xóa user khỏi cả database và Cognito
      */
@@ -27,6 +33,7 @@ public class BidirectionalSyncService {
             User user = userRepository.findByEmail(email).orElse(null);
             if (user != null) {
                 userRepository.delete(user);
+                tokenRevocationService.evict(email);
             }
             
         } catch (Exception e) {
@@ -101,20 +108,15 @@ public class BidirectionalSyncService {
     public void fullBidirectionalSync() {
         try {
             // 1. Đồng bộ từ Cognito về database (thêm/cập nhật)
-            cognitoService.syncAllUsersFromCognitoToDatabase();
+            cognitoIncrementalSyncService.synchronize(false);
             
             // 2. Đồng bộ từ database lên Cognito (chỉ traditional users)
-            java.util.List<User> dbUsers = userRepository.findAll();
-            for (User user : dbUsers) {
-                // Chỉ đồng bộ traditional users (không có googleId)
-                if (user.getGoogleId() == null || user.getGoogleId().isEmpty()) {
-                    if (cognitoService.userExistsInCognito(user.getEmail())) {
-                        cognitoService.updateUserInCognitoFromDatabase(user);
-                    } else {
-                        cognitoService.createUserInCognitoFromDatabase(user);
-                    }
-                }
-            }
+            // Chỉ đồng bộ traditional users (không có googleId), chạy song song qua CognitoBatchExecutor
+            java.util.List<User> traditionalUsers = userRepository.findAll().stream()
+                .filter(user -> user.getGoogleId() == null || user.getGoogleId().isEmpty())
+                .filter(user -> user.getEmail() != null && !user.getEmail().isEmpty())
+                .toList();
+            cognitoService.syncAllUsersToCognito(traditionalUsers);
             
         } catch (Exception e) {
             System.err.println("Error in full bidirectional sync: " + e.getMessage());
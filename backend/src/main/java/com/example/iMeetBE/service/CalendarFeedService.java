@@ -0,0 +1,419 @@
+package com.example.iMeetBE.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.iMeetBE.dto.MeetingResponse;
+import com.example.iMeetBE.dto.RoomResponse;
+import com.example.iMeetBE.repository.MeetingRepository;
+import com.example.iMeetBE.repository.UserRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Lịch iCalendar (.ics) theo phòng và theo người dùng, cho ứng dụng lịch desktop đăng ký và poll định kỳ.
+ * - Mỗi lịch gồm các cuộc họp chưa hủy bắt đầu trong cửa sổ [hôm nay - meeting.ical.past-days,
+ *   hôm nay + meeting.ical.future-days), tối đa meeting.ical.max-events sự kiện.
+ * - Trạng thái của từng lịch (ETag, Last-Modified, danh sách VEVENT) được giữ theo bộ đếm lịch trong
+ *   ResourceVersions (roomCalendarTag/userCalendarTag) và ngày hiện tại: chưa đổi thì trả luôn, không query.
+ *   Bộ đếm đổi thì query lại, nhưng ETag tính từ nội dung nên lịch không thực sự thay đổi vẫn giữ ETag và
+ *   Last-Modified cũ (client nhận 304).
+ * - Lịch người dùng cho biết họ nhận lời những cuộc họp nào nên URL phải kèm khóa bí mật của user
+ *   ({@link #calendarToken}); lịch phòng công khai như lịch phòng trong /api/meetings/room/**.
+ * - Khối VEVENT đã render được cache theo cuộc họp và dấu vân tay (version, updatedAt, tên phòng/người tổ chức),
+ *   dùng chung giữa lịch phòng và lịch người dùng; chỉ cuộc họp thay đổi mới render lại.
+ * Giờ trong database là giờ địa phương (meeting.ical.zone, mặc định múi giờ của server), xuất ra dạng UTC.
+ */
+@Service
+public class CalendarFeedService {
+
+    /**
+     * Một lịch đã dựng: bất biến, dùng chung giữa các request. Các mảng byte VEVENT dùng chung với cache sự kiện.
+     */
+    public static final class Feed {
+        private final String versionTag;
+        private final String accessToken;
+        private final String etag;
+        private final Instant lastModified;
+        private final byte[] header;
+        private final List<byte[]> events;
+
+        private Feed(String versionTag, String accessToken, String etag, Instant lastModified, byte[] header,
+                     List<byte[]> events) {
+            this.versionTag = versionTag;
+            this.accessToken = accessToken;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.header = header;
+            this.events = events;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public Instant getLastModified() {
+            return lastModified;
+        }
+
+        public int size() {
+            return events.size();
+        }
+
+        // Ghi thẳng các khối đã render ra stream, không tạo chuỗi cho cả lịch
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(header);
+            for (byte[] event : events) {
+                out.write(event);
+            }
+            out.write(FOOTER);
+        }
+    }
+
+    // contentHash: SHA-256 của bytes, dùng tính ETag của lịch theo nội dung thực sự gửi đi
+    private record RenderedEvent(String fingerprint, byte[] bytes, byte[] contentHash) { }
+
+    private static final byte[] FOOTER = "END:VCALENDAR\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final DateTimeFormatter UTC_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private MeetingRepository meetingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomCatalog roomCatalog;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Value("${meeting.ical.past-days:30}")
+    private int pastDays;
+
+    @Value("${meeting.ical.future-days:180}")
+    private int futureDays;
+
+    @Value("${meeting.ical.max-events:5000}")
+    private int maxEvents;
+
+    @Value("${meeting.ical.zone:}")
+    private String zone;
+
+    private final int maxFeeds;
+    private final int maxEventEntries;
+    private final Map<String, Feed> feeds;
+    private final Map<Integer, RenderedEvent> renderedEvents;
+    private final LongAdder feedHits = new LongAdder();
+    private final LongAdder feedReloads = new LongAdder();
+    private final LongAdder eventRenders = new LongAdder();
+
+    public CalendarFeedService(@Value("${meeting.ical.feed-cache-size:5000}") int maxFeeds,
+                               @Value("${meeting.ical.event-cache-size:50000}") int maxEventEntries,
+                               MeterRegistry meterRegistry) {
+        this.maxFeeds = maxFeeds;
+        this.maxEventEntries = maxEventEntries;
+        this.feeds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Feed> eldest) {
+                return size() > CalendarFeedService.this.maxFeeds;
+            }
+        };
+        this.renderedEvents = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, RenderedEvent> eldest) {
+                return size() > CalendarFeedService.this.maxEventEntries;
+            }
+        };
+        registerCounter(meterRegistry, "hit", feedHits, "Số lần trả lịch đã dựng mà không query");
+        registerCounter(meterRegistry, "reload", feedReloads, "Số lần query lại lịch sau khi version đổi");
+        registerCounter(meterRegistry, "render", eventRenders, "Số khối VEVENT phải render lại");
+    }
+
+    private static void registerCounter(MeterRegistry registry, String result, LongAdder value, String description) {
+        FunctionCounter.builder("meeting.ical.feed", value, LongAdder::sum)
+            .description(description)
+            .tag("result", result)
+            .register(registry);
+    }
+
+    // Lịch của phòng; empty nếu phòng không tồn tại
+    public Optional<Feed> roomFeed(Integer roomId) {
+        LocalDate today = LocalDate.now();
+        String versionTag = resourceVersions.roomCalendarTag(roomId) + "-" + today;
+        String key = "room:" + roomId;
+        Feed cached = cached(key, versionTag);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<RoomResponse> room = roomCatalog.current().all().stream()
+            .filter(candidate -> candidate.getRoomId().equals(roomId))
+            .findFirst();
+        if (room.isEmpty()) {
+            return Optional.empty();
+        }
+        String name = "Phòng " + room.get().getName();
+        List<MeetingResponse> rows = meetingRepository.findCalendarRange(roomId, null,
+            windowStart(today), windowEnd(today), maxEvents);
+        return Optional.of(store(key, versionTag, null, name, rows));
+    }
+
+    /**
+     * Lịch của người dùng: cuộc họp do họ tổ chức và cuộc họp họ đã nhận lời.
+     * Empty nếu người dùng không tồn tại, chưa lấy link lịch hoặc {@code token} không khớp (không phân biệt để
+     * không lộ user nào tồn tại).
+     */
+    public Optional<Feed> userFeed(String userId, String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        LocalDate today = LocalDate.now();
+        String versionTag = resourceVersions.userCalendarTag(userId) + "-" + today;
+        String key = "user:" + userId;
+        Feed cached = cached(key, versionTag);
+        if (cached != null) {
+            return tokenMatches(cached.accessToken, token) ? Optional.of(cached) : Optional.empty();
+        }
+        Optional<UserRepository.CalendarOwner> owner = userRepository.findCalendarOwnerById(userId);
+        if (owner.isEmpty() || !tokenMatches(owner.get().getCalendarToken(), token)) {
+            return Optional.empty();
+        }
+        String displayName = owner.get().getFullName() != null ? owner.get().getFullName() : owner.get().getUsername();
+        List<MeetingResponse> rows = meetingRepository.findCalendarRange(null, userId,
+            windowStart(today), windowEnd(today), maxEvents);
+        return Optional.of(store(key, versionTag, owner.get().getCalendarToken(), "iMeet - " + displayName, rows));
+    }
+
+    /**
+     * Khóa bí mật trong URL lịch của user: tạo nếu chưa có; {@code reset} thì tạo khóa mới và link cũ hết hiệu lực.
+     * Empty nếu user không tồn tại.
+     */
+    public Optional<String> calendarToken(String userId, boolean reset) {
+        byte[] random = new byte[24];
+        RANDOM.nextBytes(random);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        if (userRepository.updateCalendarToken(userId, token, !reset) > 0 && reset) {
+            // Lịch đang cache giữ khóa cũ
+            resourceVersions.onCalendarsChanged(List.of(), List.of(userId));
+        }
+        return userRepository.findCalendarOwnerById(userId).map(UserRepository.CalendarOwner::getCalendarToken);
+    }
+
+    // Họ tên/email người tổ chức có trong VEVENT, họ tên user có trong tên lịch
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        resourceVersions.onAllCalendarsChanged();
+    }
+
+    private static boolean tokenMatches(String expected, String token) {
+        return expected != null && MessageDigest.isEqual(
+            expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Feed cached(String key, String versionTag) {
+        Feed feed;
+        synchronized (feeds) {
+            feed = feeds.get(key);
+        }
+        if (feed != null && feed.versionTag.equals(versionTag)) {
+            feedHits.increment();
+            return feed;
+        }
+        return null;
+    }
+
+    // Dựng lịch từ các dòng vừa query; nội dung không đổi so với bản trước thì giữ ETag và Last-Modified cũ
+    private Feed store(String key, String versionTag, String accessToken, String name, List<MeetingResponse> rows) {
+        feedReloads.increment();
+        ZoneId zoneId = zoneId();
+        byte[] header = header(name);
+        MessageDigest digest = sha256();
+        digest.update(header);
+        List<byte[]> events = new ArrayList<>(rows.size());
+        for (MeetingResponse row : rows) {
+            RenderedEvent event = event(row, zoneId);
+            digest.update(event.contentHash());
+            events.add(event.bytes());
+        }
+        String etag = "\"ical-" + Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(Arrays.copyOf(digest.digest(), 18)) + "\"";
+
+        Feed previous;
+        synchronized (feeds) {
+            previous = feeds.get(key);
+        }
+        Instant lastModified = previous != null && previous.etag.equals(etag)
+            ? previous.lastModified
+            : Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Feed feed = new Feed(versionTag, accessToken, etag, lastModified, header, List.copyOf(events));
+        synchronized (feeds) {
+            feeds.put(key, feed);
+        }
+        return feed;
+    }
+
+    private RenderedEvent event(MeetingResponse row, ZoneId zoneId) {
+        String fingerprint = row.getMeetingId() + ":" + row.getVersion() + ":" + row.getUpdatedAt() + ":"
+            + row.getRoomName() + ":" + row.getRoomLocation() + ":"
+            + row.getUserName() + ":" + row.getUserEmail() + ";";
+        RenderedEvent cached;
+        synchronized (renderedEvents) {
+            cached = renderedEvents.get(row.getMeetingId());
+        }
+        if (cached != null && cached.fingerprint().equals(fingerprint)) {
+            return cached;
+        }
+        eventRenders.increment();
+        byte[] bytes = render(row, zoneId);
+        RenderedEvent rendered = new RenderedEvent(fingerprint, bytes, sha256().digest(bytes));
+        synchronized (renderedEvents) {
+            renderedEvents.put(row.getMeetingId(), rendered);
+        }
+        return rendered;
+    }
+
+    private static byte[] header(String name) {
+        StringBuilder ics = new StringBuilder(256);
+        line(ics, "BEGIN:VCALENDAR");
+        line(ics, "VERSION:2.0");
+        line(ics, "PRODID:-//iMeet//Calendar Feed//VI");
+        line(ics, "CALSCALE:GREGORIAN");
+        line(ics, "METHOD:PUBLISH");
+        line(ics, "X-WR-CALNAME:" + escape(name));
+        line(ics, "REFRESH-INTERVAL;VALUE=DURATION:PT15M");
+        line(ics, "X-PUBLISHED-TTL:PT15M");
+        return ics.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Chỉ gồm các trường người dùng thấy. Không xuất SEQUENCE/LAST-MODIFIED theo version/updatedAt vì job trạng thái
+     * tăng chúng khi cuộc họp bắt đầu/kết thúc: khối VEVENT giữ nguyên byte nên lịch vẫn 304.
+     */
+    private static byte[] render(MeetingResponse row, ZoneId zoneId) {
+        StringBuilder ics = new StringBuilder(512);
+        line(ics, "BEGIN:VEVENT");
+        line(ics, "UID:meeting-" + row.getMeetingId() + "@imeet");
+        line(ics, "DTSTAMP:" + utc(row.getCreatedAt() != null ? row.getCreatedAt() : row.getStartTime(), zoneId));
+        if (Boolean.TRUE.equals(row.getIsAllDay())) {
+            LocalDate startDate = row.getStartTime().toLocalDate();
+            LocalDate endDate = row.getEndTime().toLocalDate();
+            line(ics, "DTSTART;VALUE=DATE:" + DATE.format(startDate));
+            line(ics, "DTEND;VALUE=DATE:" + DATE.format(endDate.isAfter(startDate) ? endDate : startDate.plusDays(1)));
+        } else {
+            line(ics, "DTSTART:" + utc(row.getStartTime(), zoneId));
+            line(ics, "DTEND:" + utc(row.getEndTime(), zoneId));
+        }
+        line(ics, "SUMMARY:" + escape(row.getTitle()));
+        if (row.getDescription() != null && !row.getDescription().isBlank()) {
+            line(ics, "DESCRIPTION:" + escape(row.getDescription()));
+        }
+        String location = row.getRoomLocation() != null && !row.getRoomLocation().isBlank()
+            ? row.getRoomName() + " - " + row.getRoomLocation()
+            : row.getRoomName();
+        if (location != null) {
+            line(ics, "LOCATION:" + escape(location));
+        }
+        if (row.getUserEmail() != null) {
+            String organizer = row.getUserName() != null ? ";CN=" + quoteParam(row.getUserName()) : "";
+            line(ics, "ORGANIZER" + organizer + ":mailto:" + row.getUserEmail());
+        }
+        line(ics, "STATUS:CONFIRMED");
+        line(ics, "TRANSP:OPAQUE");
+        line(ics, "END:VEVENT");
+        return ics.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String utc(LocalDateTime value, ZoneId zoneId) {
+        return UTC_STAMP.format(value.atZone(zoneId).withZoneSameInstant(ZoneOffset.UTC));
+    }
+
+    // TEXT theo RFC 5545: escape \ ; , và xuống dòng
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> escaped.append("\\\\");
+                case ';' -> escaped.append("\\;");
+                case ',' -> escaped.append("\\,");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> { }
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    // Giá trị tham số (CN=...) không được chứa dấu nháy kép, đặt trong nháy khi có : ; ,
+    private static String quoteParam(String value) {
+        String cleaned = value.replace("\"", "'").replace("\r", "").replace("\n", " ");
+        return cleaned.matches(".*[:;,].*") ? "\"" + cleaned + "\"" : cleaned;
+    }
+
+    // Gấp dòng dài hơn 75 octet (UTF-8) bằng CRLF + dấu cách, không cắt giữa một ký tự
+    private static void line(StringBuilder ics, String content) {
+        int octets = 0;
+        for (int i = 0; i < content.length(); ) {
+            int codePoint = content.codePointAt(i);
+            int size = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (octets + size > 75) {
+                ics.append("\r\n ");
+                octets = 1;
+            }
+            ics.appendCodePoint(codePoint);
+            octets += size;
+            i += Character.charCount(codePoint);
+        }
+        ics.append("\r\n");
+    }
+
+    private LocalDateTime windowStart(LocalDate today) {
+        return today.minusDays(pastDays).atStartOfDay();
+    }
+
+    private LocalDateTime windowEnd(LocalDate today) {
+        return today.plusDays(futureDays + 1L).atStartOfDay();
+    }
+
+    private ZoneId zoneId() {
+        return zone == null || zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
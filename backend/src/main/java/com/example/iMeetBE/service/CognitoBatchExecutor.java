@@ -0,0 +1,165 @@
+package com.example.iMeetBE.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.cognitoidp.model.LimitExceededException;
+import com.amazonaws.services.cognitoidp.model.TooManyRequestsException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Chạy các lời gọi Cognito theo từng user song song với số luồng giới hạn.
+ * Khi Cognito trả về lỗi rate limit thì chờ (exponential backoff + jitter) rồi thử lại.
+ */
+@Service
+public class CognitoBatchExecutor {
+
+    @Value("${aws.cognito.sync-concurrency:8}")
+    private int concurrency;
+
+    @Value("${aws.cognito.throttle-max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${aws.cognito.throttle-base-delay:200}")
+    private long baseDelayMillis;
+
+    @Value("${aws.cognito.throttle-max-delay:5000}")
+    private long maxDelayMillis;
+
+    private ExecutorService executor;
+
+    @FunctionalInterface
+    public interface CognitoTask<T> {
+        void run(T item) throws Exception;
+    }
+
+    /**
+     * Kết quả một lần chạy batch
+     */
+    public static class BatchResult {
+        private final int succeeded;
+        private final int failed;
+        private final long durationMillis;
+
+        public BatchResult(int succeeded, int failed, long durationMillis) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.durationMillis = durationMillis;
+        }
+
+        public int getSucceeded() {
+            return succeeded;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "cognito-sync-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Chạy task cho từng item, tối đa {@code concurrency} lời gọi cùng lúc. Lỗi của một item không dừng các item khác.
+     */
+    public <T> BatchResult runAll(Collection<T> items, CognitoTask<T> task) {
+        long start = System.currentTimeMillis();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(executor.submit(() -> {
+                try {
+                    withBackoff(() -> task.run(item));
+                    succeeded.incrementAndGet();
+                } catch (Exception e) {
+                    System.err.println("❌ Cognito batch item failed: " + e.getMessage());
+                    failed.incrementAndGet();
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                break;
+            } catch (ExecutionException e) {
+                failed.incrementAndGet();
+            }
+        }
+
+        return new BatchResult(succeeded.get(), failed.get(), System.currentTimeMillis() - start);
+    }
+
+    @FunctionalInterface
+    public interface CognitoCall {
+        void call() throws Exception;
+    }
+
+    /**
+     * Gọi Cognito, thử lại khi bị rate limit
+     */
+    public void withBackoff(CognitoCall call) throws Exception {
+        int attempt = 0;
+        while (true) {
+            try {
+                call.call();
+                return;
+            } catch (Exception e) {
+                attempt++;
+                if (!isThrottling(e) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                // Full jitter: chờ ngẫu nhiên trong [0, min(maxDelay, base * 2^attempt)]
+                long cap = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 20));
+                Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+            }
+        }
+    }
+
+    private static boolean isThrottling(Exception e) {
+        if (e instanceof TooManyRequestsException || e instanceof LimitExceededException) {
+            return true;
+        }
+        if (e instanceof AmazonServiceException serviceException) {
+            String code = serviceException.getErrorCode();
+            return serviceException.getStatusCode() == 429
+                    || "ThrottlingException".equals(code)
+                    || "TooManyRequestsException".equals(code);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.iMeetBE.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.amazonaws.services.cognitoidp.model.AttributeType;
+import com.amazonaws.services.cognitoidp.model.ListUsersRequest;
+import com.amazonaws.services.cognitoidp.model.ListUsersResult;
+import com.amazonaws.services.cognitoidp.model.UserType;
+import com.example.iMeetBE.dto.CognitoSyncStats;
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.repository.UserRepository;
+
+/**
+ * Đồng bộ Cognito → database theo kiểu incremental.
+ * Mỗi user lưu lại hash attributes + UserLastModifiedDate của lần đồng bộ trước; mỗi trang ListUsers
+ * được xử lý ngay khi nhận về và chỉ những user thay đổi mới được ghi xuống database bằng JDBC batch.
+ * Ghi JDBC không đi qua UserEntityEvents nên lần đổi họ tên và lần xóa tự phát {@link UserChangedEvent}
+ * trong transaction của dòng đó (làm mới lịch .ics, UserSuggestIndex, tổng số user của UserDirectoryService).
+ */
+@Service
+public class CognitoIncrementalSyncService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO users (id, username, email, full_name, avatar_url, google_id, role, token_version, " +
+            "created_at, updated_at, cognito_attributes_hash, cognito_modified_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL =
+            "UPDATE users SET full_name = ?, avatar_url = ?, updated_at = ?, " +
+            "cognito_attributes_hash = ?, cognito_modified_at = ? WHERE email = ?";
+
+    private static final String DELETE_SQL = "DELETE FROM users WHERE email = ?";
+
+    // Tham số của một dòng và event phát ra khi dòng đó commit (null nếu không cần)
+    private record Row(Object[] args, Object event) { }
+
+    @Autowired
+    private AWSCognitoIdentityProvider cognitoClient;
+
+    @Autowired
+    private CognitoService cognitoService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserSuggestIndex userSuggestIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${aws.cognito.user-pool-id}")
+    private String userPoolId;
+
+    @Value("${aws.cognito.sync-batch-size:200}")
+    private int batchSize;
+
+    // Không cho hai lần đồng bộ chạy chồng lên nhau (scheduler + API thủ công)
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * @param deleteMissing xóa các user OAuth2 không còn trong Cognito (giống fullSyncFromCognito trước đây)
+     */
+    public CognitoSyncStats synchronize(boolean deleteMissing) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Cognito sync is already running");
+        }
+        try {
+            CognitoSyncStats stats = doSynchronize(deleteMissing);
+            System.out.println("Cognito incremental sync: " + stats);
+            return stats;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private CognitoSyncStats doSynchronize(boolean deleteMissing) {
+        long start = System.currentTimeMillis();
+        CognitoSyncStats stats = new CognitoSyncStats();
+
+        // Chỉ load email + fingerprint của user trong database
+        Map<String, UserRepository.CognitoSyncState> dbStates = new HashMap<>();
+        for (UserRepository.CognitoSyncState state : userRepository.findAllCognitoSyncStates()) {
+            if (state.getEmail() != null) {
+                dbStates.put(state.getEmail(), state);
+            }
+        }
+
+        Set<String> seenEmails = new HashSet<>();
+        List<Row> inserts = new ArrayList<>();
+        List<Row> updates = new ArrayList<>();
+
+        ListUsersRequest request = new ListUsersRequest()
+                .withUserPoolId(userPoolId)
+                .withLimit(60); // Tối đa 60 users mỗi lần
+        String paginationToken = null;
+
+        do {
+            ListUsersResult page = cognitoClient.listUsers(request.withPaginationToken(paginationToken));
+
+            for (UserType cognitoUser : page.getUsers()) {
+                stats.setScanned(stats.getScanned() + 1);
+                try {
+                    String email = getAttribute(cognitoUser, "email");
+                    if (email == null || !seenEmails.add(email)) {
+                        continue;
+                    }
+                    diffUser(cognitoUser, email, dbStates.get(email), inserts, updates, stats);
+                } catch (Exception e) {
+                    System.err.println("Failed to sync user " + cognitoUser.getUsername() + ": " + e.getMessage());
+                    stats.setErrors(stats.getErrors() + 1);
+                }
+            }
+
+            if (inserts.size() >= batchSize) {
+                stats.setCreated(stats.getCreated() + executeBatch(INSERT_SQL, inserts, 2, stats));
+                inserts.clear();
+            }
+            if (updates.size() >= batchSize) {
+                stats.setUpdated(stats.getUpdated() + executeBatch(UPDATE_SQL, updates, 5, stats));
+                updates.clear();
+            }
+
+            paginationToken = page.getPaginationToken();
+        } while (paginationToken != null && !paginationToken.isEmpty());
+
+        stats.setCreated(stats.getCreated() + executeBatch(INSERT_SQL, inserts, 2, stats));
+        stats.setUpdated(stats.getUpdated() + executeBatch(UPDATE_SQL, updates, 5, stats));
+
+        // Không xóa gì nếu Cognito trả về rỗng (sai user pool, lỗi cấu hình...) để tránh xóa nhầm
+        if (deleteMissing && stats.getScanned() > 0) {
+            stats.setDeleted(deleteMissingUsers(dbStates, seenEmails, stats));
+        }
+
+        stats.setDurationMs(System.currentTimeMillis() - start);
+        return stats;
+    }
+
+    private void diffUser(UserType cognitoUser, String email, UserRepository.CognitoSyncState state,
+                          List<Row> inserts, List<Row> updates, CognitoSyncStats stats) {
+        LocalDateTime modifiedAt = toLocalDateTime(cognitoUser.getUserLastModifiedDate());
+
+        // Cognito không đổi gì kể từ lần đồng bộ trước: không cần tính hash
+        if (state != null && modifiedAt != null && modifiedAt.equals(state.getCognitoModifiedAt())) {
+            stats.setUnchanged(stats.getUnchanged() + 1);
+            return;
+        }
+
+        String hash = fingerprint(cognitoUser);
+        if (state != null && hash.equals(state.getCognitoAttributesHash())) {
+            stats.setUnchanged(stats.getUnchanged() + 1);
+            return;
+        }
+
+        User entity = cognitoService.convertCognitoUserToEntity(cognitoUser);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp cognitoModified = modifiedAt != null ? Timestamp.valueOf(modifiedAt) : null;
+
+        if (state == null) {
+            inserts.add(new Row(new Object[] {
+                entity.getId(), entity.getUsername(), email, entity.getFullName(), entity.getAvatarUrl(),
+                entity.getGoogleId(), entity.getRole().name(), now, now, hash, cognitoModified
+            }, null));
+        } else {
+            // Họ tên nằm trong lịch .ics; email là khóa của UPDATE nên không đổi.
+            // Chỉ đổi avatar thì không cần làm mới lịch, refreshEmails đã cập nhật UserSuggestIndex
+            Object event = Objects.equals(state.getFullName(), entity.getFullName()) ? null
+                : new UserChangedEvent(state.getId(), state.getUsername(), email, entity.getFullName(),
+                    entity.getAvatarUrl(), false);
+            updates.add(new Row(new Object[] {
+                entity.getFullName(), entity.getAvatarUrl(), now, hash, cognitoModified, email
+            }, event));
+        }
+    }
+
+    private int deleteMissingUsers(Map<String, UserRepository.CognitoSyncState> dbStates, Set<String> seenEmails,
+                                   CognitoSyncStats stats) {
+        List<Row> deletes = new ArrayList<>();
+        for (UserRepository.CognitoSyncState state : dbStates.values()) {
+            // Chỉ xóa OAuth2 users để tránh xóa nhầm traditional users quan trọng
+            if (!seenEmails.contains(state.getEmail())
+                    && state.getGoogleId() != null && !state.getGoogleId().isEmpty()) {
+                deletes.add(new Row(new Object[] { state.getEmail() }, new UserChangedEvent(state.getId(),
+                    state.getUsername(), state.getEmail(), state.getFullName(), null, true)));
+            }
+        }
+
+        int deleted = 0;
+        for (int i = 0; i < deletes.size(); i += batchSize) {
+            deleted += executeBatch(DELETE_SQL, deletes.subList(i, Math.min(i + batchSize, deletes.size())), 0, stats);
+        }
+        if (deleted > 0) {
+            for (Row row : deletes) {
+                tokenRevocationService.evict((String) row.args()[0]);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Ghi một batch trong một transaction. Nếu batch lỗi (ví dụ trùng username) thì rollback
+     * và ghi lại từng dòng để một dòng lỗi không làm mất cả batch.
+     * emailIndex là vị trí cột email trong mỗi dòng, dùng để làm mới UserSuggestIndex.
+     */
+    private int executeBatch(String sql, List<Row> rows, int emailIndex, CognitoSyncStats stats) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        try {
+            return writeBatch(sql, rows, stats);
+        } finally {
+            // Ghi JDBC không đi qua entity listener: đọc lại các user vừa ghi
+            List<String> emails = rows.stream().map(row -> (String) row.args()[emailIndex]).toList();
+            try {
+                userSuggestIndex.refreshEmails(emails);
+            } catch (Exception e) {
+                System.err.println("Failed to refresh user suggest index: " + e.getMessage());
+            }
+        }
+    }
+
+    private int writeBatch(String sql, List<Row> rows, CognitoSyncStats stats) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            transaction.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(sql, rows.stream().map(Row::args).toList());
+                rows.forEach(this::publish);
+            });
+            return rows.size();
+        } catch (DataAccessException e) {
+            int succeeded = 0;
+            for (Row row : rows) {
+                try {
+                    transaction.executeWithoutResult(status -> {
+                        jdbcTemplate.update(sql, row.args());
+                        publish(row);
+                    });
+                    succeeded++;
+                } catch (DataAccessException rowError) {
+                    System.err.println("Failed to write synced user: " + rowError.getMostSpecificCause().getMessage());
+                    stats.setErrors(stats.getErrors() + 1);
+                }
+            }
+            return succeeded;
+        }
+    }
+
+    // Listener áp dụng sau khi commit (TransactionHooks), nên dòng bị rollback không phát ra gì
+    private void publish(Row row) {
+        if (row.event() != null) {
+            eventPublisher.publishEvent(row.event());
+        }
+    }
+
+    private static String fingerprint(UserType cognitoUser) {
+        StringBuilder builder = new StringBuilder(cognitoUser.getUsername()).append('\n');
+        cognitoUser.getAttributes().stream()
+                .sorted(Comparator.comparing(AttributeType::getName))
+                .forEach(attribute -> builder.append(attribute.getName()).append('=')
+                        .append(attribute.getValue()).append('\n'));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String getAttribute(UserType cognitoUser, String name) {
+        for (AttributeType attribute : cognitoUser.getAttributes()) {
+            if (name.equals(attribute.getName())) {
+                return attribute.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date != null ? LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()) : null;
+    }
+}
@@ -11,11 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
-import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderClientBuilder;
 import com.amazonaws.services.cognitoidp.model.AWSCognitoIdentityProviderException;
 import com.amazonaws.services.cognitoidp.model.AdminCreateUserRequest;
 import com.amazonaws.services.cognitoidp.model.AdminCreateUserResult;
@@ -40,56 +36,25 @@ public class CognitoService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Value("${aws.cognito.user-pool-id}")
     private String userPoolId;
 
-    @Value("${aws.cognito.region:ap-southeast-2}")
-    private String region;
-
-    @Value("${aws.access-key}")
-    private String accessKeyId;
-
-    @Value("${aws.secret-key}")
-    private String secretAccessKey;
+    // Client dùng chung (CognitoConfig), không tạo mới mỗi lần gọi
+    @Autowired
+    private AWSCognitoIdentityProvider cognitoClient;
 
-    private AWSCognitoIdentityProvider getCognitoClient() {
-        BasicAWSCredentials awsCredentials = new BasicAWSCredentials(accessKeyId, secretAccessKey);
-        return AWSCognitoIdentityProviderClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(Regions.fromName(region))
-                .build();
-    }
+    @Autowired
+    private CognitoBatchExecutor cognitoBatchExecutor;
 
     /**
      * Tạo user trong Cognito User Pool từ database user
      */
     public String createUserInCognito(User user) {
         try {
-            AWSCognitoIdentityProvider cognitoClient = getCognitoClient();
-
-            // Tạo attributes cho user
-            List<AttributeType> attributes = new ArrayList<>();
-            attributes.add(new AttributeType().withName("email").withValue(user.getEmail()));
-            attributes.add(new AttributeType().withName("email_verified").withValue("true"));
-            
-            if (user.getFullName() != null && !user.getFullName().isEmpty()) {
-                attributes.add(new AttributeType().withName("name").withValue(user.getFullName()));
-            }
-            
-            if (user.getAvatarUrl() != null && !user.getAvatarUrl().isEmpty()) {
-                attributes.add(new AttributeType().withName("picture").withValue(user.getAvatarUrl()));
-            }
-
-            AdminCreateUserRequest createUserRequest = new AdminCreateUserRequest()
-                    .withUserPoolId(userPoolId)
-                    .withUsername(user.getEmail()) // Sử dụng email làm username
-                    .withUserAttributes(attributes)
-                    .withTemporaryPassword("TempPass123!") // Password tạm thời
-                    .withMessageAction(MessageActionType.SUPPRESS) // Không gửi email
-                    .withDesiredDeliveryMediums(DeliveryMediumType.EMAIL);
-
-            AdminCreateUserResult result = cognitoClient.adminCreateUser(createUserRequest);
-            
+            AdminCreateUserResult result = cognitoClient.adminCreateUser(buildCreateUserRequest(user));
             
             return result.getUser().getUsername();
             
@@ -104,8 +69,6 @@ public class CognitoService {
      */
     public boolean userExistsInCognito(String email) {
         try {
-            AWSCognitoIdentityProvider cognitoClient = getCognitoClient();
-            
             AdminGetUserRequest getUserRequest = new AdminGetUserRequest()
                     .withUserPoolId(userPoolId)
                     .withUsername(email);
@@ -126,17 +89,7 @@ public class CognitoService {
      */
     public void updateUserInCognito(User user) {
         try {
-            AWSCognitoIdentityProvider cognitoClient = getCognitoClient();
-
-            List<AttributeType> attributes = new ArrayList<>();
-            
-            if (user.getFullName() != null && !user.getFullName().isEmpty()) {
-                attributes.add(new AttributeType().withName("name").withValue(user.getFullName()));
-            }
-            
-            if (user.getAvatarUrl() != null && !user.getAvatarUrl().isEmpty()) {
-                attributes.add(new AttributeType().withName("picture").withValue(user.getAvatarUrl()));
-            }
+            List<AttributeType> attributes = buildProfileAttributes(user);
 
             if (!attributes.isEmpty()) {
                 AdminUpdateUserAttributesRequest updateRequest = new AdminUpdateUserAttributesRequest()
@@ -158,8 +111,6 @@ public class CognitoService {
      */
     public void deleteUserFromCognito(String email) {
         try {
-            AWSCognitoIdentityProvider cognitoClient = getCognitoClient();
-
             AdminDeleteUserRequest deleteUserRequest = new AdminDeleteUserRequest()
                     .withUserPoolId(userPoolId)
                     .withUsername(email);
@@ -173,28 +124,65 @@ public class CognitoService {
     }
 
     /**
-     * Đồng bộ tất cả users từ database lên Cognito
+     * Đồng bộ tất cả users từ database lên Cognito (song song, có giới hạn số lời gọi đồng thời)
      */
-    public void syncAllUsersToCognito(List<User> users) {
-        
-        int successCount = 0;
-        int errorCount = 0;
-        
-        for (User user : users) {
-            try {
-                if (!userExistsInCognito(user.getEmail())) {
-                    createUserInCognito(user);
-                    successCount++;
-                } else {
-                    updateUserInCognito(user);
-                    successCount++;
-                }
-            } catch (Exception e) {
-                System.err.println("❌ Failed to sync user " + user.getEmail() + ": " + e.getMessage());
-                errorCount++;
+    public CognitoBatchExecutor.BatchResult syncAllUsersToCognito(List<User> users) {
+        CognitoBatchExecutor.BatchResult result = cognitoBatchExecutor.runAll(users, this::upsertUserInCognito);
+        System.out.println("Sync to Cognito: " + result.getSucceeded() + " successful, " + result.getFailed()
+                + " errors in " + result.getDurationMillis() + "ms");
+        return result;
+    }
+
+    /**
+     * Cập nhật user trong Cognito, tạo mới nếu chưa tồn tại.
+     * Không bắt exception của AWS để CognitoBatchExecutor có thể retry khi bị rate limit.
+     */
+    public void upsertUserInCognito(User user) {
+        List<AttributeType> attributes = buildProfileAttributes(user);
+        try {
+            if (attributes.isEmpty()) {
+                // Không có gì để cập nhật, chỉ cần biết user đã tồn tại chưa
+                cognitoClient.adminGetUser(new AdminGetUserRequest()
+                        .withUserPoolId(userPoolId)
+                        .withUsername(user.getEmail()));
+            } else {
+                cognitoClient.adminUpdateUserAttributes(new AdminUpdateUserAttributesRequest()
+                        .withUserPoolId(userPoolId)
+                        .withUsername(user.getEmail())
+                        .withUserAttributes(attributes));
             }
+        } catch (UserNotFoundException e) {
+            cognitoClient.adminCreateUser(buildCreateUserRequest(user));
         }
+    }
+
+    private AdminCreateUserRequest buildCreateUserRequest(User user) {
+        // Tạo attributes cho user
+        List<AttributeType> attributes = new ArrayList<>();
+        attributes.add(new AttributeType().withName("email").withValue(user.getEmail()));
+        attributes.add(new AttributeType().withName("email_verified").withValue("true"));
+        attributes.addAll(buildProfileAttributes(user));
+
+        return new AdminCreateUserRequest()
+                .withUserPoolId(userPoolId)
+                .withUsername(user.getEmail()) // Sử dụng email làm username
+                .withUserAttributes(attributes)
+                .withTemporaryPassword("TempPass123!") // Password tạm thời
+                .withMessageAction(MessageActionType.SUPPRESS) // Không gửi email
+                .withDesiredDeliveryMediums(DeliveryMediumType.EMAIL);
+    }
+
+    private List<AttributeType> buildProfileAttributes(User user) {
+        List<AttributeType> attributes = new ArrayList<>();
         
+        if (user.getFullName() != null && !user.getFullName().isEmpty()) {
+            attributes.add(new AttributeType().withName("name").withValue(user.getFullName()));
+        }
+        
+        if (user.getAvatarUrl() != null && !user.getAvatarUrl().isEmpty()) {
+            attributes.add(new AttributeType().withName("picture").withValue(user.getAvatarUrl()));
+        }
+        return attributes;
     }
 
     /**
@@ -202,7 +190,6 @@ public class CognitoService {
      */
     public List<UserType> getAllUsersFromCognito() {
         try {
-            AWSCognitoIdentityProvider cognitoClient = getCognitoClient();
             List<UserType> allUsers = new ArrayList<>();
             
             ListUsersRequest listUsersRequest = new ListUsersRequest()
@@ -232,8 +219,6 @@ public class CognitoService {
      */
     public UserType getUserFromCognito(String email) {
         try {
-            AWSCognitoIdentityProvider cognitoClient = getCognitoClient();
-            
             AdminGetUserRequest getUserRequest = new AdminGetUserRequest()
                     .withUserPoolId(userPoolId)
                     .withUsername(email);
@@ -260,7 +245,7 @@ public class CognitoService {
     /**
      * Chuyển đổi UserType từ Cognito thành User entity cho database
      */
-    private User convertCognitoUserToEntity(UserType cognitoUser) {
+    User convertCognitoUserToEntity(UserType cognitoUser) {
         User user = new User();
         
         // Lấy thông tin từ attributes
@@ -339,12 +324,12 @@ public class CognitoService {
      */
     public Set<String> getDatabaseUserEmails() {
         try {
-            List<User> dbUsers = userRepository.findAll();
+            // Chỉ cần email, không load cả entity
             Set<String> emails = new HashSet<>();
             
-            for (User user : dbUsers) {
-                if (user.getEmail() != null) {
-                    emails.add(user.getEmail());
+            for (UserRepository.CognitoSyncState state : userRepository.findAllCognitoSyncStates()) {
+                if (state.getEmail() != null) {
+                    emails.add(state.getEmail());
                 }
             }
             
@@ -383,10 +368,12 @@ public class CognitoService {
                         if (user.getGoogleId() != null && !user.getGoogleId().isEmpty()) {
                             // OAuth2 user - có thể xóa an toàn
                             userRepository.delete(user);
+                            tokenRevocationService.evict(email);
                             deletedCount++;
                         } else if (user.getPasswordHash() == null || user.getPasswordHash().isEmpty()) {
                             // Traditional user không có password - có thể xóa
                             userRepository.delete(user);
+                            tokenRevocationService.evict(email);
                             deletedCount++;
                         } else {
                             // Traditional user có password - KHÔNG xóa để tránh mất dữ liệu quan trọng
@@ -409,96 +396,6 @@ public class CognitoService {
         }
     }
 
-    /**
-     * Đồng bộ hoàn toàn: Thêm users mới từ Cognito và xóa users không còn tồn tại
-     */
-    public void fullSyncFromCognito() {
-        try {
-            // 1. Lấy danh sách users từ Cognito
-            List<UserType> cognitoUsers = getAllUsersFromCognito();
-            Set<String> cognitoEmails = getCognitoUserEmails();
-            
-            // 2. Lấy danh sách users từ database
-            List<User> dbUsers = userRepository.findAll();
-            Set<String> databaseEmails = getDatabaseUserEmails();
-            
-            int createCount = 0;
-            int updateCount = 0;
-            int deleteCount = 0;
-            int errorCount = 0;
-            
-            // 3. Xử lý từng user trong Cognito
-            for (UserType cognitoUser : cognitoUsers) {
-                try {
-                    // Lấy email từ attributes
-                    String email = null;
-                    for (AttributeType attribute : cognitoUser.getAttributes()) {
-                        if ("email".equals(attribute.getName())) {
-                            email = attribute.getValue();
-                            break;
-                        }
-                    }
-                    
-                    if (email == null) {
-                        continue;
-                    }
-                    
-                    User userEntity = convertCognitoUserToEntity(cognitoUser);
-                    
-                    // Kiểm tra user đã tồn tại trong database chưa
-                    Optional<User> existingUser = userRepository.findByEmail(email);
-                    if (existingUser.isPresent()) {
-                        // Cập nhật user hiện có
-                        User existing = existingUser.get();
-                        existing.setFullName(userEntity.getFullName());
-                        existing.setAvatarUrl(userEntity.getAvatarUrl());
-                        existing.setUpdatedAt(LocalDateTime.now());
-                        userRepository.save(existing);
-                        updateCount++;
-                    } else {
-                        // Tạo user mới
-                        userRepository.save(userEntity);
-                        createCount++;
-                    }
-                    
-                } catch (Exception e) {
-                    System.err.println("Failed to sync user " + cognitoUser.getUsername() + ": " + e.getMessage());
-                    errorCount++;
-                }
-            }
-            
-            // 4. Xóa users không còn tồn tại trong Cognito (chỉ OAuth2 users)
-            Set<String> emailsToDelete = new HashSet<>(databaseEmails);
-            emailsToDelete.removeAll(cognitoEmails);
-            
-            for (String email : emailsToDelete) {
-                try {
-                    Optional<User> userToDelete = userRepository.findByEmail(email);
-                    if (userToDelete.isPresent()) {
-                        User user = userToDelete.get();
-                        
-                        // Chỉ xóa OAuth2 users để tránh xóa nhầm traditional users quan trọng
-                        if (user.getGoogleId() != null && !user.getGoogleId().isEmpty()) {
-                            userRepository.delete(user);
-                            deleteCount++;
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error deleting user " + email + ": " + e.getMessage());
-                    errorCount++;
-                }
-            }
-            
-            if (createCount > 0 || updateCount > 0 || deleteCount > 0) {
-                System.out.println("Full sync: " + createCount + " created, " + updateCount + " updated, " + deleteCount + " deleted, " + errorCount + " errors");
-            }
-            
-        } catch (Exception e) {
-            System.err.println("Error in full sync from Cognito: " + e.getMessage());
-            throw new RuntimeException("Failed to full sync from Cognito: " + e.getMessage());
-        }
-    }
-
     /**
      * Đồng bộ một user từ Cognito về database
      */
@@ -533,69 +430,6 @@ public class CognitoService {
         }
     }
 
-    /**
-     * Đồng bộ tất cả users từ Cognito về database (chỉ thêm/cập nhật, không xóa)
-     */
-    public void syncAllUsersFromCognitoToDatabase() {
-        try {
-            List<UserType> cognitoUsers = getAllUsersFromCognito();
-            
-            int successCount = 0;
-            int errorCount = 0;
-            int updateCount = 0;
-            int createCount = 0;
-            
-            for (UserType cognitoUser : cognitoUsers) {
-                try {
-                    // Lấy email từ attributes
-                    String email = null;
-                    for (AttributeType attribute : cognitoUser.getAttributes()) {
-                        if ("email".equals(attribute.getName())) {
-                            email = attribute.getValue();
-                            break;
-                        }
-                    }
-                    
-                    if (email == null) {
-                        continue;
-                    }
-                    
-                    User userEntity = convertCognitoUserToEntity(cognitoUser);
-                    
-                    // Kiểm tra user đã tồn tại trong database chưa
-                    Optional<User> existingUser = userRepository.findByEmail(email);
-                    if (existingUser.isPresent()) {
-                        // Cập nhật user hiện có
-                        User existing = existingUser.get();
-                        existing.setFullName(userEntity.getFullName());
-                        existing.setAvatarUrl(userEntity.getAvatarUrl());
-                        existing.setUpdatedAt(LocalDateTime.now());
-                        userRepository.save(existing);
-                        updateCount++;
-                    } else {
-                        // Tạo user mới
-                        userRepository.save(userEntity);
-                        createCount++;
-                    }
-                    
-                    successCount++;
-                    
-                } catch (Exception e) {
-                    System.err.println("Failed to sync user " + cognitoUser.getUsername() + ": " + e.getMessage());
-                    errorCount++;
-                }
-            }
-            
-            if (successCount > 0 || createCount > 0 || updateCount > 0) {
-                System.out.println("Sync: " + successCount + " successful, " + createCount + " created, " + updateCount + " updated, " + errorCount + " errors");
-            }
-            
-        } catch (Exception e) {
-            System.err.println("Error syncing all users from Cognito: " + e.getMessage());
-            throw new RuntimeException("Failed to sync all users from Cognito: " + e.getMessage());
-        }
-    }
-
     /**
      * Kiểm tra và khôi phục users traditional bị xóa nhầm
      * Chỉ khôi phục users có password (traditional users quan trọng)
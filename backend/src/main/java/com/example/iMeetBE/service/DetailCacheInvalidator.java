@@ -0,0 +1,54 @@
+package com.example.iMeetBE.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import com.example.iMeetBE.config.CacheConfig;
+
+/**
+ * Bỏ cache chi tiết (xem {@link CacheConfig}) cho các lệnh ghi không đi qua các phương thức CRUD có @CacheEvict:
+ * UPDATE hàng loạt của job trạng thái, bộ đếm lời mời, trừ/cộng kho thiết bị.
+ * Gọi trong transaction thì việc bỏ cache chỉ diễn ra sau khi commit.
+ */
+@Service
+public class DetailCacheInvalidator {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    public void evictMeeting(Integer meetingId) {
+        evict(CacheConfig.MEETINGS, meetingId);
+    }
+
+    public void clearMeetings() {
+        clear(CacheConfig.MEETINGS);
+    }
+
+    public void evictRoom(Integer roomId) {
+        evict(CacheConfig.ROOMS, roomId);
+    }
+
+    public void clearRooms() {
+        clear(CacheConfig.ROOMS);
+    }
+
+    public void evictDevice(Long deviceId) {
+        evict(CacheConfig.DEVICES, deviceId);
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.iMeetBE.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.iMeetBE.model.Device;
+import com.example.iMeetBE.repository.DeviceRepository;
+import com.example.iMeetBE.repository.MeetingDeviceRepository;
+
+/**
+ * Kiểm tra và giữ số lượng thiết bị.
+ * devices.quantity là phần chưa gán cố định cho phòng; gán cho phòng trừ thẳng vào đó bằng UPDATE có điều kiện.
+ * Mượn cho cuộc họp chỉ giữ thiết bị trong khung giờ của cuộc họp: không trừ kho, chỉ kiểm tra số lượng
+ * giữ cao nhất trong khung giờ đó. Mọi kiểm tra đều khóa dòng thiết bị trước nên các lượt đồng thời
+ * trên cùng một thiết bị được xếp hàng; nơi gọi ghi lượt giữ trong cùng transaction.
+ * Lượt bị từ chối không ghi gì vào database nên không đánh dấu rollback transaction của nơi gọi.
+ */
+@Service
+@Transactional(noRollbackFor = DeviceInventoryService.ReservationException.class)
+public class DeviceInventoryService {
+
+    public enum RejectReason {
+        INVALID_QUANTITY,
+        DEVICE_NOT_FOUND,
+        DUPLICATE_DEVICE,
+        ALREADY_BORROWED,
+        INSUFFICIENT_QUANTITY
+    }
+
+    /**
+     * Lượt giữ thiết bị bị từ chối; {@link #getReason()} cho biết lý do
+     */
+    public static class ReservationException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final RejectReason reason;
+        private final Long deviceId;
+        private final int requested;
+        private final int available;
+
+        public ReservationException(RejectReason reason, Long deviceId, int requested, int available, String message) {
+            super(reason + " - " + message);
+            this.reason = reason;
+            this.deviceId = deviceId;
+            this.requested = requested;
+            this.available = available;
+        }
+
+        public RejectReason getReason() {
+            return reason;
+        }
+
+        public Long getDeviceId() {
+            return deviceId;
+        }
+
+        public int getRequested() {
+            return requested;
+        }
+
+        public int getAvailable() {
+            return available;
+        }
+    }
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private MeetingDeviceRepository meetingDeviceRepository;
+
+    @Autowired
+    private DeviceReservationLedger ledger;
+
+    @Autowired
+    private DetailCacheInvalidator detailCacheInvalidator;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    /**
+     * Gán cố định {@code quantity} thiết bị (cho phòng): trừ vào kho, nhưng không được lấy mất thiết bị
+     * đã được mượn cho các cuộc họp sắp tới. Ném {@link ReservationException} nếu không đủ hoặc không tồn tại.
+     */
+    public void reserve(Long deviceId, Integer quantity) {
+        validateQuantity(deviceId, quantity);
+        Device device = lockDevice(deviceId, quantity);
+
+        LocalDateTime now = LocalDateTime.now();
+        int peak = DeviceReservationLedger.peakUsage(
+                meetingDeviceRepository.findActiveWindowsForDeviceEndingAfter(deviceId, now), now, LocalDateTime.MAX);
+        int available = device.getQuantity() - peak;
+        if (available < quantity || deviceRepository.decrementQuantity(deviceId, quantity, now) != 1) {
+            throw insufficient(deviceId, quantity, Math.max(0, available));
+        }
+        ledger.invalidatePool(deviceId);
+        detailCacheInvalidator.evictDevice(deviceId);
+        resourceVersions.onDevicesChanged();
+    }
+
+    /**
+     * Kiểm tra còn đủ {@code quantity} thiết bị trong cả khung giờ [start, end), bỏ qua các lượt giữ của
+     * cuộc họp {@code excludeMeetingId} (khi dời giờ). Dòng thiết bị bị khóa tới hết transaction nên nơi
+     * gọi ghi lượt giữ ngay sau đó mà không bị lượt khác chen vào.
+     */
+    public void reserveForWindow(Long deviceId, Integer quantity, LocalDateTime start, LocalDateTime end,
+                                 Integer excludeMeetingId) {
+        validateQuantity(deviceId, quantity);
+        Device device = lockDevice(deviceId, quantity);
+
+        int peak = DeviceReservationLedger.peakUsage(
+                meetingDeviceRepository.findActiveWindowsForDevice(deviceId, start, end, excludeMeetingId), start, end);
+        int available = device.getQuantity() - peak;
+        if (available < quantity) {
+            throw insufficient(deviceId, quantity, Math.max(0, available));
+        }
+    }
+
+    /**
+     * Như {@link #reserveForWindow} cho nhiều thiết bị. Khóa theo thứ tự deviceId để các transaction
+     * đồng thời luôn khóa cùng thứ tự (không deadlock); không ghi gì nên bị từ chối thì không cần hoàn tác.
+     */
+    public void reserveAllForWindow(Map<Long, Integer> quantities, LocalDateTime start, LocalDateTime end,
+                                    Integer excludeMeetingId) {
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            reserveForWindow(entry.getKey(), entry.getValue(), start, end, excludeMeetingId);
+        }
+    }
+
+    /**
+     * Trả lại {@code quantity} thiết bị vào kho
+     */
+    public void release(Long deviceId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            return;
+        }
+        deviceRepository.incrementQuantity(deviceId, quantity, LocalDateTime.now());
+        ledger.invalidatePool(deviceId);
+        detailCacheInvalidator.evictDevice(deviceId);
+        resourceVersions.onDevicesChanged();
+    }
+
+    private static void validateQuantity(Long deviceId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new ReservationException(RejectReason.INVALID_QUANTITY, deviceId, quantity == null ? 0 : quantity, 0,
+                    "Quantity must be greater than 0");
+        }
+    }
+
+    private Device lockDevice(Long deviceId, int quantity) {
+        return deviceRepository.findByIdForUpdate(deviceId)
+                .orElseThrow(() -> new ReservationException(RejectReason.DEVICE_NOT_FOUND, deviceId, quantity, 0,
+                        "Device not found: " + deviceId));
+    }
+
+    private static ReservationException insufficient(Long deviceId, int quantity, int available) {
+        return new ReservationException(RejectReason.INSUFFICIENT_QUANTITY, deviceId, quantity, available,
+                "Not enough devices available (device " + deviceId + "). Available: " + available
+                        + ", Requested: " + quantity);
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.iMeetBE.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.iMeetBE.model.BookingStatus;
+import com.example.iMeetBE.model.BorrowingStatus;
+import com.example.iMeetBE.model.Meeting;
+import com.example.iMeetBE.model.MeetingDevice;
+import com.example.iMeetBE.repository.DeviceRepository;
+import com.example.iMeetBE.repository.MeetingDeviceRepository;
+
+/**
+ * Sổ giữ thiết bị theo khung giờ cuộc họp, trong bộ nhớ.
+ * Thiết bị mượn cho một cuộc họp chỉ bị giữ trong [startTime, endTime) của cuộc họp đó, nên số lượng
+ * còn trống của một khoảng thời gian = devices.quantity (phần chưa gán cho phòng) - số lượng giữ cao nhất
+ * trong khoảng đó. Mỗi thiết bị có một hàm bậc thang "số lượng đang giữ theo thời gian" kèm sparse table,
+ * nên lấy giá trị cao nhất trên một khoảng chỉ tốn hai lần tìm nhị phân. Hàm được dựng lại cho riêng
+ * thiết bị bị thay đổi mỗi khi có lượt mượn/trả.
+ */
+@Service
+public class DeviceReservationLedger {
+
+    private record Window(int meetingDeviceId, long deviceId, int meetingId,
+                          LocalDateTime startTime, LocalDateTime endTime, int quantity) { }
+
+    /**
+     * Số lượng đang giữ theo thời gian: levels[i] là số lượng giữ trong [times[i], times[i + 1])
+     */
+    static final class UsageProfile {
+        static final UsageProfile EMPTY = new UsageProfile(new LocalDateTime[0], new int[0]);
+
+        private final LocalDateTime[] times;
+        // sparse[k][i] = max(levels[i .. i + 2^k))
+        private final int[][] sparse;
+
+        private UsageProfile(LocalDateTime[] times, int[] levels) {
+            this.times = times;
+            int levelsCount = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, levels.length)));
+            this.sparse = new int[levelsCount][];
+            sparse[0] = levels;
+            for (int k = 1; k < levelsCount; k++) {
+                int half = 1 << (k - 1);
+                int[] previous = sparse[k - 1];
+                int[] current = new int[Math.max(0, levels.length - (1 << k) + 1)];
+                for (int i = 0; i < current.length; i++) {
+                    current[i] = Math.max(previous[i], previous[i + half]);
+                }
+                sparse[k] = current;
+            }
+        }
+
+        static UsageProfile build(Collection<LocalDateTime[]> ranges, Collection<Integer> quantities) {
+            TreeMap<LocalDateTime, Integer> deltas = new TreeMap<>();
+            var quantity = quantities.iterator();
+            for (LocalDateTime[] range : ranges) {
+                int amount = quantity.next();
+                deltas.merge(range[0], amount, Integer::sum);
+                deltas.merge(range[1], -amount, Integer::sum);
+            }
+            if (deltas.isEmpty()) {
+                return EMPTY;
+            }
+            LocalDateTime[] times = deltas.keySet().toArray(new LocalDateTime[0]);
+            int[] levels = new int[times.length];
+            int level = 0;
+            int i = 0;
+            for (int delta : deltas.values()) {
+                level += delta;
+                levels[i++] = level;
+            }
+            return new UsageProfile(times, levels);
+        }
+
+        // Số lượng giữ cao nhất trong [start, end)
+        int peak(LocalDateTime start, LocalDateTime end) {
+            if (times.length == 0 || !end.isAfter(start)) {
+                return 0;
+            }
+            int from = floorIndex(start);
+            int to = lowerIndex(end);
+            if (to < 0) {
+                return 0;
+            }
+            int lo = Math.max(from, 0);
+            int k = 31 - Integer.numberOfLeadingZeros(to - lo + 1);
+            return Math.max(sparse[k][lo], sparse[k][to - (1 << k) + 1]);
+        }
+
+        // Vị trí mốc cuối cùng <= time, -1 nếu không có
+        private int floorIndex(LocalDateTime time) {
+            int index = Arrays.binarySearch(times, time);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        // Vị trí mốc cuối cùng < time, -1 nếu không có
+        private int lowerIndex(LocalDateTime time) {
+            int index = Arrays.binarySearch(times, time);
+            return index >= 0 ? index - 1 : -index - 2;
+        }
+    }
+
+    /**
+     * Số lượng giữ cao nhất trong [start, end) của một danh sách lượt giữ đọc từ database
+     */
+    public static int peakUsage(List<MeetingDeviceRepository.DeviceWindow> windows, LocalDateTime start, LocalDateTime end) {
+        return UsageProfile.build(
+                windows.stream().map(w -> new LocalDateTime[] { w.getStartTime(), w.getEndTime() }).toList(),
+                windows.stream().map(MeetingDeviceRepository.DeviceWindow::getQuantity).toList())
+            .peak(start, end);
+    }
+
+    @Autowired
+    private MeetingDeviceRepository meetingDeviceRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Chỉ nạp các lượt giữ kết thúc trong khoảng này trở về trước (mặc định 30 ngày)
+    @Value("${device.ledger.history:2592000000}")
+    private long historyMillis;
+
+    private final Map<Integer, Window> windows = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Integer>> windowsByDevice = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> windowsByMeeting = new ConcurrentHashMap<>();
+    private final Map<Long, UsageProfile> profiles = new ConcurrentHashMap<>();
+
+    // devices.quantity (phần chưa gán cho phòng), nạp khi cần và xóa khi kho thay đổi
+    private final Map<Long, Integer> pools = new ConcurrentHashMap<>();
+
+    // null cho tới khi nạp xong
+    private volatile LocalDateTime coveredFrom;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        migrateLegacyBorrowings();
+
+        LocalDateTime from = LocalDateTime.now().minus(Duration.ofMillis(historyMillis));
+        List<MeetingDeviceRepository.DeviceWindow> active = meetingDeviceRepository.findActiveWindowsEndingAfter(from);
+        synchronized (this) {
+            for (MeetingDeviceRepository.DeviceWindow window : active) {
+                // Thay đổi đến trong lúc nạp (đã ghi vào sổ) mới hơn kết quả query
+                if (!windows.containsKey(window.getMeetingDeviceId())) {
+                    put(new Window(window.getMeetingDeviceId(), window.getDeviceId(), window.getMeetingId(),
+                            window.getStartTime(), window.getEndTime(), window.getQuantity()));
+                }
+            }
+            windowsByDevice.keySet().forEach(this::rebuild);
+        }
+        coveredFrom = from;
+        System.out.println("Device reservation ledger loaded " + active.size() + " reservations");
+    }
+
+    /**
+     * Trước đây mượn thiết bị trừ thẳng vào devices.quantity. Trả lại kho cho các bản ghi cũ còn BORROWED
+     * (từ giờ chúng được tính theo khung giờ cuộc họp). Mỗi bản ghi được đánh dấu bằng UPDATE có điều kiện
+     * nên chạy lại hoặc nhiều instance cùng chạy cũng chỉ cộng lại một lần.
+     */
+    private void migrateLegacyBorrowings() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int migrated = transaction.execute(status -> {
+            int count = 0;
+            for (MeetingDevice legacy : meetingDeviceRepository.findLegacyBorrowings()) {
+                if (meetingDeviceRepository.markWindowed(legacy.getMeetingDeviceId()) == 1) {
+                    deviceRepository.incrementQuantity(legacy.getDevice().getDeviceId(),
+                            legacy.getQuantityBorrowed(), LocalDateTime.now());
+                    count++;
+                }
+            }
+            meetingDeviceRepository.markClosedLegacyWindowed();
+            return count;
+        });
+        if (migrated > 0) {
+            System.out.println("Moved " + migrated + " legacy device borrowings to meeting time windows");
+        }
+    }
+
+    /**
+     * Số lượng thiết bị còn có thể mượn trong cả khoảng [start, end)
+     */
+    public int availableQuantity(Long deviceId, LocalDateTime start, LocalDateTime end) {
+        int pool = pools.computeIfAbsent(deviceId, id -> deviceRepository.findQuantityById(id)
+                .orElseThrow(() -> new RuntimeException("Device not found")));
+
+        LocalDateTime from = coveredFrom;
+        int peak = from != null && !start.isBefore(from)
+                ? profiles.getOrDefault(deviceId, UsageProfile.EMPTY).peak(start, end)
+                : peakUsage(meetingDeviceRepository.findActiveWindowsForDevice(deviceId, start, end, null), start, end);
+        return Math.max(0, pool - peak);
+    }
+
+    /**
+     * Gọi sau khi mượn/trả/hủy thiết bị; áp dụng sau khi commit
+     */
+    public void onBorrowingsChanged(Collection<MeetingDevice> borrowings) {
+        List<Window> added = borrowings.stream()
+                .filter(md -> md.getStatus() == BorrowingStatus.BORROWED)
+                .map(md -> new Window(md.getMeetingDeviceId(), md.getDevice().getDeviceId(),
+                        md.getMeeting().getMeetingId(), md.getMeeting().getStartTime(),
+                        md.getMeeting().getEndTime(), md.getQuantityBorrowed()))
+                .toList();
+        List<Integer> removed = borrowings.stream()
+                .filter(md -> md.getStatus() != BorrowingStatus.BORROWED)
+                .map(MeetingDevice::getMeetingDeviceId)
+                .toList();
+
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                Set<Long> touched = new HashSet<>();
+                added.forEach(window -> touched.add(put(window)));
+                removed.forEach(id -> touched.add(remove(id)));
+                touched.stream().filter(id -> id != null).forEach(this::rebuild);
+            }
+        });
+    }
+
+    /**
+     * Gọi sau khi đổi giờ/hủy cuộc họp: các lượt giữ của cuộc họp đi theo khung giờ mới hoặc được bỏ
+     */
+    public void onMeetingChanged(Meeting meeting) {
+        Integer meetingId = meeting.getMeetingId();
+        LocalDateTime startTime = meeting.getStartTime();
+        LocalDateTime endTime = meeting.getEndTime();
+        boolean cancelled = meeting.getBookingStatus() == BookingStatus.CANCELLED;
+
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                Set<Integer> ids = windowsByMeeting.get(meetingId);
+                if (ids == null) {
+                    return;
+                }
+                Set<Long> touched = new HashSet<>();
+                for (Integer id : Set.copyOf(ids)) {
+                    Window previous = windows.get(id);
+                    if (previous == null) {
+                        continue;
+                    }
+                    touched.add(remove(id));
+                    if (!cancelled) {
+                        put(new Window(previous.meetingDeviceId(), previous.deviceId(), meetingId,
+                                startTime, endTime, previous.quantity()));
+                    }
+                }
+                touched.forEach(this::rebuild);
+            }
+        });
+    }
+
+    /**
+     * Gọi khi devices.quantity thay đổi (gán/bỏ gán cho phòng, sửa/xóa thiết bị)
+     */
+    public void invalidatePool(Long deviceId) {
+        TransactionHooks.afterCommit(() -> pools.remove(deviceId));
+    }
+
+    private Long put(Window window) {
+        Window previous = windows.put(window.meetingDeviceId(), window);
+        if (previous != null && previous.deviceId() != window.deviceId()) {
+            windowsByDevice.getOrDefault(previous.deviceId(), new HashSet<>()).remove(window.meetingDeviceId());
+            rebuild(previous.deviceId());
+        }
+        windowsByDevice.computeIfAbsent(window.deviceId(), id -> ConcurrentHashMap.newKeySet()).add(window.meetingDeviceId());
+        windowsByMeeting.computeIfAbsent(window.meetingId(), id -> ConcurrentHashMap.newKeySet()).add(window.meetingDeviceId());
+        return window.deviceId();
+    }
+
+    private Long remove(Integer meetingDeviceId) {
+        Window previous = windows.remove(meetingDeviceId);
+        if (previous == null) {
+            return null;
+        }
+        Set<Integer> byDevice = windowsByDevice.get(previous.deviceId());
+        if (byDevice != null) {
+            byDevice.remove(meetingDeviceId);
+        }
+        Set<Integer> byMeeting = windowsByMeeting.get(previous.meetingId());
+        if (byMeeting != null) {
+            byMeeting.remove(meetingDeviceId);
+            if (byMeeting.isEmpty()) {
+                windowsByMeeting.remove(previous.meetingId());
+            }
+        }
+        return previous.deviceId();
+    }
+
+    // Dựng lại hàm bậc thang của một thiết bị; người đọc thấy bản cũ hoặc bản mới, không thấy bản dở dang
+    private void rebuild(Long deviceId) {
+        List<Window> deviceWindows = windowsByDevice.getOrDefault(deviceId, Set.of()).stream()
+                .map(windows::get)
+                .filter(window -> window != null)
+                .toList();
+        if (deviceWindows.isEmpty()) {
+            profiles.remove(deviceId);
+            return;
+        }
+        profiles.put(deviceId, UsageProfile.build(
+                deviceWindows.stream().map(w -> new LocalDateTime[] { w.startTime(), w.endTime() }).toList(),
+                deviceWindows.stream().map(Window::quantity).toList()));
+    }
+}
@@ -6,6 +6,8 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -13,6 +15,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.iMeetBE.config.CacheConfig;
 import com.example.iMeetBE.dto.ApiResponse;
 import com.example.iMeetBE.dto.DeviceRequest;
 import com.example.iMeetBE.dto.DeviceResponse;
@@ -27,6 +30,15 @@ public class DeviceService {
     @Autowired
     private DeviceRepository deviceRepository;
     
+    @Autowired
+    private DeviceReservationLedger deviceReservationLedger;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+    
     // Tạo thiết bị mới
     @Transactional(rollbackFor = Exception.class)
     public ApiResponse<DeviceResponse> createDevice(DeviceRequest request) {
@@ -43,6 +55,8 @@ public class DeviceService {
             device.setDescription(request.getDescription());
             
             Device savedDevice = deviceRepository.save(device);
+            searchIndex.onDeviceChanged(savedDevice);
+            resourceVersions.onDevicesChanged();
             DeviceResponse response = convertToResponse(savedDevice);
             
             return ApiResponse.success(response, "Tạo thiết bị thành công");
@@ -69,7 +83,8 @@ public class DeviceService {
         }
     }
     
-    // Lấy thiết bị theo ID
+    // Lấy thiết bị theo ID (cache theo id, chỉ lưu kết quả thành công)
+    @Cacheable(cacheNames = CacheConfig.DEVICES, key = "#id", unless = "!#result.success")
     public ApiResponse<DeviceResponse> getDeviceById(Long id) {
         try {
             Optional<Device> device = deviceRepository.findById(id);
@@ -85,6 +100,7 @@ public class DeviceService {
     }
     
     // Cập nhật thiết bị
+    @CacheEvict(cacheNames = CacheConfig.DEVICES, key = "#id")
     public ApiResponse<DeviceResponse> updateDevice(Long id, DeviceRequest request) {
         try {
             Optional<Device> deviceOpt = deviceRepository.findById(id);
@@ -107,6 +123,9 @@ public class DeviceService {
             device.setUpdatedAt(LocalDateTime.now());
             
             Device savedDevice = deviceRepository.save(device);
+            deviceReservationLedger.invalidatePool(id);
+            searchIndex.onDeviceChanged(savedDevice);
+            resourceVersions.onDevicesChanged();
             DeviceResponse response = convertToResponse(savedDevice);
             
             return ApiResponse.success(response, "Cập nhật thiết bị thành công");
@@ -116,6 +135,7 @@ public class DeviceService {
     }
     
     // Xóa thiết bị
+    @CacheEvict(cacheNames = CacheConfig.DEVICES, key = "#id")
     public ApiResponse<Void> deleteDevice(Long id) {
         try {
             if (!deviceRepository.existsById(id)) {
@@ -123,6 +143,9 @@ public class DeviceService {
             }
             
             deviceRepository.deleteById(id);
+            deviceReservationLedger.invalidatePool(id);
+            searchIndex.onDeviceDeleted(id);
+            resourceVersions.onDevicesChanged();
             return ApiResponse.success(null, "Xóa thiết bị thành công");
         } catch (Exception e) {
             return ApiResponse.error("Lỗi khi xóa thiết bị: " + e.getMessage());
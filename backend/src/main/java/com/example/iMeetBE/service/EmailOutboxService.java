@@ -0,0 +1,253 @@
+package com.example.iMeetBE.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.iMeetBE.model.EmailOutbox;
+import com.example.iMeetBE.model.OutboxStatus;
+import com.example.iMeetBE.repository.EmailOutboxRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Gửi email qua bảng email_outbox thay vì gửi trực tiếp trên luồng xử lý request.
+ * Nơi gọi ghi email vào outbox trong transaction của mình ({@link #enqueueAll}); sau khi commit, một luồng
+ * điều phối nhận từng email bằng UPDATE có điều kiện (nhiều instance không gửi trùng) rồi giao cho một
+ * nhóm luồng gửi cố định. Số email đang gửi cùng lúc bị giới hạn và tốc độ gửi được giãn đều theo
+ * app.email.outbox.rate-per-second để không bị SMTP chặn. Email lỗi được gửi lại với thời gian chờ tăng dần;
+ * email đang gửi dở khi server tắt sẽ được nhận lại sau khi hết hạn giữ.
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO email_outbox (recipient, subject, body, status, attempts, next_attempt_at, created_at) " +
+            "VALUES (?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    /**
+     * Một email cần gửi
+     */
+    public record OutboxMessage(String recipient, String subject, String htmlBody) { }
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.email.outbox.rate-per-second:5}")
+    private double ratePerSecond;
+
+    @Value("${app.email.outbox.concurrency:2}")
+    private int concurrency;
+
+    @Value("${app.email.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.email.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.email.outbox.retry-base-delay:30000}")
+    private long retryBaseDelayMillis;
+
+    // Thời gian giữ một email đang gửi; quá hạn thì coi như luồng gửi đã chết
+    @Value("${app.email.outbox.lease:120000}")
+    private long leaseMillis;
+
+    // Giữ lại email đã gửi trong 7 ngày
+    @Value("${app.email.outbox.retention:604800000}")
+    private long retentionMillis;
+
+    private ExecutorService dispatcher;
+
+    private ExecutorService senders;
+
+    private Semaphore inFlight;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean drainRequested = new AtomicBoolean(false);
+
+    // Chỉ luồng điều phối đọc/ghi
+    private long nextSendNanos;
+
+    @PostConstruct
+    void init() {
+        dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger counter = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "email-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        inFlight = new Semaphore(concurrency);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Ghi các email vào outbox bằng JDBC batch trong transaction hiện tại. Email chỉ được gửi sau khi
+     * transaction commit; rollback thì không gửi gì.
+     */
+    public void enqueueAll(List<OutboxMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(messages.size());
+        for (OutboxMessage message : messages) {
+            rows.add(new Object[] { message.recipient(), message.subject(), message.htmlBody(), now, now });
+        }
+        for (int i = 0; i < rows.size(); i += batchSize) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows.subList(i, Math.min(i + batchSize, rows.size())));
+        }
+
+        TransactionHooks.afterCommit(this::wakeUp);
+    }
+
+    /**
+     * Yêu cầu luồng điều phối gửi các email đến hạn; nhiều lần gọi liên tiếp được gộp lại
+     */
+    public void wakeUp() {
+        if (drainRequested.compareAndSet(false, true)) {
+            dispatcher.execute(this::drain);
+        }
+    }
+
+    // Gửi email còn tồn từ lần chạy trước
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        wakeUp();
+    }
+
+    // Lưới an toàn: email chờ gửi lại, email bị bỏ dở, email ghi bởi instance khác
+    @Scheduled(fixedDelayString = "${app.email.outbox.poll-interval:30000}",
+               initialDelayString = "${app.email.outbox.poll-interval:30000}")
+    public void poll() {
+        wakeUp();
+    }
+
+    @Scheduled(fixedDelay = 3600000, initialDelay = 3600000)
+    public void purgeSent() {
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(retentionMillis));
+        Integer deleted = transactionTemplate.execute(status -> emailOutboxRepository.deleteSentBefore(before));
+        if (deleted != null && deleted > 0) {
+            System.out.println("Purged " + deleted + " sent emails from outbox");
+        }
+    }
+
+    private void drain() {
+        drainRequested.set(false);
+        try {
+            Integer exhausted = transactionTemplate.execute(status -> emailOutboxRepository.failExhausted(
+                    LocalDateTime.now(), maxAttempts, "Sender did not finish the last attempt"));
+            if (exhausted != null && exhausted > 0) {
+                System.err.println("Gave up on " + exhausted + " outbox emails after " + maxAttempts + " attempts");
+            }
+            while (true) {
+                List<EmailOutbox> due = emailOutboxRepository.findDue(
+                        LocalDateTime.now(), maxAttempts, PageRequest.of(0, batchSize));
+                int claimed = 0;
+                for (EmailOutbox message : due) {
+                    // Tối đa `concurrency` email đang gửi, giãn đều theo rate-per-second
+                    inFlight.acquire();
+                    throttle();
+                    LocalDateTime now = LocalDateTime.now();
+                    Integer updated = transactionTemplate.execute(status -> emailOutboxRepository.claim(
+                            message.getId(), message.getAttempts(), maxAttempts, now, now.plus(Duration.ofMillis(leaseMillis))));
+                    if (updated != null && updated == 1) {
+                        claimed++;
+                        int attempt = message.getAttempts() + 1;
+                        senders.execute(() -> send(message, attempt));
+                    } else {
+                        inFlight.release();
+                    }
+                }
+                // Hết email đến hạn, hoặc instance khác đã nhận hết
+                if (claimed == 0) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Lần poll() tiếp theo sẽ thử lại
+            System.err.println("Email outbox dispatch failed: " + e.getMessage());
+        }
+    }
+
+    private void throttle() throws InterruptedException {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(ratePerSecond, 0.001));
+        long now = System.nanoTime();
+        if (nextSendNanos - now > 0) {
+            TimeUnit.NANOSECONDS.sleep(nextSendNanos - now);
+            now = nextSendNanos;
+        }
+        nextSendNanos = now + interval;
+    }
+
+    // attempt: giá trị attempts sau khi nhận, chỉ ghi kết quả nếu email chưa bị lượt khác nhận lại
+    private void send(EmailOutbox message, int attempt) {
+        try {
+            emailService.sendMeetingInviteHtml(message.getRecipient(), message.getSubject(), message.getBody());
+            Integer updated = transactionTemplate.execute(status ->
+                    emailOutboxRepository.markSent(message.getId(), attempt, LocalDateTime.now()));
+            if (updated == null || updated == 0) {
+                System.err.println("Email " + message.getId() + " was sent after its lease expired (attempt "
+                        + attempt + "); another attempt owns the row now");
+            }
+        } catch (Exception e) {
+            boolean giveUp = attempt >= maxAttempts;
+            LocalDateTime retryAt = LocalDateTime.now()
+                    .plus(Duration.ofMillis(retryBaseDelayMillis << Math.min(attempt - 1, 10)));
+            String error = e.getMessage() != null && e.getMessage().length() > 1000
+                    ? e.getMessage().substring(0, 1000) : e.getMessage();
+            System.err.println("Failed to send email " + message.getId() + " to " + message.getRecipient()
+                    + " (attempt " + attempt + "): " + e.getMessage());
+            try {
+                transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.markFailed(
+                        message.getId(), attempt, giveUp ? OutboxStatus.FAILED : OutboxStatus.PENDING, retryAt, error));
+            } catch (Exception markError) {
+                // Hết hạn giữ thì email được nhận lại
+                System.err.println("Failed to record email failure " + message.getId() + ": " + markError.getMessage());
+            }
+        } finally {
+            inFlight.release();
+        }
+    }
+}
@@ -25,6 +25,9 @@ public class ForgotPasswordService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
     private final Map<String, VerificationData> verificationCodes = new ConcurrentHashMap<>();
     private static class VerificationData {
         private String code;
@@ -126,8 +129,11 @@ public class ForgotPasswordService {
             User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Email không tồn tại"));
             
+            // Đặt lại mật khẩu thì các JWT đã cấp (có thể đã lộ) không còn dùng được
             user.setPasswordHash(passwordEncoder.encode(newPassword));
+            user.incrementTokenVersion();
             userRepository.save(user);
+            tokenRevocationService.evict(user.getEmail());
             
             verificationCodes.remove(email);
             
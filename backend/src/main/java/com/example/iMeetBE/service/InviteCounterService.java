@@ -0,0 +1,98 @@
+package com.example.iMeetBE.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.iMeetBE.model.InviteStatus;
+import com.example.iMeetBE.repository.MeetingRepository;
+
+/**
+ * Bộ đếm lời mời trên bảng meetings (participants = tổng số lời mời, pending/accepted/declined theo trạng thái).
+ * Mỗi thay đổi trên meeting_invitees đi kèm một UPDATE cộng dồn nguyên tử trong cùng transaction nên danh sách
+ * cuộc họp đọc thẳng bộ đếm mà không đụng tới bảng meeting_invitees. Job repair định kỳ tính lại theo lô id
+ * để sửa các dòng cũ (trước khi có bộ đếm) hoặc bị lệch do sửa tay trong database.
+ */
+@Service
+public class InviteCounterService {
+
+    @Autowired
+    private MeetingRepository meetingRepository;
+
+    @Autowired
+    private DetailCacheInvalidator detailCacheInvalidator;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${meeting.invite-counters.repair-batch-size:1000}")
+    private int repairBatchSize;
+
+    public InviteCounterService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Gọi trong transaction vừa thêm count lời mời PENDING
+    public void onInvited(Integer meetingId, int count) {
+        if (count > 0) {
+            meetingRepository.adjustInviteCounters(meetingId, count, count, 0, 0);
+            detailCacheInvalidator.evictMeeting(meetingId);
+        }
+    }
+
+    // Gọi trong transaction vừa đổi trạng thái một lời mời từ from sang to
+    public void onStatusChanged(Integer meetingId, InviteStatus from, InviteStatus to) {
+        if (from == to) {
+            return;
+        }
+        meetingRepository.adjustInviteCounters(meetingId, 0,
+            delta(InviteStatus.PENDING, from, to),
+            delta(InviteStatus.ACCEPTED, from, to),
+            delta(InviteStatus.DECLINED, from, to));
+        detailCacheInvalidator.evictMeeting(meetingId);
+    }
+
+    private static long delta(InviteStatus counted, InviteStatus from, InviteStatus to) {
+        return (to == counted ? 1 : 0) - (from == counted ? 1 : 0);
+    }
+
+    /**
+     * Tính lại bộ đếm cho toàn bộ cuộc họp, mỗi lô id một transaction ngắn; chỉ ghi các dòng bị lệch.
+     * @return số cuộc họp đã sửa
+     */
+    public int repair() {
+        Integer maxId = meetingRepository.findMaxMeetingId();
+        if (maxId == null) {
+            return 0;
+        }
+        int repaired = 0;
+        for (int fromId = 0; fromId <= maxId; fromId += repairBatchSize) {
+            int from = fromId;
+            int to = fromId + repairBatchSize - 1;
+            Integer rows = transactionTemplate.execute(status -> meetingRepository.repairInviteCounters(from, to));
+            repaired += rows != null ? rows : 0;
+        }
+        if (repaired > 0) {
+            detailCacheInvalidator.clearMeetings();
+            resourceVersions.onAllMeetingsChanged();
+            System.out.println("Invite counters repaired for " + repaired + " meetings");
+        }
+        return repaired;
+    }
+
+    // Mặc định chạy lúc khởi động (sau 1 phút) rồi 6 giờ một lần
+    @Scheduled(fixedDelayString = "${meeting.invite-counters.repair-interval:21600000}",
+               initialDelayString = "${meeting.invite-counters.repair-initial-delay:60000}")
+    public void scheduledRepair() {
+        try {
+            repair();
+        } catch (Exception e) {
+            System.err.println("Invite counter repair failed: " + e.getMessage());
+        }
+    }
+}
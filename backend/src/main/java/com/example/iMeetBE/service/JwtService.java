@@ -1,7 +1,12 @@
 package com.example.iMeetBE.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -10,11 +15,17 @@ import javax.crypto.SecretKey;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.iMeetBE.security.VerifiedToken;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 
+import jakarta.annotation.PostConstruct;
+
 @Service
 public class JwtService {
 
@@ -24,8 +35,32 @@ public class JwtService {
     @Value("${jwt.expiration:86400000}") // 24 hours
     private Long expiration;
 
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    // Key và parser chỉ tạo một lần, không dựng lại mỗi lần parse
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Token đã kiểm tra chữ ký, key là SHA-256 của token; entry hết hạn theo exp của token.
+    // Đầy thì bỏ token lâu không dùng nhất (LRU), các phiên đang hoạt động vẫn ở lại trong cache
+    private final Map<String, VerifiedToken> verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+            return size() > verifiedCacheSize;
+        }
+    };
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
     }
 
     public String generateToken(String email) {
@@ -40,6 +75,18 @@ public class JwtService {
         return createToken(claims, email);
     }
 
+    /**
+     * Token stateless: chứa role và token_version để filter xác thực mà không cần load user
+     */
+    public String generateToken(String email, String username, String userId, String role, Integer tokenVersion) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("username", username);
+        claims.put("userId", userId);
+        claims.put("role", role);
+        claims.put("ver", tokenVersion);
+        return createToken(claims, email);
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
@@ -53,12 +100,57 @@ public class JwtService {
                 .compact();
     }
 
+    /**
+     * Parse và kiểm tra chữ ký một lần duy nhất.
+     * Token đã kiểm tra được cache tới khi hết hạn, request sau với cùng token không cần tính lại HMAC.
+     *
+     * @throws io.jsonwebtoken.JwtException nếu token sai chữ ký, sai định dạng hoặc đã hết hạn
+     */
+    public VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        String cacheKey = hashToken(token);
+
+        VerifiedToken cached;
+        synchronized (verifiedTokens) {
+            cached = verifiedTokens.get(cacheKey);
+            if (cached != null && cached.isExpiredAt(now)) {
+                verifiedTokens.remove(cacheKey);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            return cached;
+        }
+
+        // Tính HMAC ngoài khóa: hai request trượt cùng lúc với cùng token chỉ cùng verify, bản sau ghi đè
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        VerifiedToken verified = new VerifiedToken(claims);
+        if (verified.isExpiredAt(now)) {
+            throw new ExpiredJwtException(null, claims, "JWT expired at " + claims.getExpiration());
+        }
+
+        synchronized (verifiedTokens) {
+            verifiedTokens.put(cacheKey, verified);
+        }
+        return verified;
+    }
+
+    private static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     public String getEmailFromToken(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
+        return verify(token).getEmail();
     }
 
     public Date getExpirationDateFromToken(String token) {
-        return getClaimFromToken(token, Claims::getExpiration);
+        return verify(token).getExpiration();
     }
 
     public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
@@ -67,37 +159,40 @@ public class JwtService {
     }
 
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public Boolean isTokenExpired(String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+        return verify(token).isExpired();
     }
 
     public Boolean validateToken(String token, String email) {
-        final String tokenEmail = getEmailFromToken(token);
-        return (tokenEmail.equals(email) && !isTokenExpired(token));
+        final VerifiedToken verified = verify(token);
+        return (verified.getEmail().equals(email) && !verified.isExpired());
     }
 
     public Boolean validateToken(String token) {
         try {
-            final Claims claims = getAllClaimsFromToken(token);
-            return !isTokenExpired(token);
+            return !verify(token).isExpired();
         } catch (Exception e) {
             return false;
         }
     }
 
     public String getUsernameFromToken(String token) {
-        return getClaimFromToken(token, claims -> claims.get("username", String.class));
+        return verify(token).getUsername();
     }
 
     public String getUserIdFromToken(String token) {
-        return getClaimFromToken(token, claims -> claims.get("userId", String.class));
+        return verify(token).getUserId();
+    }
+
+    // null với token cũ (cấp trước khi có claim role)
+    public String getRoleFromToken(String token) {
+        return verify(token).getRole();
+    }
+
+    public Integer getTokenVersionFromToken(String token) {
+        return verify(token).getTokenVersion();
     }
 }
@@ -1,18 +1,22 @@
 package com.example.iMeetBE.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.iMeetBE.dto.MeetingDeviceRequest;
+import com.example.iMeetBE.dto.MeetingDeviceRequestItem;
 import com.example.iMeetBE.dto.MeetingDeviceResponse;
 import com.example.iMeetBE.model.BorrowingStatus;
-import com.example.iMeetBE.model.Device;
 import com.example.iMeetBE.model.Meeting;
 import com.example.iMeetBE.model.MeetingDevice;
 import com.example.iMeetBE.model.User;
@@ -37,16 +41,19 @@ public class MeetingDeviceService {
     @Autowired
     private UserRepository userRepository;
     
-    // Borrow a device for a meeting
+    @Autowired
+    private DeviceInventoryService deviceInventoryService;
+    
+    @Autowired
+    private DeviceReservationLedger deviceReservationLedger;
+    
+    // Borrow a device for a meeting (READ_COMMITTED: after locking the device row, see borrowings committed meanwhile)
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public MeetingDeviceResponse borrowDevice(MeetingDeviceRequest request, String userId) {
         // Validate meeting exists
         Meeting meeting = meetingRepository.findById(request.getMeetingId())
             .orElseThrow(() -> new RuntimeException("Meeting not found"));
         
-        // Validate device exists
-        Device device = deviceRepository.findById(request.getDeviceId())
-            .orElseThrow(() -> new RuntimeException("Device not found"));
-        
         // Validate user exists
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
@@ -56,84 +63,109 @@ public class MeetingDeviceService {
             .findByMeetingMeetingIdAndDeviceDeviceId(request.getMeetingId(), request.getDeviceId());
         
         if (existingBorrow.isPresent() && existingBorrow.get().getStatus() == BorrowingStatus.BORROWED) {
-            throw new RuntimeException("Device is already borrowed for this meeting");
+            throw new DeviceInventoryService.ReservationException(
+                DeviceInventoryService.RejectReason.ALREADY_BORROWED, request.getDeviceId(),
+                request.getQuantityBorrowed() == null ? 0 : request.getQuantityBorrowed(), 0,
+                "Device is already borrowed for this meeting");
         }
         
-        // Check device availability
-        int availableQuantity = device.getQuantity();
+        // The device is only held during the meeting: check the peak usage in that time window
+        deviceInventoryService.reserveForWindow(request.getDeviceId(), request.getQuantityBorrowed(),
+            meeting.getStartTime(), meeting.getEndTime(), null);
         
-        if (request.getQuantityBorrowed() > availableQuantity) {
-            throw new RuntimeException("Not enough devices available. Available: " + availableQuantity + 
-                                    ", Requested: " + request.getQuantityBorrowed());
+        MeetingDevice savedDevice = meetingDeviceRepository.save(
+            newBorrowing(meeting, request.getDeviceId(), request.getQuantityBorrowed(), request.getNotes(), user));
+        deviceReservationLedger.onBorrowingsChanged(List.of(savedDevice));
+        return convertToResponse(savedDevice);
+    }
+    
+    // Borrow several devices for a new meeting: either all of them are reserved or none
+    public List<MeetingDeviceResponse> borrowDevices(Meeting meeting, List<MeetingDeviceRequestItem> items, User user) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (MeetingDeviceRequestItem item : items) {
+            int quantity = item.getQuantityBorrowed() == null ? 0 : item.getQuantityBorrowed();
+            if (quantities.putIfAbsent(item.getDeviceId(), quantity) != null) {
+                throw new DeviceInventoryService.ReservationException(
+                    DeviceInventoryService.RejectReason.DUPLICATE_DEVICE, item.getDeviceId(), quantity, 0,
+                    "Device " + item.getDeviceId() + " is listed more than once");
+            }
         }
         
-        // Create new borrowing record
+        deviceInventoryService.reserveAllForWindow(quantities, meeting.getStartTime(), meeting.getEndTime(), null);
+        
+        List<MeetingDevice> borrowings = new ArrayList<>(items.size());
+        for (MeetingDeviceRequestItem item : items) {
+            borrowings.add(newBorrowing(meeting, item.getDeviceId(), item.getQuantityBorrowed(), item.getNotes(), user));
+        }
+        List<MeetingDevice> saved = meetingDeviceRepository.saveAll(borrowings);
+        deviceReservationLedger.onBorrowingsChanged(saved);
+        return saved.stream()
+            .map(this::convertToResponse)
+            .collect(Collectors.toList());
+    }
+    
+    // Re-check the devices borrowed for a meeting against its new time window (ignoring its own borrowings)
+    public void revalidateForMeeting(Meeting meeting) {
+        List<MeetingDevice> borrowings = meetingDeviceRepository.findByMeetingMeetingIdAndStatus(
+            meeting.getMeetingId(), BorrowingStatus.BORROWED);
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (MeetingDevice borrowing : borrowings) {
+            quantities.merge(borrowing.getDevice().getDeviceId(), borrowing.getQuantityBorrowed(), Integer::sum);
+        }
+        if (!quantities.isEmpty()) {
+            deviceInventoryService.reserveAllForWindow(quantities, meeting.getStartTime(), meeting.getEndTime(),
+                meeting.getMeetingId());
+            // Also puts back the borrowings of a meeting that is re-opened after being cancelled
+            deviceReservationLedger.onBorrowingsChanged(borrowings);
+        }
+    }
+    
+    private MeetingDevice newBorrowing(Meeting meeting, Long deviceId, Integer quantity, String notes, User user) {
         MeetingDevice meetingDevice = new MeetingDevice();
         meetingDevice.setMeeting(meeting);
-        meetingDevice.setDevice(device);
-        meetingDevice.setQuantityBorrowed(request.getQuantityBorrowed());
+        // Availability was already checked under the device row lock, a reference is enough here
+        meetingDevice.setDevice(deviceRepository.getReferenceById(deviceId));
+        meetingDevice.setWindowed(true);
+        meetingDevice.setQuantityBorrowed(quantity);
         meetingDevice.setRequestedBy(user);
-        meetingDevice.setNotes(request.getNotes());
+        meetingDevice.setNotes(notes);
         meetingDevice.setStatus(BorrowingStatus.BORROWED);
         meetingDevice.setBorrowedAt(LocalDateTime.now());
-        
-        MeetingDevice savedDevice = meetingDeviceRepository.save(meetingDevice);
-        
-        // Update device quantity - subtract borrowed quantity
-        device.setQuantity(device.getQuantity() - request.getQuantityBorrowed());
-        // Update used count - add borrowed quantity
-        device.setUsedCount(device.getUsedCount() + request.getQuantityBorrowed());
-        deviceRepository.save(device);
-        
-        return convertToResponse(savedDevice);
+        return meetingDevice;
     }
     
     // Return a device
     public MeetingDeviceResponse returnDevice(Integer meetingDeviceId) {
-        MeetingDevice meetingDevice = meetingDeviceRepository.findById(meetingDeviceId)
-            .orElseThrow(() -> new RuntimeException("Meeting device record not found"));
-        
-        if (meetingDevice.getStatus() != BorrowingStatus.BORROWED) {
-            throw new RuntimeException("Device is not currently borrowed");
-        }
-        
-        meetingDevice.setStatus(BorrowingStatus.RETURNED);
-        meetingDevice.setReturnedAt(LocalDateTime.now());
-        
-        MeetingDevice savedDevice = meetingDeviceRepository.save(meetingDevice);
-        
-        // Update device quantity - add back returned quantity
-        Device device = savedDevice.getDevice();
-        device.setQuantity(device.getQuantity() + savedDevice.getQuantityBorrowed());
-        // Update used count - subtract returned quantity
-        device.setUsedCount(device.getUsedCount() - savedDevice.getQuantityBorrowed());
-        deviceRepository.save(device);
-        
-        return convertToResponse(savedDevice);
+        return closeBorrowing(meetingDeviceId, BorrowingStatus.RETURNED, "Device is not currently borrowed");
     }
     
     // Cancel a device borrowing
     public MeetingDeviceResponse cancelDeviceBorrowing(Integer meetingDeviceId) {
+        return closeBorrowing(meetingDeviceId, BorrowingStatus.CANCELLED, "Only borrowed devices can be cancelled");
+    }
+    
+    // BORROWED -> RETURNED/CANCELLED and free the time window; only one of two concurrent calls succeeds
+    private MeetingDeviceResponse closeBorrowing(Integer meetingDeviceId, BorrowingStatus status, String notBorrowedMessage) {
         MeetingDevice meetingDevice = meetingDeviceRepository.findById(meetingDeviceId)
             .orElseThrow(() -> new RuntimeException("Meeting device record not found"));
         
-        if (meetingDevice.getStatus() != BorrowingStatus.BORROWED) {
-            throw new RuntimeException("Only borrowed devices can be cancelled");
+        LocalDateTime now = LocalDateTime.now();
+        if (meetingDevice.getStatus() != BorrowingStatus.BORROWED
+                || meetingDeviceRepository.closeBorrowing(meetingDeviceId, status, now) == 0) {
+            throw new RuntimeException(notBorrowedMessage);
         }
         
-        meetingDevice.setStatus(BorrowingStatus.CANCELLED);
-        meetingDevice.setReturnedAt(LocalDateTime.now());
+        // Keep the loaded entity in line with the row that was just updated
+        meetingDevice.setStatus(status);
+        meetingDevice.setReturnedAt(now);
         
-        MeetingDevice savedDevice = meetingDeviceRepository.save(meetingDevice);
-        
-        // Update device quantity - add back cancelled quantity
-        Device device = savedDevice.getDevice();
-        device.setQuantity(device.getQuantity() + savedDevice.getQuantityBorrowed());
-        // Update used count - subtract cancelled quantity
-        device.setUsedCount(device.getUsedCount() - savedDevice.getQuantityBorrowed());
-        deviceRepository.save(device);
+        // Legacy rows (before time-windowed borrowing) took the quantity out of stock
+        if (!Boolean.TRUE.equals(meetingDevice.getWindowed())) {
+            deviceInventoryService.release(meetingDevice.getDevice().getDeviceId(), meetingDevice.getQuantityBorrowed());
+        }
+        deviceReservationLedger.onBorrowingsChanged(List.of(meetingDevice));
         
-        return convertToResponse(savedDevice);
+        return convertToResponse(meetingDevice);
     }
     
     // Get all devices borrowed for a meeting
@@ -168,13 +200,9 @@ public class MeetingDeviceService {
             .collect(Collectors.toList());
     }
     
-    // Get device availability for a specific device
-    public int getDeviceAvailability(Long deviceId) {
-        Device device = deviceRepository.findById(deviceId)
-            .orElseThrow(() -> new RuntimeException("Device not found"));
-        
-        // Return the current quantity in the device table (already updated when borrowing)
-        return device.getQuantity();
+    // Get how many units of a device can still be borrowed for the whole [startTime, endTime) window
+    public int getDeviceAvailability(Long deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        return deviceReservationLedger.availableQuantity(deviceId, startTime, endTime);
     }
     
     // Convert MeetingDevice entity to MeetingDeviceResponse DTO
@@ -0,0 +1,265 @@
+package com.example.iMeetBE.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.iMeetBE.dto.MeetingResponse;
+import com.example.iMeetBE.repository.MeetingRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Xuất lịch sử cuộc họp (JSON hoặc CSV) thẳng ra output stream, không dựng danh sách trong bộ nhớ.
+ * Dòng được đọc dần qua con trỏ của MeetingRepository.streamRange (meeting.export.fetch-size dòng mỗi lần lấy),
+ * ghi ngay rồi bỏ; cứ mỗi meeting.export.chunk-size dòng thì đẩy buffer ra client và clear persistence context,
+ * nên bộ nhớ dùng không phụ thuộc số dòng.
+ * MySQL Connector/J chỉ đọc theo fetch size khi URL có useCursorFetch=true; không có thì driver nạp hết kết quả
+ * vào bộ nhớ. Khi đó export chuyển sang chế độ streaming của driver (fetch size Integer.MIN_VALUE, đọc từng dòng)
+ * và ghi cảnh báo lúc khởi động.
+ */
+@Service
+public class MeetingExportService {
+
+    public enum Format {
+        JSON(MediaType.APPLICATION_JSON, "json"),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        // null nếu không phải json/csv
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String[] CSV_HEADER = {
+        "meetingId", "title", "description", "startTime", "endTime", "isAllDay", "roomId", "roomName",
+        "roomLocation", "userId", "userName", "userEmail", "bookingStatus", "participants", "pendingCount",
+        "acceptedCount", "declinedCount", "createdAt", "updatedAt"
+    };
+
+    @Autowired
+    private MeetingRepository meetingRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${meeting.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${meeting.export.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    // Giá trị thực sự truyền cho driver (xem checkFetchMode)
+    private int driverFetchSize;
+
+    @PostConstruct
+    void checkFetchMode() {
+        String url = datasourceUrl.toLowerCase();
+        if (url.startsWith("jdbc:mysql:") && !url.contains("usecursorfetch=true")) {
+            // Streaming: driver giữ kết nối tới khi đọc xong, không chạy câu SQL khác trên kết nối đó trong lúc export
+            driverFetchSize = Integer.MIN_VALUE;
+            System.err.println("WARNING: spring.datasource.url has no useCursorFetch=true; meeting export streams rows "
+                + "one at a time instead of fetching " + fetchSize + " per round trip. Add useCursorFetch=true to the URL.");
+        } else {
+            driverFetchSize = fetchSize;
+        }
+    }
+
+    /**
+     * Ghi các cuộc họp có startTime trong [from, to) ra {@code out}, trả về số dòng đã ghi.
+     * Không đóng {@code out}. Lỗi giữa chừng chỉ còn cách cắt kết nối vì status và header đã gửi đi.
+     */
+    @Transactional(readOnly = true)
+    public long export(Format format, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<MeetingResponse> rows = meetingRepository.streamRange(from, to, driverFetchSize)) {
+            RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new JsonRowWriter(objectMapper, out);
+            Iterator<MeetingResponse> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                if (++count % chunkSize == 0) {
+                    writer.flush();
+                    entityManager.clear();
+                }
+            }
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Meeting export aborted after " + count + " rows: " + e.getMessage());
+            throw e;
+        }
+        return count;
+    }
+
+    private interface RowWriter {
+        void write(MeetingResponse row) throws IOException;
+
+        void flush() throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    // Mảng JSON các MeetingResponse, cùng định dạng với các API danh sách
+    private static final class JsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final ObjectWriter rowWriter;
+
+        JsonRowWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Mặc định Jackson flush sau mỗi value: ở đây chỉ flush theo chunk
+            this.rowWriter = objectMapper.writerFor(MeetingResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            generator.writeStartArray();
+        }
+
+        @Override
+        public void write(MeetingResponse row) throws IOException {
+            rowWriter.writeValue(generator, row);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.writeEndArray();
+            generator.close();
+        }
+    }
+
+    /**
+     * CSV theo RFC 4180, có BOM để Excel đọc đúng tiếng Việt. Ô bắt đầu bằng = + - @ được thêm dấu ' phía trước
+     * để bảng tính không chạy nó như công thức (tiêu đề/mô tả do người dùng nhập).
+     */
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            writer.write('\uFEFF');
+            for (int i = 0; i < CSV_HEADER.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(CSV_HEADER[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(MeetingResponse row) throws IOException {
+            cell(row.getMeetingId(), false);
+            cell(row.getTitle(), true);
+            cell(row.getDescription(), true);
+            cell(time(row.getStartTime()), true);
+            cell(time(row.getEndTime()), true);
+            cell(row.getIsAllDay(), true);
+            cell(row.getRoomId(), true);
+            cell(row.getRoomName(), true);
+            cell(row.getRoomLocation(), true);
+            cell(row.getUserId(), true);
+            cell(row.getUserName(), true);
+            cell(row.getUserEmail(), true);
+            cell(row.getBookingStatus(), true);
+            cell(row.getParticipants(), true);
+            cell(row.getPendingCount(), true);
+            cell(row.getAcceptedCount(), true);
+            cell(row.getDeclinedCount(), true);
+            cell(time(row.getCreatedAt()), true);
+            cell(time(row.getUpdatedAt()), true);
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private void cell(Object value, boolean separator) throws IOException {
+            if (separator) {
+                writer.write(',');
+            }
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            if (text.isEmpty()) {
+                return;
+            }
+            char first = text.charAt(0);
+            boolean formula = first == '=' || first == '+' || first == '-' || first == '@';
+            boolean quote = formula || text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            if (formula) {
+                writer.write('\'');
+            }
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        private static String time(LocalDateTime value) {
+            return value != null ? CSV_TIME.format(value) : null;
+        }
+    }
+}
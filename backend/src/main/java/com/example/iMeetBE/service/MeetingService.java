@@ -3,17 +3,32 @@ package com.example.iMeetBE.service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import com.example.iMeetBE.config.CacheConfig;
 import com.example.iMeetBE.dto.ApiResponse;
+import com.example.iMeetBE.dto.CursorPage;
 import com.example.iMeetBE.dto.InviteRequest;
 import com.example.iMeetBE.dto.InviteResponse;
 import com.example.iMeetBE.dto.MeetingRequest;
@@ -27,12 +42,24 @@ import com.example.iMeetBE.model.Room;
 import com.example.iMeetBE.model.User;
 import com.example.iMeetBE.repository.MeetingInviteeRepository;
 import com.example.iMeetBE.repository.MeetingRepository;
+import com.example.iMeetBE.repository.MeetingRepositoryCustom;
 import com.example.iMeetBE.repository.RoomRepository;
 import com.example.iMeetBE.repository.UserRepository;
 
 @Service
 @Transactional
 public class MeetingService {
+
+    private static final String INSERT_INVITEE_SQL =
+        "INSERT INTO meeting_invitees (meeting_id, user_id, email, invited_by, status, role_in_meeting, " +
+        "invited_at, notes, token) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Số cuộc họp mặc định / tối đa trên một trang danh sách
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // Token trong HTML lời mời được thay theo từng người nhận
+    private static final String INVITE_TOKEN_PLACEHOLDER = "__INVITE_TOKEN__";
     
     @Autowired
     private MeetingRepository meetingRepository;
@@ -50,8 +77,35 @@ public class MeetingService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Autowired
     private UserRepository userRepository;
+
+    @Autowired
+    private MeetingStatusEngine meetingStatusEngine;
+
+    @Autowired
+    private RoomScheduleIndex roomScheduleIndex;
+
+    @Autowired
+    private DeviceReservationLedger deviceReservationLedger;
+
+    @Autowired
+    private InviteCounterService inviteCounterService;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private UserSuggestIndex userSuggestIndex;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
     
     @Transactional(readOnly = true)
     public ApiResponse<List<MeetingResponse>> getMeetingsForInviteeToken(String token) {
@@ -66,14 +120,8 @@ public class MeetingService {
                 return ApiResponse.error("Bạn cần chấp nhận lời mời trước khi xem danh sách cuộc họp");
             }
             
-            List<MeetingInvitee> acceptedInvites = meetingInviteeRepository
-                .findByEmailAndStatusWithMeeting(invitee.getEmail(), InviteStatus.ACCEPTED);
-            
-            List<MeetingResponse> meetings = acceptedInvites.stream()
-                .map(MeetingInvitee::getMeeting)
-                .distinct()
-                .map(this::toMeetingResponse)
-                .toList();
+            List<MeetingResponse> meetings = meetingRepository
+                .findResponsesByInvitee(invitee.getEmail(), InviteStatus.ACCEPTED);
             
             return ApiResponse.success(meetings, "Lấy danh sách cuộc họp thành công");
         } catch (Exception e) {
@@ -81,32 +129,30 @@ public class MeetingService {
         }
     }
     
-    // Helper method để tạo MeetingResponse từ Meeting với số participants
-    private MeetingResponse toMeetingResponse(Meeting meeting) {
-        MeetingResponse response = new MeetingResponse(meeting);
-        // Sử dụng giá trị từ database, nếu null thì tính lại và cập nhật
-        Long participantCount = meeting.getParticipants();
-        if (participantCount == null) {
-            participantCount = meetingInviteeRepository.countParticipantsByMeetingId(meeting.getMeetingId());
-            participantCount = participantCount != null ? participantCount : 0L;
-            meeting.setParticipants(participantCount);
-            meetingRepository.save(meeting);
-        }
-        response.setParticipants(participantCount);
-        return response;
+    private static Integer roomIdOf(Meeting meeting) {
+        return meeting.getRoom() != null ? meeting.getRoom().getRoomId() : null;
     }
-    
-    // Helper method để cập nhật số participants trong database
-    private void updateParticipantsCount(Integer meetingId) {
-        Long count = meetingInviteeRepository.countParticipantsByMeetingId(meetingId);
-        final Long finalCount = count != null ? count : 0L;
-        meetingRepository.findById(meetingId).ifPresent(meeting -> {
-            meeting.setParticipants(finalCount);
-            meetingRepository.save(meeting);
-        });
+
+    private static String userIdOf(MeetingInvitee invitee) {
+        return invitee.getUser() != null ? invitee.getUser().getId() : null;
+    }
+
+    // Lịch .ics có cuộc họp này: phòng (cả phòng cũ nếu vừa đổi phòng), người tổ chức và người đã nhận lời
+    private void calendarsChanged(Meeting meeting, Integer... previousRoomIds) {
+        List<Integer> roomIds = new ArrayList<>(Arrays.asList(previousRoomIds));
+        roomIds.add(roomIdOf(meeting));
+        List<String> userIds = new ArrayList<>(meetingInviteeRepository.findAcceptedUserIds(meeting.getMeetingId()));
+        userIds.add(meeting.getUser() != null ? meeting.getUser().getId() : null);
+        resourceVersions.onCalendarsChanged(roomIds, userIds);
+    }
+
+    // Helper method để tạo MeetingResponse từ Meeting (bộ đếm lời mời đã được duy trì sẵn trên dòng meetings)
+    private MeetingResponse toMeetingResponse(Meeting meeting) {
+        return new MeetingResponse(meeting);
     }
     
-    // Tạo cuộc họp mới
+    // Tạo cuộc họp mới. READ_COMMITTED: sau khi khóa phòng/thiết bị, các kiểm tra thấy lượt đặt vừa được commit
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public ApiResponse<MeetingResponse> createMeeting(MeetingRequest request, User user) {
         try {
             // Validate thời gian
@@ -115,20 +161,16 @@ public class MeetingService {
                 return ApiResponse.error("Thời gian kết thúc phải sau thời gian bắt đầu");
             }
             
-            // Kiểm tra Room tồn tại
-            Optional<Room> roomOpt = roomRepository.findById(request.getRoomId());
+            // Kiểm tra Room tồn tại và khóa dòng phòng tới khi commit để hai lượt đặt cùng phòng không chen nhau
+            Optional<Room> roomOpt = roomRepository.findByIdForUpdate(request.getRoomId());
             if (!roomOpt.isPresent()) {
                 return ApiResponse.error("Không tìm thấy phòng với ID: " + request.getRoomId());
             }
             
             // User đã được validate từ controller
             
-            // Kiểm tra xung đột lịch
-            boolean hasConflict = meetingRepository.existsConflictingMeeting(
-                request.getRoomId(),
-                request.getStartTime(),
-                request.getEndTime()
-            );
+            // Kiểm tra xung đột lịch: chỉ mục trong bộ nhớ trước, database kiểm tra lại trước khi ghi
+            boolean hasConflict = hasConflict(request.getRoomId(), request.getStartTime(), request.getEndTime(), null);
             
             if (hasConflict) {
                 // Lấy danh sách meetings trùng lịch để hiển thị chi tiết
@@ -166,27 +208,23 @@ public class MeetingService {
             
             Meeting savedMeeting = meetingRepository.save(meeting);
             
-            // Xử lý mượn thiết bị nếu có
+            // Mượn thiết bị nếu có: giữ tất cả thiết bị hoặc không giữ thiết bị nào
             if (request.getDevices() != null && !request.getDevices().isEmpty()) {
                 try {
-                    for (com.example.iMeetBE.dto.MeetingDeviceRequestItem deviceItem : request.getDevices()) {
-                        // Tạo MeetingDeviceRequest cho từng thiết bị
-                        com.example.iMeetBE.dto.MeetingDeviceRequest deviceRequest = 
-                            new com.example.iMeetBE.dto.MeetingDeviceRequest();
-                        deviceRequest.setMeetingId(savedMeeting.getMeetingId());
-                        deviceRequest.setDeviceId(deviceItem.getDeviceId());
-                        deviceRequest.setQuantityBorrowed(deviceItem.getQuantityBorrowed());
-                        deviceRequest.setNotes(deviceItem.getNotes());
-                        
-                        // Mượn thiết bị
-                        meetingDeviceService.borrowDevice(deviceRequest, user.getId());
-                    }
+                    meetingDeviceService.borrowDevices(savedMeeting, request.getDevices(), user);
                 } catch (Exception e) {
-                    // Nếu mượn thiết bị thất bại, xóa cuộc họp đã tạo
-                    meetingRepository.delete(savedMeeting);
+                    // Rollback cả cuộc họp vừa tạo lẫn các thiết bị đã giữ
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
                     return ApiResponse.error("Lỗi khi mượn thiết bị: " + e.getMessage());
                 }
             }
+
+            meetingStatusEngine.onMeetingChanged(savedMeeting);
+            roomScheduleIndex.onMeetingChanged(savedMeeting);
+            deviceReservationLedger.onMeetingChanged(savedMeeting);
+            searchIndex.onMeetingChanged(savedMeeting);
+            resourceVersions.onMeetingsChanged(roomIdOf(savedMeeting));
+            resourceVersions.onCalendarsChanged(Arrays.asList(roomIdOf(savedMeeting)), List.of(user.getId()));
             
             return ApiResponse.success(toMeetingResponse(savedMeeting), 
                                       "Tạo cuộc họp thành công");
@@ -197,26 +235,24 @@ public class MeetingService {
     
     // Lấy tất cả cuộc họp
     @Transactional(readOnly = true)
-    public ApiResponse<List<MeetingResponse>> getAllMeetings() {
+    public ApiResponse<CursorPage<MeetingResponse>> getAllMeetings(String cursor, Integer size) {
         try {
-            // Dùng JOIN FETCH để load relationships trong cùng transaction
-            List<Meeting> meetings = meetingRepository.findAllWithRelations();
-            List<MeetingResponse> responses = meetings.stream()
-                .map(this::toMeetingResponse)
-                .toList();
-            
-            return ApiResponse.success(responses, "Lấy danh sách cuộc họp thành công");
+            CursorPage<MeetingResponse> page = findMeetingPage(
+                MeetingRepositoryCustom.MeetingFilter.all(), cursor, size);
+            return ApiResponse.success(page, "Lấy danh sách cuộc họp thành công");
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
         } catch (Exception e) {
             return ApiResponse.error("Lỗi khi lấy danh sách cuộc họp: " + e.getMessage());
         }
     }
 
-    // Mời người dùng bằng email
+    // Mời người dùng bằng email: 2 query IN cho cả danh sách, ghi lời mời và email (outbox) bằng JDBC batch
     @Transactional(noRollbackFor = Exception.class)
     public ApiResponse<List<InviteResponse>> inviteByEmails(Integer meetingId, InviteRequest request, User inviter) {
         try {
-            // Tìm meeting
-            Optional<Meeting> meetingOpt = meetingRepository.findById(meetingId);
+            // Tìm meeting, khóa dòng để hai lượt mời cùng cuộc họp không chèn trùng email
+            Optional<Meeting> meetingOpt = meetingRepository.findByIdForUpdate(meetingId);
             if (!meetingOpt.isPresent()) {
                 return ApiResponse.error("Không tìm thấy cuộc họp với ID: " + meetingId);
             }
@@ -226,87 +262,92 @@ public class MeetingService {
                 return ApiResponse.error("Bạn không có quyền mời người tham gia cho cuộc họp này");
             }
 
-            // Duyệt emails, tạo hoặc bỏ qua nếu đã tồn tại
-            List<InviteResponse> result = new java.util.ArrayList<>();
-            // Hàng đợi email gửi sau khi commit
-            java.util.List<java.util.AbstractMap.SimpleEntry<String, String>> emailQueue = new java.util.ArrayList<>();
+            // Chuẩn hóa và bỏ email trùng trong request
+            Set<String> emails = new LinkedHashSet<>();
             for (String email : request.getEmails()) {
                 String normalized = email.trim().toLowerCase();
-                if (normalized.isEmpty()) continue;
-                // Bỏ qua nếu đã tồn tại lời mời cùng meeting+email
-                if (meetingInviteeRepository.findByMeetingAndEmail(meeting, normalized).isPresent()) {
-                    continue;
-                }
-                MeetingInvitee invitee = new MeetingInvitee();
-                invitee.setMeeting(meeting);
-                invitee.setEmail(normalized);
-                invitee.setInvitedBy(inviter);
-                invitee.setRoleInMeeting(InviteRole.PARTICIPANT);
-                invitee.setStatus(InviteStatus.PENDING);
-                // Tạo token ngay để đảm bảo có sẵn
-                invitee.setToken(UUID.randomUUID().toString());
-                // Nếu email thuộc user trong hệ thống, liên kết user vào lời mời
-                userRepository.findByEmail(normalized).ifPresent(invitee::setUser);
-                if (request.getMessage() != null) {
-                    invitee.setNotes(request.getMessage());
+                if (!normalized.isEmpty()) {
+                    emails.add(normalized);
                 }
-                MeetingInvitee saved = meetingInviteeRepository.save(invitee);
-                result.add(new InviteResponse(saved));
-
-                // Chuẩn bị email (HTML) để gửi sau commit với token
-                String subject = "Lời mời tham gia cuộc họp: " + meeting.getTitle();
-                String html = emailService.buildMeetingInviteHtml(
-                    meeting.getTitle(),
-                    meeting.getDescription(),
-                    String.valueOf(meeting.getStartTime()),
-                    String.valueOf(meeting.getEndTime()),
-                    inviter.getFullName() != null ? inviter.getFullName() : inviter.getEmail(),
-                    request.getMessage(),
-                    meeting.getRoom() != null ? meeting.getRoom().getName() : null,
-                    meeting.getRoom() != null ? meeting.getRoom().getLocation() : null,
-                    saved.getToken() // Truyền token vào email
-                );
-                emailQueue.add(new java.util.AbstractMap.SimpleEntry<>(normalized, subject + "\n\n" + html));
-            }
-
-            // Cập nhật số participants trong database
-            if (!result.isEmpty()) {
-                updateParticipantsCount(meetingId);
-            }
-
-            // Gửi email sau khi transaction commit thành công
-            if (!emailQueue.isEmpty()) {
-                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                    @Override
-                    public void afterCommit() {
-                        for (java.util.AbstractMap.SimpleEntry<String, String> item : emailQueue) {
-                            try {
-                                String to = item.getKey();
-                                // tách subject và html đã ghép (subject\n\nhtml)
-                                String[] parts = item.getValue().split("\\n\\n", 2);
-                                String subject = parts[0];
-                                String html = parts.length > 1 ? parts[1] : "";
-                                emailService.sendMeetingInviteHtml(to, subject, html);
-                            } catch (Exception ignore) { /* nuốt lỗi gửi mail, không ảnh hưởng DB */ }
-                        }
-                    }
+            }
+            if (emails.isEmpty()) {
+                return ApiResponse.success(List.of(), "Gửi lời mời thành công");
+            }
+
+            // Bỏ qua email đã được mời; liên kết user nếu email thuộc user trong hệ thống
+            emails.removeAll(new HashSet<>(meetingInviteeRepository.findInvitedEmails(meetingId, emails)));
+            if (emails.isEmpty()) {
+                return ApiResponse.success(List.of(), "Gửi lời mời thành công");
+            }
+            Map<String, String> userIds = new HashMap<>();
+            for (UserRepository.UserIdByEmail user : userRepository.findIdsByEmailIn(emails)) {
+                userIds.putIfAbsent(user.getEmail().toLowerCase(), user.getId());
+            }
+
+            // Nội dung email giống nhau, chỉ khác token: render một lần rồi thay token
+            String subject = "Lời mời tham gia cuộc họp: " + meeting.getTitle();
+            String htmlTemplate = emailService.buildMeetingInviteHtml(
+                meeting.getTitle(),
+                meeting.getDescription(),
+                String.valueOf(meeting.getStartTime()),
+                String.valueOf(meeting.getEndTime()),
+                inviter.getFullName() != null ? inviter.getFullName() : inviter.getEmail(),
+                request.getMessage(),
+                meeting.getRoom() != null ? meeting.getRoom().getName() : null,
+                meeting.getRoom() != null ? meeting.getRoom().getLocation() : null,
+                INVITE_TOKEN_PLACEHOLDER
+            );
+
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> rows = new ArrayList<>(emails.size());
+            List<EmailOutboxService.OutboxMessage> messages = new ArrayList<>(emails.size());
+            for (String email : emails) {
+                String token = UUID.randomUUID().toString();
+                rows.add(new Object[] {
+                    meetingId, userIds.get(email), email, inviter.getId(), InviteStatus.PENDING.name(),
+                    InviteRole.PARTICIPANT.name(), now, request.getMessage(), token
                 });
+                messages.add(new EmailOutboxService.OutboxMessage(
+                    email, subject, htmlTemplate.replace(INVITE_TOKEN_PLACEHOLDER, token)));
+            }
+            jdbcTemplate.batchUpdate(INSERT_INVITEE_SQL, rows);
+
+            // Email được ghi vào outbox cùng transaction, gửi nền sau khi commit
+            emailOutboxService.enqueueAll(messages);
+
+            // Trả về theo thứ tự email trong request
+            Map<String, MeetingInvitee> created = new HashMap<>();
+            for (MeetingInvitee invitee : meetingInviteeRepository.findByMeetingIdAndEmailIn(meetingId, emails)) {
+                created.put(invitee.getEmail(), invitee);
             }
+            List<InviteResponse> result = emails.stream()
+                .map(created::get)
+                .filter(Objects::nonNull)
+                .map(InviteResponse::new)
+                .toList();
+
+            // Cộng bộ đếm lời mời bằng một UPDATE nguyên tử
+            inviteCounterService.onInvited(meetingId, rows.size());
+            resourceVersions.onMeetingsChanged(roomIdOf(meeting));
+            userSuggestIndex.onInvited(inviter.getId(), emails);
 
             return ApiResponse.success(result, "Gửi lời mời thành công");
         } catch (Exception e) {
+            // Không để lại một phần lời mời/email
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return ApiResponse.error("Lỗi khi gửi lời mời: " + e.getMessage());
         }
     }
 
     // Đã thay bằng email HTML trong EmailService
     
-    // Lấy cuộc họp theo ID
+    // Lấy cuộc họp theo ID (cache theo id, chỉ lưu kết quả thành công)
+    @Cacheable(cacheNames = CacheConfig.MEETINGS, key = "#meetingId", unless = "!#result.success")
     public ApiResponse<MeetingResponse> getMeetingById(Integer meetingId) {
         try {
-            Optional<Meeting> meetingOpt = meetingRepository.findById(meetingId);
+            Optional<MeetingResponse> meetingOpt = meetingRepository.findResponseById(meetingId);
             if (meetingOpt.isPresent()) {
-                return ApiResponse.success(toMeetingResponse(meetingOpt.get()), 
+                return ApiResponse.success(meetingOpt.get(), 
                                           "Lấy thông tin cuộc họp thành công");
             } else {
                 return ApiResponse.error("Không tìm thấy cuộc họp với ID: " + meetingId);
@@ -317,8 +358,23 @@ public class MeetingService {
     }
     
     // Cập nhật cuộc họp
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @CacheEvict(cacheNames = CacheConfig.MEETINGS, key = "#meetingId")
     public ApiResponse<MeetingResponse> updateMeeting(Integer meetingId, MeetingRequest request, String userId, String userRole) {
         try {
+            // Validate thời gian
+            if (request.getEndTime().isBefore(request.getStartTime()) || 
+                request.getEndTime().isEqual(request.getStartTime())) {
+                return ApiResponse.error("Thời gian kết thúc phải sau thời gian bắt đầu");
+            }
+            
+            // Kiểm tra Room tồn tại và khóa dòng phòng đích trước mọi lần đọc khác,
+            // để lần kiểm tra trùng lịch bên dưới thấy các lượt đặt vừa commit
+            Optional<Room> roomOpt = roomRepository.findByIdForUpdate(request.getRoomId());
+            if (!roomOpt.isPresent()) {
+                return ApiResponse.error("Không tìm thấy phòng với ID: " + request.getRoomId());
+            }
+            
             Optional<Meeting> meetingOpt = meetingRepository.findById(meetingId);
             if (!meetingOpt.isPresent()) {
                 return ApiResponse.error("Không tìm thấy cuộc họp với ID: " + meetingId);
@@ -331,73 +387,62 @@ public class MeetingService {
                 return ApiResponse.error("Bạn không có quyền cập nhật cuộc họp này");
             }
             
-            // Validate thời gian
-            if (request.getEndTime().isBefore(request.getStartTime()) || 
-                request.getEndTime().isEqual(request.getStartTime())) {
-                return ApiResponse.error("Thời gian kết thúc phải sau thời gian bắt đầu");
-            }
-            
-            // Kiểm tra Room tồn tại
-            Optional<Room> roomOpt = roomRepository.findById(request.getRoomId());
-            if (!roomOpt.isPresent()) {
-                return ApiResponse.error("Không tìm thấy phòng với ID: " + request.getRoomId());
+            // Client sửa trên bản cũ (người khác đã cập nhật trước)
+            if (request.getVersion() != null && !request.getVersion().equals(meeting.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Meeting.class, meetingId);
             }
             
             // Kiểm tra xung đột lịch (loại trừ cuộc họp hiện tại)
-            boolean hasConflict = meetingRepository.existsConflictingMeetingExcluding(
-                request.getRoomId(),
-                meetingId,
-                request.getStartTime(),
-                request.getEndTime()
-            );
-            
-            if (hasConflict) {
-                // Lấy danh sách meetings trùng lịch (loại trừ meeting hiện tại)
-                List<Meeting> allConflicts = meetingRepository.findByRoomAndTimeRange(
-                    request.getRoomId(),
-                    request.getStartTime(),
-                    request.getEndTime()
-                );
-                
-                // Lọc bỏ meeting hiện tại
-                List<Meeting> conflictingMeetings = allConflicts.stream()
-                    .filter(m -> !m.getMeetingId().equals(meetingId))
-                    .toList();
-                
-                if (!conflictingMeetings.isEmpty()) {
-                    Meeting firstConflict = conflictingMeetings.get(0);
-                    String errorMessage = String.format(
-                        "Phòng đã được đặt trong khoảng thời gian này. Cuộc họp trùng: '%s' (%s - %s)",
-                        firstConflict.getTitle(),
-                        firstConflict.getStartTime().toString(),
-                        firstConflict.getEndTime().toString()
-                    );
-                    return ApiResponse.error(errorMessage);
-                }
-                return ApiResponse.error("Phòng đã được đặt trong khoảng thời gian này");
+            if (hasConflict(request.getRoomId(), request.getStartTime(), request.getEndTime(), meetingId)) {
+                return ApiResponse.error(conflictMessage(request.getRoomId(), request.getStartTime(),
+                    request.getEndTime(), meetingId));
             }
             
+            boolean windowChanged = !meeting.getStartTime().equals(request.getStartTime())
+                || !meeting.getEndTime().equals(request.getEndTime())
+                || meeting.getBookingStatus() == BookingStatus.CANCELLED;
+            
             meeting.setTitle(request.getTitle());
             meeting.setDescription(request.getDescription());
             meeting.setStartTime(request.getStartTime());
             meeting.setEndTime(request.getEndTime());
             meeting.setIsAllDay(request.getIsAllDay());
+            Integer previousRoomId = roomIdOf(meeting);
             meeting.setRoom(roomOpt.get());
             
             if (request.getBookingStatus() != null) {
                 meeting.setBookingStatus(request.getBookingStatus());
             }
             
-            Meeting updatedMeeting = meetingRepository.save(meeting);
+            // Thiết bị đã mượn phải còn đủ trong khung giờ mới
+            if (windowChanged && meeting.getBookingStatus() != BookingStatus.CANCELLED) {
+                try {
+                    meetingDeviceService.revalidateForMeeting(meeting);
+                } catch (DeviceInventoryService.ReservationException e) {
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return ApiResponse.error("Không đủ thiết bị đã mượn trong khung giờ mới: " + e.getMessage());
+                }
+            }
+            
+            Meeting updatedMeeting = meetingRepository.saveAndFlush(meeting);
+            meetingStatusEngine.onMeetingChanged(updatedMeeting);
+            roomScheduleIndex.onMeetingChanged(updatedMeeting);
+            deviceReservationLedger.onMeetingChanged(updatedMeeting);
+            searchIndex.onMeetingChanged(updatedMeeting);
+            resourceVersions.onMeetingsChanged(previousRoomId, roomIdOf(updatedMeeting));
+            calendarsChanged(updatedMeeting, previousRoomId);
             
             return ApiResponse.success(toMeetingResponse(updatedMeeting), 
                                       "Cập nhật cuộc họp thành công");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             return ApiResponse.error("Lỗi khi cập nhật cuộc họp: " + e.getMessage());
         }
     }
     
     // Hủy cuộc họp (cập nhật trạng thái thành CANCELLED)
+    @CacheEvict(cacheNames = CacheConfig.MEETINGS, key = "#meetingId")
     public ApiResponse<Void> deleteMeeting(Integer meetingId, String userId, String userRole) {
         try {
             Optional<Meeting> meetingOpt = meetingRepository.findById(meetingId);
@@ -420,14 +465,25 @@ public class MeetingService {
             // Cập nhật trạng thái thành CANCELLED thay vì xóa
             meeting.setBookingStatus(BookingStatus.CANCELLED);
             meetingRepository.save(meeting);
+            meetingStatusEngine.onMeetingChanged(meeting);
+            roomScheduleIndex.onMeetingChanged(meeting);
+            deviceReservationLedger.onMeetingChanged(meeting);
+            searchIndex.onMeetingChanged(meeting);
+            resourceVersions.onMeetingsChanged(roomIdOf(meeting));
+            calendarsChanged(meeting);
             
             return ApiResponse.success(null, "Hủy cuộc họp thành công");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             return ApiResponse.error("Lỗi khi hủy cuộc họp: " + e.getMessage());
         }
     }
     
-    // Cập nhật trạng thái cuộc họp
+    // Cập nhật trạng thái cuộc họp. READ_COMMITTED như các luồng khóa-rồi-kiểm-tra khác: mở lại cuộc họp đã hủy
+    // khóa dòng thiết bị rồi mới đếm lượt mượn, lần đếm đó phải thấy các lượt mượn vừa commit
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @CacheEvict(cacheNames = CacheConfig.MEETINGS, key = "#meetingId")
     public ApiResponse<MeetingResponse> updateMeetingStatus(Integer meetingId, BookingStatus status, String userId, String userRole) {
         try {
             Optional<Meeting> meetingOpt = meetingRepository.findById(meetingId);
@@ -436,59 +492,87 @@ public class MeetingService {
             }
             
             Meeting meeting = meetingOpt.get();
+            BookingStatus previousStatus = meeting.getBookingStatus();
             
             // Kiểm tra quyền: chỉ chủ meeting hoặc admin mới được cập nhật trạng thái
             if (!meeting.getUser().getId().equals(userId) && !userRole.equals("ADMIN")) {
                 return ApiResponse.error("Bạn không có quyền cập nhật trạng thái cuộc họp này");
             }
             
+            // Mở lại cuộc họp đã hủy: phòng phải còn trống và thiết bị đã mượn phải còn đủ trong khung giờ của nó
+            if (meeting.getBookingStatus() == BookingStatus.CANCELLED && status != BookingStatus.CANCELLED) {
+                // Khóa dòng phòng như updateMeeting để lần kiểm tra trùng lịch thấy các lượt đặt vừa commit
+                Integer roomId = roomIdOf(meeting);
+                if (roomId == null || roomRepository.findByIdForUpdate(roomId).isEmpty()) {
+                    return ApiResponse.error("Không tìm thấy phòng của cuộc họp");
+                }
+                if (hasConflict(roomId, meeting.getStartTime(), meeting.getEndTime(), meetingId)) {
+                    return ApiResponse.error(conflictMessage(roomId, meeting.getStartTime(), meeting.getEndTime(), meetingId));
+                }
+                meeting.setBookingStatus(status);
+                try {
+                    meetingDeviceService.revalidateForMeeting(meeting);
+                } catch (DeviceInventoryService.ReservationException e) {
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return ApiResponse.error("Không đủ thiết bị đã mượn cho cuộc họp: " + e.getMessage());
+                }
+            }
+            
             meeting.setBookingStatus(status);
-            Meeting updatedMeeting = meetingRepository.save(meeting);
+            Meeting updatedMeeting = meetingRepository.saveAndFlush(meeting);
+            meetingStatusEngine.onMeetingChanged(updatedMeeting);
+            roomScheduleIndex.onMeetingChanged(updatedMeeting);
+            deviceReservationLedger.onMeetingChanged(updatedMeeting);
+            searchIndex.onMeetingChanged(updatedMeeting);
+            resourceVersions.onMeetingsChanged(roomIdOf(updatedMeeting));
+            // Lịch .ics chỉ chứa cuộc họp chưa hủy: các trạng thái khác hiển thị như nhau
+            if ((previousStatus == BookingStatus.CANCELLED) != (status == BookingStatus.CANCELLED)) {
+                calendarsChanged(updatedMeeting);
+            }
             
             return ApiResponse.success(toMeetingResponse(updatedMeeting), 
                                       "Cập nhật trạng thái cuộc họp thành công");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             return ApiResponse.error("Lỗi khi cập nhật trạng thái cuộc họp: " + e.getMessage());
         }
     }
     
     // Lấy cuộc họp theo phòng
-    public ApiResponse<List<MeetingResponse>> getMeetingsByRoom(Integer roomId) {
+    public ApiResponse<CursorPage<MeetingResponse>> getMeetingsByRoom(Integer roomId, String cursor, Integer size) {
         try {
-            List<Meeting> meetings = meetingRepository.findByRoomRoomId(roomId);
-            List<MeetingResponse> responses = meetings.stream()
-                .map(this::toMeetingResponse)
-                .toList();
-            
-            return ApiResponse.success(responses, "Lấy danh sách cuộc họp theo phòng thành công");
+            CursorPage<MeetingResponse> page = findMeetingPage(
+                new MeetingRepositoryCustom.MeetingFilter(roomId, null, null, null, null, false), cursor, size);
+            return ApiResponse.success(page, "Lấy danh sách cuộc họp theo phòng thành công");
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
         } catch (Exception e) {
             return ApiResponse.error("Lỗi khi lấy danh sách cuộc họp theo phòng: " + e.getMessage());
         }
     }
     
     // Lấy cuộc họp theo người dùng
-    public ApiResponse<List<MeetingResponse>> getMeetingsByUser(String userId) {
+    public ApiResponse<CursorPage<MeetingResponse>> getMeetingsByUser(String userId, String cursor, Integer size) {
         try {
-            List<Meeting> meetings = meetingRepository.findByUserId(userId);
-            List<MeetingResponse> responses = meetings.stream()
-                .map(this::toMeetingResponse)
-                .toList();
-            
-            return ApiResponse.success(responses, "Lấy danh sách cuộc họp theo người dùng thành công");
+            CursorPage<MeetingResponse> page = findMeetingPage(
+                new MeetingRepositoryCustom.MeetingFilter(null, userId, null, null, null, false), cursor, size);
+            return ApiResponse.success(page, "Lấy danh sách cuộc họp theo người dùng thành công");
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
         } catch (Exception e) {
             return ApiResponse.error("Lỗi khi lấy danh sách cuộc họp theo người dùng: " + e.getMessage());
         }
     }
     
     // Lấy cuộc họp theo trạng thái
-    public ApiResponse<List<MeetingResponse>> getMeetingsByStatus(BookingStatus status) {
+    public ApiResponse<CursorPage<MeetingResponse>> getMeetingsByStatus(BookingStatus status, String cursor, Integer size) {
         try {
-            List<Meeting> meetings = meetingRepository.findByBookingStatus(status);
-            List<MeetingResponse> responses = meetings.stream()
-                .map(this::toMeetingResponse)
-                .toList();
-            
-            return ApiResponse.success(responses, "Lấy danh sách cuộc họp theo trạng thái thành công");
+            CursorPage<MeetingResponse> page = findMeetingPage(
+                new MeetingRepositoryCustom.MeetingFilter(null, null, status, null, null, false), cursor, size);
+            return ApiResponse.success(page, "Lấy danh sách cuộc họp theo trạng thái thành công");
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
         } catch (Exception e) {
             return ApiResponse.error("Lỗi khi lấy danh sách cuộc họp theo trạng thái: " + e.getMessage());
         }
@@ -497,10 +581,7 @@ public class MeetingService {
     // Lấy cuộc họp trong khoảng thời gian
     public ApiResponse<List<MeetingResponse>> getMeetingsByDateRange(LocalDateTime startTime, LocalDateTime endTime) {
         try {
-            List<Meeting> meetings = meetingRepository.findByDateRange(startTime, endTime);
-            List<MeetingResponse> responses = meetings.stream()
-                .map(this::toMeetingResponse)
-                .toList();
+            List<MeetingResponse> responses = meetingRepository.findResponsesByDateRange(startTime, endTime);
             
             return ApiResponse.success(responses, "Lấy danh sách cuộc họp theo khoảng thời gian thành công");
         } catch (Exception e) {
@@ -509,14 +590,13 @@ public class MeetingService {
     }
     
     // Lấy cuộc họp sắp tới
-    public ApiResponse<List<MeetingResponse>> getUpcomingMeetings() {
+    public ApiResponse<CursorPage<MeetingResponse>> getUpcomingMeetings(String cursor, Integer size) {
         try {
-            List<Meeting> meetings = meetingRepository.findUpcomingMeetings(LocalDateTime.now());
-            List<MeetingResponse> responses = meetings.stream()
-                .map(this::toMeetingResponse)
-                .toList();
-            
-            return ApiResponse.success(responses, "Lấy danh sách cuộc họp sắp tới thành công");
+            CursorPage<MeetingResponse> page = findMeetingPage(
+                new MeetingRepositoryCustom.MeetingFilter(null, null, null, null, LocalDateTime.now(), true), cursor, size);
+            return ApiResponse.success(page, "Lấy danh sách cuộc họp sắp tới thành công");
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
         } catch (Exception e) {
             return ApiResponse.error("Lỗi khi lấy danh sách cuộc họp sắp tới: " + e.getMessage());
         }
@@ -526,10 +606,7 @@ public class MeetingService {
     public ApiResponse<List<MeetingResponse>> getMeetingsToday() {
         try {
             LocalDateTime today = LocalDateTime.of(LocalDate.now(), LocalTime.MIDNIGHT);
-            List<Meeting> meetings = meetingRepository.findMeetingsByDate(today);
-            List<MeetingResponse> responses = meetings.stream()
-                .map(this::toMeetingResponse)
-                .toList();
+            List<MeetingResponse> responses = meetingRepository.findResponsesByDate(today);
             
             return ApiResponse.success(responses, "Lấy danh sách cuộc họp hôm nay thành công");
         } catch (Exception e) {
@@ -538,23 +615,98 @@ public class MeetingService {
     }
     
     // Tìm kiếm cuộc họp theo tiêu đề
-    public ApiResponse<List<MeetingResponse>> searchMeetingsByTitle(String title) {
+    public ApiResponse<CursorPage<MeetingResponse>> searchMeetingsByTitle(String title, String cursor, Integer size) {
         try {
-            List<Meeting> meetings = meetingRepository.findByTitleContainingIgnoreCase(title);
-            List<MeetingResponse> responses = meetings.stream()
-                .map(this::toMeetingResponse)
-                .toList();
-            
-            return ApiResponse.success(responses, "Tìm kiếm cuộc họp thành công");
+            CursorPage<MeetingResponse> page = findMeetingPage(
+                new MeetingRepositoryCustom.MeetingFilter(null, null, null, title, null, false), cursor, size);
+            return ApiResponse.success(page, "Tìm kiếm cuộc họp thành công");
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
         } catch (Exception e) {
             return ApiResponse.error("Lỗi khi tìm kiếm cuộc họp: " + e.getMessage());
         }
     }
     
+    /**
+     * Một trang cuộc họp theo thứ tự (startTime, meetingId). cursor null là trang đầu; cursor không hợp lệ
+     * ném IllegalArgumentException.
+     */
+    private CursorPage<MeetingResponse> findMeetingPage(MeetingRepositoryCustom.MeetingFilter filter,
+                                                        String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        LocalDateTime keyStart = null;
+        Integer keyId = null;
+        boolean backward = false;
+        if (cursor != null && !cursor.isBlank()) {
+            PageCursor decoded = PageCursor.decode(cursor, 2);
+            try {
+                keyStart = LocalDateTime.parse(decoded.keys().get(0));
+                keyId = Integer.valueOf(decoded.keys().get(1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor không hợp lệ");
+            }
+            backward = decoded.backward();
+        }
+
+        // Lấy dư một dòng để biết còn dữ liệu theo hướng đang đi hay không
+        List<MeetingResponse> rows = meetingRepository.findPage(filter, keyStart, keyId, backward, pageSize + 1);
+        boolean more = rows.size() > pageSize;
+        List<MeetingResponse> page = new ArrayList<>(more ? rows.subList(0, pageSize) : rows);
+        if (backward) {
+            Collections.reverse(page);
+        }
+        boolean hasNext = backward || more;
+        boolean hasPrevious = backward ? more : keyStart != null;
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!page.isEmpty()) {
+            MeetingResponse first = page.get(0);
+            MeetingResponse last = page.get(page.size() - 1);
+            if (hasNext) {
+                nextCursor = PageCursor.encode(false, last.getStartTime(), last.getMeetingId());
+            }
+            if (hasPrevious) {
+                prevCursor = PageCursor.encode(true, first.getStartTime(), first.getMeetingId());
+            }
+        }
+        return new CursorPage<>(page, nextCursor, prevCursor, pageSize);
+    }
+    
+    // Thông báo lỗi trùng lịch kèm cuộc họp trùng đầu tiên (loại trừ cuộc họp đang sửa)
+    private String conflictMessage(Integer roomId, LocalDateTime startTime, LocalDateTime endTime, Integer excludeMeetingId) {
+        List<Meeting> conflictingMeetings = meetingRepository.findByRoomAndTimeRange(roomId, startTime, endTime).stream()
+            .filter(m -> !m.getMeetingId().equals(excludeMeetingId))
+            .toList();
+        if (conflictingMeetings.isEmpty()) {
+            return "Phòng đã được đặt trong khoảng thời gian này";
+        }
+        Meeting firstConflict = conflictingMeetings.get(0);
+        return String.format(
+            "Phòng đã được đặt trong khoảng thời gian này. Cuộc họp trùng: '%s' (%s - %s)",
+            firstConflict.getTitle(),
+            firstConflict.getStartTime().toString(),
+            firstConflict.getEndTime().toString()
+        );
+    }
+    
+    // Trùng lịch nếu chỉ mục thấy trùng; nếu chỉ mục thấy trống thì database xác nhận lại trước khi ghi
+    private boolean hasConflict(Integer roomId, LocalDateTime startTime, LocalDateTime endTime, Integer excludeMeetingId) {
+        if (roomScheduleIndex.covers(startTime)
+                && roomScheduleIndex.findConflictId(roomId, startTime, endTime, excludeMeetingId) != null) {
+            return true;
+        }
+        return excludeMeetingId == null
+            ? meetingRepository.existsConflictingMeeting(roomId, startTime, endTime)
+            : meetingRepository.existsConflictingMeetingExcluding(roomId, excludeMeetingId, startTime, endTime);
+    }
+
     // Kiểm tra xung đột lịch
     public ApiResponse<Boolean> checkRoomAvailability(Integer roomId, LocalDateTime startTime, LocalDateTime endTime) {
         try {
-            boolean hasConflict = meetingRepository.existsConflictingMeeting(roomId, startTime, endTime);
+            boolean hasConflict = roomScheduleIndex.isAvailable(roomId, startTime, endTime, null)
+                .map(available -> !available)
+                .orElseGet(() -> meetingRepository.existsConflictingMeeting(roomId, startTime, endTime));
             return ApiResponse.success(!hasConflict, 
                 hasConflict ? "Phòng đã được đặt" : "Phòng còn trống");
         } catch (Exception e) {
@@ -565,10 +717,7 @@ public class MeetingService {
     // Lấy lịch phòng trong khoảng thời gian (để xem calendar)
     public ApiResponse<List<MeetingResponse>> getRoomSchedule(Integer roomId, LocalDateTime startTime, LocalDateTime endTime) {
         try {
-            List<Meeting> meetings = meetingRepository.findByRoomAndTimeRange(roomId, startTime, endTime);
-            List<MeetingResponse> responses = meetings.stream()
-                .map(this::toMeetingResponse)
-                .toList();
+            List<MeetingResponse> responses = meetingRepository.findResponsesByRoomAndTimeRange(roomId, startTime, endTime);
             
             return ApiResponse.success(responses, "Lấy lịch phòng thành công");
         } catch (Exception e) {
@@ -594,10 +743,14 @@ public class MeetingService {
                 return ApiResponse.error("Lời mời này " + statusMsg + " trước đó");
             }
 
-            // Cập nhật trạng thái trước
-            invitee.setStatus(InviteStatus.ACCEPTED);
-            invitee.setRespondedAt(LocalDateTime.now());
-            meetingInviteeRepository.save(invitee);
+            // Cập nhật trạng thái trước, có điều kiện: lượt phản hồi đồng thời thua thì không tính lại bộ đếm
+            if (meetingInviteeRepository.transitionStatus(invitee.getInviteId(), InviteStatus.PENDING,
+                    InviteStatus.ACCEPTED, LocalDateTime.now()) == 0) {
+                return ApiResponse.error("Lời mời này đã được phản hồi trước đó");
+            }
+            inviteCounterService.onStatusChanged(invitee.getMeeting().getMeetingId(), InviteStatus.PENDING, InviteStatus.ACCEPTED);
+            resourceVersions.onMeetingsChanged(roomIdOf(invitee.getMeeting()));
+            resourceVersions.onCalendarsChanged(List.of(), Arrays.asList(userIdOf(invitee)));
 
             // Load meeting và inviter để lấy thông tin gửi email (sau khi save để đảm bảo trong transaction)
             Meeting meeting = invitee.getMeeting();
@@ -659,10 +812,14 @@ public class MeetingService {
                 return ApiResponse.error("Lời mời này " + statusMsg + " trước đó");
             }
 
-            // Cập nhật trạng thái trước
-            invitee.setStatus(InviteStatus.DECLINED);
-            invitee.setRespondedAt(LocalDateTime.now());
-            meetingInviteeRepository.save(invitee);
+            // Cập nhật trạng thái trước, có điều kiện: lượt phản hồi đồng thời thua thì không tính lại bộ đếm
+            if (meetingInviteeRepository.transitionStatus(invitee.getInviteId(), InviteStatus.PENDING,
+                    InviteStatus.DECLINED, LocalDateTime.now()) == 0) {
+                return ApiResponse.error("Lời mời này đã được phản hồi trước đó");
+            }
+            inviteCounterService.onStatusChanged(invitee.getMeeting().getMeetingId(), InviteStatus.PENDING, InviteStatus.DECLINED);
+            resourceVersions.onMeetingsChanged(roomIdOf(invitee.getMeeting()));
+            resourceVersions.onCalendarsChanged(List.of(), Arrays.asList(userIdOf(invitee)));
 
             // Load meeting và inviter để lấy thông tin gửi email (sau khi save để đảm bảo trong transaction)
             Meeting meeting = invitee.getMeeting();
@@ -0,0 +1,288 @@
+package com.example.iMeetBE.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.iMeetBE.model.BookingStatus;
+import com.example.iMeetBE.model.Meeting;
+import com.example.iMeetBE.model.RoomStatus;
+import com.example.iMeetBE.repository.MeetingRepository;
+import com.example.iMeetBE.repository.RoomRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Chuyển trạng thái cuộc họp/phòng đúng thời điểm thay vì quét toàn bộ bảng mỗi phút.
+ * Mỗi cuộc họp có tối đa 3 mốc: start - 30 phút (phòng BOOKED), start (IN_PROGRESS, phòng IN_USE)
+ * và end (COMPLETED, phòng tính lại trạng thái). Các mốc nằm trong hàng đợi ưu tiên theo thời gian
+ * của một ScheduledThreadPoolExecutor một luồng, nên các chuyển trạng thái được thực hiện tuần tự.
+ * Chỉ các cuộc họp có mốc trong khoảng horizon mới được giữ trong bộ nhớ; StatusScheduler gọi
+ * {@link #refresh()} định kỳ để nạp thêm và sửa các lệch (ví dụ khi database bị sửa trực tiếp).
+ */
+@Service
+public class MeetingStatusEngine {
+
+    // Phòng chuyển sang BOOKED 30 phút trước khi cuộc họp bắt đầu
+    static final Duration BOOKED_LEAD = Duration.ofMinutes(30);
+
+    private enum Phase { ROOM_BOOKED, START, END }
+
+    // Các mốc đã lên lịch của một cuộc họp
+    private record Scheduled(Integer roomId, LocalDateTime startTime, LocalDateTime endTime,
+                             List<ScheduledFuture<?>> futures, long createdNanos) {
+
+        boolean sameAs(Integer roomId, LocalDateTime startTime, LocalDateTime endTime) {
+            return Objects.equals(this.roomId, roomId)
+                    && Objects.equals(this.startTime, startTime)
+                    && Objects.equals(this.endTime, endTime);
+        }
+
+        void cancel() {
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    @Autowired
+    private MeetingRepository meetingRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private DetailCacheInvalidator detailCacheInvalidator;
+
+    @Autowired
+    private RoomCatalog roomCatalog;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${meeting.status.horizon:86400000}")
+    private long horizonMillis;
+
+    private final Map<Integer, Scheduled> scheduled = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "meeting-status");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Mốc bị hủy (cuộc họp đổi giờ/hủy) được bỏ khỏi hàng đợi ngay
+        pool.setRemoveOnCancelPolicy(true);
+        executor = pool;
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Nạp lịch từ database khi ứng dụng khởi động
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        refresh();
+    }
+
+    /**
+     * Nạp lại các cuộc họp BOOKED/IN_PROGRESS có mốc trong horizon. Cuộc họp đã quá giờ nhưng chưa
+     * chuyển trạng thái (server tắt, sửa tay database...) sẽ được chuyển ngay.
+     *
+     * @return số cuộc họp đang được theo dõi
+     */
+    public int refresh() {
+        long refreshStarted = System.nanoTime();
+        LocalDateTime until = LocalDateTime.now().plus(Duration.ofMillis(horizonMillis)).plus(BOOKED_LEAD);
+        Set<Integer> active = new HashSet<>();
+        for (MeetingRepository.MeetingSchedule schedule : meetingRepository.findActiveSchedulesStartingBefore(until)) {
+            active.add(schedule.getMeetingId());
+            schedule(schedule.getMeetingId(), schedule.getRoomId(), schedule.getStartTime(), schedule.getEndTime(),
+                    refreshStarted);
+        }
+        // Cuộc họp không còn active trong database (bị xóa/hủy/sửa tay) thì bỏ các mốc còn lại.
+        // Mốc được thêm trong lúc đang refresh là thông tin mới hơn kết quả query nên giữ lại.
+        scheduled.entrySet().removeIf(entry -> {
+            if (active.contains(entry.getKey()) || entry.getValue().createdNanos() - refreshStarted > 0) {
+                return false;
+            }
+            entry.getValue().cancel();
+            return true;
+        });
+        return scheduled.size();
+    }
+
+    /**
+     * Gọi từ MeetingService sau khi tạo/sửa/hủy/đổi trạng thái cuộc họp.
+     * Các mốc chỉ được cập nhật sau khi transaction commit thành công.
+     */
+    public void onMeetingChanged(Meeting meeting) {
+        Integer meetingId = meeting.getMeetingId();
+        Integer roomId = meeting.getRoom() != null ? meeting.getRoom().getRoomId() : null;
+        LocalDateTime startTime = meeting.getStartTime();
+        LocalDateTime endTime = meeting.getEndTime();
+        BookingStatus status = meeting.getBookingStatus();
+
+        Runnable apply = () -> {
+            if (status == BookingStatus.BOOKED || status == BookingStatus.IN_PROGRESS) {
+                schedule(meetingId, roomId, startTime, endTime, System.nanoTime());
+            } else {
+                unschedule(meetingId);
+            }
+            // Phòng có thể đổi trạng thái ngay (hủy, dời giờ, đổi phòng)
+            if (roomId != null) {
+                submitRoomRecompute(roomId);
+            }
+        };
+
+        TransactionHooks.afterCommit(apply);
+    }
+
+    public void unschedule(Integer meetingId) {
+        Scheduled previous = scheduled.remove(meetingId);
+        if (previous != null) {
+            previous.cancel();
+            if (previous.roomId() != null) {
+                submitRoomRecompute(previous.roomId());
+            }
+        }
+    }
+
+    /**
+     * Thay các mốc của cuộc họp bằng mốc theo giờ mới. {@code observedNanos} là lúc đọc ra các giờ này:
+     * mốc đã được đặt sau thời điểm đó (afterCommit chạy trong lúc refresh() đang query) là thông tin mới hơn
+     * nên được giữ nguyên. Đọc-so sánh-thay nằm trong compute() nên hai luồng không ghi đè nhau.
+     */
+    private void schedule(Integer meetingId, Integer roomId, LocalDateTime startTime, LocalDateTime endTime,
+                          long observedNanos) {
+        if (meetingId == null || startTime == null || endTime == null) {
+            return;
+        }
+        Scheduled[] replaced = new Scheduled[1];
+        scheduled.compute(meetingId, (id, previous) -> {
+            if (previous != null && (previous.sameAs(roomId, startTime, endTime)
+                    || previous.createdNanos() - observedNanos > 0)) {
+                return previous;
+            }
+            replaced[0] = previous;
+
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime horizon = now.plus(Duration.ofMillis(horizonMillis));
+            LocalDateTime bookedAt = startTime.minus(BOOKED_LEAD);
+
+            List<ScheduledFuture<?>> futures = new ArrayList<>(3);
+            if (!bookedAt.isAfter(horizon)) {
+                // Mốc đã qua thì chỉ chạy mốc muộn nhất còn ý nghĩa; executor chạy các mốc trễ theo thứ tự thời gian
+                if (startTime.isAfter(now)) {
+                    futures.add(schedulePhase(id, roomId, Phase.ROOM_BOOKED, bookedAt, now));
+                }
+                if (endTime.isAfter(now)) {
+                    futures.add(schedulePhase(id, roomId, Phase.START, startTime, now));
+                }
+                futures.add(schedulePhase(id, roomId, Phase.END, endTime, now));
+            }
+
+            if (previous != null) {
+                previous.cancel();
+            }
+            // Ngoài horizon: refresh() sẽ nạp lại khi tới gần
+            return futures.isEmpty() ? null : new Scheduled(roomId, startTime, endTime, futures, System.nanoTime());
+        });
+        Scheduled previous = replaced[0];
+        if (previous != null && previous.roomId() != null && !previous.roomId().equals(roomId)) {
+            submitRoomRecompute(previous.roomId());
+        }
+    }
+
+    private ScheduledFuture<?> schedulePhase(Integer meetingId, Integer roomId, Phase phase,
+                                             LocalDateTime at, LocalDateTime now) {
+        long delay = Math.max(0, Duration.between(now, at).toMillis());
+        return executor.schedule(() -> fire(meetingId, roomId, phase, at), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void submitRoomRecompute(Integer roomId) {
+        executor.execute(() -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> recomputeRoomStatus(roomId, LocalDateTime.now()));
+            } catch (Exception e) {
+                System.err.println("Failed to update status of room " + roomId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void fire(Integer meetingId, Integer roomId, Phase phase, LocalDateTime at) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                switch (phase) {
+                    // Điều kiện giờ nằm trong UPDATE: mốc cũ còn chạy sau khi cuộc họp bị dời giờ thì không làm gì
+                    case START -> meetingRepository.markStartedAt(meetingId, at, now);
+                    case END -> meetingRepository.markEndedAt(meetingId, at, now);
+                    case ROOM_BOOKED -> { }
+                }
+                if (phase != Phase.ROOM_BOOKED) {
+                    detailCacheInvalidator.evictMeeting(meetingId);
+                    resourceVersions.onMeetingsChanged(roomId);
+                }
+                if (roomId != null) {
+                    recomputeRoomStatus(roomId, now);
+                }
+            });
+        } catch (Exception e) {
+            // Lần refresh() tiếp theo sẽ thử lại
+            System.err.println("Failed to apply " + phase + " for meeting " + meetingId + ": " + e.getMessage());
+        } finally {
+            if (phase == Phase.END) {
+                // Bỏ theo dõi, trừ khi cuộc họp vừa được dời sang giờ khác
+                scheduled.computeIfPresent(meetingId, (id, entry) -> at.equals(entry.endTime()) ? null : entry);
+            }
+        }
+    }
+
+    /**
+     * Trạng thái phòng suy ra từ lịch: IN_USE nếu đang có họp, BOOKED nếu có họp trong 30 phút tới,
+     * ngược lại AVAILABLE. Phòng MAINTENANCE không bị ghi đè.
+     */
+    void recomputeRoomStatus(Integer roomId, LocalDateTime now) {
+        RoomStatus target;
+        if (meetingRepository.existsOngoingInRoom(roomId, now)) {
+            target = RoomStatus.IN_USE;
+        } else if (meetingRepository.existsStartingInRoomBetween(roomId, now, now.plus(BOOKED_LEAD))) {
+            target = RoomStatus.BOOKED;
+        } else {
+            target = RoomStatus.AVAILABLE;
+        }
+        if (roomRepository.updateScheduledStatus(roomId, target, now) > 0) {
+            detailCacheInvalidator.evictRoom(roomId);
+            roomCatalog.onRoomsChanged();
+        }
+    }
+}
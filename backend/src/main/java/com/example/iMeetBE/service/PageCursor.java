@@ -0,0 +1,40 @@
+package com.example.iMeetBE.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Cursor mờ cho phân trang keyset: hướng (trang sau/trước) và các giá trị khóa của dòng làm mốc,
+ * mã hóa base64url. Client không cần (và không nên) hiểu nội dung.
+ */
+public record PageCursor(boolean backward, List<String> keys) {
+
+    private static final String SEPARATOR = "\u001f";
+
+    public static String encode(boolean backward, Object... keys) {
+        StringBuilder raw = new StringBuilder(backward ? "p" : "n");
+        for (Object key : keys) {
+            raw.append(SEPARATOR).append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException nếu cursor không hợp lệ hoặc không đủ {@code keyCount} khóa
+     */
+    public static PageCursor decode(String token, int keyCount) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+        String[] parts = raw.split(SEPARATOR, -1);
+        if (parts.length != keyCount + 1 || !(parts[0].equals("n") || parts[0].equals("p"))) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+        return new PageCursor(parts[0].equals("p"), Arrays.asList(parts).subList(1, parts.length));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.iMeetBE.service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bộ đếm version theo từng nhóm dữ liệu, dùng làm ETag cho các API danh sách được poll liên tục.
+ * Các phương thức ghi gọi on...Changed trong transaction; bộ đếm chỉ tăng sau khi commit, còn controller đọc
+ * ETag trước khi query nên dữ liệu trả kèm một ETag luôn mới bằng hoặc hơn chính ETag đó.
+ * - devices: mọi thay đổi thiết bị (kể cả trừ/cộng kho).
+ * - meetings theo phòng: generation chung (thay đổi hàng loạt) + bộ đếm riêng của phòng.
+ * - meetings: mọi thay đổi cuộc họp (cho /today).
+ * ETag cuộc họp còn kèm một mốc thời gian (http.etag.meetings-max-age, mặc định 5 phút) vì tên người tổ chức
+ * trong MeetingResponse đổi ở nhiều nơi không đi qua các bộ đếm này.
+ * - calendars: lịch .ics theo phòng/người dùng, không kèm mốc thời gian. Chỉ tăng khi nội dung VEVENT có thể đổi
+ *   (tạo/sửa/hủy cuộc họp, nhận/từ chối lời mời, đổi tên phòng hoặc người dùng); chuyển trạng thái theo giờ
+ *   (IN_PROGRESS, COMPLETED) không làm lịch đổi nên không tăng.
+ * Giống các chỉ mục trong bộ nhớ khác, bộ đếm giả định chỉ có một instance ghi.
+ */
+@Service
+public class ResourceVersions {
+
+    // Bộ đếm bắt đầu lại từ 0 sau mỗi lần khởi động: epoch tránh khớp nhầm ETag cũ
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong devices = new AtomicLong();
+    private final AtomicLong meetings = new AtomicLong();
+    private final AtomicLong meetingsGeneration = new AtomicLong();
+    private final Map<Integer, AtomicLong> meetingsByRoom = new ConcurrentHashMap<>();
+    private final AtomicLong calendarsGeneration = new AtomicLong();
+    private final Map<Integer, AtomicLong> calendarsByRoom = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> calendarsByUser = new ConcurrentHashMap<>();
+
+    @Value("${http.etag.meetings-max-age:300000}")
+    private long meetingsMaxAgeMillis;
+
+    public String roomsTag(long catalogVersion) {
+        return "rooms-" + epoch + "-" + catalogVersion;
+    }
+
+    public String devicesTag() {
+        return "devices-" + epoch + "-" + devices.get();
+    }
+
+    public String meetingsByRoomTag(Integer roomId) {
+        AtomicLong room = meetingsByRoom.get(roomId);
+        return "meetings-room-" + roomId + "-" + epoch + "-" + meetingsGeneration.get() + "."
+            + (room != null ? room.get() : 0) + "-" + meetingsBucket();
+    }
+
+    public String meetingsOnDateTag(LocalDate date) {
+        return "meetings-" + date + "-" + epoch + "-" + meetings.get() + "-" + meetingsBucket();
+    }
+
+    public String roomCalendarTag(Integer roomId) {
+        AtomicLong room = calendarsByRoom.get(roomId);
+        return "ical-room-" + roomId + "-" + epoch + "-" + calendarsGeneration.get() + "." + (room != null ? room.get() : 0);
+    }
+
+    public String userCalendarTag(String userId) {
+        AtomicLong user = calendarsByUser.get(userId);
+        return "ical-user-" + userId + "-" + epoch + "-" + calendarsGeneration.get() + "." + (user != null ? user.get() : 0);
+    }
+
+    public void onDevicesChanged() {
+        TransactionHooks.afterCommit(devices::incrementAndGet);
+    }
+
+    // Cuộc họp trong các phòng này thay đổi (tạo/sửa/hủy/lời mời/trạng thái, hoặc tên/vị trí phòng)
+    public void onMeetingsChanged(Integer... roomIds) {
+        TransactionHooks.afterCommit(() -> {
+            for (Integer roomId : roomIds) {
+                if (roomId != null) {
+                    meetingsByRoom.computeIfAbsent(roomId, id -> new AtomicLong()).incrementAndGet();
+                }
+            }
+            meetings.incrementAndGet();
+        });
+    }
+
+    // Thay đổi hàng loạt không biết phòng nào (job quét trạng thái, sửa bộ đếm)
+    public void onAllMeetingsChanged() {
+        TransactionHooks.afterCommit(() -> {
+            meetingsGeneration.incrementAndGet();
+            meetings.incrementAndGet();
+        });
+    }
+
+    // Lịch .ics của các phòng/người dùng này có thể đã đổi; phần tử null được bỏ qua
+    public void onCalendarsChanged(Collection<Integer> roomIds, Collection<String> userIds) {
+        TransactionHooks.afterCommit(() -> {
+            for (Integer roomId : roomIds) {
+                if (roomId != null) {
+                    calendarsByRoom.computeIfAbsent(roomId, id -> new AtomicLong()).incrementAndGet();
+                }
+            }
+            for (String userId : userIds) {
+                if (userId != null) {
+                    calendarsByUser.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+                }
+            }
+        });
+    }
+
+    // Tên phòng hoặc họ tên/email người dùng đổi: có thể nằm trong bất kỳ lịch nào
+    public void onAllCalendarsChanged() {
+        TransactionHooks.afterCommit(calendarsGeneration::incrementAndGet);
+    }
+
+    private long meetingsBucket() {
+        return System.currentTimeMillis() / Math.max(1, meetingsMaxAgeMillis);
+    }
+}
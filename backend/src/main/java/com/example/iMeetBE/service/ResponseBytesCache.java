@@ -0,0 +1,162 @@
+package com.example.iMeetBE.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache JSON đã serialize sẵn (UTF-8, kèm bản gzip nạp lười) cho các API danh sách đọc nhiều (/api/rooms, /api/devices).
+ * Khóa gồm endpoint + tham số + ETag dữ liệu (xem ResourceVersions) nên không cần evict: dữ liệu đổi thì ETag đổi,
+ * entry cũ không còn được đọc và bị đẩy ra theo LRU (http.response-cache.max-entries, mặc định 256).
+ * Body lớn hơn http.response-cache.max-entry-size (mặc định 1MB) vẫn được serialize nhưng không giữ lại;
+ * body nhỏ hơn http.response-cache.gzip-min-size (mặc định 1KB) không nén vì header gzip lớn hơn phần tiết kiệm.
+ * Dùng chung ObjectMapper của Spring MVC nên bytes giống hệt khi trả ApiResponse qua message converter.
+ * Metrics: http.response.cache.gets{result=hit|miss}, http.response.cache.size.
+ * Đặt http.response-cache.enabled=false để serialize lại mỗi request (để so sánh hoặc khi nghi lỗi cache).
+ */
+@Service
+public class ResponseBytesCache {
+
+    /**
+     * Body JSON dùng chung giữa các request, không được sửa mảng trả ra.
+     * Bản gzip nén ở lần đầu có client nhận gzip; hai request cùng lúc có thể nén trùng nhưng kết quả như nhau.
+     */
+    public static final class Body {
+        private final byte[] json;
+        private final boolean compressible;
+        private volatile byte[] gzip;
+
+        private Body(byte[] json, boolean compressible) {
+            this.json = json;
+            this.compressible = compressible;
+        }
+
+        public byte[] json() {
+            return json;
+        }
+
+        // null nếu body quá nhỏ để nén
+        public byte[] gzip() {
+            if (!compressible) {
+                return null;
+            }
+            byte[] compressed = gzip;
+            if (compressed == null) {
+                compressed = compress(json);
+                gzip = compressed;
+            }
+            return compressed;
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${http.response-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${http.response-cache.max-entry-size:1048576}")
+    private int maxEntrySize;
+
+    @Value("${http.response-cache.gzip-min-size:1024}")
+    private int gzipMinSize;
+
+    private final int maxEntries;
+    private final Map<String, Body> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseBytesCache(@Value("${http.response-cache.max-entries:256}") int maxEntries,
+                              MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Body> eldest) {
+                return size() > ResponseBytesCache.this.maxEntries;
+            }
+        };
+        FunctionCounter.builder("http.response.cache.gets", hits, LongAdder::sum)
+            .description("Số lần đọc cache JSON đã serialize")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        FunctionCounter.builder("http.response.cache.gets", misses, LongAdder::sum)
+            .description("Số lần đọc cache JSON đã serialize")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        // Gauge giữ map (không giữ this) để không lộ this khi constructor chưa chạy xong
+        Gauge.builder("http.response.cache.size", entries, map -> {
+                synchronized (map) {
+                    return map.size();
+                }
+            })
+            .description("Số body JSON đang giữ trong cache")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Body cho khóa (endpoint + tham số + ETag); chưa có thì serialize giá trị từ loader và giữ lại.
+     * Loader chạy ngoài khóa nên hai request trượt cùng lúc có thể cùng serialize, bản sau ghi đè bản trước.
+     */
+    public Body get(String key, Supplier<?> loader) {
+        if (enabled) {
+            Body cached;
+            synchronized (entries) {
+                cached = entries.get(key);
+            }
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        byte[] json = toJson(loader.get());
+        Body body = new Body(json, json.length >= gzipMinSize);
+        if (enabled && body.json.length <= maxEntrySize) {
+            synchronized (entries) {
+                entries.put(key, body);
+            }
+        }
+        return body;
+    }
+
+    // Serialize không qua cache, cho các response lỗi của cùng endpoint
+    public byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không serialize được response: " + e.getMessage(), e);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static byte[] compress(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
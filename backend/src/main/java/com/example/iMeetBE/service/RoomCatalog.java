@@ -0,0 +1,181 @@
+package com.example.iMeetBE.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.iMeetBE.dto.RoomResponse;
+import com.example.iMeetBE.model.RoomStatus;
+import com.example.iMeetBE.repository.RoomRepository;
+
+/**
+ * Danh mục phòng trong bộ nhớ cho các API danh sách phòng (tất cả, theo trạng thái, phòng trống, theo sức chứa).
+ * Mỗi lần phòng thay đổi (RoomService, job/engine trạng thái) dựng lại một {@link Snapshot} bất biến từ database
+ * sau khi commit rồi thay tham chiếu volatile: người đọc không khóa, không query và không tạo list mới.
+ * Mọi danh sách trả ra đều là list không sửa được dùng chung giữa các request; các RoomResponse bên trong cũng
+ * dùng chung nên nơi gọi không được sửa chúng.
+ * Job refresh định kỳ đọc lại danh mục để nhận thay đổi từ instance khác; nếu không có gì đổi thì giữ nguyên version.
+ */
+@Service
+public class RoomCatalog {
+
+    private record Row(Integer roomId, String name, String location, Integer capacity, String description,
+                       RoomStatus status, LocalDateTime createdAt, LocalDateTime updatedAt) { }
+
+    /**
+     * Ảnh chụp bất biến của danh mục. Phòng được sắp thêm theo (sức chứa, tên) kèm mảng sức chứa song song để
+     * tìm nhị phân; fromCapacityIndex[i] là đoạn từ vị trí i tới cuối, dựng sẵn.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final List<Row> rows;
+        private final List<RoomResponse> all;
+        private final Map<RoomStatus, List<RoomResponse>> byStatus;
+        private final int[] capacities;
+        private final List<List<RoomResponse>> fromCapacityIndex;
+
+        private Snapshot(long version, List<Row> rows) {
+            this.version = version;
+            this.rows = rows;
+
+            List<RoomResponse> responses = new ArrayList<>(rows.size());
+            Map<RoomStatus, List<RoomResponse>> grouped = new EnumMap<>(RoomStatus.class);
+            for (RoomStatus status : RoomStatus.values()) {
+                grouped.put(status, new ArrayList<>());
+            }
+            List<Map.Entry<Integer, RoomResponse>> withCapacity = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                RoomResponse response = toResponse(row);
+                responses.add(response);
+                if (row.status() != null) {
+                    grouped.get(row.status()).add(response);
+                }
+                withCapacity.add(Map.entry(row.capacity() != null ? row.capacity() : 0, response));
+            }
+            this.all = List.copyOf(responses);
+            Map<RoomStatus, List<RoomResponse>> frozen = new EnumMap<>(RoomStatus.class);
+            grouped.forEach((status, list) -> frozen.put(status, List.copyOf(list)));
+            this.byStatus = frozen;
+
+            // Sắp ổn định theo sức chứa: cùng sức chứa thì giữ thứ tự tên như rows
+            withCapacity.sort(Map.Entry.comparingByKey(Comparator.naturalOrder()));
+            this.capacities = new int[withCapacity.size()];
+            List<RoomResponse> sorted = new ArrayList<>(withCapacity.size());
+            for (int i = 0; i < withCapacity.size(); i++) {
+                capacities[i] = withCapacity.get(i).getKey();
+                sorted.add(withCapacity.get(i).getValue());
+            }
+            List<RoomResponse> bySize = List.copyOf(sorted);
+            List<List<RoomResponse>> suffixes = new ArrayList<>(bySize.size() + 1);
+            for (int i = 0; i <= bySize.size(); i++) {
+                suffixes.add(bySize.subList(i, bySize.size()));
+            }
+            this.fromCapacityIndex = List.copyOf(suffixes);
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<RoomResponse> all() {
+            return all;
+        }
+
+        public List<RoomResponse> byStatus(RoomStatus status) {
+            return byStatus.getOrDefault(status, List.of());
+        }
+
+        // Các phòng có sức chứa >= minCapacity, sức chứa nhỏ trước
+        public List<RoomResponse> withCapacityAtLeast(int minCapacity) {
+            int low = 0;
+            int high = capacities.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (capacities[mid] < minCapacity) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return fromCapacityIndex.get(low);
+        }
+
+        private static RoomResponse toResponse(Row row) {
+            RoomResponse response = new RoomResponse();
+            response.setRoomId(row.roomId());
+            response.setName(row.name());
+            response.setLocation(row.location());
+            response.setCapacity(row.capacity());
+            response.setDescription(row.description());
+            response.setCreatedAt(row.createdAt());
+            response.setUpdatedAt(row.updatedAt());
+            return response;
+        }
+    }
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Snapshot loaded = rebuild();
+        System.out.println("Room catalog loaded " + loaded.all().size() + " rooms");
+    }
+
+    // Ảnh chụp hiện tại; nạp ngay nếu có request tới trước khi ứng dụng sẵn sàng
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : rebuild();
+    }
+
+    /**
+     * Gọi trong transaction vừa ghi vào bảng rooms: dựng lại danh mục sau khi commit
+     * (ngoài transaction thì dựng lại ngay).
+     */
+    public void onRoomsChanged() {
+        TransactionHooks.afterCommit(this::refresh);
+    }
+
+    // Lưới an toàn cho thay đổi từ instance khác hoặc sửa tay trong database, mặc định mỗi phút
+    @Scheduled(fixedDelayString = "${room.catalog.refresh-interval:60000}",
+               initialDelayString = "${room.catalog.refresh-interval:60000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    // Lỗi khi dựng lại không làm hỏng lệnh ghi đã commit; ảnh chụp cũ được giữ tới lần sau
+    private void refresh() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("Room catalog refresh failed: " + e.getMessage());
+        }
+    }
+
+    // Các lần dựng lại chạy tuần tự nên lần sau luôn đọc thấy dữ liệu đã commit của lần trước
+    private synchronized Snapshot rebuild() {
+        List<Row> rows = new ArrayList<>();
+        for (RoomRepository.CatalogRow row : roomRepository.findAllCatalogRows()) {
+            rows.add(new Row(row.getRoomId(), row.getName(), row.getLocation(), row.getCapacity(),
+                row.getDescription(), row.getStatus(), row.getCreatedAt(), row.getUpdatedAt()));
+        }
+        Snapshot previous = snapshot;
+        if (previous != null && previous.rows.equals(rows)) {
+            return previous;
+        }
+        Snapshot next = new Snapshot(previous != null ? previous.version + 1 : 1, List.copyOf(rows));
+        snapshot = next;
+        return next;
+    }
+}
@@ -10,7 +10,9 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import com.example.iMeetBE.dto.ApiResponse;
 import com.example.iMeetBE.dto.RoomDeviceRequest;
@@ -36,8 +38,12 @@ public class RoomDeviceService {
     @Autowired
     private DeviceRepository deviceRepository;
     
+    @Autowired
+    private DeviceInventoryService deviceInventoryService;
+    
     // Gán thiết bị cho phòng
-    @Transactional(rollbackFor = Exception.class)
+    // READ_COMMITTED: sau khi khóa dòng thiết bị, thấy các lượt mượn vừa được commit
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
     public ApiResponse<RoomDeviceResponse> assignDeviceToRoom(RoomDeviceRequest request) {
         try {
             // Kiểm tra room tồn tại
@@ -60,9 +66,11 @@ public class RoomDeviceService {
                 return ApiResponse.error("Thiết bị đã được gán cho phòng này");
             }
             
-            // Kiểm tra số lượng thiết bị có đủ không (device.quantity đã là số lượng còn lại)
-            if (request.getQuantityAssigned() > device.getQuantity()) {
-                return ApiResponse.error("Số lượng thiết bị không đủ. Hiện còn lại: " + device.getQuantity());
+            // Trừ kho bằng UPDATE có điều kiện (device.quantity là số lượng còn lại)
+            try {
+                deviceInventoryService.reserve(device.getDeviceId(), request.getQuantityAssigned());
+            } catch (DeviceInventoryService.ReservationException e) {
+                return ApiResponse.error(rejectionMessage(e));
             }
             
             RoomDevice roomDevice = new RoomDevice();
@@ -72,20 +80,13 @@ public class RoomDeviceService {
             roomDevice.setNotes(request.getNotes());
             
             RoomDevice savedRoomDevice = roomDeviceRepository.save(roomDevice);
-
-            // Cập nhật số lượng và used_count của thiết bị (trừ đi số lượng đã gán và tăng used_count)
-            Integer assignedVal = request.getQuantityAssigned();
-            int assigned = assignedVal == null ? 0 : assignedVal;
-            Integer currentQtyVal = device.getQuantity();
-            int currentQty = currentQtyVal == null ? 0 : currentQtyVal;
-            device.setQuantity(currentQty - assigned);
-            device.setUsedCount(Math.max(0, (device.getUsedCount() == null ? 0 : device.getUsedCount()) + assigned));
-            deviceRepository.save(device);
             
             RoomDeviceResponse response = convertToResponse(savedRoomDevice);
             
             return ApiResponse.success(response, "Gán thiết bị cho phòng thành công");
         } catch (Exception e) {
+            // Không để lại phần kho đã trừ khi ghi gán thiết bị lỗi
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return ApiResponse.error("Lỗi khi gán thiết bị cho phòng: " + e.getMessage());
         }
     }
@@ -122,6 +123,7 @@ public class RoomDeviceService {
     }
     
     // Cập nhật gán thiết bị
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public ApiResponse<RoomDeviceResponse> updateRoomDevice(Long id, RoomDeviceRequest request) {
         try {
             Optional<RoomDevice> roomDeviceOpt = roomDeviceRepository.findById(id);
@@ -138,9 +140,16 @@ public class RoomDeviceService {
             // Tính chênh lệch số lượng
             int quantityDifference = (newQuantity == 0 ? 0 : newQuantity) - oldQuantity;
             
-            // Kiểm tra số lượng thiết bị có đủ không (nếu tăng số lượng)
-            if (quantityDifference > 0 && quantityDifference > roomDevice.getDevice().getQuantity()) {
-                return ApiResponse.error("Số lượng thiết bị không đủ. Hiện còn lại: " + roomDevice.getDevice().getQuantity());
+            // Tăng số lượng: trừ thêm phần chênh lệch (từ chối nếu không đủ); giảm: cộng lại vào kho
+            Long deviceId = roomDevice.getDevice().getDeviceId();
+            if (quantityDifference > 0) {
+                try {
+                    deviceInventoryService.reserve(deviceId, quantityDifference);
+                } catch (DeviceInventoryService.ReservationException e) {
+                    return ApiResponse.error(rejectionMessage(e));
+                }
+            } else if (quantityDifference < 0) {
+                deviceInventoryService.release(deviceId, -quantityDifference);
             }
             
             roomDevice.setQuantityAssigned(newQuantity);
@@ -148,21 +157,11 @@ public class RoomDeviceService {
             
             RoomDevice savedRoomDevice = roomDeviceRepository.save(roomDevice);
             
-            // Cập nhật số lượng và used_count thiết bị trong database
-            // Nếu quantityDifference > 0: trừ thêm và tăng used_count
-            // Nếu quantityDifference < 0: cộng lại và giảm used_count
-            Device device = roomDevice.getDevice();
-            device.setQuantity(device.getQuantity() - quantityDifference);
-            Integer usedCountVal = device.getUsedCount();
-            int currentUsed = usedCountVal == null ? 0 : usedCountVal;
-            int newUsed = currentUsed + quantityDifference; // quantityDifference âm sẽ giảm used_count
-            device.setUsedCount(Math.max(0, newUsed));
-            deviceRepository.save(device);
-            
             RoomDeviceResponse response = convertToResponse(savedRoomDevice);
             
             return ApiResponse.success(response, "Cập nhật gán thiết bị thành công");
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return ApiResponse.error("Lỗi khi cập nhật gán thiết bị: " + e.getMessage());
         }
     }
@@ -176,23 +175,16 @@ public class RoomDeviceService {
             }
             
             RoomDevice roomDevice = roomDeviceOpt.get();
-            int quantityToReturn = roomDevice.getQuantityAssigned();
-            Device device = roomDevice.getDevice();
             
             // Cộng lại số lượng thiết bị trong database TRƯỚC khi xóa và giảm used_count tương ứng
-            Integer oldQuantityVal = device.getQuantity();
-            int oldQuantity = oldQuantityVal == null ? 0 : oldQuantityVal;
-            device.setQuantity(oldQuantity + quantityToReturn);
-            Integer currentUsedVal = device.getUsedCount();
-            int currentUsed = currentUsedVal == null ? 0 : currentUsedVal;
-            device.setUsedCount(Math.max(0, currentUsed - quantityToReturn));
-            deviceRepository.save(device);
+            deviceInventoryService.release(roomDevice.getDevice().getDeviceId(), roomDevice.getQuantityAssigned());
             
             // Xóa gán thiết bị
             roomDeviceRepository.deleteById(id);
             
             return ApiResponse.success(null, "Xóa gán thiết bị thành công");
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return ApiResponse.error("Lỗi khi xóa gán thiết bị: " + e.getMessage());
         }
     }
@@ -289,6 +281,13 @@ public class RoomDeviceService {
         }
     }
     
+    private static String rejectionMessage(DeviceInventoryService.ReservationException e) {
+        if (e.getReason() == DeviceInventoryService.RejectReason.INSUFFICIENT_QUANTITY) {
+            return "Số lượng thiết bị không đủ. Hiện còn lại: " + e.getAvailable();
+        }
+        return "Không thể giữ thiết bị: " + e.getMessage();
+    }
+    
     // Chuyển đổi từ Entity sang Response
     private RoomDeviceResponse convertToResponse(RoomDevice roomDevice) {
         return new RoomDeviceResponse(roomDevice);
@@ -0,0 +1,208 @@
+package com.example.iMeetBE.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.iMeetBE.model.BookingStatus;
+import com.example.iMeetBE.model.Meeting;
+import com.example.iMeetBE.repository.MeetingRepository;
+
+/**
+ * Chỉ mục trong bộ nhớ các khoảng thời gian đã đặt (chưa hủy) theo từng phòng, dùng để trả lời
+ * kiểm tra trùng lịch / phòng trống mà không cần query database.
+ * Mỗi phòng là một skip list sắp theo giờ bắt đầu, kèm thời lượng dài nhất của phòng đó: các cuộc họp
+ * có thể overlap [start, end) chỉ nằm trong đoạn giờ bắt đầu (start - thời lượng dài nhất, end).
+ * Chỉ mục chỉ chứa các cuộc họp kết thúc sau {@code coveredFrom}; truy vấn trước mốc đó trả về
+ * {@link Optional#empty()} để service quay về query database. Job {@link #prune()} dời mốc này theo thời gian
+ * và bỏ các cuộc họp đã kết thúc trước mốc, để chỉ mục không lớn dần theo lịch sử đặt phòng.
+ */
+@Service
+public class RoomScheduleIndex {
+
+    private record Slot(LocalDateTime startTime, int meetingId) implements Comparable<Slot> {
+        @Override
+        public int compareTo(Slot other) {
+            int byStart = startTime.compareTo(other.startTime);
+            return byStart != 0 ? byStart : Integer.compare(meetingId, other.meetingId);
+        }
+    }
+
+    private record Booking(int meetingId, int roomId, LocalDateTime startTime, LocalDateTime endTime) { }
+
+    private static final class RoomTimeline {
+        private final NavigableMap<Slot, Booking> bookings = new ConcurrentSkipListMap<>();
+        // Chỉ tăng, đủ để giới hạn đoạn cần duyệt
+        private final AtomicLong maxDurationSeconds = new AtomicLong();
+
+        void add(Booking booking) {
+            bookings.put(new Slot(booking.startTime(), booking.meetingId()), booking);
+            long seconds = Duration.between(booking.startTime(), booking.endTime()).getSeconds();
+            maxDurationSeconds.accumulateAndGet(seconds, Math::max);
+        }
+
+        // Chỉ xóa đúng bản ghi này: slot có thể vừa bị ghi đè bởi bản sửa cùng giờ bắt đầu
+        void remove(Booking booking) {
+            bookings.remove(new Slot(booking.startTime(), booking.meetingId()), booking);
+        }
+
+        Booking findOverlap(LocalDateTime start, LocalDateTime end, Integer excludeMeetingId) {
+            Slot from = new Slot(start.minusSeconds(maxDurationSeconds.get()), Integer.MIN_VALUE);
+            Slot to = new Slot(end, Integer.MIN_VALUE);
+            for (Booking booking : bookings.subMap(from, true, to, false).values()) {
+                if (booking.endTime().isAfter(start)
+                        && (excludeMeetingId == null || booking.meetingId() != excludeMeetingId)) {
+                    return booking;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Autowired
+    private MeetingRepository meetingRepository;
+
+    // Chỉ nạp các cuộc họp kết thúc trong khoảng này trở về trước (mặc định 30 ngày)
+    @Value("${meeting.index.history:2592000000}")
+    private long historyMillis;
+
+    private final Map<Integer, RoomTimeline> timelines = new ConcurrentHashMap<>();
+    private final Map<Integer, Booking> byMeetingId = new ConcurrentHashMap<>();
+
+    // null cho tới khi nạp xong
+    private volatile LocalDateTime coveredFrom;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LocalDateTime from = LocalDateTime.now().minus(Duration.ofMillis(historyMillis));
+        int loaded = 0;
+        for (MeetingRepository.MeetingSchedule schedule : meetingRepository.findNonCancelledSchedulesEndingAfter(from)) {
+            if (schedule.getRoomId() != null && schedule.getStartTime() != null && schedule.getEndTime() != null) {
+                // Thay đổi đến trong lúc nạp (đã ghi vào chỉ mục) mới hơn kết quả query
+                byMeetingId.computeIfAbsent(schedule.getMeetingId(), id -> {
+                    Booking booking = new Booking(id, schedule.getRoomId(), schedule.getStartTime(), schedule.getEndTime());
+                    timeline(booking.roomId()).add(booking);
+                    return booking;
+                });
+                loaded++;
+            }
+        }
+        coveredFrom = from;
+        System.out.println("Room schedule index loaded " + loaded + " meetings");
+    }
+
+    /**
+     * Dời {@code coveredFrom} lên now - meeting.index.history và bỏ các cuộc họp kết thúc trước mốc mới.
+     * Dời mốc trước rồi mới xóa: truy vấn bắt đầu từ mốc mới không thể trùng với cuộc họp đã kết thúc trước đó,
+     * nên không có lúc chỉ mục trả lời sai.
+     */
+    @Scheduled(fixedDelayString = "${meeting.index.prune-interval:3600000}",
+               initialDelayString = "${meeting.index.prune-interval:3600000}")
+    public void prune() {
+        LocalDateTime current = coveredFrom;
+        if (current == null) {
+            return;
+        }
+        LocalDateTime from = LocalDateTime.now().minus(Duration.ofMillis(historyMillis));
+        if (!from.isAfter(current)) {
+            return;
+        }
+        coveredFrom = from;
+
+        int removed = 0;
+        for (Booking booking : byMeetingId.values()) {
+            // remove(key, value): bỏ qua cuộc họp vừa được sửa sau khi duyệt tới
+            if (!booking.endTime().isAfter(from) && byMeetingId.remove(booking.meetingId(), booking)) {
+                timeline(booking.roomId()).remove(booking);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            System.out.println("Room schedule index pruned " + removed + " meetings ended before " + from);
+        }
+    }
+
+    /**
+     * Phòng có trống trong [start, end) không, loại trừ excludeMeetingId (khi sửa cuộc họp).
+     *
+     * @return empty nếu chỉ mục chưa nạp xong hoặc khoảng thời gian nằm ngoài phạm vi chỉ mục
+     */
+    public Optional<Boolean> isAvailable(Integer roomId, LocalDateTime start, LocalDateTime end, Integer excludeMeetingId) {
+        if (!covers(start)) {
+            return Optional.empty();
+        }
+        return Optional.of(findConflictId(roomId, start, end, excludeMeetingId) == null);
+    }
+
+    /**
+     * Id một cuộc họp trùng lịch trong [start, end), hoặc null nếu không có.
+     * Chỉ dùng sau khi {@link #covers(LocalDateTime)} trả về true.
+     */
+    public Integer findConflictId(Integer roomId, LocalDateTime start, LocalDateTime end, Integer excludeMeetingId) {
+        RoomTimeline timeline = timelines.get(roomId);
+        if (timeline == null) {
+            return null;
+        }
+        Booking conflict = timeline.findOverlap(start, end, excludeMeetingId);
+        return conflict != null ? conflict.meetingId() : null;
+    }
+
+    public boolean covers(LocalDateTime start) {
+        LocalDateTime from = coveredFrom;
+        return from != null && !start.isBefore(from);
+    }
+
+    /**
+     * Gọi từ MeetingService sau khi tạo/sửa/hủy/đổi trạng thái cuộc họp; áp dụng sau khi commit.
+     */
+    public void onMeetingChanged(Meeting meeting) {
+        Integer meetingId = meeting.getMeetingId();
+        Integer roomId = meeting.getRoom() != null ? meeting.getRoom().getRoomId() : null;
+        LocalDateTime startTime = meeting.getStartTime();
+        LocalDateTime endTime = meeting.getEndTime();
+        boolean active = meeting.getBookingStatus() != BookingStatus.CANCELLED;
+
+        Runnable apply = () -> {
+            if (active && roomId != null && startTime != null && endTime != null) {
+                put(new Booking(meetingId, roomId, startTime, endTime));
+            } else {
+                remove(meetingId);
+            }
+        };
+
+        TransactionHooks.afterCommit(apply);
+    }
+
+    private void put(Booking booking) {
+        // Thêm trước, xóa bản cũ sau để không có lúc cuộc họp biến mất khỏi chỉ mục
+        timeline(booking.roomId()).add(booking);
+        Booking previous = byMeetingId.put(booking.meetingId(), booking);
+        if (previous != null && (previous.roomId() != booking.roomId()
+                || !previous.startTime().equals(booking.startTime()))) {
+            timeline(previous.roomId()).remove(previous);
+        }
+    }
+
+    private void remove(Integer meetingId) {
+        Booking previous = byMeetingId.remove(meetingId);
+        if (previous != null) {
+            timeline(previous.roomId()).remove(previous);
+        }
+    }
+
+    private RoomTimeline timeline(int roomId) {
+        return timelines.computeIfAbsent(roomId, id -> new RoomTimeline());
+    }
+}
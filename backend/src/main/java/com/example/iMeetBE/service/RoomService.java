@@ -5,9 +5,13 @@ import java.util.Optional;
 import java.time.LocalDateTime;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.iMeetBE.config.CacheConfig;
 import com.example.iMeetBE.dto.RoomRequest;
 import com.example.iMeetBE.model.Room;
 import com.example.iMeetBE.model.RoomStatus;
@@ -19,29 +23,32 @@ public class RoomService {
     
     @Autowired
     private RoomRepository roomRepository;
+
+    @Autowired
+    private RoomScheduleIndex roomScheduleIndex;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private RoomCatalog roomCatalog;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
     
-    public List<Room> getAllRooms() {
-        return roomRepository.findAllOrderByName();
-    }
-    
+    @Cacheable(cacheNames = CacheConfig.ROOMS, key = "#roomId", unless = "#result == null")
     public Optional<Room> getRoomById(Integer roomId) {
         return roomRepository.findById(roomId);
     }
     
-    public List<Room> getRoomsByStatus(RoomStatus status) {
-        return roomRepository.findByStatusOrderByName(status);
-    }
-    
-    public List<Room> getAvailableRooms() {
-        return roomRepository.findByStatusOrderByName(RoomStatus.AVAILABLE);
-    }
-
     public List<Room> getAvailableRoomsInRange(LocalDateTime startTime, LocalDateTime endTime) {
-        return roomRepository.findAvailableInRange(startTime, endTime);
-    }
-    
-    public List<Room> getRoomsByCapacity(Integer minCapacity) {
-        return roomRepository.findByCapacityGreaterThanEqual(minCapacity);
+        // Lọc bằng chỉ mục lịch trong bộ nhớ; ngoài phạm vi chỉ mục thì dùng query NOT EXISTS
+        if (!roomScheduleIndex.covers(startTime)) {
+            return roomRepository.findAvailableInRange(startTime, endTime);
+        }
+        return roomRepository.findAllOrderByName().stream()
+            .filter(room -> roomScheduleIndex.findConflictId(room.getRoomId(), startTime, endTime, null) == null)
+            .toList();
     }
     
     public Room createRoom(RoomRequest roomRequest) {
@@ -57,9 +64,17 @@ public class RoomService {
         room.setDescription(roomRequest.getDescription());
         room.setStatus(RoomStatus.AVAILABLE);
         
-        return roomRepository.save(room);
+        Room saved = roomRepository.save(room);
+        searchIndex.onRoomChanged(saved);
+        roomCatalog.onRoomsChanged();
+        return saved;
     }
     
+    // Tên/vị trí phòng có trong MeetingResponse nên bỏ luôn cache cuộc họp
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.ROOMS, key = "#roomId"),
+        @CacheEvict(cacheNames = CacheConfig.MEETINGS, allEntries = true)
+    })
     public Room updateRoom(Integer roomId, RoomRequest roomRequest) {
         Room room = roomRepository.findById(roomId)
             .orElseThrow(() -> new RuntimeException("Không tìm thấy phòng với ID: " + roomId));
@@ -75,22 +90,40 @@ public class RoomService {
         room.setCapacity(roomRequest.getCapacity());
         room.setDescription(roomRequest.getDescription());
         
-        return roomRepository.save(room);
+        Room saved = roomRepository.save(room);
+        searchIndex.onRoomChanged(saved);
+        roomCatalog.onRoomsChanged();
+        resourceVersions.onMeetingsChanged(roomId);
+        // Tên/vị trí phòng có trong VEVENT của cả lịch người dùng
+        resourceVersions.onAllCalendarsChanged();
+        return saved;
     }
     
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.ROOMS, key = "#roomId"),
+        @CacheEvict(cacheNames = CacheConfig.MEETINGS, allEntries = true)
+    })
     public void deleteRoom(Integer roomId) {
         if (!roomRepository.existsById(roomId)) {
             throw new RuntimeException("Không tìm thấy phòng với ID: " + roomId);
         }
         roomRepository.deleteById(roomId);
+        searchIndex.onRoomDeleted(roomId);
+        roomCatalog.onRoomsChanged();
+        resourceVersions.onMeetingsChanged(roomId);
+        // Cuộc họp của phòng có thể nằm trong lịch người dùng
+        resourceVersions.onAllCalendarsChanged();
     }
     
+    @CacheEvict(cacheNames = CacheConfig.ROOMS, key = "#roomId")
     public Room updateRoomStatus(Integer roomId, RoomStatus status) {
         Room room = roomRepository.findById(roomId)
             .orElseThrow(() -> new RuntimeException("Không tìm thấy phòng với ID: " + roomId));
         
         room.setStatus(status);
-        return roomRepository.save(room);
+        Room saved = roomRepository.save(room);
+        roomCatalog.onRoomsChanged();
+        return saved;
     }
     
     public List<Room> searchRooms(String searchTerm) {
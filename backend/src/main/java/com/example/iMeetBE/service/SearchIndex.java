@@ -0,0 +1,381 @@
+package com.example.iMeetBE.service;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.iMeetBE.dto.SearchResponse;
+import com.example.iMeetBE.model.BookingStatus;
+import com.example.iMeetBE.model.Device;
+import com.example.iMeetBE.model.Meeting;
+import com.example.iMeetBE.model.Room;
+import com.example.iMeetBE.repository.DeviceRepository;
+import com.example.iMeetBE.repository.MeetingRepository;
+import com.example.iMeetBE.repository.RoomRepository;
+
+/**
+ * Chỉ mục full-text trong bộ nhớ cho cuộc họp, phòng và thiết bị, thay cho các query LIKE %term%.
+ * Văn bản được bỏ dấu tiếng Việt và viết thường, tách thành từ; mỗi từ được đưa vào inverted index theo
+ * trigram (tìm chuỗi con) và theo tiền tố 1-2 ký tự (cho từ khóa ngắn lúc đang gõ). Khi tìm, tập ứng viên là
+ * giao của các posting list, sau đó kiểm tra lại trên văn bản đã chuẩn hóa và chấm điểm:
+ * trùng cả từ &gt; tiền tố của từ &gt; chuỗi con, trường chính (tiêu đề/tên) nặng hơn trường phụ.
+ * Nạp lúc khởi động; các thay đổi từ service được áp dụng sau khi commit. Cuộc họp đã hủy không nằm trong chỉ mục;
+ * cuộc họp kết thúc trước search.index.meeting-history bị job {@link #pruneMeetings()} bỏ ra định kỳ.
+ */
+@Service
+public class SearchIndex {
+
+    public enum Type { MEETING, ROOM, DEVICE }
+
+    private record Key(Type type, long id) { }
+
+    // endTime chỉ có ở cuộc họp, dùng để bỏ cuộc họp cũ khỏi chỉ mục
+    private record Doc(Key key, String title, String subtitle, LocalDateTime startTime, LocalDateTime endTime,
+                       String primary, String secondary, Set<String> grams) { }
+
+    private record Hit(Doc doc, double score) { }
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final double PRIMARY_WEIGHT = 3.0;
+    private static final double SECONDARY_WEIGHT = 1.0;
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private MeetingRepository meetingRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    // Chỉ nạp các cuộc họp kết thúc trong khoảng này trở về trước (mặc định 180 ngày); cuộc họp tương lai luôn có
+    @Value("${search.index.meeting-history:15552000000}")
+    private long meetingHistoryMillis;
+
+    private final Map<Key, Doc> docs = new ConcurrentHashMap<>();
+    private final Map<String, Set<Key>> postings = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LocalDateTime from = LocalDateTime.now().minus(Duration.ofMillis(meetingHistoryMillis));
+        for (MeetingRepository.MeetingSearchRow row : meetingRepository.findSearchRowsEndingAfter(from)) {
+            putIfAbsent(meetingDoc(row.getMeetingId(), row.getTitle(), row.getDescription(),
+                row.getStartTime(), row.getEndTime()));
+        }
+        for (Room room : roomRepository.findAll()) {
+            putIfAbsent(roomDoc(room));
+        }
+        for (Device device : deviceRepository.findAll()) {
+            putIfAbsent(deviceDoc(device));
+        }
+        System.out.println("Search index loaded " + docs.size() + " documents, " + postings.size() + " grams");
+    }
+
+    /**
+     * Bỏ các cuộc họp kết thúc trước now - search.index.meeting-history: giới hạn lúc nạp không đủ
+     * vì chỉ mục còn nhận thêm cuộc họp mới trong suốt thời gian chạy.
+     */
+    @Scheduled(fixedDelayString = "${search.index.prune-interval:3600000}",
+               initialDelayString = "${search.index.prune-interval:3600000}")
+    public void pruneMeetings() {
+        LocalDateTime from = meetingWindowStart();
+        int removed = 0;
+        for (Doc doc : docs.values()) {
+            if (doc.endTime() != null && !doc.endTime().isAfter(from) && removeIfSame(doc)) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            System.out.println("Search index pruned " + removed + " meetings ended before " + from);
+        }
+    }
+
+    /**
+     * Tìm theo từ khóa; mọi từ trong query đều phải khớp. Facet đếm trên tất cả các loại,
+     * hit chỉ gồm các loại trong {@code types} (null/rỗng là tất cả).
+     */
+    public SearchResponse search(String query, Set<Type> types, Integer limit) {
+        int max = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        Set<Type> wanted = types == null || types.isEmpty() ? EnumSet.allOf(Type.class) : types;
+        List<String> terms = tokenize(fold(query));
+
+        Map<String, Integer> facets = new LinkedHashMap<>();
+        for (Type type : Type.values()) {
+            facets.put(type.name(), 0);
+        }
+        if (terms.isEmpty()) {
+            return new SearchResponse(query, List.of(), facets, 0);
+        }
+
+        Map<Type, Integer> counts = new EnumMap<>(Type.class);
+        List<Hit> hits = new ArrayList<>();
+        for (Key key : candidates(terms)) {
+            Doc doc = docs.get(key);
+            if (doc == null) {
+                continue;
+            }
+            double score = score(doc, terms);
+            if (score <= 0) {
+                continue;
+            }
+            counts.merge(key.type(), 1, Integer::sum);
+            if (wanted.contains(key.type())) {
+                hits.add(new Hit(doc, score));
+            }
+        }
+        counts.forEach((type, count) -> facets.put(type.name(), count));
+
+        hits.sort(Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(hit -> hit.doc().title().length())
+            .thenComparing(hit -> hit.doc().key().type())
+            .thenComparingLong(hit -> hit.doc().key().id()));
+        List<SearchResponse.SearchHit> page = hits.stream()
+            .limit(max)
+            .map(hit -> new SearchResponse.SearchHit(hit.doc().key().type().name(), hit.doc().key().id(),
+                hit.doc().title(), hit.doc().subtitle(), hit.doc().startTime(), hit.score()))
+            .toList();
+        return new SearchResponse(query, page, facets, hits.size());
+    }
+
+    /**
+     * Gọi sau khi tạo/sửa/hủy/đổi trạng thái cuộc họp. Cuộc họp đã hủy hoặc đã ra khỏi khoảng lịch sử
+     * được bỏ khỏi chỉ mục.
+     */
+    public void onMeetingChanged(Meeting meeting) {
+        Key key = new Key(Type.MEETING, meeting.getMeetingId());
+        LocalDateTime endTime = meeting.getEndTime();
+        if (meeting.getBookingStatus() == BookingStatus.CANCELLED
+                || endTime != null && !endTime.isAfter(meetingWindowStart())) {
+            TransactionHooks.afterCommit(() -> remove(key));
+            return;
+        }
+        Doc doc = meetingDoc(meeting.getMeetingId(), meeting.getTitle(), meeting.getDescription(),
+            meeting.getStartTime(), endTime);
+        TransactionHooks.afterCommit(() -> put(doc));
+    }
+
+    public void onRoomChanged(Room room) {
+        Doc doc = roomDoc(room);
+        TransactionHooks.afterCommit(() -> put(doc));
+    }
+
+    public void onRoomDeleted(Integer roomId) {
+        TransactionHooks.afterCommit(() -> remove(new Key(Type.ROOM, roomId)));
+    }
+
+    public void onDeviceChanged(Device device) {
+        Doc doc = deviceDoc(device);
+        TransactionHooks.afterCommit(() -> put(doc));
+    }
+
+    public void onDeviceDeleted(Long deviceId) {
+        TransactionHooks.afterCommit(() -> remove(new Key(Type.DEVICE, deviceId)));
+    }
+
+    /**
+     * Viết thường, bỏ dấu (kể cả đ/Đ) để "phòng họp" khớp với "phong hop".
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.replace('đ', 'd').replace('Đ', 'D'), Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase();
+    }
+
+    private static List<String> tokenize(String folded) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Trigram cho chuỗi con; "^" + 1-2 ký tự đầu cho từ khóa ngắn (chỉ khớp đầu từ)
+    private static void addGrams(String token, Set<String> grams) {
+        grams.add("^" + token.substring(0, 1));
+        if (token.length() >= 2) {
+            grams.add("^" + token.substring(0, 2));
+        }
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            grams.add(token.substring(i, i + 3));
+        }
+    }
+
+    private static Set<String> queryGrams(String term) {
+        Set<String> grams = new HashSet<>();
+        if (term.length() < 3) {
+            grams.add("^" + term);
+        } else {
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                grams.add(term.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    // Giao các posting list, bắt đầu từ list ngắn nhất
+    private Collection<Key> candidates(List<String> terms) {
+        List<Set<Key>> lists = new ArrayList<>();
+        for (String term : terms) {
+            for (String gram : queryGrams(term)) {
+                Set<Key> keys = postings.get(gram);
+                if (keys == null || keys.isEmpty()) {
+                    return List.of();
+                }
+                lists.add(keys);
+            }
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Key> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private static double score(Doc doc, List<String> terms) {
+        double total = 0;
+        for (String term : terms) {
+            double best = Math.max(PRIMARY_WEIGHT * matchQuality(doc.primary(), term),
+                                   SECONDARY_WEIGHT * matchQuality(doc.secondary(), term));
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    // 3: trùng cả từ, 2: tiền tố của từ, 1: chuỗi con, 0: không có (từ khóa 1-2 ký tự chỉ tính đầu từ)
+    private static int matchQuality(String text, String term) {
+        int best = 0;
+        for (int at = text.indexOf(term); at >= 0; at = text.indexOf(term, at + 1)) {
+            boolean wordStart = at == 0 || !Character.isLetterOrDigit(text.charAt(at - 1));
+            int end = at + term.length();
+            boolean wordEnd = end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+            int quality = wordStart ? (wordEnd ? 3 : 2) : (term.length() >= 3 ? 1 : 0);
+            if (quality > best) {
+                best = quality;
+                if (best == 3) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private LocalDateTime meetingWindowStart() {
+        return LocalDateTime.now().minus(Duration.ofMillis(meetingHistoryMillis));
+    }
+
+    private static Doc meetingDoc(Integer meetingId, String title, String description,
+                                  LocalDateTime startTime, LocalDateTime endTime) {
+        return doc(new Key(Type.MEETING, meetingId), title, null, startTime, endTime, title, description);
+    }
+
+    private static Doc roomDoc(Room room) {
+        String secondary = join(room.getLocation(), room.getDescription());
+        return doc(new Key(Type.ROOM, room.getRoomId()), room.getName(), room.getLocation(), null, null,
+            room.getName(), secondary);
+    }
+
+    private static Doc deviceDoc(Device device) {
+        String type = device.getDeviceType() != null ? device.getDeviceType().name() : null;
+        return doc(new Key(Type.DEVICE, device.getDeviceId()), device.getName(), type, null, null,
+            device.getName(), join(type, device.getDescription()));
+    }
+
+    private static Doc doc(Key key, String title, String subtitle, LocalDateTime startTime, LocalDateTime endTime,
+                           String primaryText, String secondaryText) {
+        String primary = fold(primaryText);
+        String secondary = fold(secondaryText);
+        Set<String> grams = new HashSet<>();
+        for (String token : tokenize(primary)) {
+            addGrams(token, grams);
+        }
+        for (String token : tokenize(secondary)) {
+            addGrams(token, grams);
+        }
+        return new Doc(key, title != null ? title : "", subtitle, startTime, endTime, primary, secondary,
+            Set.copyOf(grams));
+    }
+
+    private static String join(String first, String second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null ? first : first + " " + second;
+    }
+
+    // Lúc nạp: không ghi đè bản mới hơn đã được áp dụng từ một thay đổi đến trong lúc nạp
+    private synchronized void putIfAbsent(Doc doc) {
+        if (!docs.containsKey(doc.key())) {
+            put(doc);
+        }
+    }
+
+    // Ghi tuần tự; đọc không khóa (ứng viên lệch tạm thời bị loại ở bước kiểm tra lại văn bản)
+    private synchronized void put(Doc doc) {
+        for (String gram : doc.grams()) {
+            postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(doc.key());
+        }
+        Doc previous = docs.put(doc.key(), doc);
+        if (previous != null) {
+            unlink(previous, doc.grams());
+        }
+    }
+
+    private synchronized void remove(Key key) {
+        Doc previous = docs.remove(key);
+        if (previous != null) {
+            unlink(previous, Set.of());
+        }
+    }
+
+    // Chỉ bỏ đúng bản này: bản mới hơn ghi sau khi job prune đọc thì giữ lại
+    private synchronized boolean removeIfSame(Doc doc) {
+        if (!docs.remove(doc.key(), doc)) {
+            return false;
+        }
+        unlink(doc, Set.of());
+        return true;
+    }
+
+    private void unlink(Doc previous, Set<String> keep) {
+        for (String gram : previous.grams()) {
+            if (!keep.contains(gram)) {
+                postings.computeIfPresent(gram, (g, keys) -> {
+                    keys.remove(previous.key());
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+        }
+    }
+}
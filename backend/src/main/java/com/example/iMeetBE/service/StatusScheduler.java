@@ -1,22 +1,26 @@
 package com.example.iMeetBE.service;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.example.iMeetBE.model.BookingStatus;
-import com.example.iMeetBE.model.Meeting;
-import com.example.iMeetBE.model.Room;
-import com.example.iMeetBE.model.RoomStatus;
 import com.example.iMeetBE.repository.MeetingRepository;
 import com.example.iMeetBE.repository.RoomRepository;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Các chuyển trạng thái đúng giờ do MeetingStatusEngine đảm nhiệm. Job này chỉ là lưới an toàn:
+ * chạy vài câu UPDATE hàng loạt (chỉ ghi các dòng thực sự đổi trạng thái) rồi nạp lại horizon của engine.
+ * Thời gian mỗi lần chạy và số dòng bị đổi được đưa lên actuator (meeting.status.sweep*).
+ */
 @Service
 public class StatusScheduler {
 
@@ -26,68 +30,79 @@ public class StatusScheduler {
     @Autowired
     private RoomRepository roomRepository;
 
-    // Chạy mỗi phút
-    @Scheduled(fixedRate = 60_000)
-    @Transactional
+    @Autowired
+    private MeetingStatusEngine meetingStatusEngine;
+
+    @Autowired
+    private DetailCacheInvalidator detailCacheInvalidator;
+
+    @Autowired
+    private RoomCatalog roomCatalog;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Timer sweepTimer;
+
+    // Số dòng bị đổi ở lần chạy gần nhất
+    private final AtomicInteger meetingsStarted = new AtomicInteger();
+    private final AtomicInteger meetingsEnded = new AtomicInteger();
+    private final AtomicInteger roomsInUse = new AtomicInteger();
+    private final AtomicInteger roomsBooked = new AtomicInteger();
+    private final AtomicInteger roomsReleased = new AtomicInteger();
+    private final AtomicInteger trackedMeetings = new AtomicInteger();
+
+    public StatusScheduler(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sweepTimer = Timer.builder("meeting.status.sweep")
+                .description("Thời gian một lần quét trạng thái cuộc họp/phòng")
+                .register(meterRegistry);
+        registerRowGauge(meterRegistry, "meeting_started", meetingsStarted);
+        registerRowGauge(meterRegistry, "meeting_completed", meetingsEnded);
+        registerRowGauge(meterRegistry, "room_in_use", roomsInUse);
+        registerRowGauge(meterRegistry, "room_booked", roomsBooked);
+        registerRowGauge(meterRegistry, "room_available", roomsReleased);
+        Gauge.builder("meeting.status.engine.tracked", trackedMeetings, AtomicInteger::get)
+                .description("Số cuộc họp MeetingStatusEngine đang giữ timer")
+                .register(meterRegistry);
+    }
+
+    private static void registerRowGauge(MeterRegistry registry, String transition, AtomicInteger value) {
+        Gauge.builder("meeting.status.sweep.rows", value, AtomicInteger::get)
+                .description("Số dòng đổi trạng thái ở lần quét gần nhất")
+                .tag("transition", transition)
+                .register(registry);
+    }
+
+    // Mặc định 5 phút một lần
+    @Scheduled(fixedDelayString = "${meeting.status.reconcile-interval:300000}",
+               initialDelayString = "${meeting.status.reconcile-interval:300000}")
     public void updateStatuses() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime in30Min = now.plusMinutes(30);
-
-        // 1) 30 phút trước khi bắt đầu => set phòng BOOKED
-        List<Meeting> startingSoon = meetingRepository.findStartingBetween(now, in30Min);
-        Set<Integer> roomsBookedSoon = new HashSet<>();
-        for (Meeting m : startingSoon) {
-            Room room = m.getRoom();
-            if (room != null) {
-                roomsBookedSoon.add(room.getRoomId());
-                if (room.getStatus() != RoomStatus.BOOKED && room.getStatus() != RoomStatus.IN_USE) {
-                    room.setStatus(RoomStatus.BOOKED);
-                    roomRepository.save(room);
-                }
-            }
-        }
-
-        // 2) Đang diễn ra => meeting IN_PROGRESS, phòng IN_USE
-        List<Meeting> ongoing = meetingRepository.findOngoing(now);
-        Set<Integer> roomsInUse = new HashSet<>();
-        List<Meeting> meetingsToSave = new java.util.ArrayList<>();
-        for (Meeting m : ongoing) {
-            if (m.getBookingStatus() != BookingStatus.IN_PROGRESS) {
-                m.setBookingStatus(BookingStatus.IN_PROGRESS);
-                meetingsToSave.add(m);
-            }
-            Room room = m.getRoom();
-            if (room != null) {
-                roomsInUse.add(room.getRoomId());
-                if (room.getStatus() != RoomStatus.IN_USE) {
-                    room.setStatus(RoomStatus.IN_USE);
-                    roomRepository.save(room);
+        sweepTimer.record(() -> {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime soon = now.plus(MeetingStatusEngine.BOOKED_LEAD);
+
+                // Cuộc họp trước, phòng sau để phòng được tính theo trạng thái mới
+                meetingsStarted.set(meetingRepository.markStarted(now));
+                meetingsEnded.set(meetingRepository.markEnded(now));
+                roomsInUse.set(roomRepository.markRoomsInUse(now));
+                roomsBooked.set(roomRepository.markRoomsBooked(now, soon));
+                roomsReleased.set(roomRepository.releaseRooms(now, soon));
+
+                // UPDATE hàng loạt không biết id nào đổi: bỏ cả cache nếu có dòng bị ghi
+                if (meetingsStarted.get() + meetingsEnded.get() > 0) {
+                    detailCacheInvalidator.clearMeetings();
+                    resourceVersions.onAllMeetingsChanged();
                 }
-            }
-        }
-
-        // 3) Cuộc họp đã kết thúc => COMPLETED, phòng về AVAILABLE nếu không còn lịch khác
-        List<Meeting> ended = meetingRepository.findEndedBefore(now);
-        for (Meeting m : ended) {
-            if (m.getBookingStatus() != BookingStatus.COMPLETED) {
-                m.setBookingStatus(BookingStatus.COMPLETED);
-                meetingsToSave.add(m);
-            }
-            Room room = m.getRoom();
-            if (room != null) {
-                Integer roomId = room.getRoomId();
-                boolean hasUpcoming = roomsBookedSoon.contains(roomId);
-                boolean hasOngoing = roomsInUse.contains(roomId);
-                if (!hasUpcoming && !hasOngoing && room.getStatus() != RoomStatus.AVAILABLE) {
-                    room.setStatus(RoomStatus.AVAILABLE);
-                    roomRepository.save(room);
+                if (roomsInUse.get() + roomsBooked.get() + roomsReleased.get() > 0) {
+                    detailCacheInvalidator.clearRooms();
+                    roomCatalog.onRoomsChanged();
                 }
-            }
-        }
-
-        if (!meetingsToSave.isEmpty()) {
-            meetingRepository.saveAll(meetingsToSave);
-        }
+            });
+            trackedMeetings.set(meetingStatusEngine.refresh());
+        });
     }
 }
-
@@ -0,0 +1,84 @@
+package com.example.iMeetBE.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.iMeetBE.repository.UserRepository;
+
+/**
+ * Kiểm tra JWT còn hiệu lực theo token_version của user.
+ * Version hiện tại được cache trong bộ nhớ (có TTL) để filter không phải
+ * truy vấn database ở mỗi request.
+ */
+@Service
+public class TokenRevocationService {
+
+    // Đánh dấu user không còn tồn tại trong database
+    private static final int MISSING_USER = -1;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${jwt.revocation.cache-ttl:60000}") // 1 phút
+    private long cacheTtlMillis;
+
+    @Value("${jwt.revocation.cache-size:10000}")
+    private int maxCacheSize;
+
+    // Đầy thì bỏ user lâu không có request nhất (LRU), không xóa cả cache
+    private final Map<String, CachedVersion> versions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedVersion> eldest) {
+            return size() > maxCacheSize;
+        }
+    };
+
+    private record CachedVersion(int version, long loadedAt) {}
+
+    /**
+     * Token hợp lệ khi user còn tồn tại và version trong token bằng version hiện tại
+     */
+    public boolean isTokenVersionCurrent(String email, int tokenVersion) {
+        int current = getCurrentVersion(email);
+        return current != MISSING_USER && current == tokenVersion;
+    }
+
+    /**
+     * Xóa cache của user sau khi đổi role, đổi mật khẩu hoặc xóa user
+     */
+    public void evict(String email) {
+        if (email != null) {
+            synchronized (versions) {
+                versions.remove(email);
+            }
+        }
+    }
+
+    public void evictAll() {
+        synchronized (versions) {
+            versions.clear();
+        }
+    }
+
+    private int getCurrentVersion(String email) {
+        long now = System.currentTimeMillis();
+        CachedVersion cached;
+        synchronized (versions) {
+            cached = versions.get(email);
+        }
+        if (cached != null && now - cached.loadedAt() < cacheTtlMillis) {
+            return cached.version();
+        }
+
+        int version = userRepository.findTokenVersionByEmail(email).orElse(MISSING_USER);
+
+        synchronized (versions) {
+            versions.put(email, new CachedVersion(version, now));
+        }
+        return version;
+    }
+}
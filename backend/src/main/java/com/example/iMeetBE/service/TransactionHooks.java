@@ -0,0 +1,27 @@
+package com.example.iMeetBE.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Cập nhật trạng thái trong bộ nhớ (chỉ mục, bộ đếm phiên bản, lịch hẹn giờ...) theo transaction đang chạy:
+ * chỉ áp dụng khi transaction commit, rollback thì bỏ. Ngoài transaction thì áp dụng ngay.
+ */
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
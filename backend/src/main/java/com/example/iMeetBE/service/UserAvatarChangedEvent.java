@@ -0,0 +1,8 @@
+package com.example.iMeetBE.service;
+
+/**
+ * Sự kiện khi chỉ avatar của user thay đổi: qua JPA (UserEntityEvents) hoặc qua lệnh UPDATE của migration avatar.
+ * Tách khỏi {@link UserChangedEvent} để đổi avatar không làm mới lịch .ics của mọi người.
+ */
+public record UserAvatarChangedEvent(String id, String avatarUrl) {
+}
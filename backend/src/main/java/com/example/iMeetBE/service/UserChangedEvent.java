@@ -0,0 +1,10 @@
+package com.example.iMeetBE.service;
+
+/**
+ * Sự kiện khi user được tạo, xóa hoặc đổi username/email/họ tên qua JPA (xem UserEntityEvents).
+ * Phát ra lúc Hibernate flush, tức là trong transaction: listener cần cập nhật bộ nhớ thì đợi commit.
+ * avatarUrl là giá trị hiện tại của cột (có thể là data URL cũ); chỉ đổi avatar thì xem {@link UserAvatarChangedEvent}.
+ */
+public record UserChangedEvent(String id, String username, String email, String fullName, String avatarUrl,
+                               boolean removed) {
+}
@@ -0,0 +1,145 @@
+package com.example.iMeetBE.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.iMeetBE.dto.CursorPage;
+import com.example.iMeetBE.dto.UserSummary;
+import com.example.iMeetBE.repository.UserRepository;
+import com.example.iMeetBE.repository.UserRepositoryCustom.SortKey;
+
+/**
+ * Danh sách user cho admin: phân trang keyset theo (cột sắp xếp, id) nên mỗi trang là một lần quét index,
+ * không OFFSET và không COUNT(*) theo từng request. Tổng số user (không lọc) là số xấp xỉ lấy từ cache.
+ */
+@Service
+public class UserDirectoryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private record CountSnapshot(long count, long takenAt) { }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Tổng số user được đếm lại tối đa một lần trong khoảng này (mặc định 5 phút)
+    @Value("${admin.users.count-ttl:300000}")
+    private long countTtlMillis;
+
+    private volatile CountSnapshot countSnapshot;
+
+    /**
+     * @throws IllegalArgumentException nếu sortBy/cursor không hợp lệ
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserSummary> findPage(String sortBy, String sortDir, String search, String cursor, Integer size) {
+        SortKey sortKey = parseSortKey(sortBy);
+        boolean descending = !"asc".equalsIgnoreCase(sortDir);
+        String filter = search != null && !search.trim().isEmpty() ? search.trim() : null;
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        Object keyValue = null;
+        String keyId = null;
+        boolean backward = false;
+        if (cursor != null && !cursor.isBlank()) {
+            PageCursor decoded = PageCursor.decode(cursor, 3);
+            // Cursor gắn với cột sắp xếp lúc tạo ra nó
+            if (!decoded.keys().get(0).equals(sortKey.name())) {
+                throw new IllegalArgumentException("Cursor không hợp lệ");
+            }
+            try {
+                keyValue = sortKey == SortKey.CREATED_AT
+                    ? LocalDateTime.parse(decoded.keys().get(1))
+                    : decoded.keys().get(1);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor không hợp lệ");
+            }
+            keyId = decoded.keys().get(2);
+            backward = decoded.backward();
+        }
+
+        // Lấy dư một dòng để biết còn dữ liệu theo hướng đang đi hay không
+        List<UserSummary> rows = userRepository.findSummaryPage(sortKey, descending, filter,
+            keyValue, keyId, backward, pageSize + 1);
+        boolean more = rows.size() > pageSize;
+        List<UserSummary> page = new ArrayList<>(more ? rows.subList(0, pageSize) : rows);
+        if (backward) {
+            Collections.reverse(page);
+        }
+        boolean hasNext = backward || more;
+        boolean hasPrevious = backward ? more : keyValue != null;
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!page.isEmpty()) {
+            UserSummary first = page.get(0);
+            UserSummary last = page.get(page.size() - 1);
+            if (hasNext) {
+                nextCursor = PageCursor.encode(false, sortKey.name(), sortValue(last, sortKey), last.getId());
+            }
+            if (hasPrevious) {
+                prevCursor = PageCursor.encode(true, sortKey.name(), sortValue(first, sortKey), first.getId());
+            }
+        }
+        for (UserSummary user : page) {
+            user.setAvatarUrl(AvatarStorageService.variantUrl(user.getAvatarUrl(), 48));
+        }
+        return new CursorPage<>(page, nextCursor, prevCursor, pageSize);
+    }
+
+    /**
+     * Tổng số user, có thể cũ tối đa admin.users.count-ttl; chỉ một request đếm lại khi hết hạn.
+     */
+    public long approximateCount() {
+        CountSnapshot snapshot = countSnapshot;
+        long now = System.currentTimeMillis();
+        if (snapshot != null && now - snapshot.takenAt() < countTtlMillis) {
+            return snapshot.count();
+        }
+        synchronized (this) {
+            snapshot = countSnapshot;
+            if (snapshot == null || now - snapshot.takenAt() >= countTtlMillis) {
+                snapshot = new CountSnapshot(userRepository.count(), System.currentTimeMillis());
+                countSnapshot = snapshot;
+            }
+            return snapshot.count();
+        }
+    }
+
+    // Xóa user (JPA hoặc Cognito sync): đếm lại ở lần gọi sau thay vì chờ hết TTL
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.removed()) {
+            TransactionHooks.afterCommit(() -> countSnapshot = null);
+        }
+    }
+
+    private static SortKey parseSortKey(String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) {
+            return SortKey.CREATED_AT;
+        }
+        for (SortKey key : SortKey.values()) {
+            if (key.property().equalsIgnoreCase(sortBy) || key.name().equalsIgnoreCase(sortBy)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("Không hỗ trợ sắp xếp theo: " + sortBy);
+    }
+
+    private static Object sortValue(UserSummary user, SortKey sortKey) {
+        return switch (sortKey) {
+            case CREATED_AT -> user.getCreatedAt();
+            case EMAIL -> user.getEmail();
+            case USERNAME -> user.getUsername();
+        };
+    }
+}
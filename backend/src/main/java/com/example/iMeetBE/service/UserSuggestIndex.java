@@ -0,0 +1,306 @@
+package com.example.iMeetBE.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.iMeetBE.dto.UserSuggestion;
+import com.example.iMeetBE.repository.MeetingInviteeRepository;
+import com.example.iMeetBE.repository.UserRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Gợi ý người để mời khi gõ: chỉ mục tiền tố trong bộ nhớ trên email, username và họ tên (đã bỏ dấu).
+ * Khóa là chuỗi đã chuẩn hóa trong một skip list có thứ tự, nên các khóa bắt đầu bằng q là một đoạn liên tiếp
+ * [q, q + '\uffff') — cùng vai trò một prefix trie nhưng gọn hơn và đọc không khóa.
+ * Họ tên được đánh khóa theo mọi hậu tố từ ("nguyen van an", "van an", "an") để gõ tên hay họ đều khớp.
+ * Kết quả xếp theo số lần người gọi đã mời từng người (lịch sử meeting_invitees, cache theo người gọi).
+ * Ghi qua JPA được cập nhật qua {@link UserChangedEvent}/{@link UserAvatarChangedEvent}; ghi JDBC (Cognito sync)
+ * gọi {@link #refreshEmails}. Mỗi người chỉ giữ URL bản thu nhỏ 48px của avatar, không giữ data URL cũ.
+ */
+@Service
+public class UserSuggestIndex {
+
+    private record Entry(String id, String username, String email, String fullName, String avatarUrl,
+                         Set<String> keys) { }
+
+    private record Candidate(Entry entry, long invites, boolean exact) { }
+
+    public static final int DEFAULT_LIMIT = 8;
+    public static final int MAX_LIMIT = 20;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeetingInviteeRepository meetingInviteeRepository;
+
+    // Số người gọi được giữ lịch sử mời trong bộ nhớ
+    @Value("${user.suggest.affinity-cache-size:1000}")
+    private int affinityCacheSize;
+
+    private final NavigableMap<String, Set<String>> keys = new ConcurrentSkipListMap<>();
+    private final Map<String, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, String> idByEmail = new ConcurrentHashMap<>();
+
+    // inviterId -> (email -> số lần mời), LRU
+    private Map<String, Map<String, Long>> affinities;
+
+    @PostConstruct
+    void init() {
+        int capacity = affinityCacheSize;
+        affinities = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, Long>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (UserRepository.SuggestRow row : userRepository.findAllSuggestRows()) {
+            // Thay đổi đến trong lúc nạp mới hơn kết quả query
+            if (!byId.containsKey(row.getId())) {
+                put(row.getId(), row.getUsername(), row.getEmail(), row.getFullName(), row.getAvatarUrl());
+            }
+        }
+        System.out.println("User suggest index loaded " + byId.size() + " users, " + keys.size() + " keys");
+    }
+
+    /**
+     * Tối đa limit user có email/username/họ tên bắt đầu bằng q (không phân biệt dấu),
+     * người được callerEmail mời nhiều nhất đứng trước; không gợi ý chính người gọi.
+     */
+    public List<UserSuggestion> suggest(String callerEmail, String q, Integer limit) {
+        int max = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        String prefix = normalize(q);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        String callerId = callerEmail != null ? idByEmail.get(callerEmail.trim().toLowerCase()) : null;
+        Map<String, Long> invited = callerId != null ? affinity(callerId) : Map.of();
+
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        // Những người đã từng được mời: ít, kiểm tra trực tiếp
+        for (Map.Entry<String, Long> e : invited.entrySet()) {
+            String id = idByEmail.get(e.getKey());
+            Entry entry = id != null ? byId.get(id) : null;
+            if (entry != null && !entry.id().equals(callerId) && matches(entry, prefix)) {
+                candidates.put(entry.id(), new Candidate(entry, e.getValue(), entry.keys().contains(prefix)));
+            }
+        }
+        // Phần còn lại lấy theo thứ tự khóa, dừng khi đã đủ
+        int others = 0;
+        scan:
+        for (Map.Entry<String, Set<String>> e : keys.subMap(prefix, true, prefix + '\uffff', false).entrySet()) {
+            for (String id : e.getValue()) {
+                if (others >= max) {
+                    break scan;
+                }
+                Entry entry = byId.get(id);
+                if (entry == null || id.equals(callerId) || candidates.containsKey(id)) {
+                    continue;
+                }
+                candidates.put(id, new Candidate(entry, 0, e.getKey().equals(prefix)));
+                others++;
+            }
+        }
+
+        return candidates.values().stream()
+            .sorted(Comparator.comparingLong(Candidate::invites).reversed()
+                .thenComparing(Candidate::exact, Comparator.reverseOrder())
+                .thenComparing(c -> c.entry().email()))
+            .limit(max)
+            .map(c -> new UserSuggestion(c.entry().id(), c.entry().email(), c.entry().username(),
+                c.entry().fullName(), c.entry().avatarUrl(), c.invites()))
+            .toList();
+    }
+
+    /**
+     * Gọi sau khi inviterId mời thêm các email (áp dụng sau khi commit); chỉ cập nhật nếu đã có trong cache.
+     */
+    public void onInvited(String inviterId, Collection<String> emails) {
+        List<String> copy = List.copyOf(emails);
+        TransactionHooks.afterCommit(() -> {
+            Map<String, Long> counts;
+            synchronized (this) {
+                counts = affinities.get(inviterId);
+            }
+            if (counts != null) {
+                for (String email : copy) {
+                    counts.merge(email, 1L, Long::sum);
+                }
+            }
+        });
+    }
+
+    /**
+     * Đọc lại các user theo email từ database (sau các lệnh ghi JDBC, ví dụ Cognito sync):
+     * email còn trong database thì cập nhật, không còn thì xóa khỏi chỉ mục.
+     */
+    public void refreshEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        Set<String> missing = new HashSet<>();
+        for (String email : emails) {
+            missing.add(email.toLowerCase());
+        }
+        for (UserRepository.SuggestRow row : userRepository.findSuggestRowsByEmailIn(emails)) {
+            put(row.getId(), row.getUsername(), row.getEmail(), row.getFullName(), row.getAvatarUrl());
+            if (row.getEmail() != null) {
+                missing.remove(row.getEmail().toLowerCase());
+            }
+        }
+        for (String email : missing) {
+            String id = idByEmail.get(email);
+            if (id != null) {
+                remove(id);
+            }
+        }
+    }
+
+    // Mọi save()/delete() User qua JPA (UserEntityEvents) cập nhật chỉ mục sau khi commit
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        TransactionHooks.afterCommit(() -> {
+            if (event.removed()) {
+                remove(event.id());
+            } else {
+                put(event.id(), event.username(), event.email(), event.fullName(), event.avatarUrl());
+            }
+        });
+    }
+
+    @EventListener
+    public void onAvatarChanged(UserAvatarChangedEvent event) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                Entry entry = byId.get(event.id());
+                if (entry != null) {
+                    byId.put(entry.id(), new Entry(entry.id(), entry.username(), entry.email(), entry.fullName(),
+                        thumbnail(event.avatarUrl()), entry.keys()));
+                }
+            }
+        });
+    }
+
+    private Map<String, Long> affinity(String callerId) {
+        synchronized (this) {
+            Map<String, Long> cached = affinities.get(callerId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Map<String, Long> counts = new ConcurrentHashMap<>();
+        for (MeetingInviteeRepository.InviteAffinity row : meetingInviteeRepository.countInvitesByInviter(callerId)) {
+            counts.merge(row.getEmail().toLowerCase(), row.getInvites(), Long::sum);
+        }
+        synchronized (this) {
+            affinities.putIfAbsent(callerId, counts);
+            return affinities.get(callerId);
+        }
+    }
+
+    private static String thumbnail(String avatarUrl) {
+        return AvatarStorageService.isInlineDataUrl(avatarUrl) ? null : AvatarStorageService.variantUrl(avatarUrl, 48);
+    }
+
+    private static boolean matches(Entry entry, String prefix) {
+        for (String key : entry.keys()) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String text) {
+        return SearchIndex.fold(text).trim().replaceAll("\\s+", " ");
+    }
+
+    private static Set<String> keysFor(String username, String email, String fullName) {
+        Set<String> result = new HashSet<>();
+        String foldedEmail = normalize(email);
+        if (!foldedEmail.isEmpty()) {
+            result.add(foldedEmail);
+            int at = foldedEmail.indexOf('@');
+            String local = at >= 0 ? foldedEmail.substring(0, at) : foldedEmail;
+            // "an.nguyen@..." khớp cả "nguyen"
+            for (String part : local.split("[._+-]+")) {
+                if (!part.isEmpty()) {
+                    result.add(part);
+                }
+            }
+        }
+        String foldedUsername = normalize(username);
+        if (!foldedUsername.isEmpty()) {
+            result.add(foldedUsername);
+        }
+        String foldedName = normalize(fullName);
+        if (!foldedName.isEmpty()) {
+            String[] words = foldedName.split(" ");
+            for (int i = 0; i < words.length; i++) {
+                result.add(String.join(" ", Arrays.copyOfRange(words, i, words.length)));
+            }
+        }
+        return Set.copyOf(result);
+    }
+
+    private synchronized void put(String id, String username, String email, String fullName, String avatarUrl) {
+        if (id == null) {
+            return;
+        }
+        Entry entry = new Entry(id, username, email, fullName, thumbnail(avatarUrl), keysFor(username, email, fullName));
+        for (String key : entry.keys()) {
+            keys.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        Entry previous = byId.put(id, entry);
+        if (previous != null) {
+            unlink(previous, entry.keys());
+            if (previous.email() != null && !previous.email().equalsIgnoreCase(email)) {
+                idByEmail.remove(previous.email().toLowerCase(), id);
+            }
+        }
+        if (email != null) {
+            idByEmail.put(email.toLowerCase(), id);
+        }
+    }
+
+    private synchronized void remove(String id) {
+        Entry previous = byId.remove(id);
+        if (previous != null) {
+            unlink(previous, Set.of());
+            if (previous.email() != null) {
+                idByEmail.remove(previous.email().toLowerCase(), id);
+            }
+        }
+    }
+
+    private void unlink(Entry previous, Set<String> keep) {
+        for (String key : previous.keys()) {
+            if (!keep.contains(key)) {
+                keys.computeIfPresent(key, (k, ids) -> {
+                    ids.remove(previous.id());
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+}
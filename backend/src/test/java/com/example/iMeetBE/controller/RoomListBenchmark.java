@@ -0,0 +1,138 @@
+package com.example.iMeetBE.controller;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.example.iMeetBE.IMeetBeApplication;
+import com.example.iMeetBE.dto.ApiResponse;
+import com.example.iMeetBE.dto.RoomRequest;
+import com.example.iMeetBE.dto.RoomResponse;
+import com.example.iMeetBE.service.RoomCatalog;
+import com.example.iMeetBE.service.RoomService;
+
+/**
+ * GET /api/rooms trả JSON serialize sẵn (ResponseBytesCache/CachedJson, bản thường và bản gzip)
+ * so với đường cũ trả ResponseEntity&lt;ApiResponse&lt;List&lt;RoomResponse&gt;&gt;&gt; để Jackson serialize mỗi request.
+ * Hai đường đọc cùng danh mục phòng trong bộ nhớ (RoomCatalog, dữ liệu mẫu trong H2) và cùng đi qua Tomcat,
+ * filter chain và ObjectMapper của ứng dụng, nên chênh lệch chỉ còn phần serialize và số byte ghi ra.
+ * Không chạy cùng mvn test; chạy riêng: {@code mvn test -Dtest=RoomListBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RoomListBenchmark {
+
+    private static final String LEGACY_PATH = "/api/rooms/legacy-list";
+
+    @Param({ "20", "500" })
+    public int rooms;
+
+    private ConfigurableApplicationContext context;
+    private RoomCatalog roomCatalog;
+    private HttpClient httpClient;
+    private HttpRequest cachedRequest;
+    private HttpRequest cachedGzipRequest;
+    private HttpRequest legacyRequest;
+
+    // Đường cũ: ApiResponse đi qua MappingJackson2HttpMessageConverter ở mỗi request.
+    // Đăng ký mapping lúc chạy benchmark (không phải @Controller) để không lẫn vào context của các test khác.
+    public class LegacyRoomList {
+        public ResponseEntity<ApiResponse<List<RoomResponse>>> getAllRooms() {
+            return ResponseEntity.ok(ApiResponse.success(roomCatalog.current().all(), "Lấy danh sách phòng thành công"));
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(IMeetBeApplication.class)
+            .properties("server.port=0", "logging.level.root=WARN")
+            .run();
+        RoomService roomService = context.getBean(RoomService.class);
+        for (int i = 0; i < rooms; i++) {
+            roomService.createRoom(new RoomRequest("Phòng " + i, "Tòa A, tầng " + (i % 12), 4 + i % 20,
+                "Phòng họp có máy chiếu và bảng trắng số " + i));
+        }
+        roomCatalog = context.getBean(RoomCatalog.class);
+        if (roomCatalog.current().all().size() != rooms) {
+            throw new IllegalStateException("Danh mục phòng có " + roomCatalog.current().all().size() + " phòng");
+        }
+
+        RequestMappingHandlerMapping handlerMapping =
+            context.getBean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+        handlerMapping.registerMapping(
+            RequestMappingInfo.paths(LEGACY_PATH).methods(RequestMethod.GET)
+                .options(handlerMapping.getBuilderConfiguration()).build(),
+            new LegacyRoomList(), LegacyRoomList.class.getMethod("getAllRooms"));
+
+        String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        cachedRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/rooms")).GET().build();
+        cachedGzipRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/rooms"))
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br").GET().build();
+        legacyRequest = HttpRequest.newBuilder(URI.create(baseUrl + LEGACY_PATH)).GET().build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int legacyResponseEntity() throws Exception {
+        return send(legacyRequest);
+    }
+
+    @Benchmark
+    public int cachedJson() throws Exception {
+        return send(cachedRequest);
+    }
+
+    @Benchmark
+    public int cachedJsonGzip() throws Exception {
+        return send(cachedGzipRequest);
+    }
+
+    @Test
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(RoomListBenchmark.class.getName()).build()).run();
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " trả về " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.model.UserRole;
+import com.example.iMeetBE.repository.UserRepository;
+
+/**
+ * Migration avatar base64: ảnh đọc được có đủ bản thu nhỏ; ảnh không decode được (WebP) vẫn được chuyển ra file,
+ * không có bản thu nhỏ, được đếm riêng và variantUrl trả về chính ảnh gốc.
+ */
+@SpringBootTest
+class AvatarMigrationServiceTest {
+
+    @Autowired
+    private AvatarMigrationService avatarMigrationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.upload.dir}")
+    private String uploadDir;
+
+    @Value("${app.upload.public-url:/uploads}")
+    private String publicUrl;
+
+    @Test
+    void undecodableAvatarIsStoredWithoutVariants() throws Exception {
+        saveUser("avatar-png", "data:image/png;base64," + Base64.getEncoder().encodeToString(png()));
+        // Header WebP hợp lệ nhưng ImageIO không có reader cho WebP
+        byte[] webp = "RIFF\0\0\0\0WEBPVP8 avatar-webp".getBytes(StandardCharsets.ISO_8859_1);
+        saveUser("avatar-webp", "data:image/webp;base64," + Base64.getEncoder().encodeToString(webp));
+
+        Map<String, Integer> result = avatarMigrationService.migrateInlineAvatars();
+
+        assertTrue(result.get("migrated") >= 2, () -> "Kết quả: " + result);
+        assertTrue(result.get("withoutVariants") >= 1, () -> "Kết quả: " + result);
+
+        String pngUrl = avatarUrl("avatar-png");
+        String variant = AvatarStorageService.variantUrl(pngUrl, 48);
+        assertNotEquals(pngUrl, variant);
+        assertTrue(Files.exists(file(pngUrl)));
+        assertTrue(Files.exists(file(variant)), "Ảnh PNG phải có bản thu nhỏ 48px");
+
+        String webpUrl = avatarUrl("avatar-webp");
+        assertTrue(webpUrl.endsWith("_full.webp"), webpUrl);
+        assertTrue(Files.exists(file(webpUrl)));
+        for (String url : AvatarStorageService.variantUrls(webpUrl).values()) {
+            assertEquals(webpUrl, url, "Ảnh không có bản thu nhỏ thì dùng ảnh gốc");
+        }
+    }
+
+    private String avatarUrl(String id) {
+        return userRepository.findAvatarUrlById(id).orElseThrow();
+    }
+
+    private Path file(String url) {
+        return Paths.get(uploadDir).resolve(url.substring(publicUrl.length() + 1));
+    }
+
+    private void saveUser(String id, String avatarUrl) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setEmail(id + "@example.com");
+        user.setRole(UserRole.USER);
+        user.setAvatarUrl(avatarUrl);
+        userRepository.save(user);
+    }
+
+    private static byte[] png() throws Exception {
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, (x * 255 / image.getWidth()) << 16 | (y * 255 / image.getHeight()) << 8);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.example.iMeetBE.config.CognitoConfig;
+import com.example.iMeetBE.model.User;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Đồng bộ lên Cognito qua client thật (CognitoConfig) trỏ vào một HTTP stub local.
+ * Stub trả TooManyRequestsException/LimitExceededException theo từng user để kiểm tra:
+ * số lần thử lại, số lời gọi đồng thời không vượt aws.cognito.sync-concurrency, và kết quả của từng user.
+ */
+class CognitoBatchExecutorTest {
+
+    private static final int CONCURRENCY = 3;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final int PLAIN_USERS = 12;
+    // Mỗi lời gọi giữ stub một lúc để các lời gọi song song chồng lên nhau
+    private static final long CALL_MILLIS = 20;
+    private static final Pattern USERNAME = Pattern.compile("\"Username\":\"([^\"]+)\"");
+
+    private HttpServer server;
+    private CognitoService cognitoService;
+    private CognitoBatchExecutor executor;
+    private AWSCognitoIdentityProvider client;
+
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final Set<String> updated = ConcurrentHashMap.newKeySet();
+    private final Set<String> created = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        CognitoConfig config = new CognitoConfig();
+        ReflectionTestUtils.setField(config, "accessKey", "test");
+        ReflectionTestUtils.setField(config, "secretKey", "test");
+        ReflectionTestUtils.setField(config, "region", "ap-southeast-2");
+        ReflectionTestUtils.setField(config, "endpoint", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(config, "maxConnections", 50);
+        ReflectionTestUtils.setField(config, "connectionTimeout", 5000);
+        ReflectionTestUtils.setField(config, "socketTimeout", 15000);
+        // Tắt retry của SDK để mọi lần thử lại đếm được ở stub đều do CognitoBatchExecutor
+        ReflectionTestUtils.setField(config, "maxErrorRetry", 0);
+        client = config.cognitoClient();
+
+        executor = new CognitoBatchExecutor();
+        ReflectionTestUtils.setField(executor, "concurrency", CONCURRENCY);
+        ReflectionTestUtils.setField(executor, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(executor, "baseDelayMillis", 1L);
+        ReflectionTestUtils.setField(executor, "maxDelayMillis", 5L);
+        executor.init();
+
+        cognitoService = new CognitoService();
+        ReflectionTestUtils.setField(cognitoService, "userPoolId", "ap-southeast-2_test");
+        ReflectionTestUtils.setField(cognitoService, "cognitoClient", client);
+        ReflectionTestUtils.setField(cognitoService, "cognitoBatchExecutor", executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void throttledUsersAreRetriedWithinConcurrencyBound() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < PLAIN_USERS; i++) {
+            users.add(user("plain-" + i));
+        }
+        users.add(user("throttled-twice"));
+        users.add(user("limited-once"));
+        users.add(user("missing"));
+        users.add(user("always-throttled"));
+        users.add(user("invalid"));
+
+        CognitoBatchExecutor.BatchResult result = cognitoService.syncAllUsersToCognito(users);
+
+        assertEquals(users.size() - 2, result.getSucceeded());
+        assertEquals(2, result.getFailed());
+
+        // Số lần thử của từng user
+        for (int i = 0; i < PLAIN_USERS; i++) {
+            assertEquals(1, callsFor("plain-" + i), "plain-" + i);
+        }
+        assertEquals(3, callsFor("throttled-twice"));
+        assertEquals(2, callsFor("limited-once"));
+        // Update báo UserNotFound rồi tạo mới: 2 lời gọi, không tính là rate limit
+        assertEquals(2, callsFor("missing"));
+        assertEquals(MAX_ATTEMPTS, callsFor("always-throttled"));
+        // Lỗi không phải rate limit thì không thử lại
+        assertEquals(1, callsFor("invalid"));
+
+        // Kết quả của từng user
+        for (int i = 0; i < PLAIN_USERS; i++) {
+            assertTrue(updated.contains(email("plain-" + i)), "plain-" + i);
+        }
+        assertTrue(updated.contains(email("throttled-twice")));
+        assertTrue(updated.contains(email("limited-once")));
+        assertTrue(created.contains(email("missing")));
+        assertEquals(PLAIN_USERS + 2, updated.size());
+        assertEquals(Set.of(email("missing")), created);
+
+        assertTrue(peakInFlight.get() <= CONCURRENCY,
+            () -> "Có " + peakInFlight.get() + " lời gọi Cognito cùng lúc, tối đa " + CONCURRENCY);
+        assertTrue(peakInFlight.get() > 1, "Batch phải gọi Cognito song song");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        try {
+            Thread.sleep(CALL_MILLIS);
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+            Matcher matcher = USERNAME.matcher(body);
+            String username = matcher.find() ? matcher.group(1) : "";
+            int call = calls.computeIfAbsent(username, k -> new AtomicInteger()).incrementAndGet();
+            String name = username.substring(0, username.indexOf('@') < 0 ? username.length() : username.indexOf('@'));
+
+            if (target.endsWith("AdminCreateUser")) {
+                created.add(username);
+                respond(exchange, 200, "{\"User\":{\"Username\":\"" + username + "\"}}");
+            } else if (name.equals("throttled-twice") && call <= 2 || name.equals("always-throttled")) {
+                error(exchange, "TooManyRequestsException");
+            } else if (name.equals("limited-once") && call == 1) {
+                error(exchange, "LimitExceededException");
+            } else if (name.equals("missing")) {
+                error(exchange, "UserNotFoundException");
+            } else if (name.equals("invalid")) {
+                error(exchange, "InvalidParameterException");
+            } else {
+                updated.add(username);
+                respond(exchange, 200, "{}");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 500, "{}");
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static void error(HttpExchange exchange, String type) throws IOException {
+        exchange.getResponseHeaders().add("x-amzn-ErrorType", type);
+        respond(exchange, 400, "{\"__type\":\"" + type + "\",\"message\":\"" + type + " from stub\"}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/x-amz-json-1.1");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private int callsFor(String name) {
+        AtomicInteger count = calls.get(email(name));
+        return count != null ? count.get() : 0;
+    }
+
+    private static String email(String name) {
+        return name + "@example.com";
+    }
+
+    private static User user(String name) {
+        User user = new User();
+        user.setId(name);
+        user.setUsername(name);
+        user.setEmail(email(name));
+        user.setFullName("Người dùng " + name);
+        return user;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.example.iMeetBE.config.CognitoConfig;
+import com.example.iMeetBE.dto.UserSuggestion;
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.model.UserRole;
+import com.example.iMeetBE.repository.UserRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Cognito sync ghi bằng JDBC (không qua UserEntityEvents) vẫn phát UserChangedEvent:
+ * đổi họ tên làm mới lịch .ics, chỉ đổi avatar thì không; user bị xóa biến mất khỏi gợi ý
+ * và tổng số user của UserDirectoryService được đếm lại ngay.
+ * ListUsers trả về từ một HTTP stub local.
+ */
+@SpringBootTest
+class CognitoIncrementalSyncEventsTest {
+
+    private static final String PICTURE = "https://lh3.googleusercontent.com/cogsync-avatar";
+
+    @Autowired
+    private CognitoIncrementalSyncService syncService;
+
+    @Autowired
+    private UserSuggestIndex userSuggestIndex;
+
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private HttpServer server;
+    private AWSCognitoIdentityProvider client;
+    private AWSCognitoIdentityProvider originalClient;
+    private volatile String listUsersJson;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        CognitoConfig config = new CognitoConfig();
+        ReflectionTestUtils.setField(config, "accessKey", "test");
+        ReflectionTestUtils.setField(config, "secretKey", "test");
+        ReflectionTestUtils.setField(config, "region", "ap-southeast-2");
+        ReflectionTestUtils.setField(config, "endpoint", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(config, "maxConnections", 5);
+        ReflectionTestUtils.setField(config, "connectionTimeout", 5000);
+        ReflectionTestUtils.setField(config, "socketTimeout", 15000);
+        ReflectionTestUtils.setField(config, "maxErrorRetry", 0);
+        client = config.cognitoClient();
+        originalClient = (AWSCognitoIdentityProvider) ReflectionTestUtils.getField(syncService, "cognitoClient");
+        ReflectionTestUtils.setField(syncService, "cognitoClient", client);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(syncService, "cognitoClient", originalClient);
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void jdbcWritesPublishUserChanges() {
+        saveUser("cogsync-rename", "Tên cũ");
+        saveUser("cogsync-avatar", "Ảnh đại diện");
+        saveUser("cogsync-gone", "Sắp xóa");
+
+        // Lần 1: chỉ avatar đổi, không xóa ai
+        String calendarTag = resourceVersions.userCalendarTag("cogsync-rename");
+        listUsersJson = users(
+            user("cogsync-rename", "Tên cũ", null, 1_000),
+            user("cogsync-avatar", "Ảnh đại diện", PICTURE, 1_000),
+            user("cogsync-gone", "Sắp xóa", null, 1_000));
+        syncService.synchronize(false);
+
+        assertEquals(calendarTag, resourceVersions.userCalendarTag("cogsync-rename"), "Đổi avatar không làm mới lịch");
+        assertEquals(PICTURE, suggestion("cogsync-avatar").map(UserSuggestion::getAvatarUrl).orElseThrow());
+
+        // Lần 2: đổi họ tên và xóa user không còn trong Cognito
+        long count = userDirectoryService.approximateCount();
+        listUsersJson = users(
+            user("cogsync-rename", "Tên mới", null, 2_000),
+            user("cogsync-avatar", "Ảnh đại diện", PICTURE, 1_000));
+        syncService.synchronize(true);
+
+        assertNotEquals(calendarTag, resourceVersions.userCalendarTag("cogsync-rename"), "Đổi họ tên phải làm mới lịch");
+        assertEquals("Tên mới", suggestion("cogsync-rename").map(UserSuggestion::getFullName).orElseThrow());
+        assertTrue(suggestion("cogsync-gone").isEmpty());
+        assertEquals(count - 1, userDirectoryService.approximateCount());
+    }
+
+    private Optional<UserSuggestion> suggestion(String id) {
+        return userSuggestIndex.suggest(null, id, 5).stream().filter(s -> s.getId().equals(id)).findFirst();
+    }
+
+    private void saveUser(String id, String fullName) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setEmail(id + "@example.com");
+        user.setFullName(fullName);
+        user.setGoogleId(id + "-sub");
+        user.setRole(UserRole.USER);
+        userRepository.save(user);
+    }
+
+    private static String users(String... users) {
+        return "{\"Users\":[" + String.join(",", List.of(users)) + "]}";
+    }
+
+    private static String user(String id, String name, String picture, long modifiedAt) {
+        return "{\"Username\":\"" + id + "\",\"UserLastModifiedDate\":" + modifiedAt + ",\"Attributes\":["
+            + attribute("email", id + "@example.com") + "," + attribute("name", name) + ","
+            + attribute("sub", id + "-sub")
+            + (picture != null ? "," + attribute("picture", picture) : "") + "]}";
+    }
+
+    private static String attribute(String name, String value) {
+        return "{\"Name\":\"" + name + "\",\"Value\":\"" + value + "\"}";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = listUsersJson.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/x-amz-json-1.1");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
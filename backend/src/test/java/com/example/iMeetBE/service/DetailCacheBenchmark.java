@@ -0,0 +1,154 @@
+package com.example.iMeetBE.service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.iMeetBE.IMeetBeApplication;
+import com.example.iMeetBE.dto.RoomRequest;
+import com.example.iMeetBE.model.Device;
+import com.example.iMeetBE.model.DeviceType;
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.model.UserRole;
+import com.example.iMeetBE.repository.DeviceRepository;
+import com.example.iMeetBE.repository.UserRepository;
+
+/**
+ * Thời gian phản hồi của 3 API chi tiết (GET /api/meetings/{id}, /api/rooms/{id}, /api/devices/{id}) qua HTTP thật,
+ * với cache chi tiết (CacheConfig/BoundedCache) bật và tắt (app.cache.enabled).
+ * Mỗi giá trị cacheEnabled chạy trong một JVM riêng với H2 và dữ liệu mẫu riêng.
+ * Không chạy cùng mvn test; chạy riêng: {@code mvn test -Dtest=DetailCacheBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DetailCacheBenchmark {
+
+    private static final int MEETINGS = 200;
+    private static final int ROOMS = 20;
+    private static final int DEVICES = 50;
+
+    @Param({ "true", "false" })
+    public boolean cacheEnabled;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private final List<Integer> meetingIds = new ArrayList<>();
+    private final List<Integer> roomIds = new ArrayList<>();
+    private final List<Long> deviceIds = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(IMeetBeApplication.class)
+            .properties(
+                "server.port=0",
+                "app.cache.enabled=" + cacheEnabled,
+                "spring.jpa.properties.hibernate.generate_statistics=false",
+                "logging.level.root=WARN")
+            .run();
+        baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+        // HTTP/1.1: bỏ bước thử nâng cấp h2c ở mỗi kết nối mới
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        seed();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int meetingDetail() throws Exception {
+        return get("/api/meetings/" + pick(meetingIds));
+    }
+
+    @Benchmark
+    public int roomDetail() throws Exception {
+        return get("/api/rooms/" + pick(roomIds));
+    }
+
+    @Benchmark
+    public int deviceDetail() throws Exception {
+        return get("/api/devices/" + pick(deviceIds));
+    }
+
+    @Test
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(DetailCacheBenchmark.class.getName()).build()).run();
+    }
+
+    private int get(String path) throws Exception {
+        HttpResponse<byte[]> response = httpClient.send(
+            HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " trả về " + response.statusCode());
+        }
+        return response.body().length;
+    }
+
+    private static <T> T pick(List<T> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private void seed() {
+        User user = new User();
+        user.setId("bench-owner");
+        user.setUsername("bench-owner");
+        user.setEmail("bench-owner@example.com");
+        user.setFullName("Người đặt phòng");
+        user.setRole(UserRole.USER);
+        context.getBean(UserRepository.class).save(user);
+
+        RoomService roomService = context.getBean(RoomService.class);
+        for (int i = 0; i < ROOMS; i++) {
+            roomIds.add(roomService.createRoom(new RoomRequest("Bench " + i, "Tầng " + i, 10, null)).getRoomId());
+        }
+        DeviceRepository deviceRepository = context.getBean(DeviceRepository.class);
+        for (int i = 0; i < DEVICES; i++) {
+            deviceIds.add(deviceRepository.save(new Device("Thiết bị " + i, DeviceType.values()[0], 5, null)).getDeviceId());
+        }
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        LocalDateTime base = LocalDateTime.now().plusDays(30).withSecond(0).withNano(0);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < MEETINGS; i++) {
+            LocalDateTime start = base.plusHours(i);
+            rows.add(new Object[] { "Bench " + i, start, start.plusMinutes(30), roomIds.get(i % ROOMS) });
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO meetings (title, start_time, end_time, is_all_day, room_id, user_id, booking_status, " +
+            "created_at, participants, version) VALUES (?, ?, ?, false, ?, 'bench-owner', 'BOOKED', NOW(), 0, 0)", rows);
+        meetingIds.addAll(jdbcTemplate.queryForList(
+            "SELECT meeting_id FROM meetings WHERE title LIKE 'Bench %'", Integer.class));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.iMeetBE.model.OutboxStatus;
+import com.example.iMeetBE.repository.EmailOutboxRepository;
+
+/**
+ * Nhận/ghi kết quả email trong outbox: lượt gửi đã mất quyền giữ không ghi đè kết quả của lượt sau,
+ * và email không được nhận lại quá app.email.outbox.max-attempts lần.
+ * Email mẫu đến hạn ở năm 2040 nên luồng gửi thật (theo giờ hiện tại) không đụng tới.
+ */
+@SpringBootTest
+class EmailOutboxLeaseTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final LocalDateTime DUE = LocalDateTime.of(2040, 1, 1, 9, 0);
+    private static final long LEASE_MINUTES = 2;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void expiredLeaseCannotOverwriteNewerAttempt() {
+        Long id = insert("lease@example.com", "PENDING", 0, DUE);
+
+        // Lượt 1 nhận email rồi treo quá hạn giữ; lượt 2 nhận lại
+        assertEquals(1, claim(id, 0, DUE));
+        LocalDateTime afterLease = DUE.plusMinutes(LEASE_MINUTES + 1);
+        assertEquals(1, claim(id, 1, afterLease));
+
+        // Lượt 1 gửi xong muộn: không được ghi SENT đè lên lượt 2 đang gửi
+        assertEquals(0, inTransaction(() -> emailOutboxRepository.markSent(id, 1, afterLease)));
+        assertEquals(0, inTransaction(() -> emailOutboxRepository.markFailed(
+            id, 1, OutboxStatus.FAILED, afterLease, "late")));
+        assertEquals("SENDING", status(id));
+
+        assertEquals(1, inTransaction(() -> emailOutboxRepository.markFailed(
+            id, 2, OutboxStatus.PENDING, afterLease.plusMinutes(1), "smtp down")));
+        assertEquals("PENDING", status(id));
+    }
+
+    @Test
+    void staleAttemptCountCannotClaim() {
+        Long id = insert("stale@example.com", "PENDING", 1, DUE);
+
+        // attempts đã đọc (0) không còn khớp: instance khác đã nhận trong lúc đó
+        assertEquals(0, claim(id, 0, DUE));
+        assertEquals(1, claim(id, 1, DUE));
+    }
+
+    @Test
+    void exhaustedRowIsFailedInsteadOfReclaimed() {
+        Long id = insert("exhausted@example.com", "SENDING", MAX_ATTEMPTS, DUE);
+        LocalDateTime afterLease = DUE.plusMinutes(LEASE_MINUTES + 1);
+
+        assertEquals(0, claim(id, MAX_ATTEMPTS, afterLease));
+        assertEquals(0, emailOutboxRepository.findDue(afterLease, MAX_ATTEMPTS, PageRequest.of(0, 1000)).stream()
+            .filter(e -> e.getId().equals(id)).count());
+
+        inTransaction(() -> emailOutboxRepository.failExhausted(afterLease, MAX_ATTEMPTS, "gave up"));
+        assertEquals("FAILED", status(id));
+    }
+
+    private int claim(Long id, int attempts, LocalDateTime now) {
+        return inTransaction(() -> emailOutboxRepository.claim(
+            id, attempts, MAX_ATTEMPTS, now, now.plusMinutes(LEASE_MINUTES)));
+    }
+
+    private int inTransaction(IntSupplier update) {
+        Integer result = new TransactionTemplate(transactionManager).execute(status -> update.getAsInt());
+        return result != null ? result : 0;
+    }
+
+    private Long insert(String recipient, String status, int attempts, LocalDateTime nextAttemptAt) {
+        jdbcTemplate.update(
+            "INSERT INTO email_outbox (recipient, subject, body, status, attempts, next_attempt_at, created_at) " +
+            "VALUES (?, 'Lời mời', '<p>x</p>', ?, ?, ?, NOW())", recipient, status, attempts, nextAttemptAt);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM email_outbox WHERE recipient = ?", Long.class, recipient);
+    }
+
+    private String status(Long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM email_outbox WHERE id = ?", String.class, id);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.iMeetBE.service;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.iMeetBE.security.VerifiedToken;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Chi phí xác thực JWT của một request: đường cũ (3 lần parseClaimsJws, mỗi lần dựng lại key và parser)
+ * so với {@link JwtService#verify} khi cache trượt (cold) và khi token đã có trong cache.
+ * Không chạy cùng mvn test; chạy riêng: {@code mvn test -Dtest=JwtServiceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "benchmarkSecretKey12345678901234567890";
+
+    private JwtService cachedService;
+    private JwtService uncachedService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachedService = jwtService(10_000);
+        // Cache 0 phần tử: mỗi lần verify đều tính lại HMAC
+        uncachedService = jwtService(0);
+        token = cachedService.generateToken("bench@example.com", "bench", "bench-id", "USER", 0);
+        cachedService.verify(token);
+    }
+
+    // Filter cũ: getEmailFromToken rồi validateToken(token, email) (parse thêm 2 lần cho email và exp)
+    @Benchmark
+    public boolean legacyThreeParses() {
+        String email = legacyClaims(token).getSubject();
+        return email.equals(legacyClaims(token).getSubject())
+            && !legacyClaims(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public VerifiedToken verifyCold() {
+        return uncachedService.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyCached() {
+        return cachedService.verify(token);
+    }
+
+    @Test
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtServiceBenchmark.class.getName()).build()).run();
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parserBuilder()
+            .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+            .build()
+            .parseClaimsJws(token)
+            .getBody();
+    }
+
+    private static JwtService jwtService(int cacheSize) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secret", SECRET);
+        ReflectionTestUtils.setField(service, "expiration", 86_400_000L);
+        ReflectionTestUtils.setField(service, "verifiedCacheSize", cacheSize);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.iMeetBE.dto.MeetingRequest;
+import com.example.iMeetBE.dto.MeetingResponse;
+import com.example.iMeetBE.dto.RoomRequest;
+import com.example.iMeetBE.dto.UserSuggestion;
+import com.example.iMeetBE.model.Room;
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.model.UserRole;
+import com.example.iMeetBE.repository.UserRepository;
+
+/**
+ * Gợi ý người mời và người đặt trong danh sách cuộc họp chỉ mang bản thu nhỏ 48px của avatar;
+ * data URL cũ thành null, và đổi avatar thì gợi ý theo kịp.
+ */
+@SpringBootTest
+class ListAvatarThumbnailTest {
+
+    private static final String AVATAR = "/uploads/" + AvatarStorageService.AVATAR_DIR + "/" + "a".repeat(64) + ".png";
+    private static final String NEW_AVATAR = "/uploads/" + AvatarStorageService.AVATAR_DIR + "/" + "b".repeat(64) + ".png";
+
+    @Autowired
+    private UserSuggestIndex userSuggestIndex;
+
+    @Autowired
+    private MeetingService meetingService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void suggestionsCarryThumbnailAndFollowAvatarChanges() {
+        User user = saveUser("thumb-suggest", AVATAR);
+        saveUser("thumb-inline", "data:image/png;base64,AAAA");
+
+        String thumbnail = AvatarStorageService.variantUrl(AVATAR, 48);
+        assertNotEquals(AVATAR, thumbnail);
+        assertEquals(thumbnail, suggestion("thumb-suggest").getAvatarUrl());
+        assertNull(suggestion("thumb-inline").getAvatarUrl());
+
+        user.setAvatarUrl(NEW_AVATAR);
+        userRepository.save(user);
+        assertEquals(AvatarStorageService.variantUrl(NEW_AVATAR, 48), suggestion("thumb-suggest").getAvatarUrl());
+    }
+
+    @Test
+    void meetingListCarriesOrganizerThumbnail() {
+        User user = saveUser("thumb-organizer", AVATAR);
+        Room room = roomService.createRoom(new RoomRequest("Thumb", "Tầng 7", 6, null));
+        LocalDateTime start = LocalDateTime.now().plusDays(7).withSecond(0).withNano(0);
+        MeetingRequest request = new MeetingRequest();
+        request.setTitle("Họp avatar");
+        request.setIsAllDay(false);
+        request.setRoomId(room.getRoomId());
+        request.setStartTime(start);
+        request.setEndTime(start.plusMinutes(30));
+        MeetingResponse created = meetingService.createMeeting(request, user).getData();
+        assertEquals(AvatarStorageService.variantUrl(AVATAR, 48), created.getUserAvatarUrl());
+
+        List<MeetingResponse> listed = meetingService.getMeetingsByRoom(room.getRoomId(), null, 10).getData().getItems();
+        assertEquals(1, listed.size());
+        assertEquals(AvatarStorageService.variantUrl(AVATAR, 48), listed.get(0).getUserAvatarUrl());
+    }
+
+    private UserSuggestion suggestion(String id) {
+        return userSuggestIndex.suggest(null, id, 5).stream()
+            .filter(s -> s.getId().equals(id))
+            .findFirst().orElseThrow();
+    }
+
+    private User saveUser(String id, String avatarUrl) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setEmail(id + "@example.com");
+        user.setRole(UserRole.USER);
+        user.setAvatarUrl(avatarUrl);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.iMeetBE.dto.ApiResponse;
+import com.example.iMeetBE.dto.MeetingRequest;
+import com.example.iMeetBE.dto.MeetingResponse;
+import com.example.iMeetBE.dto.RoomRequest;
+import com.example.iMeetBE.model.BookingStatus;
+import com.example.iMeetBE.model.Room;
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.model.UserRole;
+import com.example.iMeetBE.repository.UserRepository;
+
+/**
+ * Đặt phòng song song: khóa phòng + hasConflict phải giữ cho lịch của một phòng không có hai cuộc họp chồng nhau,
+ * kể cả khi mở lại cuộc họp đã hủy.
+ */
+@SpringBootTest
+class MeetingBookingConcurrencyTest {
+
+    private static final int REQUESTS = 300;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private MeetingService meetingService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentBookingsNeverOverlap() throws Exception {
+        User user = saveUser("booking-stress");
+        Room room = roomService.createRoom(new RoomRequest("Stress", "Tầng 1", 10, null));
+        LocalDateTime base = LocalDateTime.now().plusDays(2).withSecond(0).withNano(0);
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            Random random = new Random(42);
+            for (int i = 0; i < REQUESTS; i++) {
+                int startMinute = random.nextInt(600);
+                int duration = 15 + random.nextInt(90);
+                futures.add(pool.submit(() -> {
+                    try {
+                        ApiResponse<MeetingResponse> response = meetingService.createMeeting(
+                            request(room, base.plusMinutes(startMinute), base.plusMinutes(startMinute + duration)), user);
+                        (response.isSuccess() ? booked : rejected).incrementAndGet();
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(failures.isEmpty(), () -> "Đặt phòng ném exception: " + failures);
+        assertEquals(REQUESTS, booked.get() + rejected.get());
+        assertTrue(booked.get() > 0, "Không có lượt đặt nào thành công");
+        assertTrue(rejected.get() > 0, "Các khoảng ngẫu nhiên phải có lượt bị từ chối vì trùng lịch");
+        assertEquals(0, overlaps(room.getRoomId()));
+    }
+
+    @Test
+    void reopeningCancelledMeetingChecksConflicts() {
+        User user = saveUser("booking-reopen");
+        Room room = roomService.createRoom(new RoomRequest("Reopen", "Tầng 2", 10, null));
+        LocalDateTime start = LocalDateTime.now().plusDays(3).withSecond(0).withNano(0);
+
+        Integer first = meetingService.createMeeting(request(room, start, start.plusHours(1)), user).getData().getMeetingId();
+        assertTrue(setStatus(first, BookingStatus.CANCELLED, user).isSuccess());
+        Integer second = meetingService.createMeeting(request(room, start.plusMinutes(30), start.plusHours(2)), user)
+            .getData().getMeetingId();
+
+        // Khung giờ đã bị cuộc họp khác lấy: không được mở lại
+        assertFalse(setStatus(first, BookingStatus.BOOKED, user).isSuccess());
+        assertEquals(0, overlaps(room.getRoomId()));
+
+        assertTrue(setStatus(second, BookingStatus.CANCELLED, user).isSuccess());
+        assertTrue(setStatus(first, BookingStatus.BOOKED, user).isSuccess());
+        assertEquals(0, overlaps(room.getRoomId()));
+    }
+
+    private ApiResponse<MeetingResponse> setStatus(Integer meetingId, BookingStatus status, User user) {
+        return meetingService.updateMeetingStatus(meetingId, status, user.getId(), user.getRole().name());
+    }
+
+    private User saveUser(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setEmail(id + "@example.com");
+        user.setRole(UserRole.USER);
+        return userRepository.save(user);
+    }
+
+    private static MeetingRequest request(Room room, LocalDateTime start, LocalDateTime end) {
+        MeetingRequest request = new MeetingRequest();
+        request.setTitle("Họp");
+        request.setIsAllDay(false);
+        request.setRoomId(room.getRoomId());
+        request.setStartTime(start);
+        request.setEndTime(end);
+        return request;
+    }
+
+    // Số cặp cuộc họp chưa hủy chồng giờ nhau trong phòng
+    private int overlaps(Integer roomId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM meetings a JOIN meetings b ON a.room_id = b.room_id AND a.meeting_id < b.meeting_id " +
+            "AND a.start_time < b.end_time AND a.end_time > b.start_time " +
+            "AND a.booking_status <> 'CANCELLED' AND b.booking_status <> 'CANCELLED' WHERE a.room_id = ?",
+            Integer.class, roomId);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.iMeetBE.dto.MeetingDeviceRequest;
+import com.example.iMeetBE.dto.MeetingRequest;
+import com.example.iMeetBE.dto.RoomRequest;
+import com.example.iMeetBE.model.Device;
+import com.example.iMeetBE.model.DeviceType;
+import com.example.iMeetBE.model.Room;
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.model.UserRole;
+import com.example.iMeetBE.repository.DeviceRepository;
+import com.example.iMeetBE.repository.UserRepository;
+
+/**
+ * Mượn thiết bị song song: khóa dòng thiết bị + đếm lượt mượn trong khung giờ phải giữ cho tổng số lượng đang mượn
+ * ở mọi thời điểm không vượt quá số lượng thiết bị, và một lượt mượn chỉ trả được một lần.
+ */
+@SpringBootTest
+class MeetingDeviceConcurrencyTest {
+
+    private static final int MEETINGS = 40;
+    private static final int QUANTITY = 3;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private MeetingService meetingService;
+
+    @Autowired
+    private MeetingDeviceService meetingDeviceService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void parallelBorrowsNeverExceedQuantity() throws Exception {
+        User user = saveUser("device-stress");
+        Device device = deviceRepository.save(new Device("Máy chiếu", DeviceType.values()[0], QUANTITY, null));
+        // Mỗi cuộc họp một phòng, dài 60 phút, cách nhau 10 phút: mỗi thời điểm có tới 6 cuộc họp cùng cần thiết bị
+        LocalDateTime base = LocalDateTime.now().plusDays(4).withSecond(0).withNano(0);
+        List<Integer> meetingIds = new ArrayList<>();
+        for (int i = 0; i < MEETINGS; i++) {
+            Room room = roomService.createRoom(new RoomRequest("Device " + i, "Tầng 3", 10, null));
+            meetingIds.add(createMeeting(room, base.plusMinutes(10L * i), user));
+        }
+
+        AtomicInteger borrowed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        runAll(meetingIds.stream().<Callable<Void>>map(meetingId -> () -> {
+            MeetingDeviceRequest request = new MeetingDeviceRequest();
+            request.setMeetingId(meetingId);
+            request.setDeviceId(device.getDeviceId());
+            request.setQuantityBorrowed(1);
+            try {
+                meetingDeviceService.borrowDevice(request, user.getId());
+                borrowed.incrementAndGet();
+            } catch (DeviceInventoryService.ReservationException e) {
+                rejected.incrementAndGet();
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+            return null;
+        }).toList());
+
+        assertTrue(failures.isEmpty(), () -> "Mượn thiết bị ném exception ngoài ReservationException: " + failures);
+        assertEquals(MEETINGS, borrowed.get() + rejected.get());
+        assertTrue(borrowed.get() >= QUANTITY, "Phải mượn được ít nhất " + QUANTITY + " lượt, được " + borrowed.get());
+        assertTrue(rejected.get() > 0, "Các khung giờ chồng nhau phải có lượt bị từ chối");
+        assertTrue(peakBorrowed(device.getDeviceId()) <= QUANTITY,
+            () -> "Số lượng mượn cùng lúc vượt quá " + QUANTITY + ": " + peakBorrowed(device.getDeviceId()));
+    }
+
+    @Test
+    void borrowingIsReturnedOnlyOnce() throws Exception {
+        User user = saveUser("device-return");
+        Device device = deviceRepository.save(new Device("Micro", DeviceType.values()[0], 1, null));
+        Room room = roomService.createRoom(new RoomRequest("Return", "Tầng 4", 10, null));
+        Integer meetingId = createMeeting(room, LocalDateTime.now().plusDays(5).withSecond(0).withNano(0), user);
+        MeetingDeviceRequest request = new MeetingDeviceRequest();
+        request.setMeetingId(meetingId);
+        request.setDeviceId(device.getDeviceId());
+        request.setQuantityBorrowed(1);
+        Integer meetingDeviceId = meetingDeviceService.borrowDevice(request, user.getId()).getMeetingDeviceId();
+
+        AtomicInteger returned = new AtomicInteger();
+        List<Callable<Void>> returns = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            returns.add(() -> {
+                try {
+                    meetingDeviceService.returnDevice(meetingDeviceId);
+                    returned.incrementAndGet();
+                } catch (RuntimeException e) {
+                    // Lượt trả thứ hai trở đi bị từ chối
+                }
+                return null;
+            });
+        }
+        runAll(returns);
+
+        assertEquals(1, returned.get());
+        assertEquals("RETURNED", jdbcTemplate.queryForObject(
+            "SELECT status FROM meeting_devices WHERE meeting_device_id = ?", String.class, meetingDeviceId));
+    }
+
+    private void runAll(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Integer createMeeting(Room room, LocalDateTime start, User user) {
+        MeetingRequest request = new MeetingRequest();
+        request.setTitle("Họp");
+        request.setIsAllDay(false);
+        request.setRoomId(room.getRoomId());
+        request.setStartTime(start);
+        request.setEndTime(start.plusMinutes(60));
+        return meetingService.createMeeting(request, user).getData().getMeetingId();
+    }
+
+    private User saveUser(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setEmail(id + "@example.com");
+        user.setRole(UserRole.USER);
+        return userRepository.save(user);
+    }
+
+    // Tổng số lượng đang mượn lớn nhất tại một thời điểm (đỉnh luôn rơi vào giờ bắt đầu của một cuộc họp)
+    private int peakBorrowed(Long deviceId) {
+        Integer peak = jdbcTemplate.queryForObject(
+            "SELECT MAX((SELECT SUM(md2.quantity_borrowed) FROM meeting_devices md2 " +
+            "  JOIN meetings m2 ON m2.meeting_id = md2.meeting_id " +
+            "  WHERE md2.device_id = md1.device_id AND md2.status = 'BORROWED' " +
+            "  AND m2.start_time <= m1.start_time AND m2.end_time > m1.start_time)) " +
+            "FROM meeting_devices md1 JOIN meetings m1 ON m1.meeting_id = md1.meeting_id " +
+            "WHERE md1.device_id = ? AND md1.status = 'BORROWED'",
+            Integer.class, deviceId);
+        return peak != null ? peak : 0;
+    }
+}
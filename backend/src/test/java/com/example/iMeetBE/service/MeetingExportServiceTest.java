@@ -0,0 +1,147 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.iMeetBE.dto.RoomRequest;
+import com.example.iMeetBE.model.Room;
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.model.UserRole;
+import com.example.iMeetBE.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Export đọc dần qua con trỏ và ghi thẳng ra stream: heap dùng trong lúc export không tăng theo số dòng.
+ * Heap được đo sau GC, mỗi khi export ghi thêm {@link #SAMPLE_BYTES} byte.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MeetingExportServiceTest {
+
+    private static final int ROWS = 200_000;
+    private static final long SAMPLE_BYTES = 4L * 1024 * 1024;
+    // Gom 200k dòng vào một danh sách làm heap tăng khoảng 90 MB; đọc dần qua con trỏ chỉ khoảng 15 MB
+    private static final long MAX_HEAP_GROWTH = 48L * 1024 * 1024;
+
+    // Khoảng thời gian riêng của test này, không lẫn với dữ liệu các test khác
+    private static final LocalDateTime FROM = LocalDateTime.of(2031, 1, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusMinutes(ROWS + 1);
+
+    @Autowired
+    private MeetingExportService meetingExportService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    void seed() {
+        User user = new User();
+        user.setId("export-owner");
+        user.setUsername("export-owner");
+        user.setEmail("export-owner@example.com");
+        user.setFullName("Người xuất");
+        user.setRole(UserRole.USER);
+        userRepository.save(user);
+        Room room = roomService.createRoom(new RoomRequest("Export, tầng 2", "Tầng \"2\"", 10, null));
+        jdbcTemplate.update(
+            "INSERT INTO meetings (title, description, start_time, end_time, is_all_day, room_id, user_id, " +
+            "booking_status, created_at, updated_at, participants, pending_count, accepted_count, declined_count, version) " +
+            "SELECT CONCAT('Họp số ', x), CASE WHEN MOD(x, 2) = 0 THEN 'Mô tả' END, " +
+            "DATEADD('MINUTE', x, CAST(? AS TIMESTAMP)), DATEADD('MINUTE', x + 30, CAST(? AS TIMESTAMP)), false, ?, 'export-owner', 'BOOKED', " +
+            "NOW(), NOW(), 0, 0, 0, 0, 0 FROM (SELECT \"X\" AS x FROM SYSTEM_RANGE(1, ?))",
+            FROM, FROM, room.getRoomId(), ROWS);
+    }
+
+    @Test
+    void csvExportStreamsInBoundedHeap() throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = usedAfterGc(memory);
+        HeapSamplingStream out = new HeapSamplingStream(memory);
+
+        long exported = meetingExportService.export(MeetingExportService.Format.CSV, FROM, TO, out);
+
+        assertEquals(ROWS, exported);
+        assertEquals(ROWS + 1, out.lines, "Header + một dòng cho mỗi cuộc họp");
+        assertTrue(out.samples >= 3, "Export quá nhỏ để đo heap: " + out.count + " byte");
+        long growth = out.peakUsed - baseline;
+        assertTrue(growth < MAX_HEAP_GROWTH,
+            () -> "Heap tăng " + growth / (1024 * 1024) + " MB khi export " + ROWS + " dòng");
+    }
+
+    @Test
+    void jsonExportIsOneArrayInStartTimeOrder() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = meetingExportService.export(MeetingExportService.Format.JSON, FROM, FROM.plusMinutes(11), out);
+
+        JsonNode rows = objectMapper.readTree(out.toByteArray());
+        assertEquals(10, exported);
+        assertTrue(rows.isArray());
+        assertEquals(10, rows.size());
+        assertEquals("Họp số 1", rows.get(0).get("title").asText());
+        assertEquals("Họp số 10", rows.get(9).get("title").asText());
+        assertEquals("Export, tầng 2", rows.get(0).get("roomName").asText());
+    }
+
+    private static long usedAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    // Đếm byte/dòng, bỏ nội dung; cứ SAMPLE_BYTES byte thì đo heap sau GC
+    private static final class HeapSamplingStream extends OutputStream {
+        private final MemoryMXBean memory;
+        private long count;
+        private long lines;
+        private long nextSample = SAMPLE_BYTES;
+        private long peakUsed;
+        private int samples;
+
+        HeapSamplingStream(MemoryMXBean memory) {
+            this.memory = memory;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+            count += len;
+            if (count >= nextSample) {
+                nextSample += SAMPLE_BYTES;
+                samples++;
+                peakUsed = Math.max(peakUsed, usedAfterGc(memory));
+            }
+        }
+    }
+}
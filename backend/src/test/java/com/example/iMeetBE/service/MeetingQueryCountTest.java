@@ -0,0 +1,154 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.iMeetBE.dto.ApiResponse;
+import com.example.iMeetBE.dto.CursorPage;
+import com.example.iMeetBE.dto.RoomRequest;
+import com.example.iMeetBE.model.BookingStatus;
+import com.example.iMeetBE.model.Room;
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.model.UserRole;
+import com.example.iMeetBE.repository.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Số câu SQL của các API danh sách cuộc họp không được tăng theo số dòng (N+1 lazy load Room/User)
+ * và không hydrate entity User (cột avatar LONGTEXT). Đếm bằng Hibernate Statistics
+ * (hibernate.generate_statistics=true trong cấu hình test).
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MeetingQueryCountTest {
+
+    private static final int USERS = 10;
+    private static final int ROOMS = 5;
+    private static final int MEETINGS = 60;
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private MeetingService meetingService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private LocalDateTime base;
+    private Integer roomId;
+    private Integer meetingId;
+
+    @BeforeAll
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setId("query-" + i);
+            user.setUsername("query-" + i);
+            user.setEmail("query-" + i + "@example.com");
+            user.setFullName("Người dùng " + i);
+            user.setRole(UserRole.USER);
+            user.setAvatarUrl("data:image/png;base64," + "A".repeat(100_000));
+            userRepository.save(user);
+        }
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < ROOMS; i++) {
+            rooms.add(roomService.createRoom(new RoomRequest("Query " + i, "Tầng " + i, 10, null)));
+        }
+        roomId = rooms.get(1).getRoomId();
+
+        // Cuộc họp trong hôm nay (getMeetingsToday) và còn ở tương lai (getUpcomingMeetings)
+        base = LocalDate.now().atTime(0, 5);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < MEETINGS; i++) {
+            LocalDateTime start = base.plusMinutes(20L * i);
+            rows.add(new Object[] { "Query " + i, start, start.plusMinutes(15), rooms.get(i % ROOMS).getRoomId(),
+                "query-" + (i % USERS), i % 4 == 0 ? null : (long) i });
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO meetings (title, start_time, end_time, is_all_day, room_id, user_id, booking_status, " +
+            "created_at, participants, version) VALUES (?, ?, ?, false, ?, ?, 'BOOKED', NOW(), ?, 0)", rows);
+        meetingId = jdbcTemplate.queryForObject(
+            "SELECT MIN(meeting_id) FROM meetings WHERE title LIKE 'Query %'", Integer.class);
+        jdbcTemplate.update(
+            "INSERT INTO meeting_invitees (meeting_id, email, status, role_in_meeting, token, invited_at, invited_by) " +
+            "SELECT meeting_id, 'guest@example.com', 'ACCEPTED', 'PARTICIPANT', CONCAT('query-token-', meeting_id), " +
+            "NOW(), 'query-0' FROM meetings WHERE title LIKE 'Query %'");
+    }
+
+    Stream<Arguments> listCalls() {
+        return Stream.of(
+            call("getAllMeetings", 1, () -> meetingService.getAllMeetings(null, PAGE_SIZE)),
+            call("getMeetingsByRoom", 1, () -> meetingService.getMeetingsByRoom(roomId, null, PAGE_SIZE)),
+            call("getMeetingsByUser", 1, () -> meetingService.getMeetingsByUser("query-3", null, PAGE_SIZE)),
+            call("getMeetingsByStatus", 1, () -> meetingService.getMeetingsByStatus(BookingStatus.BOOKED, null, PAGE_SIZE)),
+            call("getUpcomingMeetings", 1, () -> meetingService.getUpcomingMeetings(null, PAGE_SIZE)),
+            call("searchMeetingsByTitle", 1, () -> meetingService.searchMeetingsByTitle("query", null, PAGE_SIZE)),
+            call("getMeetingsByDateRange", 1,
+                () -> meetingService.getMeetingsByDateRange(base.minusDays(1), base.plusDays(2))),
+            call("getMeetingsToday", 1, () -> meetingService.getMeetingsToday()),
+            call("getRoomSchedule", 1,
+                () -> meetingService.getRoomSchedule(roomId, base.minusDays(1), base.plusDays(2))),
+            call("getMeetingById", 1, () -> meetingService.getMeetingById(meetingId)),
+            // Tra token lời mời rồi mới lấy danh sách
+            call("getMeetingsForInviteeToken", 2,
+                () -> meetingService.getMeetingsForInviteeToken("query-token-" + meetingId)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("listCalls")
+    void listQueriesRunBoundedStatements(String name, int maxStatements, Supplier<ApiResponse<?>> call) {
+        statistics.clear();
+        ApiResponse<?> response = call.get();
+        long statements = statistics.getPrepareStatementCount();
+        long users = statistics.getEntityStatistics(User.class.getName()).getLoadCount();
+
+        assertTrue(response.isSuccess(), () -> name + ": " + response.getMessage());
+        assertTrue(rows(response.getData()) > 0, name + " không trả về dòng nào");
+        assertTrue(statements <= maxStatements,
+            () -> name + " chạy " + statements + " câu SQL cho " + rows(response.getData()) + " dòng, tối đa " + maxStatements);
+        assertEquals(0, users, name + " không được load entity User");
+    }
+
+    private static Arguments call(String name, int maxStatements, Supplier<ApiResponse<?>> call) {
+        return Arguments.of(name, maxStatements, call);
+    }
+
+    private static int rows(Object data) {
+        if (data instanceof CursorPage<?> page) {
+            return page.getItems().size();
+        }
+        if (data instanceof List<?> list) {
+            return list.size();
+        }
+        return data != null ? 1 : 0;
+    }
+}
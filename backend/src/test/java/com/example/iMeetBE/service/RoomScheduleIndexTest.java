@@ -0,0 +1,75 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.iMeetBE.model.BookingStatus;
+import com.example.iMeetBE.model.Meeting;
+import com.example.iMeetBE.model.Room;
+
+/**
+ * Job prune của chỉ mục lịch phòng: dời coveredFrom theo meeting.index.history và bỏ cuộc họp đã kết thúc trước mốc.
+ * Gọi ngoài transaction nên onMeetingChanged áp dụng ngay.
+ */
+class RoomScheduleIndexTest {
+
+    private static final Duration HISTORY = Duration.ofDays(1);
+    private static final int ROOM_ID = 7;
+
+    @Test
+    void pruneDropsBookingsEndedBeforeWindowAndAdvancesCoverage() {
+        RoomScheduleIndex index = new RoomScheduleIndex();
+        ReflectionTestUtils.setField(index, "historyMillis", HISTORY.toMillis());
+        LocalDateTime now = LocalDateTime.now();
+        // Như lúc nạp từ 3 ngày trước: mốc cũ còn chứa các cuộc họp đã ra khỏi cửa sổ
+        LocalDateTime loadedFrom = now.minusDays(3);
+        ReflectionTestUtils.setField(index, "coveredFrom", loadedFrom);
+
+        index.onMeetingChanged(meeting(1, now.minusDays(2), now.minusDays(2).plusHours(1)));
+        index.onMeetingChanged(meeting(2, now.minusHours(2), now.minusHours(1)));
+        index.onMeetingChanged(meeting(3, now.plusHours(1), now.plusHours(2)));
+        assertTrue(index.covers(now.minusDays(2)));
+
+        index.prune();
+
+        assertFalse(index.covers(now.minusDays(2)), "Mốc phải được dời lên now - history");
+        assertTrue(index.covers(now.minusHours(2)));
+        Map<?, ?> byMeetingId = (Map<?, ?>) ReflectionTestUtils.getField(index, "byMeetingId");
+        assertEquals(2, byMeetingId.size());
+        assertFalse(byMeetingId.containsKey(1));
+        assertEquals(2, index.findConflictId(ROOM_ID, now.minusHours(2), now.minusMinutes(90), null));
+        assertEquals(3, index.findConflictId(ROOM_ID, now.plusHours(1), now.plusHours(3), null));
+        assertNull(index.findConflictId(ROOM_ID, now, now.plusMinutes(30), null));
+    }
+
+    @Test
+    void pruneBeforeLoadDoesNothing() {
+        RoomScheduleIndex index = new RoomScheduleIndex();
+        ReflectionTestUtils.setField(index, "historyMillis", HISTORY.toMillis());
+
+        index.prune();
+
+        assertFalse(index.covers(LocalDateTime.now()), "Chưa nạp xong thì vẫn để service query database");
+    }
+
+    private static Meeting meeting(int id, LocalDateTime start, LocalDateTime end) {
+        Room room = new Room();
+        room.setRoomId(ROOM_ID);
+        Meeting meeting = new Meeting();
+        meeting.setMeetingId(id);
+        meeting.setRoom(room);
+        meeting.setStartTime(start);
+        meeting.setEndTime(end);
+        meeting.setBookingStatus(BookingStatus.BOOKED);
+        return meeting;
+    }
+}
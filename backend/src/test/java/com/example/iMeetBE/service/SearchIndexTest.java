@@ -0,0 +1,105 @@
+package com.example.iMeetBE.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.iMeetBE.dto.MeetingRequest;
+import com.example.iMeetBE.dto.RoomRequest;
+import com.example.iMeetBE.model.BookingStatus;
+import com.example.iMeetBE.model.Meeting;
+import com.example.iMeetBE.model.Room;
+import com.example.iMeetBE.model.User;
+import com.example.iMeetBE.model.UserRole;
+import com.example.iMeetBE.repository.UserRepository;
+
+/**
+ * Chỉ mục tìm kiếm theo kịp vòng đời cuộc họp: hủy thì biến mất khỏi kết quả, mở lại thì có lại,
+ * và cuộc họp đã ra khỏi search.index.meeting-history bị job prune bỏ đi.
+ */
+@SpringBootTest
+class SearchIndexTest {
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private MeetingService meetingService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void cancelledMeetingLeavesResultsAndReopenedMeetingReturns() {
+        User user = new User();
+        user.setId("search-owner");
+        user.setUsername("search-owner");
+        user.setEmail("search-owner@example.com");
+        user.setRole(UserRole.USER);
+        userRepository.save(user);
+        Room room = roomService.createRoom(new RoomRequest("Search", "Tầng 6", 10, null));
+        LocalDateTime start = LocalDateTime.now().plusDays(6).withSecond(0).withNano(0);
+        MeetingRequest request = new MeetingRequest();
+        request.setTitle("Họp xylophon quý");
+        request.setIsAllDay(false);
+        request.setRoomId(room.getRoomId());
+        request.setStartTime(start);
+        request.setEndTime(start.plusMinutes(30));
+        Integer meetingId = meetingService.createMeeting(request, user).getData().getMeetingId();
+        assertEquals(1, meetingHits("xylophon"));
+
+        assertTrue(meetingService.deleteMeeting(meetingId, user.getId(), "USER").isSuccess());
+        assertEquals(0, meetingHits("xylophon"));
+
+        assertTrue(meetingService.updateMeetingStatus(meetingId, BookingStatus.BOOKED, user.getId(), "USER").isSuccess());
+        assertEquals(1, meetingHits("xylophon"));
+
+        assertTrue(meetingService.updateMeetingStatus(meetingId, BookingStatus.CANCELLED, user.getId(), "USER").isSuccess());
+        assertEquals(0, meetingHits("xylophon"));
+    }
+
+    @Test
+    void pruneDropsMeetingsEndedBeforeHistoryWindow() {
+        SearchIndex index = new SearchIndex();
+        ReflectionTestUtils.setField(index, "meetingHistoryMillis", Duration.ofDays(1).toMillis());
+        LocalDateTime now = LocalDateTime.now();
+        index.onMeetingChanged(meeting(1, "Tổng kết glockenspiel", now.minusHours(3), now.minusHours(2)));
+        index.onMeetingChanged(meeting(2, "Kế hoạch glockenspiel", now.plusHours(1), now.plusHours(2)));
+        // Sửa một cuộc họp đã quá khoảng lịch sử: không đưa lại vào chỉ mục
+        index.onMeetingChanged(meeting(3, "Họp cũ glockenspiel", now.minusDays(3), now.minusDays(3).plusHours(1)));
+        assertEquals(2, index.search("glockenspiel", null, null).getTotal());
+
+        // Thu hẹp cửa sổ còn 1 giờ thay cho việc chờ thời gian trôi
+        ReflectionTestUtils.setField(index, "meetingHistoryMillis", Duration.ofHours(1).toMillis());
+        index.pruneMeetings();
+
+        assertEquals(1, index.search("glockenspiel", null, null).getTotal());
+        assertEquals(2L, index.search("glockenspiel", null, null).getHits().get(0).getId());
+        assertEquals(0, index.search("tong ket", null, null).getTotal());
+    }
+
+    private int meetingHits(String query) {
+        return searchIndex.search(query, Set.of(SearchIndex.Type.MEETING), null).getTotal();
+    }
+
+    private static Meeting meeting(int id, String title, LocalDateTime start, LocalDateTime end) {
+        Meeting meeting = new Meeting();
+        meeting.setMeetingId(id);
+        meeting.setTitle(title);
+        meeting.setStartTime(start);
+        meeting.setEndTime(end);
+        meeting.setBookingStatus(BookingStatus.BOOKED);
+        return meeting;
+    }
+}